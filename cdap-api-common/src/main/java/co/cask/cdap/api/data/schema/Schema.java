@@ -382,6 +382,9 @@ public final class Schema implements Serializable {
   // It can be recomputed on demand (and usually it is not used in the context that serialization is used)
   private transient String schemaString;
   private SchemaHash schemaHash;
+  // Mapping from field name to field position. It is not serialized as it can be computed from the fields.
+  // It is volatile since it is computed lazily after deserialization, possibly by concurrent readers.
+  private transient volatile Map<String, Integer> fieldIndexes;
 
   private Schema(Type type, Set<String> enumValues, Schema componentSchema, Schema keySchema, Schema valueSchema,
                  String recordName, Map<String, Field> fieldMap, List<Schema> unionSchemas) {
@@ -396,6 +399,7 @@ public final class Schema implements Serializable {
     this.recordName = recordName;
     this.fieldMap = populateRecordFields(fieldMap);
     this.fields = this.fieldMap == null ? null : Collections.unmodifiableList(new ArrayList<>(this.fieldMap.values()));
+    this.fieldIndexes = createFieldIndexes(this.fields);
     this.unionSchemas = Collections.unmodifiableList(unionSchemas == null ? new ArrayList<Schema>()
                                                                           : new ArrayList<>(unionSchemas));
   }
@@ -485,6 +489,27 @@ public final class Schema implements Serializable {
     return fieldMap.get(name);
   }
 
+  /**
+   * Returns the position of the record {@link Field} of the given name in the list of fields
+   * returned by {@link #getFields()}.
+   *
+   * @param name Name of the field
+   * @return The 0-base index of the field or {@code -1} if there is no such field in this record
+   *         or this is not a {@link Type#RECORD RECORD} schema.
+   */
+  public int getFieldIndex(String name) {
+    Map<String, Integer> indexes = fieldIndexes;
+    if (indexes == null) {
+      if (fields == null) {
+        return -1;
+      }
+      // This can only happen for deserialized instance
+      indexes = fieldIndexes = createFieldIndexes(fields);
+    }
+    Integer idx = indexes.get(name);
+    return idx == null ? -1 : idx;
+  }
+
   /**
    * @return An immutable {@link List} of schemas inside this union
    *         or {@code null} if this is not a {@link Type#UNION UNION} schema.
@@ -747,6 +772,23 @@ public final class Schema implements Serializable {
     return Collections.unmodifiableMap(resolvedFields);
   }
 
+  /**
+   * Creates the mapping from field name to the position of the field in the given list.
+   *
+   * @param fields The fields of a record schema, or {@code null} if this is not a record schema.
+   * @return A {@link Map} from field name to field position, or {@code null} if no fields were given.
+   */
+  private static Map<String, Integer> createFieldIndexes(List<Field> fields) {
+    if (fields == null) {
+      return null;
+    }
+    Map<String, Integer> indexes = new HashMap<>();
+    for (int i = 0; i < fields.size(); i++) {
+      indexes.put(fields.get(i).getName(), i);
+    }
+    return indexes;
+  }
+
   /**
    * This method is to recursively resolves all name only record schema in the given schema.
    *
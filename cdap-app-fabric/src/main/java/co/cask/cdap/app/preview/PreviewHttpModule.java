@@ -40,7 +40,7 @@ public class PreviewHttpModule extends PrivateModule {
               .build(DatasetDefinitionRegistryFactory.class));
     bind(DatasetFramework.class)
       .annotatedWith(Names.named(DataSetsModules.BASE_DATASET_FRAMEWORK))
-      .to(RemoteDatasetFramework.class);
+      .to(RemoteDatasetFramework.class).in(Scopes.SINGLETON);
     bind(PreviewManager.class).to(DefaultPreviewManager.class).in(Scopes.SINGLETON);
     expose(PreviewManager.class);
   }
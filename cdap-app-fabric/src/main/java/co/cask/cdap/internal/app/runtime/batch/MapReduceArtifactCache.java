@@ -0,0 +1,386 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.batch;
+
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.utils.ProjectInfo;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.InputSupplier;
+import com.google.common.primitives.Longs;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import javax.annotation.Nullable;
+
+/**
+ * A content addressed cache of the jars generated for launching MapReduce jobs, so that runs with the same content
+ * reuse the jars instead of building and uploading them again. Entries are named by the digest of their inputs and
+ * are kept in a directory on the {@link Location} file system, from which jobs localize them directly. The cache
+ * outlives the containers that launch the jobs, whose local directories are deleted when they exit. The least
+ * recently used entries are evicted once the total size of the directory exceeds the limit. Entries used within the
+ * minimum retention time are evicted only if the limit cannot be met otherwise, with a warning, as running jobs may
+ * still localize them.
+ */
+final class MapReduceArtifactCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MapReduceArtifactCache.class);
+
+  // Suffix of the files that record the last access of an entry. The entries themselves must not be modified,
+  // since YARN fails the localization of a resource with a modification time different from the one at submission.
+  private static final String ACCESS_SUFFIX = ".access";
+  private static final String TEMP_SUFFIX = ".tmp";
+  // Suffix of the files that are created exclusively by the launch that publishes an entry. Renames may overwrite
+  // an existing file on some file systems, which would change the modification time of an entry in use.
+  private static final String CLAIM_SUFFIX = ".claim";
+
+  // Digests of jars, keyed by URI, size and modification time, so that an unchanged jar is only read once
+  private static final Cache<String, String> DIGESTS = CacheBuilder.newBuilder().maximumSize(1000).build();
+
+  private static final Comparator<CacheEntry> LEAST_RECENTLY_USED = new Comparator<CacheEntry>() {
+    @Override
+    public int compare(CacheEntry entry1, CacheEntry entry2) {
+      return Longs.compare(entry1.lastAccess, entry2.lastAccess);
+    }
+  };
+
+  private final Location cacheDir;
+  private final long maxSizeBytes;
+  private final long minRetentionMillis;
+
+  /**
+   * Creates a cache.
+   *
+   * @param cacheDir the directory for the cached {@link Location Locations}
+   * @param maxSizeBytes the size limit of the directory
+   * @param minRetentionMillis the time after its last access during which an entry is only evicted if the size limit
+   *                           cannot be met otherwise, and after which leftover temporary files are deleted
+   */
+  MapReduceArtifactCache(Location cacheDir, long maxSizeBytes, long minRetentionMillis) {
+    this.cacheDir = cacheDir;
+    this.maxSizeBytes = maxSizeBytes;
+    this.minRetentionMillis = minRetentionMillis;
+  }
+
+  /**
+   * Returns the cached {@link Location} with the given name or {@code null} if the entry is not cached.
+   */
+  @Nullable
+  Location getLocation(String name) throws IOException {
+    Location location = cacheDir.append(name);
+    if (!location.exists()) {
+      return null;
+    }
+    touch(cacheDir, name);
+    return location;
+  }
+
+  /**
+   * Adds the content of the given source to the {@link Location} cache under the given name, unless the entry is
+   * already cached.
+   *
+   * @return the cached {@link Location}, or a copy if the entry is being added concurrently
+   */
+  Location addLocation(String name, InputSupplier<? extends InputStream> source) throws IOException {
+    return add(cacheDir, name, source);
+  }
+
+  /**
+   * Returns the name of the entry for the given prefix and digests of its inputs.
+   */
+  static String getEntryName(String prefix, String... digests) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    for (String digest : digests) {
+      hasher.putString(digest, StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+    return prefix + "-" + hasher.hash() + ".jar";
+  }
+
+  /**
+   * Returns the digest of the entries of the given jar file. Only entry names and contents are used, so that a jar
+   * rebuilt from the same files has the same digest.
+   */
+  static String digestJar(File jarFile) throws IOException {
+    String key = jarFile.getAbsoluteFile().toURI() + ":" + jarFile.length() + ":" + jarFile.lastModified();
+    String digest = DIGESTS.getIfPresent(key);
+    if (digest != null) {
+      return digest;
+    }
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    try (JarFile jar = new JarFile(jarFile)) {
+      List<JarEntry> entries = Collections.list(jar.entries());
+      Collections.sort(entries, new Comparator<JarEntry>() {
+        @Override
+        public int compare(JarEntry entry1, JarEntry entry2) {
+          return entry1.getName().compareTo(entry2.getName());
+        }
+      });
+      OutputStream hasherOutput = Funnels.asOutputStream(hasher);
+      for (JarEntry entry : entries) {
+        hasher.putString(entry.getName(), StandardCharsets.UTF_8).putByte((byte) 0);
+        if (!entry.isDirectory()) {
+          try (InputStream input = jar.getInputStream(entry)) {
+            hasher.putLong(ByteStreams.copy(input, hasherOutput));
+          }
+        }
+      }
+    }
+    digest = hasher.hash().toString();
+    DIGESTS.put(key, digest);
+    return digest;
+  }
+
+  /**
+   * Returns the digest of the content of the given {@link Location}.
+   */
+  static String digestLocation(Location location) throws IOException {
+    String key = location.toURI() + ":" + location.length() + ":" + location.lastModified();
+    String digest = DIGESTS.getIfPresent(key);
+    if (digest == null) {
+      digest = ByteStreams.hash(Locations.newInputSupplier(location), Hashing.sha256()).toString();
+      DIGESTS.put(key, digest);
+    }
+    return digest;
+  }
+
+  /**
+   * Returns a digest of the given classes and the jars on the classpath that they and their dependencies are
+   * loaded from.
+   */
+  static String digestClasses(Iterable<? extends Class<?>> classes) {
+    List<String> classNames = new ArrayList<>();
+    List<File> classpath = new ArrayList<>();
+    for (Class<?> cls : classes) {
+      classNames.add(cls.getName());
+      CodeSource codeSource = cls.getProtectionDomain().getCodeSource();
+      if (codeSource != null && codeSource.getLocation() != null) {
+        addFile(codeSource.getLocation(), classpath);
+      }
+    }
+    for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      classpath.add(new File(path));
+    }
+    return digestClasses(classNames, classpath);
+  }
+
+  /**
+   * Returns a digest of the CDAP version, the given class names and the jars in the given classpath. Jars are
+   * identified by file name and size, which are cheap to get and the same in every container, as opposed to the
+   * directory that the jars are localized to. Hashing the content of every jar would cost more than it saves on
+   * each launch, as every run gets a new container. Directories are ignored, as classes loaded from them are either
+   * from the program or plugins, which are identified by the digests of their jars, or from a development build.
+   */
+  static String digestClasses(Iterable<String> classNames, Iterable<File> classpath) {
+    TreeSet<String> sortedClassNames = new TreeSet<>();
+    for (String className : classNames) {
+      sortedClassNames.add(className);
+    }
+    TreeSet<String> jars = new TreeSet<>();
+    for (File file : classpath) {
+      if (file.isFile()) {
+        jars.add(file.getName() + ":" + file.length());
+      }
+    }
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(ProjectInfo.getVersion().toString(), StandardCharsets.UTF_8).putByte((byte) 0);
+    for (String className : sortedClassNames) {
+      hasher.putString(className, StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+    for (String jar : jars) {
+      hasher.putString(jar, StandardCharsets.UTF_8).putByte((byte) 0);
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void addFile(URL url, List<File> files) {
+    if (!"file".equals(url.getProtocol())) {
+      return;
+    }
+    try {
+      files.add(new File(url.toURI()));
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      LOG.debug("Ignoring classpath entry {} for the digest of the MapReduce job jar", url, e);
+    }
+  }
+
+  /**
+   * Adds the content of the given source to the given directory, unless the entry is already cached. The content is
+   * written to a temporary file, which is renamed to the entry by the launch that exclusively creates the claim of
+   * the entry, so that concurrent launches never see a partial entry and an existing entry is never replaced.
+   * A launch that loses the claim to a concurrent launch uses its temporary file instead, which is deleted as a
+   * leftover after the minimum retention time.
+   *
+   * @return the cached entry or the temporary file with the same content
+   */
+  private Location add(Location dir, String name, InputSupplier<? extends InputStream> source) throws IOException {
+    dir.mkdirs();
+    Location location = dir.append(name);
+    if (location.exists()) {
+      touch(dir, name);
+      return location;
+    }
+
+    Location tempLocation = location.getTempFile(TEMP_SUFFIX);
+    try {
+      ByteStreams.copy(source, Locations.newOutputSupplier(tempLocation));
+      if (!dir.append(name + CLAIM_SUFFIX).createNew()) {
+        LOG.debug("MapReduce artifact {} is being added to the cache concurrently, using {}", location, tempLocation);
+        return tempLocation;
+      }
+      if (tempLocation.renameTo(location) == null) {
+        throw new IOException("Failed to rename " + tempLocation + " to " + location);
+      }
+      LOG.debug("Added MapReduce artifact {} to the cache", location);
+    } catch (IOException e) {
+      Locations.deleteQuietly(tempLocation);
+      throw e;
+    }
+    touch(dir, name);
+    evict(dir, name);
+    return location;
+  }
+
+  /**
+   * Records an access of the given entry.
+   */
+  private void touch(Location dir, String name) {
+    Location accessLocation = dir.append(name + ACCESS_SUFFIX);
+    try {
+      Locations.newOutputSupplier(accessLocation).getOutput().close();
+    } catch (IOException e) {
+      // Only affects the eviction order
+      LOG.debug("Failed to record access of {}", accessLocation, e);
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries of the given directory until it is within the size limit. The entry
+   * that was just added is never deleted, even if it alone exceeds the limit.
+   */
+  private void evict(Location dir, String addedName) {
+    try {
+      long retainAfter = System.currentTimeMillis() - minRetentionMillis;
+      Map<String, Location> children = new HashMap<>();
+      for (Location child : dir.list()) {
+        children.put(child.getName(), child);
+      }
+
+      List<CacheEntry> entries = new ArrayList<>();
+      long totalSize = 0L;
+      for (Map.Entry<String, Location> child : children.entrySet()) {
+        String name = child.getKey();
+        Location location = child.getValue();
+        if (name.equals(addedName)) {
+          totalSize += location.length();
+          continue;
+        }
+        if (name.endsWith(TEMP_SUFFIX)) {
+          // Delete leftovers of failed launches and of launches that lost the claim of an entry
+          if (location.lastModified() < retainAfter) {
+            location.delete();
+          }
+          continue;
+        }
+        if (name.endsWith(ACCESS_SUFFIX) || name.endsWith(CLAIM_SUFFIX)) {
+          // Delete leftovers of evicted entries and of launches that failed after claiming an entry
+          String entryName = name.substring(0, name.lastIndexOf('.'));
+          if (!children.containsKey(entryName) && location.lastModified() < retainAfter) {
+            location.delete();
+          }
+          continue;
+        }
+        Location accessLocation = children.get(name + ACCESS_SUFFIX);
+        long lastAccess = Math.max(location.lastModified(),
+                                   accessLocation == null ? 0L : accessLocation.lastModified());
+        CacheEntry entry = new CacheEntry(location, accessLocation, children.get(name + CLAIM_SUFFIX),
+                                          lastAccess, location.length());
+        entries.add(entry);
+        totalSize += entry.size;
+      }
+
+      // Entries not used within the retention time are the least recently used, hence they are evicted first
+      Collections.sort(entries, LEAST_RECENTLY_USED);
+      for (CacheEntry entry : entries) {
+        if (totalSize <= maxSizeBytes) {
+          break;
+        }
+        if (entry.lastAccess >= retainAfter) {
+          LOG.warn("Evicting MapReduce artifact {} that was used within the minimum retention time from the cache. " +
+                     "Jobs that still localize it may fail. Consider increasing the size limit of the cache.",
+                   entry.location);
+        } else {
+          LOG.debug("Evicting MapReduce artifact {} from the cache", entry.location);
+        }
+        // Delete the claim last, so that the entry cannot be added again while it is being deleted
+        entry.location.delete();
+        if (entry.accessLocation != null) {
+          entry.accessLocation.delete();
+        }
+        if (entry.claimLocation != null) {
+          entry.claimLocation.delete();
+        }
+        totalSize -= entry.size;
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to evict MapReduce artifacts from {}", dir, e);
+    }
+  }
+
+  /**
+   * An entry in a cache directory.
+   */
+  private static final class CacheEntry {
+    private final Location location;
+    private final Location accessLocation;
+    private final Location claimLocation;
+    private final long lastAccess;
+    private final long size;
+
+    CacheEntry(Location location, @Nullable Location accessLocation, @Nullable Location claimLocation,
+               long lastAccess, long size) {
+      this.location = location;
+      this.accessLocation = accessLocation;
+      this.claimLocation = claimLocation;
+      this.lastAccess = lastAccess;
+      this.size = size;
+    }
+  }
+}
@@ -127,7 +127,6 @@ import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -137,7 +136,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
@@ -247,11 +246,14 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
       Location tempLocation = createTempLocationDirectory();
       cleanupTask = createCleanupTask(cleanupTask, tempLocation);
 
+      // Cache of the generated jars that are the same across runs, or null if the cache is not used
+      MapReduceArtifactCache artifactCache = createArtifactCache(mapredConf);
+
       // For local mode, everything is in the configuration classloader already, hence no need to create new jar
       if (!MapReduceTaskContextProvider.isLocal(mapredConf)) {
         // After calling initialize, we know what plugins are needed for the program, hence construct the proper
         // ClassLoader from here and use it for setting up the job
-        Location pluginArchive = createPluginArchive(tempLocation);
+        Location pluginArchive = createPluginArchive(tempLocation, artifactCache);
         if (pluginArchive != null) {
           job.addCacheArchive(pluginArchive.toURI());
           mapredConf.set(Constants.Plugin.ARCHIVE, pluginArchive.getName());
@@ -271,17 +273,17 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
       RawComparatorWrapper.KeyComparatorWrapper.wrap(job);
 
       // packaging job jar which includes cdap classes with dependencies
-      File jobJar = buildJobJar(job, tempDir);
+      Location jobJar = buildJobJar(job, tempDir, artifactCache);
       job.setJar(jobJar.toURI().toString());
 
       Location programJar = programJarLocation;
       if (!MapReduceTaskContextProvider.isLocal(mapredConf)) {
         // Copy and localize the program jar in distributed mode
-        programJar = copyProgramJar(tempLocation);
+        programJar = copyProgramJar(tempLocation, artifactCache);
         job.addCacheFile(programJar.toURI());
 
         // Generate and localize the launcher jar to control the classloader of MapReduce containers processes
-        Location launcherJar = createLauncherJar(tempLocation);
+        Location launcherJar = createLauncherJar(tempLocation, tempDir, artifactCache);
         job.addCacheFile(launcherJar.toURI());
 
         // Launcher.jar should be the first one in the classpath
@@ -302,13 +304,13 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
         // Get all the jars in jobJar and sort them lexically before adding to the classpath
         // This allows CDAP classes to be picked up first before the Twill classes
         List<String> jarFiles = new ArrayList<>();
-        try (JarFile jobJarFile = new JarFile(jobJar)) {
-          Enumeration<JarEntry> entries = jobJarFile.entries();
-          while (entries.hasMoreElements()) {
-            JarEntry entry = entries.nextElement();
+        try (JarInputStream jobJarInput = new JarInputStream(jobJar.getInputStream())) {
+          JarEntry entry = jobJarInput.getNextJarEntry();
+          while (entry != null) {
             if (entry.getName().startsWith("lib/") && entry.getName().endsWith(".jar")) {
               jarFiles.add("job.jar/" + entry.getName());
             }
+            entry = jobJarInput.getNextJarEntry();
           }
         }
         Collections.sort(jarFiles);
@@ -540,6 +542,24 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
     return location;
   }
 
+  /**
+   * Creates the {@link MapReduceArtifactCache} for this run.
+   *
+   * @return the cache or {@code null} if caching is disabled or the job runs in local mode
+   */
+  @Nullable
+  private MapReduceArtifactCache createArtifactCache(Configuration mapredConf) {
+    long maxSizeMB = cConf.getLong(Constants.AppFabric.MAPREDUCE_ARTIFACT_CACHE_MAX_SIZE_MB);
+    if (maxSizeMB <= 0 || MapReduceTaskContextProvider.isLocal(mapredConf)) {
+      return null;
+    }
+    Location location = locationFactory.get(context.getProgram().getId().getNamespaceId())
+      .append(cConf.get(Constants.AppFabric.MAPREDUCE_ARTIFACT_CACHE_DIR));
+    long minRetentionMillis =
+      TimeUnit.HOURS.toMillis(cConf.getLong(Constants.AppFabric.MAPREDUCE_ARTIFACT_CACHE_MIN_RETENTION_HOURS));
+    return new MapReduceArtifactCache(location, maxSizeMB * 1024 * 1024, minRetentionMillis);
+  }
+
   /**
    * For pre 3.5 MapReduce programs, calls the {@link MapReduce#beforeSubmit(MapReduceContext)} method.
    * For MapReduce programs created after 3.5, calls the initialize method of the {@link ProgramLifecycle}.
@@ -976,10 +996,13 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
 
   /**
    * Creates a jar that contains everything that are needed for running the MapReduce program by Hadoop.
+   * If a cache is given, a cached jar built from the same classes and jars is returned instead. Hadoop submits
+   * the cached jar from the file system directly.
    *
-   * @return a new {@link File} containing the job jar
+   * @return a {@link Location} containing the job jar
    */
-  private File buildJobJar(Job job, File tempDir) throws IOException, URISyntaxException {
+  private Location buildJobJar(Job job, File tempDir,
+                               @Nullable MapReduceArtifactCache artifactCache) throws IOException, URISyntaxException {
     File jobJar = new File(tempDir, "job.jar");
     LOG.debug("Creating Job jar: {}", jobJar);
 
@@ -987,7 +1010,7 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
     if (MapReduceTaskContextProvider.isLocal(job.getConfiguration())) {
       JarOutputStream output = new JarOutputStream(new FileOutputStream(jobJar));
       output.close();
-      return jobJar;
+      return Locations.toLocation(jobJar);
     }
 
     // Excludes libraries that are for sure not needed.
@@ -1054,6 +1077,20 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
       LOG.warn("Not including HBaseTableUtil classes in submitted Job Jar since they are not available");
     }
 
+    // Custom format classes may come from the program or plugins, hence their jars are part of the cache key
+    String cacheName = null;
+    if (artifactCache != null) {
+      File pluginArchive = context.getPluginArchive();
+      cacheName = MapReduceArtifactCache.getEntryName(
+        "job", MapReduceArtifactCache.digestClasses(classes), MapReduceArtifactCache.digestLocation(programJarLocation),
+        pluginArchive == null ? "" : MapReduceArtifactCache.digestJar(pluginArchive));
+      Location cachedJobJar = artifactCache.getLocation(cacheName);
+      if (cachedJobJar != null) {
+        LOG.debug("Using cached MapReduce Job Jar at {}", cachedJobJar);
+        return cachedJobJar;
+      }
+    }
+
     ClassLoader oldCLassLoader = ClassLoaders.setContextClassLoader(new CombineClassLoader(
       getClass().getClassLoader(), Collections.singleton(ddlExecutorClass.getClassLoader())));
 
@@ -1063,8 +1100,11 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
       ClassLoaders.setContextClassLoader(oldCLassLoader);
     }
 
-    LOG.debug("Built MapReduce Job Jar at {}", jobJar.toURI());
-    return jobJar;
+    Location jobJarLocation = artifactCache == null
+      ? Locations.toLocation(jobJar)
+      : artifactCache.addLocation(cacheName, Files.newInputStreamSupplier(jobJar));
+    LOG.debug("Built MapReduce Job Jar at {}", jobJarLocation);
+    return jobJarLocation;
   }
 
   /**
@@ -1209,15 +1249,21 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
    * Copies a plugin archive jar to the target location.
    *
    * @param targetDir directory where the archive jar should be created
+   * @param artifactCache the cache to take the archive from instead, or {@code null} to not use a cache
    * @return {@link Location} to the plugin archive or {@code null} if no plugin archive is available from the context.
    */
   @Nullable
-  private Location createPluginArchive(Location targetDir) throws IOException {
+  private Location createPluginArchive(Location targetDir,
+                                       @Nullable MapReduceArtifactCache artifactCache) throws IOException {
     File pluginArchive = context.getPluginArchive();
     if (pluginArchive == null) {
       return null;
     }
-    return copyFileToLocation(pluginArchive, targetDir);
+    if (artifactCache == null) {
+      return copyFileToLocation(pluginArchive, targetDir);
+    }
+    String cacheName = MapReduceArtifactCache.getEntryName("plugins", MapReduceArtifactCache.digestJar(pluginArchive));
+    return artifactCache.addLocation(cacheName, Files.newInputStreamSupplier(pluginArchive));
   }
 
   /**
@@ -1233,11 +1279,18 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
   }
 
   /**
-   * Creates a temp copy of the program jar.
+   * Creates a temp copy of the program jar, or takes the copy from the given cache.
    *
-   * @return a new {@link Location} which contains the same content as the program jar
+   * @return a {@link Location} which contains the same content as the program jar
    */
-  private Location copyProgramJar(Location targetDir) throws IOException {
+  private Location copyProgramJar(Location targetDir,
+                                  @Nullable MapReduceArtifactCache artifactCache) throws IOException {
+    if (artifactCache != null) {
+      String cacheName = MapReduceArtifactCache.getEntryName(
+        "program", MapReduceArtifactCache.digestLocation(programJarLocation));
+      return artifactCache.addLocation(cacheName, Locations.newInputSupplier(programJarLocation));
+    }
+
     Location programJarCopy = targetDir.append("program.jar");
 
     ByteStreams.copy(Locations.newInputSupplier(programJarLocation), Locations.newOutputSupplier(programJarCopy));
@@ -1249,18 +1302,36 @@ final class MapReduceRuntimeService extends AbstractExecutionThreadService {
    * Creates a launcher jar that contains the MR AM main class and the MR task main class. It is for ClassLoader
    * construction before delegating the actual execution to the actual MR main classes.
    *
+   * If a cache is given, a cached jar generated from the same classes is returned instead.
+   *
    * @see MapReduceContainerLauncher
    * @see ContainerLauncherGenerator
    */
-  private Location createLauncherJar(Location targetDir) throws IOException {
-    Location launcherJar = targetDir.append("launcher.jar");
-
-    ContainerLauncherGenerator.generateLauncherJar(
-      Arrays.asList(
-        "org.apache.hadoop.mapreduce.v2.app.MRAppMaster",
-        "org.apache.hadoop.mapred.YarnChild"
-      ), MapReduceContainerLauncher.class, Locations.newOutputSupplier(launcherJar));
-    return launcherJar;
+  private Location createLauncherJar(Location targetDir, File tempDir,
+                                     @Nullable MapReduceArtifactCache artifactCache) throws IOException {
+    List<String> mainClassNames = Arrays.asList(
+      "org.apache.hadoop.mapreduce.v2.app.MRAppMaster",
+      "org.apache.hadoop.mapred.YarnChild"
+    );
+    if (artifactCache == null) {
+      Location launcherJar = targetDir.append("launcher.jar");
+      ContainerLauncherGenerator.generateLauncherJar(mainClassNames, MapReduceContainerLauncher.class,
+                                                     Locations.newOutputSupplier(launcherJar));
+      return launcherJar;
+    }
+
+    String cacheName = MapReduceArtifactCache.getEntryName(
+      "launcher", Joiner.on(',').join(mainClassNames),
+      MapReduceArtifactCache.digestClasses(Arrays.asList(MapReduceContainerLauncher.class,
+                                                         ContainerLauncherGenerator.class)));
+    Location cachedLauncherJar = artifactCache.getLocation(cacheName);
+    if (cachedLauncherJar != null) {
+      return cachedLauncherJar;
+    }
+    File launcherJar = new File(tempDir, "launcher.jar");
+    ContainerLauncherGenerator.generateLauncherJar(mainClassNames, MapReduceContainerLauncher.class,
+                                                   Files.newOutputStreamSupplier(launcherJar));
+    return artifactCache.addLocation(cacheName, Files.newInputStreamSupplier(launcherJar));
   }
 
   private Runnable createCleanupTask(final Object...resources) {
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.store.preview;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Serializes a {@link StructuredRecord} to a JSON object with the "schema" and a "fields" object from field name
+ * to value. It is the JSON that reflection based serialization produced when the record kept its values in a map,
+ * which the preview data consumers rely on. Fields with {@code null} values are omitted, same as before.
+ */
+final class StructuredRecordSerializer implements JsonSerializer<StructuredRecord> {
+
+  @Override
+  public JsonElement serialize(StructuredRecord src, Type typeOfSrc, JsonSerializationContext context) {
+    JsonObject json = new JsonObject();
+    json.add("schema", context.serialize(src.getSchema(), Schema.class));
+
+    JsonObject fields = new JsonObject();
+    List<Schema.Field> schemaFields = src.getSchema().getFields();
+    for (int i = 0; i < schemaFields.size(); i++) {
+      Object value = src.get(i);
+      if (value != null) {
+        fields.add(schemaFields.get(i).getName(), context.serialize(value));
+      }
+    }
+    json.add("fields", fields);
+    return json;
+  }
+}
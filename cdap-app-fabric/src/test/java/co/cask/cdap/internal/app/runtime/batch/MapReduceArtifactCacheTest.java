@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.batch;
+
+import co.cask.cdap.common.io.Locations;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Unit tests for {@link MapReduceArtifactCache}.
+ */
+public class MapReduceArtifactCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testDigestJar() throws IOException {
+    File jar1 = createJar(1000L, "content");
+    File jar2 = createJar(2000L, "content");
+    File jar3 = createJar(1000L, "other content");
+
+    // Only the entry names and contents matter
+    Assert.assertEquals(MapReduceArtifactCache.digestJar(jar1), MapReduceArtifactCache.digestJar(jar2));
+    Assert.assertNotEquals(MapReduceArtifactCache.digestJar(jar1), MapReduceArtifactCache.digestJar(jar3));
+  }
+
+  @Test
+  public void testDigestClasses() throws IOException {
+    // The same jars are localized to a different directory in every container
+    File root1 = TEMP_FOLDER.newFolder();
+    File root2 = TEMP_FOLDER.newFolder();
+    File jar1 = createJar(1000L, "content");
+    File jar2 = createJar(1000L, "other content");
+    Files.copy(jar1, new File(root1, "a.jar"));
+    Files.copy(jar2, new File(root1, "b.jar"));
+    Files.copy(jar1, new File(root2, "a.jar"));
+    Files.copy(jar2, new File(root2, "b.jar"));
+    Assert.assertTrue(new File(root2, "a.jar").setLastModified(System.currentTimeMillis() - 60000L));
+
+    List<String> classNames = Arrays.asList("test.Class1", "test.Class2");
+    String digest = MapReduceArtifactCache.digestClasses(classNames, Arrays.asList(new File(root1, "a.jar"),
+                                                                                   new File(root1, "b.jar"),
+                                                                                   root1));
+    Assert.assertEquals(digest, MapReduceArtifactCache.digestClasses(classNames,
+                                                                     Arrays.asList(new File(root2, "b.jar"),
+                                                                                   new File(root2, "a.jar"),
+                                                                                   root2)));
+    Assert.assertNotEquals(digest, MapReduceArtifactCache.digestClasses(classNames.subList(0, 1),
+                                                                        Arrays.asList(new File(root1, "a.jar"),
+                                                                                      new File(root1, "b.jar"))));
+    Assert.assertNotEquals(digest, MapReduceArtifactCache.digestClasses(classNames,
+                                                                        Arrays.asList(new File(root1, "a.jar"))));
+
+    // A different jar, such as after an upgrade of a library, changes the digest
+    Files.copy(jar2, new File(root2, "a.jar"));
+    Assert.assertNotEquals(digest, MapReduceArtifactCache.digestClasses(classNames,
+                                                                        Arrays.asList(new File(root2, "a.jar"),
+                                                                                      new File(root2, "b.jar"))));
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    Location cacheDir = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("cache");
+    MapReduceArtifactCache cache = new MapReduceArtifactCache(cacheDir, 1024L, TimeUnit.HOURS.toMillis(1));
+
+    String name = MapReduceArtifactCache.getEntryName("job", "digest");
+    Assert.assertNull(cache.getLocation(name));
+    Location location = cache.addLocation(name, Files.newInputStreamSupplier(createFile(100)));
+    Assert.assertEquals(cacheDir.append(name).toURI(), location.toURI());
+    Assert.assertEquals(100L, location.length());
+
+    // A later run, usually launched from another container, uses the same entry
+    MapReduceArtifactCache otherCache = new MapReduceArtifactCache(cacheDir, 1024L, TimeUnit.HOURS.toMillis(1));
+    Location cached = otherCache.getLocation(name);
+    Assert.assertNotNull(cached);
+    Assert.assertEquals(location.toURI(), cached.toURI());
+  }
+
+  @Test
+  public void testNoOverwrite() throws IOException {
+    Location cacheDir = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("cache");
+    MapReduceArtifactCache cache = new MapReduceArtifactCache(cacheDir, 1024L, TimeUnit.HOURS.toMillis(1));
+
+    // Adding an existing entry keeps the existing entry, so that its modification time does not change
+    String name = MapReduceArtifactCache.getEntryName("plugins", "1");
+    Location location = cache.addLocation(name, Files.newInputStreamSupplier(createFile(100)));
+    long lastModified = TimeUnit.SECONDS.toMillis(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - 60);
+    Assert.assertTrue(new File(location.toURI()).setLastModified(lastModified));
+    Location added = cache.addLocation(name, Files.newInputStreamSupplier(createFile(50)));
+    Assert.assertEquals(location.toURI(), added.toURI());
+    Assert.assertEquals(lastModified, location.lastModified());
+    Assert.assertEquals(100L, location.length());
+
+    // While another launch is adding an entry, its own copy is used without touching the entry
+    String claimedName = MapReduceArtifactCache.getEntryName("plugins", "2");
+    Assert.assertTrue(cacheDir.append(claimedName + ".claim").createNew());
+    Location copy = cache.addLocation(claimedName, Files.newInputStreamSupplier(createFile(100)));
+    Assert.assertNotEquals(cacheDir.append(claimedName).toURI(), copy.toURI());
+    Assert.assertEquals(100L, copy.length());
+    Assert.assertFalse(cacheDir.append(claimedName).exists());
+    Assert.assertNull(cache.getLocation(claimedName));
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    File cacheDir = TEMP_FOLDER.newFolder();
+    MapReduceArtifactCache cache = new MapReduceArtifactCache(Locations.toLocation(cacheDir),
+                                                              250L, TimeUnit.MINUTES.toMillis(30));
+    String name1 = MapReduceArtifactCache.getEntryName("job", "1");
+    String name2 = MapReduceArtifactCache.getEntryName("job", "2");
+    String name3 = MapReduceArtifactCache.getEntryName("job", "3");
+
+    cache.addLocation(name1, Files.newInputStreamSupplier(createFile(100)));
+    cache.addLocation(name2, Files.newInputStreamSupplier(createFile(100)));
+    long now = System.currentTimeMillis();
+    setLastAccess(cacheDir, name1, now - TimeUnit.HOURS.toMillis(2));
+    setLastAccess(cacheDir, name2, now - TimeUnit.HOURS.toMillis(1));
+
+    // Use the older entry, so that the other one is the least recently used
+    Assert.assertNotNull(cache.getLocation(name1));
+
+    cache.addLocation(name3, Files.newInputStreamSupplier(createFile(100)));
+    Assert.assertTrue(new File(cacheDir, name1).isFile());
+    Assert.assertFalse(new File(cacheDir, name2).exists());
+    Assert.assertFalse(new File(cacheDir, name2 + ".claim").exists());
+    Assert.assertTrue(new File(cacheDir, name3).isFile());
+
+    // Entries within the retention time are still evicted if the cache is over the size limit otherwise
+    setLastAccess(cacheDir, name1, now - TimeUnit.MINUTES.toMillis(10));
+    setLastAccess(cacheDir, name3, now - TimeUnit.MINUTES.toMillis(5));
+    String name4 = MapReduceArtifactCache.getEntryName("job", "4");
+    cache.addLocation(name4, Files.newInputStreamSupplier(createFile(100)));
+    Assert.assertFalse(new File(cacheDir, name1).exists());
+    Assert.assertTrue(new File(cacheDir, name3).isFile());
+    Assert.assertTrue(new File(cacheDir, name4).isFile());
+
+    // An entry evicted from the cache can be added again
+    cache.addLocation(name1, Files.newInputStreamSupplier(createFile(100)));
+    Assert.assertTrue(new File(cacheDir, name1).isFile());
+    Assert.assertFalse(new File(cacheDir, name3).exists());
+  }
+
+  private void setLastAccess(File dir, String name, long time) {
+    Assert.assertTrue(new File(dir, name).setLastModified(time));
+    Assert.assertTrue(new File(dir, name + ".access").setLastModified(time));
+  }
+
+  private File createFile(int size) throws IOException {
+    File file = TEMP_FOLDER.newFile();
+    Files.write(Strings.repeat("x", size), file, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private File createJar(long entryTime, String content) throws IOException {
+    File file = TEMP_FOLDER.newFile();
+    try (JarOutputStream output = new JarOutputStream(new FileOutputStream(file))) {
+      JarEntry entry = new JarEntry("entry.txt");
+      entry.setTime(entryTime);
+      output.putNextEntry(entry);
+      output.write(content.getBytes(StandardCharsets.UTF_8));
+      output.closeEntry();
+    }
+    return file;
+  }
+}
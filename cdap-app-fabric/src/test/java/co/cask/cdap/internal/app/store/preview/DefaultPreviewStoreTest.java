@@ -15,12 +15,18 @@
  */
 package co.cask.cdap.internal.app.store.preview;
 
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.internal.AppFabricTestHelper;
 import co.cask.cdap.proto.NamespaceMeta;
+import co.cask.cdap.internal.io.SchemaTypeAdapter;
 import co.cask.cdap.proto.id.ApplicationId;
+import com.google.common.collect.ImmutableSet;
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Injector;
 import org.junit.Assert;
@@ -29,8 +35,10 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Tests for the {@link DefaultPreviewStore}.
@@ -92,4 +100,39 @@ public class DefaultPreviewStoreTest {
     firstApplicationData = store.get(firstApplicationId, "mytracer");
     Assert.assertEquals(0, firstApplicationData.size());
   }
+
+  @Test
+  public void testStructuredRecord() throws Exception {
+    ApplicationId applicationId = new ApplicationId(NamespaceMeta.DEFAULT.getName(), RunIds.generate().getId());
+    Schema innerSchema = Schema.recordOf("inner", Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+    Schema schema = Schema.recordOf("outer",
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("age", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+                                    Schema.Field.of("inner", innerSchema));
+    StructuredRecord record = StructuredRecord.builder(schema)
+      .set("name", "alice")
+      .set("inner", StructuredRecord.builder(innerSchema).set("id", 5L).build())
+      .build();
+    store.put(applicationId, "mytracer", "records.out", record);
+
+    // The record is stored as the schema and a map from field name to value, which the UI reads
+    JsonObject json = store.get(applicationId, "mytracer").get("records.out").get(0).getAsJsonObject();
+    Assert.assertEquals(ImmutableSet.of("schema", "fields"), getKeys(json));
+    Gson gson = new GsonBuilder().registerTypeAdapter(Schema.class, new SchemaTypeAdapter()).create();
+    Assert.assertEquals(schema, gson.fromJson(json.get("schema"), Schema.class));
+
+    JsonObject fields = json.getAsJsonObject("fields");
+    // null values are omitted
+    Assert.assertEquals(ImmutableSet.of("name", "inner"), getKeys(fields));
+    Assert.assertEquals("alice", fields.get("name").getAsString());
+    Assert.assertEquals(5L, fields.getAsJsonObject("inner").getAsJsonObject("fields").get("id").getAsLong());
+  }
+
+  private Set<String> getKeys(JsonObject json) {
+    Set<String> keys = new HashSet<>();
+    for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+      keys.add(entry.getKey());
+    }
+    return keys;
+  }
 }
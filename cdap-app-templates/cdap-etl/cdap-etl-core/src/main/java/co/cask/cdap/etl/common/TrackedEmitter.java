@@ -27,7 +27,7 @@ import co.cask.cdap.etl.api.StageMetrics;
  * @param <T> the type of object to emit
  */
 public class TrackedEmitter<T> implements Emitter<T> {
-  private static final String RECORDS_ERROR = "records.error";
+  static final String RECORDS_ERROR = "records.error";
   private final Emitter<T> delegate;
   private final StageMetrics stageMetrics;
   private final String emitMetricName;
@@ -40,6 +40,10 @@ public class TrackedEmitter<T> implements Emitter<T> {
     this.dataTracer = dataTracer;
   }
 
+  Emitter<T> getDelegate() {
+    return delegate;
+  }
+
   @Override
   public void emit(T value) {
     stageMetrics.count(emitMetricName, 1);
@@ -19,9 +19,11 @@ package co.cask.cdap.etl.common;
 import co.cask.cdap.api.preview.DataTracer;
 import co.cask.cdap.etl.api.Destroyable;
 import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.InvalidEntry;
 import co.cask.cdap.etl.api.StageMetrics;
 import co.cask.cdap.etl.api.Transformation;
 
+import java.util.Collection;
 import javax.annotation.Nullable;
 
 /**
@@ -39,6 +41,9 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
   private final String metricInName;
   private final String metricOutName;
   private final DataTracer dataTracer;
+  private final BatchEmitter batchEmitter;
+  // The tracked emitter of the last transform call. It is reused as long as the emitter passed in is the same.
+  private TrackedEmitter<OUT> trackedEmitter;
 
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics, DataTracer dataTracer) {
     this(transform, metrics, RECORDS_IN, RECORDS_OUT, dataTracer);
@@ -51,6 +56,7 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
     this.metricInName = metricInName;
     this.metricOutName = metricOutName;
     this.dataTracer = dataTracer;
+    this.batchEmitter = new BatchEmitter();
   }
 
   @Override
@@ -58,8 +64,80 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
     if (metricInName != null) {
       metrics.count(metricInName, 1);
     }
-    transform.transform(input, metricOutName == null ? emitter :
-      new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer));
+    transform.transform(input, metricOutName == null ? emitter : getTrackedEmitter(emitter));
+  }
+
+  /**
+   * Transforms a batch of input records. It has the same effect as calling the
+   * {@link #transform(Object, Emitter)} method for each of the records, except that metrics are counted
+   * once for the whole batch instead of once per record.
+   *
+   * @param inputs the input records
+   * @param emitter the {@link Emitter} for emitting outputs of all the records
+   */
+  public void transformAll(Collection<? extends IN> inputs, Emitter<OUT> emitter) throws Exception {
+    transformAll(inputs, emitter, null);
+  }
+
+  /**
+   * Transforms a batch of input records like {@link #transformAll(Collection, Emitter)}. If a failure handler is
+   * given, a record failing to transform is passed to it and the remaining records are still transformed.
+   * Records emitted before the failure are kept and counted, same as with {@link #transform(Object, Emitter)}.
+   *
+   * @param inputs the input records
+   * @param emitter the {@link Emitter} for emitting outputs of all the records
+   * @param failureHandler the handler of records failing to transform, or {@code null} to fail the batch instead
+   */
+  public void transformAll(Collection<? extends IN> inputs, Emitter<OUT> emitter,
+                           @Nullable TransformFailureHandler failureHandler) throws Exception {
+    if (inputs.isEmpty()) {
+      return;
+    }
+    if (metricInName != null) {
+      metrics.count(metricInName, inputs.size());
+    }
+    if (metricOutName == null) {
+      for (IN input : inputs) {
+        transform(input, emitter, failureHandler);
+      }
+      return;
+    }
+
+    batchEmitter.reset(emitter);
+    try {
+      for (IN input : inputs) {
+        transform(input, batchEmitter, failureHandler);
+      }
+    } finally {
+      // Count what were emitted even if the transform failed in the middle, same as the per record transform
+      if (batchEmitter.emitted > 0) {
+        metrics.count(metricOutName, batchEmitter.emitted);
+      }
+      if (batchEmitter.errors > 0) {
+        metrics.count(TrackedEmitter.RECORDS_ERROR, batchEmitter.errors);
+      }
+      batchEmitter.reset(null);
+    }
+  }
+
+  private void transform(IN input, Emitter<OUT> emitter,
+                         @Nullable TransformFailureHandler failureHandler) throws Exception {
+    if (failureHandler == null) {
+      transform.transform(input, emitter);
+      return;
+    }
+    try {
+      transform.transform(input, emitter);
+    } catch (Exception e) {
+      failureHandler.handle(input, e);
+    }
+  }
+
+  private TrackedEmitter<OUT> getTrackedEmitter(Emitter<OUT> emitter) {
+    if (trackedEmitter == null || trackedEmitter.getDelegate() != emitter) {
+      trackedEmitter = new TrackedEmitter<>(emitter, metrics, metricOutName, dataTracer);
+    }
+    return trackedEmitter;
   }
 
   @Override
@@ -68,4 +146,38 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
       ((Destroyable) transform).destroy();
     }
   }
+
+  /**
+   * An {@link Emitter} that counts the number of records emitted in a batch, which get reported as metrics
+   * once the batch is completed.
+   */
+  private final class BatchEmitter implements Emitter<OUT> {
+    private Emitter<OUT> delegate;
+    private int emitted;
+    private int errors;
+
+    void reset(@Nullable Emitter<OUT> delegate) {
+      this.delegate = delegate;
+      this.emitted = 0;
+      this.errors = 0;
+    }
+
+    @Override
+    public void emit(OUT value) {
+      emitted++;
+      if (dataTracer.isEnabled()) {
+        dataTracer.info(metricOutName, value);
+      }
+      delegate.emit(value);
+    }
+
+    @Override
+    public void emitError(InvalidEntry<OUT> value) {
+      errors++;
+      if (dataTracer.isEnabled()) {
+        dataTracer.info(TrackedEmitter.RECORDS_ERROR, value);
+      }
+      delegate.emitError(value);
+    }
+  }
 }
@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 
 /**
@@ -45,9 +46,34 @@ public class TransformExecutor<IN> implements Destroyable {
   }
 
   public TransformResponse runOneIteration(IN input) throws Exception {
+    return runOneBatch(ImmutableList.of(input));
+  }
+
+  /**
+   * Runs a batch of input records through the transforms. Each transform processes the whole batch before
+   * passing its outputs to the next transforms, so that metrics are counted once per transform for the batch.
+   *
+   * @param inputs the input records to the first transforms
+   * @return the {@link TransformResponse} containing the outputs of all records in the batch
+   */
+  public TransformResponse runOneBatch(Collection<? extends IN> inputs) throws Exception {
+    return runOneBatch(inputs, null);
+  }
+
+  /**
+   * Runs a batch of input records through the transforms like {@link #runOneBatch(Collection)}. If a failure handler
+   * is given, a record failing in a transform is passed to it and skipped by that transform, while the other records
+   * of the batch continue through the transforms. Hence every record is only transformed and counted once.
+   *
+   * @param inputs the input records to the first transforms
+   * @param failureHandler the handler of records failing in a transform, or {@code null} to fail the batch instead
+   * @return the {@link TransformResponse} containing the outputs of all records in the batch
+   */
+  public TransformResponse runOneBatch(Collection<? extends IN> inputs,
+                                       @Nullable TransformFailureHandler failureHandler) throws Exception {
     for (String stageName : startingPoints) {
       // no prevStage for starting points
-      executeTransformation(stageName, ImmutableList.of(input));
+      executeTransformation(stageName, inputs, failureHandler);
     }
 
     Map<String, Collection<Object>> terminalNodeEntriesMap = new HashMap<>();
@@ -69,8 +95,9 @@ public class TransformExecutor<IN> implements Destroyable {
     return new TransformResponse(terminalNodeEntriesMap, errors);
   }
 
-  private <T> void executeTransformation(final String stageName,
-                                         Collection<T> input) throws Exception {
+  @SuppressWarnings("unchecked")
+  private <T> void executeTransformation(final String stageName, Collection<? extends T> input,
+                                         @Nullable TransformFailureHandler failureHandler) throws Exception {
     if (input == null) {
       return;
     }
@@ -84,13 +111,24 @@ public class TransformExecutor<IN> implements Destroyable {
       transformDetail.getEntries().clear();
     }
 
-    for (T inputEntry : input) {
-      transformation.transform(inputEntry, transformDetail);
+    if (transformation instanceof TrackedTransform) {
+      ((TrackedTransform<T, Object>) transformation).transformAll(input, transformDetail, failureHandler);
+    } else {
+      for (T inputEntry : input) {
+        try {
+          transformation.transform(inputEntry, transformDetail);
+        } catch (Exception e) {
+          if (failureHandler == null) {
+            throw e;
+          }
+          failureHandler.handle(inputEntry, e);
+        }
+      }
     }
 
     Collection<String> nextStages = transformDetail.getNextStages();
     for (String nextStage : nextStages) {
-      executeTransformation(nextStage, transformDetail.getEntries());
+      executeTransformation(nextStage, transformDetail.getEntries(), failureHandler);
     }
 
   }
@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.common;
+
+/**
+ * Handles the failure of transforming a single record of a batch, so that the other records of the batch
+ * still get transformed.
+ */
+public interface TransformFailureHandler {
+
+  /**
+   * Called when transforming the given input record failed.
+   *
+   * @param input the input record of the failed transform
+   * @param e the exception thrown by the transform
+   * @throws Exception if the failure should fail the whole batch
+   */
+  void handle(Object input, Exception e) throws Exception;
+}
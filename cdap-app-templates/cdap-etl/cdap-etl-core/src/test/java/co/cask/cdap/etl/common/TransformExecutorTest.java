@@ -30,6 +30,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -292,6 +293,124 @@ public class TransformExecutorTest {
     Assert.assertEquals(3, mockMetrics.getCount("sink3.records.out"));
   }
 
+  @Test
+  public void testBatch() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+
+    transformationMap.put("transform1",
+                          new TransformDetail(
+                            new TrackedTransform<>(new IntToDouble(),
+                                                   new DefaultStageMetrics(mockMetrics, "transform1"),
+                                                   dataTracerFactory.getDataTracer(null, "transform1")),
+                            ImmutableList.of("transform2", "sink1")));
+
+    transformationMap.put("transform2",
+                          new TransformDetail(
+                            new TrackedTransform<>(new Filter(100d, Threshold.LOWER),
+                                                   new DefaultStageMetrics(mockMetrics, "transform2"),
+                                                   dataTracerFactory.getDataTracer(null, "transform2")),
+                            ImmutableList.of("sink2")));
+
+    transformationMap.put("sink1",
+                          new TransformDetail(
+                            new TrackedTransform<>(new DoubleToString(),
+                                                   new DefaultStageMetrics(mockMetrics, "sink1"),
+                                                   dataTracerFactory.getDataTracer(null, "sink1")),
+                            ImmutableList.<String>of()));
+
+    transformationMap.put("sink2",
+                          new TransformDetail(
+                            new TrackedTransform<>(new DoubleToString(),
+                                                   new DefaultStageMetrics(mockMetrics, "sink2"),
+                                                   dataTracerFactory.getDataTracer(null, "sink2")),
+                            ImmutableList.<String>of()));
+
+    TransformExecutor<Integer> executor = new TransformExecutor<>(transformationMap, ImmutableSet.of("transform1"));
+
+    // The batch should produce the same results as running the records one by one in testTransforms
+    TransformResponse transformResponse = executor.runOneBatch(ImmutableList.of(1, 10, 100, 2000));
+
+    assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 12, "sink2", 6));
+    assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("transform2", 6));
+
+    Assert.assertEquals(4, mockMetrics.getCount("transform1.records.in"));
+    Assert.assertEquals(12, mockMetrics.getCount("transform1.records.out"));
+    Assert.assertEquals(12, mockMetrics.getCount("transform2.records.in"));
+    Assert.assertEquals(6, mockMetrics.getCount("transform2.records.out"));
+    Assert.assertEquals(6, mockMetrics.getCount("transform2.records.error"));
+    Assert.assertEquals(12, mockMetrics.getCount("sink1.records.out"));
+    Assert.assertEquals(6, mockMetrics.getCount("sink2.records.out"));
+    executor.resetEmitter();
+    mockMetrics.clearMetrics();
+
+    // An empty batch should not produce anything
+    transformResponse = executor.runOneBatch(ImmutableList.<Integer>of());
+    assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 0, "sink2", 0));
+    assertResults(transformResponse.getMapTransformIdToErrorEmitter(), new HashMap<String, Integer>());
+    Assert.assertEquals(0, mockMetrics.getCount("transform1.records.in"));
+  }
+
+  @Test
+  public void testBatchWithFailure() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+
+    transformationMap.put("transform1",
+                          new TransformDetail(
+                            new TrackedTransform<>(new FailOnValue(10),
+                                                   new DefaultStageMetrics(mockMetrics, "transform1"),
+                                                   dataTracerFactory.getDataTracer(null, "transform1")),
+                            ImmutableList.of("transform2")));
+
+    transformationMap.put("transform2",
+                          new TransformDetail(
+                            new TrackedTransform<>(new IntToDouble(),
+                                                   new DefaultStageMetrics(mockMetrics, "transform2"),
+                                                   dataTracerFactory.getDataTracer(null, "transform2")),
+                            ImmutableList.of("sink1")));
+
+    transformationMap.put("sink1",
+                          new TransformDetail(
+                            new TrackedTransform<>(new DoubleToString(),
+                                                   new DefaultStageMetrics(mockMetrics, "sink1"),
+                                                   dataTracerFactory.getDataTracer(null, "sink1")),
+                            ImmutableList.<String>of()));
+
+    TransformExecutor<Integer> executor = new TransformExecutor<>(transformationMap, ImmutableSet.of("transform1"));
+
+    // The failed record is skipped and every record is only counted once
+    final List<Object> failed = new ArrayList<>();
+    TransformResponse transformResponse = executor.runOneBatch(ImmutableList.of(1, 10, 100),
+                                                               new TransformFailureHandler() {
+      @Override
+      public void handle(Object input, Exception e) {
+        failed.add(input);
+      }
+    });
+
+    Assert.assertEquals(ImmutableList.<Object>of(10), failed);
+    assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 6));
+    Assert.assertEquals(3, mockMetrics.getCount("transform1.records.in"));
+    Assert.assertEquals(2, mockMetrics.getCount("transform1.records.out"));
+    Assert.assertEquals(2, mockMetrics.getCount("transform2.records.in"));
+    Assert.assertEquals(6, mockMetrics.getCount("transform2.records.out"));
+    Assert.assertEquals(6, mockMetrics.getCount("sink1.records.in"));
+    Assert.assertEquals(6, mockMetrics.getCount("sink1.records.out"));
+    executor.resetEmitter();
+    mockMetrics.clearMetrics();
+
+    // Without a failure handler, the failure fails the batch
+    try {
+      executor.runOneBatch(ImmutableList.of(1, 10, 100));
+      Assert.fail("Expected the batch to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    // records emitted before the failure are still counted
+    Assert.assertEquals(1, mockMetrics.getCount("transform1.records.out"));
+  }
+
   private <T> void assertResults(Map<String, Collection<T>> results, Map<String, Integer> expectedListsSize) {
     Assert.assertEquals(expectedListsSize.size(), results.size());
     for (Map.Entry<String, Integer> entry : expectedListsSize.entrySet()) {
@@ -344,6 +463,22 @@ public class TransformExecutorTest {
     }
   }
 
+  private static class FailOnValue extends Transform<Integer, Integer> {
+    private final int failValue;
+
+    FailOnValue(int failValue) {
+      this.failValue = failValue;
+    }
+
+    @Override
+    public void transform(Integer input, Emitter<Integer> emitter) throws Exception {
+      if (input == failValue) {
+        throw new IllegalArgumentException("Failed to transform " + input);
+      }
+      emitter.emit(input);
+    }
+  }
+
   private static class DoubleToString extends Transform<Double, String> {
 
     @Override
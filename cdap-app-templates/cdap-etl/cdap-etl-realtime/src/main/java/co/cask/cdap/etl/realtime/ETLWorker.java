@@ -49,6 +49,7 @@ import co.cask.cdap.etl.common.TrackedEmitter;
 import co.cask.cdap.etl.common.TrackedTransform;
 import co.cask.cdap.etl.common.TransformDetail;
 import co.cask.cdap.etl.common.TransformExecutor;
+import co.cask.cdap.etl.common.TransformFailureHandler;
 import co.cask.cdap.etl.common.TransformResponse;
 import co.cask.cdap.etl.common.TxLookupProvider;
 import co.cask.cdap.etl.common.plugin.Caller;
@@ -76,6 +77,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -105,6 +107,12 @@ public class ETLWorker extends AbstractWorker {
   private static final String UNIQUE_ID = "uniqueid";
   private static final Set<String> SUPPORTED_PLUGIN_TYPES = ImmutableSet.of(
     RealtimeSource.PLUGIN_TYPE, RealtimeSink.PLUGIN_TYPE, Transform.PLUGIN_TYPE);
+  private static final TransformFailureHandler TRANSFORM_FAILURE_HANDLER = new TransformFailureHandler() {
+    @Override
+    public void handle(Object input, Exception e) {
+      LOG.warn("Exception thrown while processing data {}", input, e);
+    }
+  };
 
   // only visible at configure time
   private final ETLRealtimeConfig config;
@@ -339,47 +347,41 @@ public class ETLWorker extends AbstractWorker {
         continue;
       }
 
-      // For each object emitted by the source, invoke the transformExecutor and collect all the data
+      // Run all objects emitted by the source through the transforms as one batch and collect all the data
       // to be persisted in the sink.
-      for (Object sourceData : sourceEmitter.getEntries()) {
-        try {
-          TransformResponse transformResponse = transformExecutor.runOneIteration(sourceData);
-
-          for (Map.Entry<String, Collection<Object>> transformedValues :
-            transformResponse.getSinksResults().entrySet()) {
-            dataToSink.put(transformedValues.getKey(), new ArrayList<>());
-            Iterator emitterIterator = transformedValues.getValue().iterator();
-            while (emitterIterator.hasNext()) {
-              if (!hasData) {
-                hasData = true;
-              }
-              dataToSink.get(transformedValues.getKey()).add(emitterIterator.next());
+      for (TransformResponse transformResponse : runTransforms(sourceEmitter.getEntries())) {
+        for (Map.Entry<String, Collection<Object>> transformedValues :
+          transformResponse.getSinksResults().entrySet()) {
+          dataToSink.put(transformedValues.getKey(), new ArrayList<>());
+          Iterator emitterIterator = transformedValues.getValue().iterator();
+          while (emitterIterator.hasNext()) {
+            if (!hasData) {
+              hasData = true;
             }
+            dataToSink.get(transformedValues.getKey()).add(emitterIterator.next());
           }
+        }
 
-          for (Map.Entry<String, Collection<InvalidEntry<Object>>> transformErrorsEntry :
-            transformResponse.getMapTransformIdToErrorEmitter().entrySet()) {
+        for (Map.Entry<String, Collection<InvalidEntry<Object>>> transformErrorsEntry :
+          transformResponse.getMapTransformIdToErrorEmitter().entrySet()) {
 
-            if (!transformErrorsWithoutDataset.contains(transformErrorsEntry.getKey())) {
+          if (!transformErrorsWithoutDataset.contains(transformErrorsEntry.getKey())) {
 
-              if (!tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
-                && !transformErrorsEntry.getValue().isEmpty()) {
-                transformErrorsWithoutDataset.add(transformErrorsEntry.getKey());
-                LOG.warn("Error records were emitted in transform {}, " +
-                           "but error dataset is not configured for this transform", transformErrorsEntry.getKey());
-              }
-              if (tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
-                && !transformErrorsEntry.getValue().isEmpty()) {
-                // add the errors
-                if (!hasData && transformErrorsEntry.getValue().size() > 0) {
-                  hasData = true;
-                }
-                transformIdToErrorRecords.get(transformErrorsEntry.getKey()).addAll(transformErrorsEntry.getValue());
+            if (!tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
+              && !transformErrorsEntry.getValue().isEmpty()) {
+              transformErrorsWithoutDataset.add(transformErrorsEntry.getKey());
+              LOG.warn("Error records were emitted in transform {}, " +
+                         "but error dataset is not configured for this transform", transformErrorsEntry.getKey());
+            }
+            if (tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
+              && !transformErrorsEntry.getValue().isEmpty()) {
+              // add the errors
+              if (!hasData && transformErrorsEntry.getValue().size() > 0) {
+                hasData = true;
               }
+              transformIdToErrorRecords.get(transformErrorsEntry.getKey()).addAll(transformErrorsEntry.getValue());
             }
           }
-        } catch (Exception e) {
-          LOG.warn("Exception thrown while processing data {}", sourceData, e);
         }
       }
       sourceEmitter.reset();
@@ -443,6 +445,24 @@ public class ETLWorker extends AbstractWorker {
     }
   }
 
+  /**
+   * Runs the given objects through the transforms as one batch. An object failing in a transform is skipped by that
+   * transform, so that a failure in one object doesn't prevent the other objects from being processed.
+   */
+  private List<TransformResponse> runTransforms(Collection<Object> sourceData) {
+    if (sourceData.isEmpty()) {
+      return Collections.emptyList();
+    }
+    try {
+      return Collections.singletonList(transformExecutor.runOneBatch(sourceData, TRANSFORM_FAILURE_HANDLER));
+    } catch (Exception e) {
+      LOG.warn("Exception thrown while processing a batch of {} records", sourceData.size(), e);
+      // Discard outputs of the failed batch
+      transformExecutor.resetEmitter();
+      return Collections.emptyList();
+    }
+  }
+
   private Map<String, List<InvalidEntry>> intializeTransformIdToErrorsList() {
     Map<String, List<InvalidEntry>> transformIdToErrorListMap = new HashMap<>();
     for (String transformId : tranformIdToDatasetName.keySet()) {
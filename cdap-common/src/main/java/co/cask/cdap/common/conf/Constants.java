@@ -174,6 +174,10 @@ public final class Constants {
     public static final String APP_SCHEDULER_QUEUE = "apps.scheduler.queue";
     public static final String MAPREDUCE_JOB_CLIENT_CONNECT_MAX_RETRIES = "mapreduce.jobclient.connect.max.retries";
     public static final String MAPREDUCE_INCLUDE_CUSTOM_CLASSES = "mapreduce.include.custom.format.classes";
+    public static final String MAPREDUCE_ARTIFACT_CACHE_DIR = "mapreduce.artifact.cache.dir";
+    public static final String MAPREDUCE_ARTIFACT_CACHE_MAX_SIZE_MB = "mapreduce.artifact.cache.max.size.mb";
+    public static final String MAPREDUCE_ARTIFACT_CACHE_MIN_RETENTION_HOURS =
+      "mapreduce.artifact.cache.min.retention.hours";
     public static final String PROGRAM_RUNID_CORRECTOR_INTERVAL_SECONDS = "app.program.runid.corrector.interval";
     public static final String SYSTEM_ARTIFACTS_DIR = "app.artifact.dir";
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
@@ -340,6 +344,10 @@ public final class Constants {
     public static final String DATASET_UNCHECKED_UPGRADE = "dataset.unchecked.upgrade";
 
     public static final String DATA_EVENT_TOPIC = "data.event.topic";
+    public static final String INSTANCE_EVENT_TOPIC = "dataset.instance.event.topic";
+
+    public static final String CLIENT_META_CACHE_SIZE = "dataset.client.meta.cache.size";
+    public static final String CLIENT_META_CACHE_TTL_SECS = "dataset.client.meta.cache.ttl.secs";
 
     /**
      * Constants for PartitionedFileSet's DynamicPartitioner
@@ -433,6 +441,7 @@ public final class Constants {
     public static final String INSTANCE_FILE_PREFIX = "stream.instance.file.prefix";
     public static final String CONSUMER_TABLE_PRESPLITS = "stream.consumer.table.presplits";
     public static final String FILE_CLEANUP_PERIOD = "stream.file.cleanup.period";
+    public static final String FILE_COMPRESSION = "stream.file.compression";
     public static final String BATCH_BUFFER_THRESHOLD = "stream.batch.buffer.threshold";
     public static final String NOTIFICATION_THRESHOLD = "stream.notification.threshold";
 
@@ -443,6 +452,8 @@ public final class Constants {
     public static final String WORKER_THREADS = "stream.worker.threads";
     public static final String ASYNC_WORKER_THREADS = "stream.async.worker.threads";
     public static final String ASYNC_QUEUE_SIZE = "stream.async.queue.size";
+    public static final String WRITER_PARTITIONS = "stream.writer.partitions";
+    public static final String FETCH_THREADS = "stream.fetch.threads";
 
     // YARN container configurations.
     public static final String CONTAINER_VIRTUAL_CORES = "stream.container.num.cores";
@@ -519,6 +530,8 @@ public final class Constants {
     public static final String CLIENT_BOSS_THREADS = "router.client.boss.threads";
     public static final String CLIENT_WORKER_THREADS = "router.client.worker.threads";
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
+    public static final String OUTBOUND_POOL_MAX_IDLE_CONNECTIONS = "router.outbound.pool.max.idle.connections";
+    public static final String OUTBOUND_POOL_IDLE_TIMEOUT_SECS = "router.outbound.pool.idle.timeout.secs";
     public static final String ROUTER_USERSERVICE_FALLBACK_STRAGEY = "router.userservice.fallback.strategy";
     public static final String ROUTER_AUDIT_PATH_CHECK_ENABLED = "router.audit.path.check.enabled";
 
@@ -557,6 +570,9 @@ public final class Constants {
     public static final String SERVICE_DESCRIPTION = "Service to handle metrics requests.";
     public static final String PROCESSOR_MAX_DELAY_MS = "metrics.processor.max.delay.ms";
     public static final String QUEUE_SIZE = "metrics.processor.queue.size";
+    public static final String ROLLUP_ENABLED = "metrics.rollup.enabled";
+    public static final String ROLLUP_INTERVAL_SECONDS = "metrics.rollup.interval.seconds";
+    public static final String ROLLUP_DELAY_SECONDS = "metrics.rollup.delay.seconds";
 
     public static final String ENTITY_TABLE_NAME = "metrics.data.entity.tableName";
     public static final String METRICS_TABLE_PREFIX = "metrics.data.table.prefix";
@@ -567,6 +583,7 @@ public final class Constants {
 
     public static final String SERVER_ADDRESS = "metrics.query.bind.address";
     public static final String SERVER_PORT = "metrics.query.bind.port";
+    public static final String QUERY_PARALLELISM = "metrics.query.parallelism";
 
     public static final String TOPIC_PREFIX = "metrics.topic.prefix";
     public static final String KAFKA_TOPIC_PREFIX = "metrics.kafka.topic.prefix";
@@ -686,6 +703,10 @@ public final class Constants {
         public static final String OP_COUNT = "dataset.store.ops";
         public static final String WRITE_COUNT = "dataset.store.writes";
         public static final String WRITE_BYTES = "dataset.store.bytes";
+        public static final String BUFFER_FILTER_SKIPS = "dataset.store.buffer.filter.skips";
+        public static final String ABSENT_CACHE_HITS = "dataset.store.absent.cache.hits";
+        public static final String META_CACHE_HITS = "dataset.client.meta.cache.hits";
+        public static final String META_CACHE_MISSES = "dataset.client.meta.cache.misses";
       }
 
       /**
@@ -1229,8 +1250,17 @@ public final class Constants {
   public static final class MessagingSystem {
     public static final String LOCAL_DATA_DIR = "messaging.local.data.dir";
     public static final String LOCAL_DATA_CLEANUP_FREQUENCY = "messaging.local.data.cleanup.frequency.secs";
+    public static final String LOCAL_DATA_SYNC_POLICY = "messaging.local.data.sync.policy";
+    public static final String LOCAL_DATA_GROUP_SYNC_INTERVAL_MS = "messaging.local.data.group.sync.interval.ms";
+    public static final String LOCAL_DATA_GROUP_SYNC_BYTES = "messaging.local.data.group.sync.bytes";
 
     public static final String CACHE_SIZE_MB = "messaging.cache.size.mb";
+    public static final String CACHE_OFFHEAP_ENABLED = "messaging.cache.offheap.enabled";
+    public static final String CACHE_OFFHEAP_SLAB_SIZE_BYTES = "messaging.cache.offheap.slab.size.bytes";
+
+    public static final String GROUP_COMMIT_ENABLED = "messaging.group.commit.enabled";
+    public static final String GROUP_COMMIT_MAX_BATCH_MESSAGES = "messaging.group.commit.max.batch.messages";
+    public static final String GROUP_COMMIT_MAX_BATCH_SIZE_BYTES = "messaging.group.commit.max.batch.size.bytes";
 
     public static final String HBASE_MAX_SCAN_THREADS = "messaging.hbase.max.scan.threads";
     public static final String HBASE_SCAN_CACHE_ROWS = "messaging.hbase.scan.cache.rows";
@@ -1249,6 +1279,8 @@ public final class Constants {
     public static final String HTTP_SERVER_EXECUTOR_THREADS = "messaging.http.server.executor.threads";
     public static final String HTTP_SERVER_MAX_REQUEST_SIZE_MB = "messaging.http.server.max.request.size.mb";
     public static final String HTTP_SERVER_CONSUME_CHUNK_SIZE = "messaging.http.server.consume.chunk.size";
+    public static final String HTTP_SERVER_MAX_POLL_TIMEOUT_MS = "messaging.http.server.max.poll.timeout.ms";
+    public static final String HTTP_SERVER_LONG_POLL_THREADS = "messaging.http.server.long.poll.threads";
 
 
     public static final String CONTAINER_VIRTUAL_CORES = "messaging.container.num.cores";
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.SchemaHash;
+import co.cask.cdap.common.io.DatumReader;
+import co.cask.cdap.common.io.DatumWriter;
+import co.cask.cdap.internal.asm.ByteCodeClassLoader;
+import co.cask.cdap.internal.asm.ClassDefinition;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A factory class for creating {@link DatumWriter} and {@link DatumReader} of {@link StructuredRecord}
+ * for a given record {@link Schema}. The writer and reader classes are generated using ASM by the
+ * {@link StructuredRecordCodecGenerator}, with the field encoding and decoding specialized for the schema.
+ *
+ * Generated instances are cached by {@link SchemaHash}, hence repeated calls with the same schema are cheap.
+ * All instances created are thread safe and reusable.
+ */
+public final class ASMStructuredRecordCodecFactory {
+
+  private static final int MAX_CACHE_SIZE = 1000;
+
+  private final Cache<SchemaHash, DatumWriter<StructuredRecord>> writers;
+  private final Cache<SchemaHash, DatumReader<StructuredRecord>> readers;
+
+  public ASMStructuredRecordCodecFactory() {
+    this.writers = CacheBuilder.newBuilder().maximumSize(MAX_CACHE_SIZE).build();
+    this.readers = CacheBuilder.newBuilder().maximumSize(MAX_CACHE_SIZE).build();
+  }
+
+  /**
+   * Returns a {@link DatumWriter} for encoding {@link StructuredRecord} of the given schema. Records with
+   * a different schema can still be encoded by the returned writer, but without the specialized encoding.
+   *
+   * @param schema the record schema
+   * @return a {@link DatumWriter} for the schema
+   * @throws IllegalArgumentException if the schema is not a record schema
+   */
+  public DatumWriter<StructuredRecord> getWriter(final Schema schema) {
+    Preconditions.checkArgument(schema.getType() == Schema.Type.RECORD, "Schema must be a record: %s", schema);
+    DatumWriter<StructuredRecord> writer = writers.getIfPresent(schema.getSchemaHash());
+    if (writer != null) {
+      return writer;
+    }
+    try {
+      return writers.get(schema.getSchemaHash(), new Callable<DatumWriter<StructuredRecord>>() {
+        @Override
+        public DatumWriter<StructuredRecord> call() throws Exception {
+          ClassDefinition classDef = new StructuredRecordCodecGenerator().generateWriter(schema);
+          return newInstance(classDef, schema);
+        }
+      });
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Returns a {@link DatumReader} for decoding {@link StructuredRecord} of the given schema. Records with
+   * a different schema can still be decoded by the returned reader, but without the specialized decoding.
+   *
+   * @param schema the record schema
+   * @return a {@link DatumReader} for the schema
+   * @throws IllegalArgumentException if the schema is not a record schema
+   */
+  public DatumReader<StructuredRecord> getReader(final Schema schema) {
+    Preconditions.checkArgument(schema.getType() == Schema.Type.RECORD, "Schema must be a record: %s", schema);
+    DatumReader<StructuredRecord> reader = readers.getIfPresent(schema.getSchemaHash());
+    if (reader != null) {
+      return reader;
+    }
+    try {
+      return readers.get(schema.getSchemaHash(), new Callable<DatumReader<StructuredRecord>>() {
+        @Override
+        public DatumReader<StructuredRecord> call() throws Exception {
+          ClassDefinition classDef = new StructuredRecordCodecGenerator().generateReader(schema);
+          return newInstance(classDef, schema);
+        }
+      });
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * Loads the generated class and creates a new instance of it with the given schema.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> T newInstance(ClassDefinition classDef, Schema schema) throws Exception {
+    // Each generated class has its own ClassLoader, so that it can be garbage collected when evicted from the cache.
+    // The ClassLoader has CDAP system ClassLoader as parent.
+    ByteCodeClassLoader classLoader = new ByteCodeClassLoader(ASMStructuredRecordCodecFactory.class.getClassLoader());
+    Class<?> cls = classLoader.addClass(classDef).loadClass(classDef.getClassName());
+    return (T) cls.getConstructor(Schema.class).newInstance(schema);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.SchemaHash;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.format.io.StructuredRecordDatumReader;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Base class for {@link StructuredRecordDatumReader} generated for a specific record {@link Schema} by the
+ * {@link StructuredRecordCodecGenerator}. The generated class implements {@link #decodeFields(Decoder,
+ * StructuredRecord.Builder)} with the decoding of each field unrolled based on the field schema.
+ *
+ * Records with a different schema are decoded by the generic {@link StructuredRecordDatumReader}.
+ */
+public abstract class SchemaStructuredRecordDatumReader extends StructuredRecordDatumReader {
+
+  private final Schema schema;
+  private final SchemaHash schemaHash;
+  private final Schema[] fieldSchemas;
+
+  protected SchemaStructuredRecordDatumReader(Schema schema, String expectedSchemaHash) {
+    if (!expectedSchemaHash.equals(schema.getSchemaHash().toString())) {
+      throw new IllegalArgumentException("Schema not match.");
+    }
+    this.schema = schema;
+    this.schemaHash = schema.getSchemaHash();
+
+    List<Schema.Field> fields = schema.getFields();
+    this.fieldSchemas = new Schema[fields.size()];
+    for (int i = 0; i < fieldSchemas.length; i++) {
+      fieldSchemas[i] = fields.get(i).getSchema();
+    }
+  }
+
+  @Override
+  public final StructuredRecord read(Decoder decoder, Schema sourceSchema) throws IOException {
+    if (sourceSchema != schema && !schemaHash.equals(sourceSchema.getSchemaHash())) {
+      return super.read(decoder, sourceSchema);
+    }
+    StructuredRecord.Builder builder = StructuredRecord.builder(sourceSchema);
+    decodeFields(decoder, builder);
+    return builder.build();
+  }
+
+  /**
+   * Decodes all fields of a record, which has the same schema as this reader, into the given builder.
+   */
+  protected abstract void decodeFields(Decoder decoder, StructuredRecord.Builder builder) throws IOException;
+
+  /**
+   * Decodes a field value with the generic decoding logic. It is called by the generated code for fields that
+   * don't have specialized decoding.
+   *
+   * @param decoder the decoder to decode value from
+   * @param fieldIndex the index of the field in the record schema
+   * @return the decoded value
+   * @throws IOException if failed to decode
+   */
+  protected final Object decodeField(Decoder decoder, int fieldIndex) throws IOException {
+    return decode(decoder, fieldSchemas[fieldIndex]);
+  }
+
+  /**
+   * Decodes the value of a union field with the generic decoding logic after the union index was read.
+   * It is called by the generated code for union branches that don't have specialized decoding.
+   *
+   * @param decoder the decoder to decode value from
+   * @param fieldIndex the index of the field in the record schema
+   * @param unionIndex the index in the union schema of the field
+   * @return the decoded value
+   * @throws IOException if failed to decode
+   */
+  protected final Object decodeUnionField(Decoder decoder, int fieldIndex, int unionIndex) throws IOException {
+    return decode(decoder, fieldSchemas[fieldIndex].getUnionSchema(unionIndex));
+  }
+}
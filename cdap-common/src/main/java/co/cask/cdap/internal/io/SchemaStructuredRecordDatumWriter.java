@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.SchemaHash;
+import co.cask.cdap.common.io.Encoder;
+import co.cask.cdap.format.io.StructuredRecordDatumWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Base class for {@link StructuredRecordDatumWriter} generated for a specific record {@link Schema} by the
+ * {@link StructuredRecordCodecGenerator}. The generated class implements {@link #encodeFields(StructuredRecord,
+ * Encoder)} with the encoding of each field unrolled based on the field schema.
+ *
+ * Records with a different schema are encoded by the generic {@link StructuredRecordDatumWriter}.
+ */
+public abstract class SchemaStructuredRecordDatumWriter extends StructuredRecordDatumWriter {
+
+  private final Schema schema;
+  private final SchemaHash schemaHash;
+  private final Schema[] fieldSchemas;
+
+  protected SchemaStructuredRecordDatumWriter(Schema schema, String expectedSchemaHash) {
+    if (!expectedSchemaHash.equals(schema.getSchemaHash().toString())) {
+      throw new IllegalArgumentException("Schema not match.");
+    }
+    this.schema = schema;
+    this.schemaHash = schema.getSchemaHash();
+
+    List<Schema.Field> fields = schema.getFields();
+    this.fieldSchemas = new Schema[fields.size()];
+    for (int i = 0; i < fieldSchemas.length; i++) {
+      fieldSchemas[i] = fields.get(i).getSchema();
+    }
+  }
+
+  @Override
+  public final void encode(StructuredRecord data, Encoder encoder) throws IOException {
+    Schema recordSchema = data.getSchema();
+    if (recordSchema != schema && !schemaHash.equals(recordSchema.getSchemaHash())) {
+      super.encode(data, encoder);
+      return;
+    }
+    encodeFields(data, encoder);
+  }
+
+  /**
+   * Encodes all fields of the given record, which has the same schema as this writer.
+   */
+  protected abstract void encodeFields(StructuredRecord data, Encoder encoder) throws IOException;
+
+  /**
+   * Encodes a field value with the generic encoding logic. It is called by the generated code for fields that
+   * don't have specialized encoding.
+   *
+   * @param encoder the encoder to use
+   * @param fieldIndex the index of the field in the record schema
+   * @param value the field value
+   * @throws IOException if failed to encode
+   */
+  protected final void encodeField(Encoder encoder, int fieldIndex, Object value) throws IOException {
+    encode(encoder, fieldSchemas[fieldIndex], value);
+  }
+}
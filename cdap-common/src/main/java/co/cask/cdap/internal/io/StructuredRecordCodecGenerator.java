@@ -0,0 +1,439 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.Decoder;
+import co.cask.cdap.common.io.Encoder;
+import co.cask.cdap.internal.asm.ClassDefinition;
+import co.cask.cdap.internal.asm.Methods;
+import com.google.common.base.Preconditions;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Class for generating {@link StructuredRecord} reader and writer bytecodes for a specific record {@link Schema}
+ * using ASM. The generated writer extends {@link SchemaStructuredRecordDatumWriter} and looks like this after
+ * decompile, for a record with a non-nullable long field, a nullable string field and a map field:
+ * <pre>
+ * {@code
+ *
+ *  public final class StructuredRecordDatumWriter07D4F780E3528DB8C539EE5C21FDDEAE
+ *    extends SchemaStructuredRecordDatumWriter {
+ *
+ *    private static final String SCHEMA_HASH = "07D4F780E3528DB8C539EE5C21FDDEAE";
+ *
+ *    public StructuredRecordDatumWriter07D4F780E3528DB8C539EE5C21FDDEAE(Schema schema) {
+ *      super(schema, SCHEMA_HASH);
+ *    }
+ *
+ *    protected void encodeFields(StructuredRecord record, Encoder encoder) throws IOException {
+ *      encoder.writeLong(((Long) record.get(0)).longValue());
+ *
+ *      Object value = record.get(1);
+ *      if (value == null) {
+ *        encoder.writeInt(1);
+ *        encoder.writeNull();
+ *      } else if (value instanceof String) {
+ *        encoder.writeInt(0);
+ *        encoder.writeString((String) value);
+ *      } else {
+ *        encodeField(encoder, 1, value);
+ *      }
+ *
+ *      encodeField(encoder, 2, record.get(2));
+ *    }
+ *  }
+ * }
+ * </pre>
+ *
+ * The generated reader extends {@link SchemaStructuredRecordDatumReader} in the same way, with the decoding of
+ * each field calling the corresponding {@link Decoder} method directly.
+ *
+ * Only fields of simple types and nullable simple types are specialized. All other fields are encoded and decoded
+ * by the generic logic in {@link co.cask.cdap.format.io.StructuredRecordDatumWriter} and
+ * {@link co.cask.cdap.format.io.StructuredRecordDatumReader}, hence the generated classes always produce the same
+ * result as the generic ones.
+ */
+final class StructuredRecordCodecGenerator {
+
+  private static final Type ENCODER_TYPE = Type.getType(Encoder.class);
+  private static final Type DECODER_TYPE = Type.getType(Decoder.class);
+  private static final Type RECORD_TYPE = Type.getType(StructuredRecord.class);
+  private static final Type BUILDER_TYPE = Type.getType(StructuredRecord.Builder.class);
+
+  /**
+   * Generates a {@link SchemaStructuredRecordDatumWriter} class for encoding records of the given schema.
+   *
+   * @param schema the record schema
+   * @return A {@link ClassDefinition} that contains generated class information.
+   */
+  ClassDefinition generateWriter(Schema schema) {
+    Preconditions.checkArgument(schema.getType() == Schema.Type.RECORD, "Schema must be a record: %s", schema);
+
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    Type superType = Type.getType(SchemaStructuredRecordDatumWriter.class);
+    String className = getClassName("StructuredRecordDatumWriter", schema);
+    generateClass(classWriter, className, superType, schema);
+
+    Method method = getMethod(void.class, "encodeFields", StructuredRecord.class, Encoder.class);
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PROTECTED, method, null,
+                                               new Type[] { Type.getType(IOException.class) }, classWriter);
+    List<Schema.Field> fields = schema.getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      encodeField(mg, superType, i, fields.get(i).getSchema());
+    }
+    mg.returnValue();
+    mg.endMethod();
+
+    classWriter.visitEnd();
+    return new ClassDefinition(classWriter.toByteArray(), className);
+  }
+
+  /**
+   * Generates a {@link SchemaStructuredRecordDatumReader} class for decoding records of the given schema.
+   *
+   * @param schema the record schema
+   * @return A {@link ClassDefinition} that contains generated class information.
+   */
+  ClassDefinition generateReader(Schema schema) {
+    Preconditions.checkArgument(schema.getType() == Schema.Type.RECORD, "Schema must be a record: %s", schema);
+
+    ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    Type superType = Type.getType(SchemaStructuredRecordDatumReader.class);
+    String className = getClassName("StructuredRecordDatumReader", schema);
+    generateClass(classWriter, className, superType, schema);
+
+    Method method = getMethod(void.class, "decodeFields", Decoder.class, StructuredRecord.Builder.class);
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PROTECTED, method, null,
+                                               new Type[] { Type.getType(IOException.class) }, classWriter);
+    List<Schema.Field> fields = schema.getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      decodeField(mg, superType, i, fields.get(i));
+    }
+    mg.returnValue();
+    mg.endMethod();
+
+    classWriter.visitEnd();
+    return new ClassDefinition(classWriter.toByteArray(), className);
+  }
+
+  /**
+   * Generates the class declaration, the schema hash constant and the constructor, which has signature
+   * {@code (Schema)} and calls the super class constructor with the schema and the schema hash.
+   */
+  private void generateClass(ClassWriter classWriter, String className, Type superType, Schema schema) {
+    Type classType = Type.getObjectType(className);
+    classWriter.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC + Opcodes.ACC_FINAL + Opcodes.ACC_SUPER,
+                      className, null, superType.getInternalName(), null);
+
+    // Static schema hash field, for verification
+    classWriter.visitField(Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC + Opcodes.ACC_FINAL, "SCHEMA_HASH",
+                           Type.getDescriptor(String.class), null, schema.getSchemaHash().toString()).visitEnd();
+
+    Method constructor = getMethod(void.class, "<init>", Schema.class);
+    GeneratorAdapter mg = new GeneratorAdapter(Opcodes.ACC_PUBLIC, constructor, null, null, classWriter);
+    mg.loadThis();
+    mg.loadArg(0);
+    mg.getStatic(classType, "SCHEMA_HASH", Type.getType(String.class));
+    mg.invokeConstructor(superType, getMethod(void.class, "<init>", Schema.class, String.class));
+    mg.returnValue();
+    mg.endMethod();
+  }
+
+  /**
+   * Generates code for encoding one record field.
+   */
+  private void encodeField(GeneratorAdapter mg, Type superType, int fieldIndex, Schema fieldSchema) {
+    Method encodeField = getMethod(void.class, "encodeField", Encoder.class, int.class, Object.class);
+
+    if (isSpecialized(fieldSchema.getType()) && fieldSchema.getType() != Schema.Type.BYTES) {
+      // encoder.writeXXX((BoxedType) record.get(fieldIndex))
+      mg.loadArg(1);
+      if (fieldSchema.getType() != Schema.Type.NULL) {
+        getFieldValue(mg, fieldIndex);
+        unbox(mg, fieldSchema.getType());
+      }
+      writeValue(mg, fieldSchema.getType());
+      return;
+    }
+
+    int valueType = getNullableUnionType(fieldSchema);
+    if (valueType < 0 || fieldSchema.getUnionSchema(valueType).getType() == Schema.Type.BYTES) {
+      // encodeField(encoder, fieldIndex, record.get(fieldIndex))
+      mg.loadThis();
+      mg.loadArg(1);
+      mg.push(fieldIndex);
+      getFieldValue(mg, fieldIndex);
+      mg.invokeVirtual(superType, encodeField);
+      return;
+    }
+
+    Schema.Type type = fieldSchema.getUnionSchema(valueType).getType();
+    Label notNull = mg.newLabel();
+    Label notMatch = mg.newLabel();
+    Label end = mg.newLabel();
+
+    // Object value = record.get(fieldIndex);
+    int value = mg.newLocal(Type.getType(Object.class));
+    getFieldValue(mg, fieldIndex);
+    mg.storeLocal(value);
+
+    // if (value == null) { encoder.writeInt(nullIndex); encoder.writeNull(); }
+    mg.loadLocal(value);
+    mg.ifNonNull(notNull);
+    mg.loadArg(1);
+    mg.push(1 - valueType);
+    writeValue(mg, Schema.Type.INT);
+    mg.loadArg(1);
+    writeValue(mg, Schema.Type.NULL);
+    mg.goTo(end);
+
+    // else if (value instanceof BoxedType) { encoder.writeInt(valueType); encoder.writeXXX((BoxedType) value); }
+    mg.mark(notNull);
+    mg.loadLocal(value);
+    mg.instanceOf(getBoxedType(type));
+    mg.ifZCmp(GeneratorAdapter.EQ, notMatch);
+    mg.loadArg(1);
+    mg.push(valueType);
+    writeValue(mg, Schema.Type.INT);
+    mg.loadArg(1);
+    mg.loadLocal(value);
+    unbox(mg, type);
+    writeValue(mg, type);
+    mg.goTo(end);
+
+    // else { encodeField(encoder, fieldIndex, value); }
+    mg.mark(notMatch);
+    mg.loadThis();
+    mg.loadArg(1);
+    mg.push(fieldIndex);
+    mg.loadLocal(value);
+    mg.invokeVirtual(superType, encodeField);
+
+    mg.mark(end);
+  }
+
+  /**
+   * Generates code for decoding one record field and setting it to the record builder.
+   */
+  private void decodeField(GeneratorAdapter mg, Type superType, int fieldIndex, Schema.Field field) {
+    Schema fieldSchema = field.getSchema();
+
+    // builder.set(fieldName, value)
+    mg.loadArg(1);
+    mg.push(field.getName());
+
+    int valueType = getNullableUnionType(fieldSchema);
+    if (isSpecialized(fieldSchema.getType())) {
+      readValue(mg, fieldSchema.getType());
+    } else if (valueType < 0) {
+      // decodeField(decoder, fieldIndex)
+      mg.loadThis();
+      mg.loadArg(0);
+      mg.push(fieldIndex);
+      mg.invokeVirtual(superType, getMethod(Object.class, "decodeField", Decoder.class, int.class));
+    } else {
+      // int unionIndex = decoder.readInt();
+      // value = unionIndex == valueType ? decoder.readXXX() : decodeUnionField(decoder, fieldIndex, unionIndex)
+      Label notMatch = mg.newLabel();
+      Label end = mg.newLabel();
+      int unionIndex = mg.newLocal(Type.INT_TYPE);
+      mg.loadArg(0);
+      mg.invokeInterface(DECODER_TYPE, getMethod(int.class, "readInt"));
+      mg.storeLocal(unionIndex);
+
+      mg.loadLocal(unionIndex);
+      mg.push(valueType);
+      mg.ifICmp(GeneratorAdapter.NE, notMatch);
+      readValue(mg, fieldSchema.getUnionSchema(valueType).getType());
+      mg.goTo(end);
+
+      mg.mark(notMatch);
+      mg.loadThis();
+      mg.loadArg(0);
+      mg.push(fieldIndex);
+      mg.loadLocal(unionIndex);
+      mg.invokeVirtual(superType, getMethod(Object.class, "decodeUnionField", Decoder.class, int.class, int.class));
+
+      mg.mark(end);
+    }
+
+    mg.invokeVirtual(BUILDER_TYPE, getMethod(StructuredRecord.Builder.class, "set", String.class, Object.class));
+    mg.pop();
+  }
+
+  /**
+   * Generates code to call {@code record.get(fieldIndex)}, leaving the value on the stack.
+   */
+  private void getFieldValue(GeneratorAdapter mg, int fieldIndex) {
+    mg.loadArg(0);
+    mg.push(fieldIndex);
+    mg.invokeVirtual(RECORD_TYPE, getMethod(Object.class, "get", int.class));
+  }
+
+  /**
+   * Generates code to cast the value on the stack to the boxed type of the given schema type,
+   * followed by unboxing it if it is a primitive type.
+   */
+  private void unbox(GeneratorAdapter mg, Schema.Type type) {
+    Type boxedType = getBoxedType(type);
+    mg.checkCast(boxedType);
+    Class<?> primitiveType = getPrimitiveType(type);
+    if (primitiveType != null) {
+      mg.invokeVirtual(boxedType, getMethod(primitiveType, primitiveType.getName() + "Value"));
+    }
+  }
+
+  /**
+   * Generates code to call the {@link Encoder} write method for the given schema type. The encoder and the value
+   * to write are expected to be on the stack.
+   */
+  private void writeValue(GeneratorAdapter mg, Schema.Type type) {
+    Method method;
+    if (type == Schema.Type.NULL) {
+      method = getMethod(Encoder.class, "writeNull");
+    } else {
+      Class<?> valueType = getPrimitiveType(type);
+      method = getMethod(Encoder.class, getAccessorName("write", type),
+                         valueType == null ? String.class : valueType);
+    }
+    mg.invokeInterface(ENCODER_TYPE, method);
+    mg.pop();
+  }
+
+  /**
+   * Generates code to call the {@link Decoder} read method for the given schema type, leaving the value,
+   * boxed if needed, on the stack.
+   */
+  private void readValue(GeneratorAdapter mg, Schema.Type type) {
+    mg.loadArg(0);
+    switch (type) {
+      case NULL:
+        mg.invokeInterface(DECODER_TYPE, getMethod(Object.class, "readNull"));
+        mg.pop();
+        mg.push((String) null);
+        break;
+      case STRING:
+        mg.invokeInterface(DECODER_TYPE, getMethod(String.class, "readString"));
+        break;
+      case BYTES:
+        mg.invokeInterface(DECODER_TYPE, getMethod(ByteBuffer.class, "readBytes"));
+        break;
+      default:
+        Class<?> primitiveType = getPrimitiveType(type);
+        mg.invokeInterface(DECODER_TYPE, getMethod(primitiveType, getAccessorName("read", type)));
+        mg.valueOf(Type.getType(primitiveType));
+    }
+  }
+
+  /**
+   * Returns {@code true} if the given schema type has specialized encoding and decoding.
+   */
+  private boolean isSpecialized(Schema.Type type) {
+    return type.isSimpleType();
+  }
+
+  /**
+   * Returns the index of the non-null schema if the given schema is an union of a specialized type and null.
+   * Otherwise, returns {@code -1}.
+   */
+  private int getNullableUnionType(Schema schema) {
+    if (schema.getType() != Schema.Type.UNION || schema.getUnionSchemas().size() != 2) {
+      return -1;
+    }
+    Schema.Type first = schema.getUnionSchema(0).getType();
+    Schema.Type second = schema.getUnionSchema(1).getType();
+    if (second == Schema.Type.NULL && first != Schema.Type.NULL && isSpecialized(first)) {
+      return 0;
+    }
+    if (first == Schema.Type.NULL && second != Schema.Type.NULL && isSpecialized(second)) {
+      return 1;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the primitive type used by the {@link Encoder} and {@link Decoder} for the given schema type or
+   * {@code null} if it is not a primitive type.
+   */
+  @Nullable
+  private Class<?> getPrimitiveType(Schema.Type type) {
+    switch (type) {
+      case BOOLEAN:
+        return boolean.class;
+      case INT:
+        return int.class;
+      case LONG:
+        return long.class;
+      case FLOAT:
+        return float.class;
+      case DOUBLE:
+        return double.class;
+      default:
+        return null;
+    }
+  }
+
+  private Type getBoxedType(Schema.Type type) {
+    switch (type) {
+      case BOOLEAN:
+        return Type.getType(Boolean.class);
+      case INT:
+        return Type.getType(Integer.class);
+      case LONG:
+        return Type.getType(Long.class);
+      case FLOAT:
+        return Type.getType(Float.class);
+      case DOUBLE:
+        return Type.getType(Double.class);
+      case STRING:
+        return Type.getType(String.class);
+      default:
+        throw new IllegalArgumentException("No boxed type for schema type " + type);
+    }
+  }
+
+  /**
+   * Returns the name of the {@link Encoder} or {@link Decoder} method for the given schema type,
+   * e.g. {@code writeLong} or {@code readBool}.
+   */
+  private String getAccessorName(String prefix, Schema.Type type) {
+    String name = type == Schema.Type.BOOLEAN ? "Bool" : type.name().charAt(0) + type.name().substring(1).toLowerCase();
+    return prefix + name;
+  }
+
+  private String getClassName(String simpleName, Schema schema) {
+    return String.format("%s/%s%s", StructuredRecordCodecGenerator.class.getPackage().getName().replace('.', '/'),
+                         simpleName, schema.getSchemaHash());
+  }
+
+  private Method getMethod(Class<?> returnType, String name, Class<?>...args) {
+    return Methods.getMethod(returnType, name, args);
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.io;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import co.cask.cdap.common.io.DatumReader;
+import co.cask.cdap.common.io.DatumWriter;
+import co.cask.cdap.format.io.StructuredRecordDatumReader;
+import co.cask.cdap.format.io.StructuredRecordDatumWriter;
+import co.cask.cdap.internal.io.ASMStructuredRecordCodecFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Unit-test for the {@link StructuredRecord} writer and reader generated by {@link ASMStructuredRecordCodecFactory}.
+ */
+public class StructuredRecordCodecTest {
+
+  private static final ASMStructuredRecordCodecFactory CODEC_FACTORY = new ASMStructuredRecordCodecFactory();
+
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING)))
+  );
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("boolean", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("int", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("long", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("float", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("double", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("string", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("bytes", Schema.of(Schema.Type.BYTES)),
+    Schema.Field.of("nullableLong", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("nullableString", Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("nullableBytes", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("union", Schema.unionOf(Schema.of(Schema.Type.INT), Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("enum", Schema.enumWith("a", "b", "c")),
+    Schema.Field.of("array", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("map", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))),
+    Schema.Field.of("inner", INNER_SCHEMA)
+  );
+
+  @Test
+  public void testCodec() throws IOException {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("boolean", true)
+      .set("int", 10)
+      .set("long", Long.MAX_VALUE)
+      .set("float", 1.5f)
+      .set("double", -2.25d)
+      .set("string", "value")
+      .set("bytes", ByteBuffer.wrap(Bytes.toBytes("bytes")))
+      .set("nullableLong", 20L)
+      .set("nullableString", "nullable")
+      .set("nullableBytes", Bytes.toBytes("nullable"))
+      .set("union", "union")
+      .set("enum", "b")
+      .set("array", ImmutableList.of("x", "y"))
+      .set("map", ImmutableMap.of("k1", 1, "k2", 2))
+      .set("inner", StructuredRecord.builder(INNER_SCHEMA).set("id", 1).set("name", "inner").build())
+      .build();
+    verifyCodec(record);
+
+    // Nullable fields with null values
+    record = StructuredRecord.builder(SCHEMA)
+      .set("boolean", false)
+      .set("int", -1)
+      .set("long", 0L)
+      .set("float", 0f)
+      .set("double", 0d)
+      .set("string", "")
+      .set("bytes", new byte[0])
+      .set("union", 5)
+      .set("enum", "a")
+      .set("array", ImmutableList.of("z"))
+      .set("map", ImmutableMap.of("k3", 3))
+      .set("inner", StructuredRecord.builder(INNER_SCHEMA).set("id", 2).build())
+      .build();
+    verifyCodec(record);
+  }
+
+  @Test
+  public void testCache() throws IOException {
+    Assert.assertSame(CODEC_FACTORY.getWriter(SCHEMA), CODEC_FACTORY.getWriter(SCHEMA));
+    Assert.assertSame(CODEC_FACTORY.getReader(SCHEMA), CODEC_FACTORY.getReader(SCHEMA));
+
+    // A schema that is equal but not the same instance should reuse the generated writer and reader
+    Schema schema = Schema.parseJson(SCHEMA.toString());
+    Assert.assertSame(CODEC_FACTORY.getWriter(SCHEMA), CODEC_FACTORY.getWriter(schema));
+    Assert.assertSame(CODEC_FACTORY.getReader(SCHEMA), CODEC_FACTORY.getReader(schema));
+  }
+
+  @Test
+  public void testSchemaMismatch() throws IOException {
+    // Writer and reader of one schema should still work for records of a different schema
+    DatumWriter<StructuredRecord> writer = CODEC_FACTORY.getWriter(SCHEMA);
+    DatumReader<StructuredRecord> reader = CODEC_FACTORY.getReader(SCHEMA);
+
+    StructuredRecord record = StructuredRecord.builder(INNER_SCHEMA).set("id", 3).set("name", "mismatch").build();
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    writer.encode(record, new BinaryEncoder(os));
+    Assert.assertArrayEquals(encodeGeneric(record), os.toByteArray());
+    Assert.assertEquals(record, reader.read(new BinaryDecoder(new ByteArrayInputStream(os.toByteArray())),
+                                            INNER_SCHEMA));
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testInvalidSchema() {
+    CODEC_FACTORY.getWriter(Schema.of(Schema.Type.STRING));
+  }
+
+  /**
+   * Verifies the generated writer and reader produce the same result as the generic ones.
+   */
+  private void verifyCodec(StructuredRecord record) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    CODEC_FACTORY.getWriter(record.getSchema()).encode(record, new BinaryEncoder(os));
+    byte[] encoded = os.toByteArray();
+    Assert.assertArrayEquals(encodeGeneric(record), encoded);
+
+    StructuredRecord decoded = CODEC_FACTORY.getReader(record.getSchema())
+      .read(new BinaryDecoder(new ByteArrayInputStream(encoded)), record.getSchema());
+    StructuredRecord expected = new StructuredRecordDatumReader()
+      .read(new BinaryDecoder(new ByteArrayInputStream(encoded)), record.getSchema());
+    Assert.assertEquals(expected, decoded);
+  }
+
+  private byte[] encodeGeneric(StructuredRecord record) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new StructuredRecordDatumWriter().encode(record, new BinaryEncoder(os));
+    return os.toByteArray();
+  }
+}
@@ -930,6 +930,81 @@ public abstract class StreamDataFileTestBase {
     }
   }
 
+  @Test
+  public void testCompressedReadWrite() throws Exception {
+    // Blocks with many similar events are compressed, while blocks with a single event are written uncompressed
+    List<StreamEvent> events = Lists.newArrayList();
+    Map<String, String> headers = ImmutableMap.of("key", "value");
+    for (int i = 0; i < 50; i++) {
+      int count = (i % 2 == 0) ? 20 : 1;
+      for (int j = 0; j < count; j++) {
+        events.add(new StreamEvent(headers, Charsets.UTF_8.encode("Compressed test " + i + " " + j), 1000L + i));
+      }
+    }
+
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Location plainFile = dir.getTempFile(".dat");
+    try (StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(plainFile),
+                                                                Locations.newOutputSupplier(dir.getTempFile(".idx")),
+                                                                10L)) {
+      writer.appendAll(events.iterator());
+    }
+
+    for (StreamFileCompression compression : ImmutableList.of(StreamFileCompression.SNAPPY,
+                                                               StreamFileCompression.DEFLATE)) {
+      Location eventFile = dir.getTempFile(".dat");
+      Location indexFile = dir.getTempFile(".idx");
+      try (StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                                  Locations.newOutputSupplier(indexFile),
+                                                                  10L, ImmutableMap.<String, String>of(),
+                                                                  compression)) {
+        writer.appendAll(events.iterator());
+      }
+      Assert.assertTrue(eventFile.length() < plainFile.length());
+
+      // Read all events from the beginning
+      List<PositionStreamEvent> readEvents = Lists.newArrayList();
+      try (StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile))) {
+        Assert.assertEquals(events.size(), reader.read(readEvents, events.size() + 1, 0, TimeUnit.SECONDS));
+        Assert.assertEquals(-1, reader.read(readEvents, 1, 0, TimeUnit.SECONDS));
+      }
+
+      long lastPosition = -1L;
+      for (int i = 0; i < events.size(); i++) {
+        PositionStreamEvent event = readEvents.get(i);
+        Assert.assertEquals(events.get(i).getTimestamp(), event.getTimestamp());
+        Assert.assertEquals(events.get(i).getHeaders(), event.getHeaders());
+        Assert.assertEquals(Charsets.UTF_8.decode(events.get(i).getBody().duplicate()).toString(),
+                            Charsets.UTF_8.decode(event.getBody().duplicate()).toString());
+        // Event positions must be strictly increasing
+        Assert.assertTrue(event.getStart() > lastPosition);
+        lastPosition = event.getStart();
+      }
+
+      // Read each event by seeking to its position
+      for (PositionStreamEvent event : readEvents) {
+        try (StreamDataFileReader reader = StreamDataFileReader.createWithOffset(
+          Locations.newInputSupplier(eventFile), Locations.newInputSupplier(indexFile), event.getStart())) {
+          List<PositionStreamEvent> result = Lists.newArrayList();
+          Assert.assertEquals(1, reader.read(result, 1, 0, TimeUnit.SECONDS));
+          Assert.assertEquals(event.getStart(), result.get(0).getStart());
+          Assert.assertEquals(event.getBody(), result.get(0).getBody());
+        }
+      }
+
+      // Read by start time
+      for (int i = 0; i < 50; i++) {
+        try (StreamDataFileReader reader = StreamDataFileReader.createByStartTime(
+          Locations.newInputSupplier(eventFile), Locations.newInputSupplier(indexFile), 1000L + i)) {
+          List<PositionStreamEvent> result = Lists.newArrayList();
+          Assert.assertEquals(1, reader.read(result, 1, 0, TimeUnit.SECONDS));
+          Assert.assertEquals(1000L + i, result.get(0).getTimestamp());
+          Assert.assertEquals("Compressed test " + i + " 0", Charsets.UTF_8.decode(result.get(0).getBody()).toString());
+        }
+      }
+    }
+  }
+
   /**
    * This unit test is to test the v2 file format that supports
    * defaulting values in stream event (timestamp and headers).
@@ -191,6 +191,55 @@ public abstract class ConcurrentStreamWriterTestBase {
     Assert.assertTrue(verifyEvents(threads, msgCount, events));
   }
 
+  @Test
+  public void testPartitionedWrite() throws Exception {
+    final String streamName = "testPartitionedWrite";
+    NamespaceId namespace = new NamespaceId("namespace");
+    StreamId streamId = namespace.stream(streamName);
+    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000);
+    int threads = Runtime.getRuntime().availableProcessors() * 4;
+    int writerPartitions = 4;
+
+    StreamFileWriterFactory fileWriterFactory = createStreamFileWriterFactory();
+    StreamConfig streamConfig = streamAdmin.getConfig(streamId);
+    streamConfig.getLocation().mkdirs();
+    ConcurrentStreamWriter streamWriter = new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin,
+                                                                     fileWriterFactory, threads, writerPartitions,
+                                                                     new TestMetricsCollectorFactory(), impersonator);
+
+    // Starts n threads to write events through stream writer
+    int msgPerThread = 500;
+    CountDownLatch startLatch = new CountDownLatch(1);
+    CountDownLatch completion = new CountDownLatch(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int i = 0; i < threads; i++) {
+      executor.execute(createWriterTask(streamId, streamWriter, i, msgPerThread, (i % 2) * 9 + 1,
+                                        startLatch, completion));
+    }
+    startLatch.countDown();
+    Assert.assertTrue(completion.await(120, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    // There should be one stream file for each writer partition
+    Location partitionLocation = streamConfig.getLocation().list().get(0);
+    List<StreamEvent> events = Lists.newArrayListWithCapacity(threads * msgPerThread);
+    for (int i = 0; i < writerPartitions; i++) {
+      String filePrefix = StreamUtils.getWriterPartitionFilePrefix(fileWriterFactory.getFileNamePrefix(), i);
+      Location streamLocation = StreamUtils.createStreamLocation(partitionLocation, filePrefix,
+                                                                 0, StreamFileType.EVENT);
+      Assert.assertTrue(streamLocation.exists());
+      try (StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(streamLocation))) {
+        int count = reader.read(events, Integer.MAX_VALUE, 0, TimeUnit.SECONDS);
+        Assert.assertTrue(count > 0);
+      }
+    }
+
+    // Verify all messages are written
+    Assert.assertEquals(threads * msgPerThread, events.size());
+    Assert.assertTrue(verifyEvents(threads, msgPerThread, events));
+    streamWriter.close();
+  }
+
   private boolean verifyEvents(int threads, int msgPerThread, List<StreamEvent> events) {
     Set<String> messages = Sets.newHashSet();
     for (StreamEvent event : events) {
@@ -346,7 +395,7 @@ public abstract class ConcurrentStreamWriterTestBase {
 
   private static final class TestMetricsCollectorFactory implements StreamMetricsCollectorFactory {
     @Override
-    public StreamMetricsCollector createMetricsCollector(StreamId streamId) {
+    public StreamMetricsCollector createMetricsCollector(StreamId streamId, int writerPartition) {
       return new StreamMetricsCollector() {
         @Override
         public void emitMetrics(long bytesWritten, long eventsWritten) {
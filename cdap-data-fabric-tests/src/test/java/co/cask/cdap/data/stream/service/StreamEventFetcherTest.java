@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data.stream.service;
+
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.data.stream.StreamDataFileWriter;
+import co.cask.cdap.data.stream.StreamFileTestUtils;
+import co.cask.cdap.data.stream.StreamFileType;
+import co.cask.cdap.data.stream.StreamUtils;
+import co.cask.cdap.data2.transaction.stream.StreamConfig;
+import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.base.Charsets;
+import org.apache.twill.common.Threads;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit-test for {@link StreamEventFetcher}.
+ */
+public class StreamEventFetcherTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final long PARTITION_DURATION = TimeUnit.SECONDS.toMillis(10);
+
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void init() {
+    // Use a single thread to make sure fetching doesn't depend on having a thread per file
+    executor = Executors.newSingleThreadExecutor(Threads.createDaemonThreadFactory("stream-fetch-test"));
+  }
+
+  @AfterClass
+  public static void finish() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testFetch() throws Exception {
+    StreamConfig config = createStreamConfig("fetch");
+
+    // Two partitions, each with three files written by different writers with interleaving timestamps
+    for (long partitionStart : new long[] { PARTITION_DURATION, PARTITION_DURATION * 2 }) {
+      Location partition = StreamUtils.createPartitionLocation(config.getLocation(), partitionStart,
+                                                               PARTITION_DURATION);
+      for (int file = 0; file < 3; file++) {
+        String prefix = StreamUtils.getWriterPartitionFilePrefix("file.0", file);
+        List<Long> timestamps = new ArrayList<>();
+        for (long ts = partitionStart + file; ts < partitionStart + PARTITION_DURATION; ts += 3) {
+          timestamps.add(ts);
+        }
+        writeEvents(partition, prefix, timestamps);
+      }
+    }
+
+    // Fetch across the two partitions
+    assertFetched(config, PARTITION_DURATION + 5000, PARTITION_DURATION * 2 + 1000, 2);
+
+    // Fetch everything
+    assertFetched(config, 0L, Long.MAX_VALUE, 7);
+
+    // Fetch a range without events
+    try (StreamEventFetcher fetcher = new StreamEventFetcher(config, PARTITION_DURATION * 5, Long.MAX_VALUE,
+                                                             executor, 10)) {
+      Assert.assertEquals(-1, fetcher.read(new ArrayList<StreamEvent>(), 10));
+    }
+  }
+
+  @Test
+  public void testEmptyStream() throws Exception {
+    StreamConfig config = createStreamConfig("empty");
+    try (StreamEventFetcher fetcher = new StreamEventFetcher(config, 0L, Long.MAX_VALUE, executor, 10)) {
+      Assert.assertEquals(-1, fetcher.read(new ArrayList<StreamEvent>(), 10));
+    }
+  }
+
+  /**
+   * Fetches events in the given time range and verifies that all events in the range are returned in order.
+   */
+  private void assertFetched(StreamConfig config, long startTime, long endTime,
+                             int bufferSize) throws IOException, InterruptedException {
+    List<StreamEvent> events = new ArrayList<>();
+    try (StreamEventFetcher fetcher = new StreamEventFetcher(config, startTime, endTime, executor, bufferSize)) {
+      while (fetcher.read(events, 7) >= 0) {
+        // Keep reading until no more events
+      }
+    }
+
+    long expected = Math.max(startTime, PARTITION_DURATION);
+    for (StreamEvent event : events) {
+      Assert.assertEquals(expected, event.getTimestamp());
+      Assert.assertEquals("Event " + expected, Charsets.UTF_8.decode(event.getBody()).toString());
+      expected++;
+    }
+    Assert.assertEquals(Math.min(endTime, PARTITION_DURATION * 3), expected);
+  }
+
+  private void writeEvents(Location partition, String prefix, List<Long> timestamps) throws IOException {
+    partition.mkdirs();
+    Location eventLocation = StreamUtils.createStreamLocation(partition, prefix, 0, StreamFileType.EVENT);
+    Location indexLocation = StreamUtils.createStreamLocation(partition, prefix, 0, StreamFileType.INDEX);
+
+    // Use a small index interval so that the index is used when seeking to the start time
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventLocation),
+                                                           Locations.newOutputSupplier(indexLocation), 100L);
+    try {
+      for (long timestamp : timestamps) {
+        writer.append(StreamFileTestUtils.createEvent(timestamp, "Event " + timestamp));
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private StreamConfig createStreamConfig(String stream) throws IOException {
+    Location location = new LocalLocationFactory(TMP_FOLDER.newFolder()).create(stream);
+    location.mkdirs();
+    return new StreamConfig(NamespaceId.DEFAULT.stream(stream), PARTITION_DURATION, 100L, Long.MAX_VALUE,
+                            location, null, 1000);
+  }
+}
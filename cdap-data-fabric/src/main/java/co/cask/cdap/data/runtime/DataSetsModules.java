@@ -113,7 +113,7 @@ public class DataSetsModules extends RuntimeModule {
 
         bind(DatasetFramework.class)
           .annotatedWith(Names.named(BASE_DATASET_FRAMEWORK))
-          .to(RemoteDatasetFramework.class);
+          .to(RemoteDatasetFramework.class).in(Scopes.SINGLETON);
 
         bind(LineageStoreReader.class).to(LineageStore.class);
         bind(LineageStoreWriter.class).to(LineageStore.class);
@@ -54,7 +54,13 @@ public final class LocationStreamFileWriterFactory implements StreamFileWriterFa
   }
 
   @Override
-  public FileWriter<StreamEvent> create(final StreamConfig config, final int generation) throws IOException {
+  public FileWriter<StreamEvent> create(StreamConfig config, int generation) throws IOException {
+    return create(config, generation, 0);
+  }
+
+  @Override
+  public FileWriter<StreamEvent> create(final StreamConfig config, final int generation,
+                                        int writerPartition) throws IOException {
     try {
       Preconditions.checkNotNull(config.getLocation(), "Location for stream %s is unknown.", config.getStreamId());
 
@@ -69,8 +75,9 @@ public final class LocationStreamFileWriterFactory implements StreamFileWriterFa
       });
 
       return new TimePartitionedStreamFileWriter(baseLocation, config.getPartitionDuration(),
-                                                 filePrefix, config.getIndexInterval(),
-                                                 config.getStreamId(), impersonator);
+                                                 StreamUtils.getWriterPartitionFilePrefix(filePrefix, writerPartition),
+                                                 config.getIndexInterval(),
+                                                 config.getStreamId(), impersonator, config.getCompression());
     } catch (Exception e) {
       Throwables.propagateIfPossible(e, IOException.class);
       throw new IOException(e);
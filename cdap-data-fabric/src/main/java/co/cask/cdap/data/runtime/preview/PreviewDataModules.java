@@ -76,7 +76,7 @@ public class PreviewDataModules {
 
         bind(DatasetFramework.class)
           .annotatedWith(Names.named("localDatasetFramework"))
-          .to(RemoteDatasetFramework.class);
+          .to(RemoteDatasetFramework.class).in(Scopes.SINGLETON);
 
         bind(DatasetFramework.class).annotatedWith(Names.named("actualDatasetFramework")).
           toInstance(remoteDatasetFramework);
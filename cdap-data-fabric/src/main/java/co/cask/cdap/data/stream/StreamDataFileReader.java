@@ -67,6 +67,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   private boolean eof;
   private Decoder decoder;
   private StreamEvent eventTemplate;
+  private StreamFileCompression.BlockCodec codec;
 
   /**
    * Opens a new {@link StreamDataFileReader} with the given inputs.
@@ -307,6 +308,11 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
       eventTemplate = new StreamEvent(ImmutableMap.<String, String>of(), ByteBuffers.EMPTY_BUFFER, -1L);
     }
 
+    // Data blocks can be compressed since version 3
+    if (fileVersion >= 3) {
+      codec = createCodec(properties);
+    }
+
     position = eventInput.getPos();
   }
 
@@ -323,13 +329,36 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V2)) {
       return 2;
     }
+    if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V3)) {
+      return 3;
+    }
     throw new IOException(
-      String.format("Unsupported stream file format. First two bytes must be %s or %s",
+      String.format("Unsupported stream file format. First two bytes must be %s, %s or %s",
                     Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V1),
-                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2))
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2),
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V3))
     );
   }
 
+  /**
+   * Creates the {@link StreamFileCompression.BlockCodec} for decompressing data blocks based on the file properties.
+   *
+   * @return the codec or {@code null} if the file is not compressed
+   */
+  @Nullable
+  private StreamFileCompression.BlockCodec createCodec(Map<String, String> properties) throws IOException {
+    String compressionName = properties.get(StreamDataFileConstants.Property.Key.COMPRESSION);
+    if (compressionName == null) {
+      return null;
+    }
+    try {
+      StreamFileCompression compression = StreamFileCompression.fromName(compressionName);
+      return compression == StreamFileCompression.NONE ? null : compression.createCodec();
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unsupported stream file compression " + compressionName, e);
+    }
+  }
+
   /**
    * Creates a {@link StreamEvent} that will be used as a template for all events consumable from this reader.
    */
@@ -410,7 +439,8 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
           break;
         }
 
-        int len = readLength();
+        // Compressed block has negative length
+        int len = Math.abs(readLength());
         position = positionBound;
 
         // Jump to next timestamp
@@ -474,7 +504,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   }
 
   private void readDataBlock(ReadFilter filter) throws IOException {
-    // Data block is <timestamp> <length> <stream_data>+
+    // Data block is <timestamp> <length> <stream_data>+ or <timestamp> <negative_length> <compressed_block>
     position = eventInput.getPos();
     long timestamp = readTimestamp();
     if (timestamp < 0) {
@@ -485,7 +515,14 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     // Use the template timestamp if available
     timestamp = eventTemplate.getTimestamp() >= 0 ? eventTemplate.getTimestamp() : timestamp;
     if (acceptTimestamp(filter, timestamp)) {
-      streamEventBuffer.fillBuffer(eventInput, readLength());
+      int length = readLength();
+      if (length >= 0) {
+        streamEventBuffer.fillBuffer(eventInput, length);
+      } else if (codec != null) {
+        streamEventBuffer.fillCompressedBuffer(eventInput, -length, codec);
+      } else {
+        throw new IOException("Invalid data block length " + length + " at position " + position);
+      }
       this.timestamp = timestamp;
       return;
     }
@@ -503,7 +540,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
       return;
     }
 
-    int length = readLength();
+    int length = Math.abs(readLength());
     long bytesSkipped = eventInput.skip(length);
     if (bytesSkipped != length) {
       throw new EOFException("Expected to skip " + length + " but only " + bytesSkipped + " was skipped.");
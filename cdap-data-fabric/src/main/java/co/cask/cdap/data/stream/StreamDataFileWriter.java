@@ -32,11 +32,13 @@ import com.google.common.io.OutputSupplier;
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.fs.Syncable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.Map;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
@@ -59,6 +61,30 @@ import javax.annotation.concurrent.NotThreadSafe;
  * }
  * </pre>
  *
+ * Stream event file with compressed data blocks, which is written if a {@link StreamFileCompression} other than
+ * {@link StreamFileCompression#NONE} is used:
+ *
+ * <pre>
+ * {@code
+ *
+ * event_file = <header> <data>* <end_marker>
+ * header = "E" "3" <properties>
+ * properties = Avro encoded with the properties schema, with the "stream.compression" property
+ * data = <timestamp> <length> <stream_event>+ | <timestamp> <negative_length> <compressed_block>
+ * negative_length = Avro encoded int32 for -(size in bytes of the <compressed_block>)
+ * compressed_block = <uncompressed_length> <compressed_data>
+ * uncompressed_length = Avro encoded int32 for size in bytes of all <stream_event>s
+ * compressed_data = compressed bytes of all <stream_event>s
+ *
+ * }
+ * </pre>
+ *
+ * Since the positions of events in a compressed block cannot be file offsets, the events in a compressed block
+ * are assigned consecutive positions starting from the beginning of the <compressed_block>. A block is only
+ * written compressed if it is smaller than the uncompressed block and not smaller than the number of events in it,
+ * so that event positions always fall within the block and increase across blocks. Otherwise it is written as an
+ * uncompressed block.
+ *
  * Stream index file:
  *
  * <pre>
@@ -84,9 +110,15 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   private final long indexInterval;
   private final BufferedEncoder encoder;
   private final BufferedEncoder lengthEncoder;
+  @Nullable
+  private final StreamFileCompression.BlockCodec codec;
+  private final BlockBuffer blockBuffer;
+  private byte[] compressedBuffer;
 
   // Timestamp for the current block
   private long currentTimestamp;
+  // Number of events in the current block
+  private int blockEvents;
   private long position;
   private long nextIndexTime;
   private boolean synced;
@@ -116,6 +148,23 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
                               OutputSupplier<? extends OutputStream> indexOutputSupplier,
                               long indexInterval, Map<String, String> properties) throws IOException {
+    this(eventOutputSupplier, indexOutputSupplier, indexInterval, properties, StreamFileCompression.NONE);
+  }
+
+  /**
+   * Constructs a new instance that writes to given outputs, with data blocks compressed by the given compression.
+   *
+   * @param eventOutputSupplier the provider of the {@link OutputStream} for writing events
+   * @param indexOutputSupplier the provider of the {@link OutputStream} for writing the index
+   * @param indexInterval the time interval in milliseconds for emitting a new index entry
+   * @param properties the property set that will be stored as file properties
+   * @param compression the compression for data blocks
+   * @throws IOException if there is an error in preparing the output streams
+   */
+  public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
+                              OutputSupplier<? extends OutputStream> indexOutputSupplier,
+                              long indexInterval, Map<String, String> properties,
+                              StreamFileCompression compression) throws IOException {
     this.eventOutput = eventOutputSupplier.getOutput();
     try {
       this.indexOutput = indexOutputSupplier.getOutput();
@@ -130,9 +179,12 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     Function<OutputStream, Encoder> encoderFactory = createEncoderFactory();
     this.encoder = new BufferedEncoder(BUFFER_SIZE, encoderFactory);
     this.lengthEncoder = new BufferedEncoder(5, encoderFactory);
+    this.codec = compression == StreamFileCompression.NONE ? null : compression.createCodec();
+    this.blockBuffer = new BlockBuffer();
+    this.compressedBuffer = new byte[0];
 
     try {
-      init(properties);
+      init(properties, compression);
     } catch (IOException e) {
       Closeables.closeQuietly(eventOutput);
       Closeables.closeQuietly(indexOutput);
@@ -222,6 +274,7 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
       // Encodes the event data into buffer.
       StreamEventDataCodec.encode(event, encoder);
+      blockEvents++;
 
       // Optionally flush if already filled up the buffer.
       if (encoder.size() >= flushLimit) {
@@ -233,12 +286,18 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     }
   }
 
-  private void init(Map<String, String> properties) throws IOException {
-    // Writes the header for event file
-    encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
-
+  private void init(Map<String, String> properties, StreamFileCompression compression) throws IOException {
     Map<String, String> headers = Maps.newHashMap(properties);
     headers.put(StreamDataFileConstants.Property.Key.SCHEMA, StreamEventDataCodec.STREAM_DATA_SCHEMA.toString());
+
+    // Writes the header for event file. Version 2 is used if there is no compression, so that the file is readable
+    // by older readers.
+    if (codec == null) {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
+    } else {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V3);
+      headers.put(StreamDataFileConstants.Property.Key.COMPRESSION, compression.getName());
+    }
     StreamUtils.encodeMap(headers, encoder);
 
     long headerSize = encoder.size();
@@ -278,16 +337,17 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       indexOffset = position - Bytes.SIZEOF_LONG;
     }
 
-    // Writes the size of the encoded event
-    lengthEncoder.writeInt(encoder.size());
-    int size = lengthEncoder.size();
-    lengthEncoder.writeTo(eventOutput);
-    position += size;
+    if (codec == null) {
+      // Writes the size of the encoded event
+      writeLength(encoder.size());
 
-    // Writes all encoded data from the buffer to the output.
-    size = encoder.size();
-    encoder.writeTo(eventOutput);
-    position += size;
+      // Writes all encoded data from the buffer to the output.
+      int size = encoder.size();
+      encoder.writeTo(eventOutput);
+      position += size;
+    } else {
+      writeCompressedBlock(codec);
+    }
     if (sync) {
       sync(eventOutput);
     }
@@ -307,9 +367,52 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
     // Reset the current timestamp so that a data block will start.
     currentTimestamp = -1L;
+    blockEvents = 0;
     synced = sync;
   }
 
+  /**
+   * Writes the encoded events in the buffer as a compressed block, or as an uncompressed block if compression
+   * doesn't produce a block that satisfies the requirements described in the class documentation.
+   */
+  private void writeCompressedBlock(StreamFileCompression.BlockCodec codec) throws IOException {
+    blockBuffer.reset();
+    encoder.writeTo(blockBuffer);
+    int size = blockBuffer.size();
+
+    if (compressedBuffer.length < codec.maxCompressedLength(size)) {
+      compressedBuffer = new byte[codec.maxCompressedLength(size)];
+    }
+    int compressedSize = codec.compress(blockBuffer.getBuffer(), size, compressedBuffer);
+
+    // The compressed block contains the uncompressed length and the compressed data
+    lengthEncoder.writeInt(size);
+    int blockSize = lengthEncoder.size() + compressedSize;
+    lengthEncoder.reset();
+
+    if (blockSize >= size || blockSize < blockEvents) {
+      writeLength(size);
+      eventOutput.write(blockBuffer.getBuffer(), 0, size);
+      position += size;
+      return;
+    }
+
+    writeLength(-blockSize);
+    writeLength(size);
+    eventOutput.write(compressedBuffer, 0, compressedSize);
+    position += compressedSize;
+  }
+
+  /**
+   * Writes the Avro encoded block length to the event output.
+   */
+  private void writeLength(int length) throws IOException {
+    lengthEncoder.writeInt(length);
+    int size = lengthEncoder.size();
+    lengthEncoder.writeTo(eventOutput);
+    position += size;
+  }
+
   private void sync(OutputStream output) throws IOException {
     if (output instanceof Syncable) {
       ((Syncable) output).hsync();
@@ -329,6 +432,16 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     throw ex;
   }
 
+  /**
+   * A {@link ByteArrayOutputStream} that exposes the internal buffer to avoid copying.
+   */
+  private static final class BlockBuffer extends ByteArrayOutputStream {
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
   private static Function<OutputStream, Encoder> createEncoderFactory() {
     return new Function<OutputStream, Encoder>() {
       @Override
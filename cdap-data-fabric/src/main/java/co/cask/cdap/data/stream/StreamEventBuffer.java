@@ -33,6 +33,9 @@ import javax.annotation.concurrent.NotThreadSafe;
 /**
  * A buffer for holding encoded stream events. It is used by {@link StreamDataFileReader} for holding
  * encoded stream events in each data block.
+ *
+ * For a compressed data block, the events are decompressed into the buffer and are assigned consecutive positions
+ * starting from the beginning of the block, as described in {@link StreamDataFileWriter}.
  */
 @NotThreadSafe
 final class StreamEventBuffer {
@@ -42,12 +45,19 @@ final class StreamEventBuffer {
 
   private ByteBuffer buffer;
   private long basePosition;
+  private byte[] compressedBuffer;
+  private boolean compressed;
+  // Index of the next event in a compressed block
+  private int eventIndex;
+  // End position of a compressed block
+  private long endPosition;
 
   StreamEventBuffer() {
     this.buffer = ByteBuffers.EMPTY_BUFFER;
     this.bufferInput = new ByteBufferInputStream(buffer);
     this.decoder = new BinaryDecoder(bufferInput);
     this.basePosition = -1L;
+    this.compressedBuffer = new byte[0];
   }
 
   /**
@@ -61,17 +71,11 @@ final class StreamEventBuffer {
   void fillBuffer(SeekableInputStream input, int size) throws IOException {
     buffer.clear();
     buffer = ensureCapacity(buffer, size);
+    compressed = false;
 
     try {
       basePosition = input.getPos();
-      int bytesRead = 0;
-      while (bytesRead != size) {
-        int len = input.read(buffer.array(), bytesRead, size - bytesRead);
-        if (len < 0) {
-          throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
-        }
-        bytesRead += len;
-      }
+      readFully(input, buffer.array(), size);
       buffer.limit(size);
       bufferInput.reset(buffer);
     } catch (IOException e) {
@@ -82,6 +86,50 @@ final class StreamEventBuffer {
     }
   }
 
+  /**
+   * Fills the internal buffer by reading a compressed block from the given input stream and decompressing it.
+   *
+   * @param input input stream to read from
+   * @param size number of bytes in the compressed block
+   * @param codec the {@link StreamFileCompression.BlockCodec} for decompressing the block
+   * @throws IOException if failed to read from the stream or to decompress
+   * @throws EOFException if failed to read the given number of bytes from the input
+   */
+  void fillCompressedBuffer(SeekableInputStream input, int size,
+                            StreamFileCompression.BlockCodec codec) throws IOException {
+    buffer.clear();
+    compressed = true;
+    eventIndex = 0;
+
+    try {
+      basePosition = input.getPos();
+      endPosition = basePosition + size;
+      if (compressedBuffer.length < size) {
+        compressedBuffer = new byte[size];
+      }
+      readFully(input, compressedBuffer, size);
+
+      // The compressed block starts with the uncompressed length
+      ByteBuffer compressedBlock = ByteBuffer.wrap(compressedBuffer, 0, size);
+      bufferInput.reset(compressedBlock);
+      int length = decoder.readInt();
+      if (length < 0) {
+        throw new IOException("Invalid uncompressed length " + length + " in compressed block at " + basePosition);
+      }
+
+      buffer = ensureCapacity(buffer, length);
+      codec.decompress(compressedBuffer, compressedBlock.position(), compressedBlock.remaining(),
+                       buffer.array(), length);
+      buffer.limit(length);
+      bufferInput.reset(buffer);
+    } catch (IOException e) {
+      // Make the buffer has nothing to read
+      buffer.position(buffer.limit());
+      basePosition = -1L;
+      throw e;
+    }
+  }
+
   /**
    * Returns {@code true} if there are events in the buffer, {@code false} otherwise.
    */
@@ -94,7 +142,14 @@ final class StreamEventBuffer {
    * read from the stream.
    */
   long getPosition() {
-    return basePosition >= 0 ? basePosition + buffer.position() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    if (compressed) {
+      // When all events in a compressed block are consumed, the position is at the end of the block
+      return buffer.hasRemaining() ? basePosition + eventIndex : endPosition;
+    }
+    return basePosition + buffer.position();
   }
 
   /**
@@ -102,7 +157,10 @@ final class StreamEventBuffer {
    * been read from the stream.
    */
   long getEndPosition() {
-    return basePosition >= 0 ? basePosition + buffer.limit() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    return compressed ? endPosition : basePosition + buffer.limit();
   }
 
   /**
@@ -120,7 +178,8 @@ final class StreamEventBuffer {
       throw new IOException("No more event in the buffer");
     }
 
-    long eventPos = basePosition + buffer.position();
+    long eventPos = getPosition();
+    eventIndex++;
     if (filter.acceptOffset(eventPos)) {
       return new PositionStreamEvent(StreamEventDataCodec.decode(decoder, defaultHeaders), timestamp, eventPos);
     }
@@ -128,6 +187,20 @@ final class StreamEventBuffer {
     return null;
   }
 
+  /**
+   * Reads the given number of bytes from the input into the given array.
+   */
+  private void readFully(SeekableInputStream input, byte[] bytes, int size) throws IOException {
+    int bytesRead = 0;
+    while (bytesRead != size) {
+      int len = input.read(bytes, bytesRead, size - bytesRead);
+      if (len < 0) {
+        throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
+      }
+      bytesRead += len;
+    }
+  }
+
   /**
    * Ensures that the given {@link ByteBuffer} is of sufficient size.
    *
@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data.stream;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * An enum for the compression of data blocks in stream data file.
+ */
+public enum StreamFileCompression {
+
+  NONE("none"),
+  SNAPPY("snappy"),
+  DEFLATE("deflate");
+
+  private final String name;
+
+  StreamFileCompression(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the name of the compression, which is stored in the stream data file properties.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Returns the {@link StreamFileCompression} of the given name.
+   *
+   * @throws IllegalArgumentException if there is no compression of the given name
+   */
+  public static StreamFileCompression fromName(String name) {
+    for (StreamFileCompression compression : values()) {
+      if (compression.getName().equalsIgnoreCase(name)) {
+        return compression;
+      }
+    }
+    throw new IllegalArgumentException("Unknown stream file compression " + name);
+  }
+
+  /**
+   * Creates a new {@link BlockCodec} for compressing and decompressing data blocks.
+   */
+  BlockCodec createCodec() {
+    switch (this) {
+      case SNAPPY:
+        return new SnappyBlockCodec();
+      case DEFLATE:
+        return new DeflateBlockCodec();
+      default:
+        throw new IllegalStateException("No codec for stream file compression " + name);
+    }
+  }
+
+  /**
+   * Compresses and decompresses data blocks. Instances of this class are not thread safe.
+   */
+  interface BlockCodec {
+
+    /**
+     * Returns the maximum compressed size of data of the given size.
+     */
+    int maxCompressedLength(int length);
+
+    /**
+     * Compresses data from the input array to the output array.
+     *
+     * @param input array containing the data to compress
+     * @param length number of bytes to compress starting from the beginning of the input array
+     * @param output array for the compressed data, which must be at least of size
+     *               {@link #maxCompressedLength(int) maxCompressedLength(length)}
+     * @return number of bytes written to the output array
+     */
+    int compress(byte[] input, int length, byte[] output) throws IOException;
+
+    /**
+     * Decompresses data from the input array to the output array.
+     *
+     * @param input array containing the compressed data
+     * @param offset offset in the input array to start with
+     * @param length number of bytes of compressed data
+     * @param output array for the decompressed data
+     * @param outputLength expected number of bytes after decompression
+     * @throws IOException if the data cannot be decompressed to the expected size
+     */
+    void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException;
+  }
+
+  /**
+   * A {@link BlockCodec} using Snappy.
+   */
+  private static final class SnappyBlockCodec implements BlockCodec {
+
+    @Override
+    public int maxCompressedLength(int length) {
+      return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] input, int length, byte[] output) throws IOException {
+      return Snappy.compress(input, 0, length, output, 0);
+    }
+
+    @Override
+    public void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      int size = Snappy.uncompressedLength(input, offset, length);
+      if (size != outputLength) {
+        throw new IOException("Expected decompressed size " + outputLength + " but got " + size);
+      }
+      Snappy.uncompress(input, offset, length, output, 0);
+    }
+  }
+
+  /**
+   * A {@link BlockCodec} using Deflate.
+   */
+  private static final class DeflateBlockCodec implements BlockCodec {
+
+    private final Deflater deflater = new Deflater();
+    private final Inflater inflater = new Inflater();
+
+    @Override
+    public int maxCompressedLength(int length) {
+      // Upper bound of the deflate output size, taken from zlib's deflateBound()
+      return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+    }
+
+    @Override
+    public int compress(byte[] input, int length, byte[] output) throws IOException {
+      deflater.reset();
+      deflater.setInput(input, 0, length);
+      deflater.finish();
+      int size = 0;
+      while (!deflater.finished()) {
+        int len = deflater.deflate(output, size, output.length - size);
+        if (len == 0 && size == output.length) {
+          throw new IOException("Insufficient buffer for compressing " + length + " bytes");
+        }
+        size += len;
+      }
+      return size;
+    }
+
+    @Override
+    public void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      inflater.reset();
+      inflater.setInput(input, offset, length);
+      try {
+        int size = 0;
+        while (size < outputLength && !inflater.finished()) {
+          int len = inflater.inflate(output, size, outputLength - size);
+          if (len == 0 && inflater.needsInput()) {
+            break;
+          }
+          size += len;
+        }
+        if (size != outputLength || !inflater.finished()) {
+          throw new IOException("Expected decompressed size " + outputLength + " but got " + size);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Failed to decompress data block", e);
+      }
+    }
+  }
+}
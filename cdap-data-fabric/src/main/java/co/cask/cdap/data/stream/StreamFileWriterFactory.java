@@ -32,4 +32,17 @@ public interface StreamFileWriterFactory {
   String getFileNamePrefix();
 
   FileWriter<StreamEvent> create(StreamConfig config, int generation) throws IOException;
+
+  /**
+   * Creates a {@link FileWriter} for the given writer partition of the stream. Files created by different writer
+   * partitions have different file name prefixes, as returned by
+   * {@link StreamUtils#getWriterPartitionFilePrefix(String, int)}.
+   *
+   * @param config configuration of the stream
+   * @param generation generation of the stream
+   * @param writerPartition the writer partition index, starting from 0
+   * @return a {@link FileWriter} for writing to the stream
+   * @throws IOException if failed to create the {@link FileWriter}
+   */
+  FileWriter<StreamEvent> create(StreamConfig config, int generation, int writerPartition) throws IOException;
 }
@@ -253,6 +253,19 @@ public final class StreamUtils {
     return partitionLocation.append(String.format("%s.%06d.%s", prefix, seqId, type.getSuffix()));
   }
 
+  /**
+   * Returns the file prefix for the stream files written by the given writer partition of a stream writer instance.
+   * The first writer partition uses the instance file prefix as is, so that stream files written with a single
+   * writer partition are named the same as before writer partitions were introduced.
+   *
+   * @param instanceFilePrefix file prefix of the stream writer instance
+   * @param writerPartition the writer partition index, starting from 0
+   * @return the file prefix for the writer partition
+   */
+  public static String getWriterPartitionFilePrefix(String instanceFilePrefix, int writerPartition) {
+    return writerPartition == 0 ? instanceFilePrefix : instanceFilePrefix + '.' + writerPartition;
+  }
+
   /**
    * Returns the aligned partition start time.
    *
@@ -374,22 +387,19 @@ public final class StreamUtils {
       if (!fileName.startsWith(filePrefix)) {
         continue;
       }
-      StreamUtils.getSequenceId(fileName);
-
-      int idx = fileName.lastIndexOf('.');
-      if (idx < filePrefix.length()) {
-        // Ignore file with invalid stream file name
-        continue;
-      }
 
       try {
-        // File name format is [prefix].[sequenceId].[dat|idx]
+        // File name format is [prefix].[sequenceId].[dat|idx]. The prefix needs to be matched exactly, since
+        // the file prefix of another writer partition starts with the same prefix.
+        if (!filePrefix.equals(StreamUtils.getNamePrefix(fileName))) {
+          continue;
+        }
         int seq = StreamUtils.getSequenceId(fileName);
         if (seq > maxSequence) {
           maxSequence = seq;
         }
-      } catch (NumberFormatException e) {
-        // Ignore stream file with invalid sequence id
+      } catch (IllegalArgumentException e) {
+        // Ignore stream file with invalid stream file name or sequence id
       }
     }
     return maxSequence + 1;
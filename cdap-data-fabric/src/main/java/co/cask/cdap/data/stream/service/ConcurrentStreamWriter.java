@@ -32,6 +32,7 @@ import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.proto.id.StreamId;
 import co.cask.cdap.security.impersonation.Impersonator;
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
@@ -62,6 +63,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.concurrent.ThreadSafe;
@@ -90,6 +93,9 @@ import javax.annotation.concurrent.ThreadSafe;
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
  * get written and flushed.
  *
+ * Each stream can have multiple writer partitions, each with its own event queue and stream file. Write requests
+ * are distributed across the writer partitions in round-robin order, so that multiple threads can be writing to
+ * the same stream concurrently. Appending a stream file always goes through the first writer partition.
  */
 @ThreadSafe
 public final class ConcurrentStreamWriter implements Closeable {
@@ -99,8 +105,10 @@ public final class ConcurrentStreamWriter implements Closeable {
   private final StreamCoordinatorClient streamCoordinatorClient;
   private final StreamAdmin streamAdmin;
   private final int workerThreads;
+  private final int writerPartitions;
+  private final AtomicInteger nextWriterPartition;
   private final StreamMetricsCollectorFactory metricsCollectorFactory;
-  private final ConcurrentMap<StreamId, EventQueue> eventQueues;
+  private final ConcurrentMap<StreamId, AtomicReferenceArray<EventQueue>> eventQueues;
   private final StreamFileFactory streamFileFactory;
   private final Set<StreamId> generationWatched;
   private final List<Cancellable> cancellables;
@@ -110,9 +118,18 @@ public final class ConcurrentStreamWriter implements Closeable {
   ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
                          StreamFileWriterFactory writerFactory, int workerThreads,
                          StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator) {
+    this(streamCoordinatorClient, streamAdmin, writerFactory, workerThreads, 1, metricsCollectorFactory, impersonator);
+  }
+
+  ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
+                         StreamFileWriterFactory writerFactory, int workerThreads, int writerPartitions,
+                         StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator) {
+    Preconditions.checkArgument(writerPartitions > 0, "Number of writer partitions must be > 0");
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.streamAdmin = streamAdmin;
     this.workerThreads = workerThreads;
+    this.writerPartitions = writerPartitions;
+    this.nextWriterPartition = new AtomicInteger();
     this.metricsCollectorFactory = metricsCollectorFactory;
     this.eventQueues = new MapMaker().concurrencyLevel(workerThreads).makeMap();
     this.streamFileFactory = new StreamFileFactory(writerFactory, impersonator);
@@ -126,11 +143,17 @@ public final class ConcurrentStreamWriter implements Closeable {
     AbstractScheduledService scheduledService = new AbstractScheduledService() {
       @Override
       protected void runOneIteration() throws Exception {
-        for (EventQueue eventQueue : eventQueues.values()) {
-          try {
-            eventQueue.refresh();
-          } catch (Throwable t) {
-            LOG.error("Error while refreshing event queue.", t);
+        for (AtomicReferenceArray<EventQueue> queues : eventQueues.values()) {
+          for (int i = 0; i < queues.length(); i++) {
+            EventQueue eventQueue = queues.get(i);
+            if (eventQueue == null) {
+              continue;
+            }
+            try {
+              eventQueue.refresh();
+            } catch (Throwable t) {
+              LOG.error("Error while refreshing event queue.", t);
+            }
           }
         }
       }
@@ -171,7 +194,7 @@ public final class ConcurrentStreamWriter implements Closeable {
    */
   public void enqueue(StreamId streamId,
                       Map<String, String> headers, ByteBuffer body) throws IOException, NotFoundException {
-    EventQueue eventQueue = getEventQueue(streamId);
+    EventQueue eventQueue = getEventQueue(streamId, nextWriterPartition());
     WriteRequest writeRequest = eventQueue.append(headers, body);
     persistUntilCompleted(streamId, eventQueue, writeRequest);
   }
@@ -186,7 +209,7 @@ public final class ConcurrentStreamWriter implements Closeable {
    */
   public void enqueue(StreamId streamId,
                       Iterator<? extends StreamEventData> events) throws IOException, NotFoundException {
-    EventQueue eventQueue = getEventQueue(streamId);
+    EventQueue eventQueue = getEventQueue(streamId, nextWriterPartition());
     WriteRequest writeRequest = eventQueue.append(events);
     persistUntilCompleted(streamId, eventQueue, writeRequest);
   }
@@ -206,7 +229,7 @@ public final class ConcurrentStreamWriter implements Closeable {
                            Map<String, String> headers, ByteBuffer body,
                            Executor executor) throws IOException, NotFoundException {
     // Put the event to the queue first and then execute the write asynchronously
-    final EventQueue eventQueue = getEventQueue(streamId);
+    final EventQueue eventQueue = getEventQueue(streamId, nextWriterPartition());
     final WriteRequest writeRequest = eventQueue.append(headers, body);
     executor.execute(new Runnable() {
       @Override
@@ -234,7 +257,8 @@ public final class ConcurrentStreamWriter implements Closeable {
   public void appendFile(StreamId streamId,
                          Location eventFile, Location indexFile, long eventCount,
                          TimestampCloseable timestampCloseable) throws IOException, NotFoundException {
-    EventQueue eventQueue = getEventQueue(streamId);
+    // Files are always appended through the first writer partition, which uses the instance file prefix
+    EventQueue eventQueue = getEventQueue(streamId, 0);
     StreamConfig config = streamAdmin.getConfig(streamId);
     while (!eventQueue.tryAppendFile(config, eventFile, indexFile, eventCount, timestampCloseable)) {
       Thread.yield();
@@ -247,19 +271,26 @@ public final class ConcurrentStreamWriter implements Closeable {
       cancellable.cancel();
     }
 
-    for (EventQueue queue : eventQueues.values()) {
-      try {
-        queue.close();
-      } catch (IOException e) {
-        LOG.warn("Failed to close writer.", e);
-      }
+    for (AtomicReferenceArray<EventQueue> queues : eventQueues.values()) {
+      closeEventQueues(queues);
     }
 
     eventQueueRefreshService.stopAndWait();
   }
 
-  private EventQueue getEventQueue(StreamId streamId) throws IOException, NotFoundException {
-    EventQueue eventQueue = eventQueues.get(streamId);
+  /**
+   * Returns the writer partition for the next write request.
+   */
+  private int nextWriterPartition() {
+    if (writerPartitions == 1) {
+      return 0;
+    }
+    return (nextWriterPartition.getAndIncrement() & Integer.MAX_VALUE) % writerPartitions;
+  }
+
+  private EventQueue getEventQueue(StreamId streamId, int writerPartition) throws IOException, NotFoundException {
+    AtomicReferenceArray<EventQueue> queues = eventQueues.get(streamId);
+    EventQueue eventQueue = queues == null ? null : queues.get(writerPartition);
     if (eventQueue != null) {
       return eventQueue;
     }
@@ -267,7 +298,8 @@ public final class ConcurrentStreamWriter implements Closeable {
     createLock.lock();
     try {
       // Double check
-      eventQueue = eventQueues.get(streamId);
+      queues = eventQueues.get(streamId);
+      eventQueue = queues == null ? null : queues.get(writerPartition);
       if (eventQueue != null) {
         return eventQueue;
       }
@@ -281,8 +313,13 @@ public final class ConcurrentStreamWriter implements Closeable {
         cancellables.add(streamCoordinatorClient.addListener(streamId, streamFileFactory));
       }
 
-      eventQueue = new EventQueue(streamId, metricsCollectorFactory.createMetricsCollector(streamId));
-      eventQueues.put(streamId, eventQueue);
+      if (queues == null) {
+        queues = new AtomicReferenceArray<>(writerPartitions);
+        eventQueues.put(streamId, queues);
+      }
+      eventQueue = new EventQueue(streamId, writerPartition,
+                                  metricsCollectorFactory.createMetricsCollector(streamId, writerPartition));
+      queues.set(writerPartition, eventQueue);
 
       return eventQueue;
 
@@ -316,8 +353,18 @@ public final class ConcurrentStreamWriter implements Closeable {
   }
 
   private void closeEventQueue(StreamId streamId) {
-    EventQueue eventQueue = eventQueues.remove(streamId);
-    if (eventQueue != null) {
+    AtomicReferenceArray<EventQueue> queues = eventQueues.remove(streamId);
+    if (queues != null) {
+      closeEventQueues(queues);
+    }
+  }
+
+  private void closeEventQueues(AtomicReferenceArray<EventQueue> queues) {
+    for (int i = 0; i < queues.length(); i++) {
+      EventQueue eventQueue = queues.get(i);
+      if (eventQueue == null) {
+        continue;
+      }
       try {
         eventQueue.close();
       } catch (IOException e) {
@@ -356,10 +403,11 @@ public final class ConcurrentStreamWriter implements Closeable {
      * Creates a new {@link FileWriter} for the given stream.
      *
      * @param streamId identifier of the stream
+     * @param writerPartition the writer partition that the {@link FileWriter} is for
      * @return A {@link FileWriter} for writing {@link StreamEvent} to the given stream
      * @throws IOException if failed to create the file writer
      */
-    private FileWriter<StreamEvent> create(StreamId streamId) throws IOException {
+    private FileWriter<StreamEvent> create(StreamId streamId, int writerPartition) throws IOException {
       final StreamConfig streamConfig = streamAdmin.getConfig(streamId);
       int generation;
       try {
@@ -375,8 +423,9 @@ public final class ConcurrentStreamWriter implements Closeable {
         throw Throwables.propagate(e);
       }
 
-      LOG.info("Create stream writer for {} with generation {}", streamId, generation);
-      return writerFactory.create(streamConfig, generation);
+      LOG.info("Create stream writer for {} with generation {} and writer partition {}",
+               streamId, generation, writerPartition);
+      return writerFactory.create(streamConfig, generation, writerPartition);
     }
 
     /**
@@ -441,6 +490,7 @@ public final class ConcurrentStreamWriter implements Closeable {
   private final class EventQueue implements Closeable {
 
     private final StreamId streamId;
+    private final int writerPartition;
     private final StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector;
     private final Queue<WriteRequest> queue;
     private final AtomicBoolean writerFlag;
@@ -450,8 +500,10 @@ public final class ConcurrentStreamWriter implements Closeable {
     private FileWriter<StreamEventData> fileWriter;
     private boolean closed;
 
-    EventQueue(StreamId streamId, StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector) {
+    EventQueue(StreamId streamId, int writerPartition,
+               StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector) {
       this.streamId = streamId;
+      this.writerPartition = writerPartition;
       this.streamEvent = new MutableStreamEvent();
       this.queue = new ConcurrentLinkedQueue<>();
       this.writerFlag = new AtomicBoolean(false);
@@ -565,7 +617,10 @@ public final class ConcurrentStreamWriter implements Closeable {
           eventsWritten = metrics.eventsWritten;
         } catch (Throwable t) {
           // On exception, remove this EventQueue from the map and close this event queue
-          eventQueues.remove(streamId, this);
+          AtomicReferenceArray<EventQueue> queues = eventQueues.get(streamId);
+          if (queues != null) {
+            queues.compareAndSet(writerPartition, this, null);
+          }
           doClose();
 
           for (WriteRequest processed : processQueue) {
@@ -608,7 +663,7 @@ public final class ConcurrentStreamWriter implements Closeable {
         throw new IOException("Stream writer already closed");
       }
       if (fileWriter == null) {
-        fileWriter = transform(streamFileFactory.create(streamId), eventTransformer);
+        fileWriter = transform(streamFileFactory.create(streamId, writerPartition), eventTransformer);
       }
       return fileWriter;
     }
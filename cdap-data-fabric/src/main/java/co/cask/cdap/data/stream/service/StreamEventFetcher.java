@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data.stream.service;
+
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.data.stream.PositionStreamEvent;
+import co.cask.cdap.data.stream.StreamDataFileReader;
+import co.cask.cdap.data.stream.StreamFileOffset;
+import co.cask.cdap.data.stream.StreamFileType;
+import co.cask.cdap.data.stream.StreamUtils;
+import co.cask.cdap.data2.transaction.stream.StreamConfig;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import com.google.common.primitives.Longs;
+import org.apache.twill.filesystem.Location;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Fetches stream events within a time range by reading all stream files of a partition in parallel.
+ *
+ * Partitions that overlap with the time range are visited one by one in time order. For each partition,
+ * every event file is read by a separate task submitted to the given {@link Executor}. Each reader uses
+ * the event index to seek to the start time and stops at the first event that is beyond the end time.
+ * The events read from different files are merged by timestamp, hence events are returned in time order.
+ *
+ * Each task reads at most {@code bufferSize} events at a time and finishes, with the next read scheduled
+ * when the buffered events are being consumed. This bounds the memory used by a fetch and also makes sure
+ * a fetch never blocks a thread in the {@link Executor} while waiting for its consumer.
+ */
+@NotThreadSafe
+final class StreamEventFetcher implements Closeable {
+
+  private static final Comparator<FileSource> SOURCE_COMPARATOR = new Comparator<FileSource>() {
+    @Override
+    public int compare(FileSource o1, FileSource o2) {
+      int cmp = Longs.compare(o1.head.getTimestamp(), o2.head.getTimestamp());
+      return cmp != 0 ? cmp : o1.eventLocation.getName().compareTo(o2.eventLocation.getName());
+    }
+  };
+
+  private final long startTime;
+  private final long endTime;
+  private final Executor executor;
+  private final int bufferSize;
+  private final int generation;
+  private final Iterator<Location> partitions;
+  private final List<FileSource> sources;
+  private final PriorityQueue<FileSource> mergeQueue;
+  private boolean closed;
+
+  /**
+   * Creates an instance that fetches events of the given stream.
+   *
+   * @param streamConfig configuration of the stream to fetch from
+   * @param startTime start timestamp in milliseconds (inclusive)
+   * @param endTime end timestamp in milliseconds (exclusive)
+   * @param executor the {@link Executor} for running file reading tasks
+   * @param bufferSize maximum number of events to read from a file in each task
+   * @throws IOException if failed to list the stream partitions
+   */
+  StreamEventFetcher(StreamConfig streamConfig, long startTime, long endTime,
+                     Executor executor, int bufferSize) throws IOException {
+    Preconditions.checkArgument(bufferSize > 0, "Buffer size must be > 0");
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.executor = executor;
+    this.bufferSize = bufferSize;
+    this.generation = StreamUtils.getGeneration(streamConfig);
+    this.partitions = listPartitions(StreamUtils.createGenerationLocation(streamConfig.getLocation(), generation),
+                                     startTime, endTime).iterator();
+    this.sources = new ArrayList<>();
+    this.mergeQueue = new PriorityQueue<>(11, SOURCE_COMPARATOR);
+  }
+
+  /**
+   * Reads events in timestamp order.
+   *
+   * @param events collection for storing the events read
+   * @param maxEvents maximum number of events to read
+   * @return number of events read, or {@code -1} if there is no more event in the time range
+   * @throws IOException if failed to read events
+   * @throws InterruptedException if the current thread is interrupted while waiting for events
+   */
+  int read(Collection<? super StreamEvent> events, int maxEvents) throws IOException, InterruptedException {
+    if (closed) {
+      throw new IOException("Stream event fetcher already closed");
+    }
+
+    int eventsRead = 0;
+    while (eventsRead < maxEvents) {
+      FileSource source = mergeQueue.poll();
+      if (source == null) {
+        if (!nextPartition()) {
+          break;
+        }
+        continue;
+      }
+      events.add(source.head);
+      eventsRead++;
+      if (source.advance()) {
+        mergeQueue.add(source);
+      }
+    }
+    return (eventsRead == 0) ? -1 : eventsRead;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    closeSources();
+  }
+
+  /**
+   * Starts reading from the next partition that has events.
+   *
+   * @return {@code true} if there is a partition to read from, {@code false} if all partitions are consumed
+   */
+  private boolean nextPartition() throws IOException, InterruptedException {
+    while (mergeQueue.isEmpty() && partitions.hasNext()) {
+      closeSources();
+
+      Location partition = partitions.next();
+      for (Location location : partition.list()) {
+        if (StreamFileType.EVENT.isMatched(location.getName())) {
+          sources.add(new FileSource(location));
+        }
+      }
+
+      // Reads from all files concurrently, then waits for the first event of each file
+      for (FileSource source : sources) {
+        source.schedule();
+      }
+      for (FileSource source : sources) {
+        if (source.advance()) {
+          mergeQueue.add(source);
+        }
+      }
+    }
+    return !mergeQueue.isEmpty();
+  }
+
+  private void closeSources() {
+    for (FileSource source : sources) {
+      source.close();
+    }
+    sources.clear();
+    mergeQueue.clear();
+  }
+
+  /**
+   * Returns the partition locations under the given generation location that overlap with the given time range,
+   * sorted by the partition start time.
+   */
+  private static List<Location> listPartitions(Location generationLocation,
+                                               long startTime, long endTime) throws IOException {
+    List<Location> partitions = new ArrayList<>();
+    if (!generationLocation.isDirectory()) {
+      return partitions;
+    }
+
+    for (Location location : generationLocation.list()) {
+      String name = location.getName();
+      if (!location.isDirectory() || !StreamUtils.isPartition(name)) {
+        continue;
+      }
+      if (StreamUtils.getPartitionStartTime(name) < endTime && StreamUtils.getPartitionEndTime(name) > startTime) {
+        partitions.add(location);
+      }
+    }
+
+    Collections.sort(partitions, new Comparator<Location>() {
+      @Override
+      public int compare(Location o1, Location o2) {
+        return Longs.compare(StreamUtils.getPartitionStartTime(o1.getName()),
+                             StreamUtils.getPartitionStartTime(o2.getName()));
+      }
+    });
+    return partitions;
+  }
+
+  /**
+   * Reads events from a single stream file. The {@link #run()} method is executed by the executor and reads
+   * the next batch of events into the buffer. All other methods are called by the fetching thread.
+   * Fields shared between the two are guarded by the instance lock.
+   */
+  private final class FileSource implements Runnable {
+
+    private final Location eventLocation;
+    private final Location indexLocation;
+    private final Deque<PositionStreamEvent> buffer;
+    private StreamDataFileReader reader;
+    private PositionStreamEvent head;
+    private boolean scheduled;
+    private boolean finished;
+    private boolean closed;
+    private Throwable failure;
+
+    FileSource(Location eventLocation) {
+      this.eventLocation = eventLocation;
+      this.indexLocation = new StreamFileOffset(eventLocation, 0L, generation).getIndexLocation();
+      this.buffer = new ArrayDeque<>(bufferSize);
+    }
+
+    @Override
+    public void run() {
+      List<PositionStreamEvent> events = new ArrayList<>(bufferSize);
+      boolean done;
+      Throwable error = null;
+      try {
+        if (reader == null) {
+          // Uses the index to seek to the start time
+          reader = StreamDataFileReader.createByStartTime(Locations.newInputSupplier(eventLocation),
+                                                          Locations.newInputSupplier(indexLocation), startTime);
+        }
+        // Don't wait for events to be written, since a fetch only returns the events that are already persisted
+        done = reader.read(events, bufferSize, 0, TimeUnit.SECONDS) <= 0;
+
+        // Events in the same file are in time order, hence nothing more to read once reaching the end time
+        Iterator<PositionStreamEvent> iterator = events.iterator();
+        while (iterator.hasNext()) {
+          PositionStreamEvent event = iterator.next();
+          if (event.getTimestamp() < startTime) {
+            iterator.remove();
+          } else if (event.getTimestamp() >= endTime) {
+            iterator.remove();
+            done = true;
+          }
+        }
+      } catch (Throwable t) {
+        error = t;
+        done = true;
+      }
+
+      synchronized (this) {
+        buffer.addAll(events);
+        failure = error;
+        finished = done;
+        scheduled = false;
+        if (finished || closed) {
+          Closeables.closeQuietly(reader);
+        }
+        notifyAll();
+      }
+    }
+
+    /**
+     * Schedules a read task if there is no task pending for this file.
+     */
+    synchronized void schedule() {
+      if (!scheduled && !finished && !closed) {
+        scheduled = true;
+        executor.execute(this);
+      }
+    }
+
+    /**
+     * Moves the head to the next event, waiting for it to be read if needed.
+     *
+     * @return {@code true} if the head is set to the next event, {@code false} if there is no more event
+     */
+    synchronized boolean advance() throws IOException, InterruptedException {
+      head = null;
+      while (buffer.isEmpty()) {
+        if (failure != null) {
+          throw new IOException("Failed to read stream events from " + eventLocation, failure);
+        }
+        if (finished) {
+          return false;
+        }
+        schedule();
+        wait();
+      }
+      head = buffer.poll();
+
+      // Read ahead when half of the buffer is consumed
+      if (buffer.size() < bufferSize / 2) {
+        schedule();
+      }
+      return true;
+    }
+
+    synchronized void close() {
+      closed = true;
+      buffer.clear();
+      // If a read task is running, the reader will be closed when the task completes
+      if (!scheduled) {
+        Closeables.closeQuietly(reader);
+      }
+    }
+  }
+}
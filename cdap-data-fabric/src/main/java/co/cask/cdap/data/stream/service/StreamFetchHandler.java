@@ -21,14 +21,6 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.stream.StreamEventTypeAdapter;
 import co.cask.cdap.common.utils.TimeMathParser;
-import co.cask.cdap.data.file.FileReader;
-import co.cask.cdap.data.file.ReadFilter;
-import co.cask.cdap.data.stream.MultiLiveStreamFileReader;
-import co.cask.cdap.data.stream.StreamEventOffset;
-import co.cask.cdap.data.stream.StreamFileOffset;
-import co.cask.cdap.data.stream.StreamFileType;
-import co.cask.cdap.data.stream.StreamUtils;
-import co.cask.cdap.data.stream.TimeRangeReadFilter;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.proto.id.StreamId;
@@ -38,6 +30,7 @@ import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.ChunkResponder;
+import co.cask.http.HandlerContext;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableMultimap;
@@ -47,7 +40,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.stream.JsonWriter;
 import com.google.inject.Inject;
-import org.apache.twill.filesystem.Location;
+import org.apache.twill.common.Threads;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -55,11 +48,12 @@ import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
-import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -77,23 +71,36 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
   private static final int MAX_EVENTS_PER_READ = 100;
   private static final int CHUNK_SIZE = 8192;
 
-  private final CConfiguration cConf;
   private final StreamAdmin streamAdmin;
   private final StreamMetaStore streamMetaStore;
   private final Impersonator impersonator;
   private final AuthorizationEnforcer authorizationEnforcer;
   private final AuthenticationContext authenticationContext;
+  private final ExecutorService fetchExecutor;
 
   @Inject
   StreamFetchHandler(CConfiguration cConf, StreamAdmin streamAdmin, StreamMetaStore streamMetaStore,
                      Impersonator impersonator, AuthorizationEnforcer authorizationEnforcer,
                      AuthenticationContext authenticationContext) {
-    this.cConf = cConf;
     this.streamAdmin = streamAdmin;
     this.streamMetaStore = streamMetaStore;
     this.impersonator = impersonator;
     this.authorizationEnforcer = authorizationEnforcer;
     this.authenticationContext = authenticationContext;
+
+    int fetchThreads = cConf.getInt(Constants.Stream.FETCH_THREADS);
+    // Creates a thread pool that will shrink inactive threads. Tasks submitted to this executor never block,
+    // hence it is safe to share it across concurrent fetch requests.
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(fetchThreads, fetchThreads, 60, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("stream-fetch-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    this.fetchExecutor = executor;
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    fetchExecutor.shutdownNow();
   }
 
   /**
@@ -140,14 +147,13 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
       @Override
       public Void call() throws Exception {
         int limit = limitEvents;
-        // Create the stream event reader
-        try (FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader = createReader(streamConfig,
-                                                                                             streamStartTime)) {
-          TimeRangeReadFilter readFilter = new TimeRangeReadFilter(streamStartTime, streamEndTime);
-          List<StreamEvent> events = Lists.newArrayListWithCapacity(100);
+        // Create the stream event fetcher, which reads files of the same partition concurrently
+        try (StreamEventFetcher fetcher = new StreamEventFetcher(streamConfig, streamStartTime, streamEndTime,
+                                                                 fetchExecutor, MAX_EVENTS_PER_READ)) {
+          List<StreamEvent> events = Lists.newArrayListWithCapacity(MAX_EVENTS_PER_READ);
 
           // Reads the first batch of events from the stream.
-          int eventsRead = readEvents(reader, events, limit, readFilter);
+          int eventsRead = fetcher.read(events, getReadLimit(limit));
 
           // If empty already, return 204 no content
           if (eventsRead <= 0) {
@@ -184,7 +190,7 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
             events.clear();
 
             if (limit > 0) {
-              eventsRead = readEvents(reader, events, limit, readFilter);
+              eventsRead = fetcher.read(events, getReadLimit(limit));
             }
           }
           jsonWriter.endArray();
@@ -203,22 +209,6 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
 
   }
 
-  /**
-   * Reads events from the given reader.
-   */
-  private int readEvents(FileReader<StreamEventOffset, Iterable<StreamFileOffset>> reader,
-                         List<StreamEvent> events, int limit,
-                         TimeRangeReadFilter readFilter) throws IOException, InterruptedException {
-    // Keeps reading as long as the filter is active.
-    // This mean there are events in the stream, just that they are rejected by the filter.
-    int eventsRead = reader.read(events, getReadLimit(limit), 0, TimeUnit.SECONDS, readFilter);
-    while (eventsRead == 0 && readFilter.isActive()) {
-      readFilter.reset();
-      eventsRead = reader.read(events, getReadLimit(limit), 0, TimeUnit.SECONDS, readFilter);
-    }
-    return eventsRead;
-  }
-
   /**
    * Verifies query properties.
    */
@@ -248,104 +238,6 @@ public final class StreamFetchHandler extends AbstractHttpHandler {
     return true;
   }
 
-  /**
-   * Get the first partition location that contains events as specified in start time.
-   *
-   * @return the partition location if found, or {@code null} if not found.
-   */
-  private Location getStartPartitionLocation(StreamConfig streamConfig,
-                                             long startTime, int generation) throws IOException {
-    Location baseLocation = StreamUtils.createGenerationLocation(streamConfig.getLocation(), generation);
-
-    // Find the partition location with the largest timestamp that is <= startTime
-    // Also find the partition location with the smallest timestamp that is >= startTime
-    long maxPartitionStartTime = 0L;
-    long minPartitionStartTime = Long.MAX_VALUE;
-
-    Location maxPartitionLocation = null;
-    Location minPartitionLocation = null;
-
-    for (Location location : baseLocation.list()) {
-      // Partition must be a directory
-      if (!location.isDirectory() || !StreamUtils.isPartition(location.getName())) {
-        continue;
-      }
-      long partitionStartTime = StreamUtils.getPartitionStartTime(location.getName());
-
-      if (partitionStartTime > maxPartitionStartTime && partitionStartTime <= startTime) {
-        maxPartitionStartTime = partitionStartTime;
-        maxPartitionLocation = location;
-      }
-      if (partitionStartTime < minPartitionStartTime && partitionStartTime >= startTime) {
-        minPartitionStartTime = partitionStartTime;
-        minPartitionLocation = location;
-      }
-    }
-
-    return maxPartitionLocation == null ? minPartitionLocation : maxPartitionLocation;
-  }
-
-  /**
-   * Creates a {@link FileReader} that starts reading stream event from the given partition.
-   */
-  private FileReader<StreamEventOffset, Iterable<StreamFileOffset>> createReader(StreamConfig streamConfig,
-                                                                                 long startTime) throws IOException {
-    int generation = StreamUtils.getGeneration(streamConfig);
-    Location startPartition = getStartPartitionLocation(streamConfig, startTime, generation);
-    if (startPartition == null) {
-      return createEmptyReader();
-    }
-
-    List<StreamFileOffset> fileOffsets = Lists.newArrayList();
-    int instances = cConf.getInt(Constants.Stream.CONTAINER_INSTANCES);
-    String filePrefix = cConf.get(Constants.Stream.FILE_PREFIX);
-    for (int i = 0; i < instances; i++) {
-      // The actual file prefix is formed by file prefix in cConf + writer instance id
-      String streamFilePrefix = filePrefix + '.' + i;
-      Location eventLocation = StreamUtils.createStreamLocation(startPartition, streamFilePrefix,
-                                                                0, StreamFileType.EVENT);
-      fileOffsets.add(new StreamFileOffset(eventLocation, 0, generation));
-    }
-
-    MultiLiveStreamFileReader reader = new MultiLiveStreamFileReader(streamConfig, fileOffsets);
-    reader.initialize();
-    return reader;
-  }
-
-  /**
-   * Creates a reader that has no event to read.
-   */
-  private <T, P> FileReader<T, P> createEmptyReader() {
-    return new FileReader<T, P>() {
-      @Override
-      public void initialize() throws IOException {
-        // no-op
-      }
-
-      @Override
-      public int read(Collection<? super T> events, int maxEvents,
-                      long timeout, TimeUnit unit) throws IOException, InterruptedException {
-        return -1;
-      }
-
-      @Override
-      public int read(Collection<? super T> events, int maxEvents,
-                      long timeout, TimeUnit unit, ReadFilter readFilter) throws IOException, InterruptedException {
-        return -1;
-      }
-
-      @Override
-      public void close() throws IOException {
-        // no-op
-      }
-
-      @Override
-      public P getPosition() {
-        throw new UnsupportedOperationException("Position not supported for empty FileReader");
-      }
-    };
-  }
-
   /**
    * Returns the events limit for each round of read from the stream reader.
    *
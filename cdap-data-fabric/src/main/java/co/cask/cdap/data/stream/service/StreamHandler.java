@@ -147,6 +147,7 @@ public final class StreamHandler extends AbstractHttpHandler {
     StreamMetricsCollectorFactory metricsCollectorFactory = createStreamMetricsCollectorFactory();
     this.streamWriter = new ConcurrentStreamWriter(streamCoordinatorClient, streamAdmin, writerFactory,
                                                    cConf.getInt(Constants.Stream.WORKER_THREADS),
+                                                   cConf.getInt(Constants.Stream.WRITER_PARTITIONS),
                                                    metricsCollectorFactory, impersonator);
     this.namespaceQueryAdmin = namespaceQueryAdmin;
     this.impersonator = impersonator;
@@ -341,21 +342,30 @@ public final class StreamHandler extends AbstractHttpHandler {
   }
 
   private StreamMetricsCollectorFactory createStreamMetricsCollectorFactory() {
+    final boolean partitioned = cConf.getInt(Constants.Stream.WRITER_PARTITIONS) > 1;
     return new StreamMetricsCollectorFactory() {
       @Override
-      public StreamMetricsCollector createMetricsCollector(final StreamId streamId) {
+      public StreamMetricsCollector createMetricsCollector(final StreamId streamId, int writerPartition) {
         MetricsContext streamMetricsContext = streamMetricsCollectors.getUnchecked(streamId.getParent());
         final MetricsContext childCollector =
           streamMetricsContext.childContext(Constants.Metrics.Tag.STREAM, streamId.getEntityName());
+        // Metrics of each writer partition are only emitted if there are multiple writer partitions
+        final String partitionMetricPrefix = partitioned ? "collect.partition." + writerPartition + "." : null;
         return new StreamMetricsCollector() {
           @Override
           public void emitMetrics(long bytesWritten, long eventsWritten) {
             if (bytesWritten > 0) {
               childCollector.increment("collect.bytes", bytesWritten);
               sizeCollector.received(streamId, bytesWritten);
+              if (partitionMetricPrefix != null) {
+                childCollector.increment(partitionMetricPrefix + "bytes", bytesWritten);
+              }
             }
             if (eventsWritten > 0) {
               childCollector.increment("collect.events", eventsWritten);
+              if (partitionMetricPrefix != null) {
+                childCollector.increment(partitionMetricPrefix + "events", eventsWritten);
+              }
             }
           }
         };
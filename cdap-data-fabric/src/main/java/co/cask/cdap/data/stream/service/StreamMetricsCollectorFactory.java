@@ -38,10 +38,11 @@ public interface StreamMetricsCollectorFactory {
   }
 
   /**
-   * Create a {@link StreamMetricsCollector} for the given {@code streamId}.
+   * Create a {@link StreamMetricsCollector} for the given writer partition of the given {@code streamId}.
    *
    * @param streamId stream name to create a collector for
+   * @param writerPartition the writer partition that the collector is for
    * @return a {@link StreamMetricsCollector} for the given {@code streamId}
    */
-  StreamMetricsCollector createMetricsCollector(StreamId streamId);
+  StreamMetricsCollector createMetricsCollector(StreamId streamId, int writerPartition);
 }
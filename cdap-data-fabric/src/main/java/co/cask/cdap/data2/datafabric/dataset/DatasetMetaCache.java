@@ -0,0 +1,378 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.messaging.TopicNotFoundException;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.logging.LogSamplers;
+import co.cask.cdap.common.logging.Loggers;
+import co.cask.cdap.messaging.MessageFetcher;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.proto.DatasetMeta;
+import co.cask.cdap.proto.DatasetTypeMeta;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.DatasetTypeId;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import co.cask.cdap.proto.security.Principal;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of the {@link DatasetMeta} of dataset instances and the {@link DatasetTypeMeta} of dataset types
+ * used by the {@link RemoteDatasetFramework}, so that opening a dataset does not need a call to the dataset service
+ * every time. Entries expire after a configurable time. If a {@link MessagingService} is available, cached instances
+ * are also invalidated when the dataset service publishes an update or delete of the instance. The thread receiving
+ * the invalidations runs until the cache is {@link #close() closed} or the messaging service is stopped.
+ */
+final class DatasetMetaCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetMetaCache.class);
+  // Log at most one out of 100 subscription failures, as they repeat while the messaging service is unavailable
+  private static final Logger SAMPLING_LOG = Loggers.sampling(LOG, LogSamplers.onceEvery(100));
+
+  private static final long INVALIDATION_POLL_TIMEOUT_SECS = 10L;
+  private static final long INVALIDATION_RETRY_DELAY_SECS = 5L;
+
+  private final boolean enabled;
+  private final Cache<InstanceKey, DatasetMeta> instances;
+  private final Cache<DatasetTypeId, DatasetTypeMeta> types;
+  private final AtomicBoolean subscriberStarted;
+  // Incremented before entries are invalidated, so that entries loaded concurrently are not cached
+  private final AtomicLong generation;
+  private volatile MetricsContext metricsContext;
+  private volatile MessagingService messagingService;
+  private volatile TopicId invalidationTopic;
+  private volatile Thread subscriberThread;
+
+  DatasetMetaCache(CConfiguration cConf, Ticker ticker) {
+    long maxSize = cConf.getLong(Constants.Dataset.CLIENT_META_CACHE_SIZE);
+    long ttlSecs = cConf.getLong(Constants.Dataset.CLIENT_META_CACHE_TTL_SECS);
+    this.enabled = maxSize > 0 && ttlSecs > 0;
+    this.instances = CacheBuilder.newBuilder()
+      .maximumSize(Math.max(maxSize, 0L))
+      .expireAfterWrite(Math.max(ttlSecs, 0L), TimeUnit.SECONDS)
+      .ticker(ticker)
+      .build();
+    this.types = CacheBuilder.newBuilder()
+      .maximumSize(Math.max(maxSize, 0L))
+      .expireAfterWrite(Math.max(ttlSecs, 0L), TimeUnit.SECONDS)
+      .ticker(ticker)
+      .build();
+    this.subscriberStarted = new AtomicBoolean();
+    this.generation = new AtomicLong();
+  }
+
+  /**
+   * Sets the {@link MetricsContext} for emitting cache hits and misses.
+   */
+  void setMetricsContext(MetricsContext metricsContext) {
+    this.metricsContext = metricsContext;
+  }
+
+  /**
+   * Sets the {@link MessagingService} and the topic to receive instance invalidations from. The subscription
+   * starts with the first cached instance.
+   */
+  void setInvalidationSource(MessagingService messagingService, TopicId invalidationTopic) {
+    this.messagingService = messagingService;
+    this.invalidationTopic = invalidationTopic;
+  }
+
+  /**
+   * Returns the {@link DatasetMeta} of a dataset instance, calling the given loader if it is not cached.
+   * The owners and the principal are part of the key, because the dataset service records the usage by the owners
+   * and enforces authorization for the principal when serving the instance. Missing instances are not cached.
+   */
+  @Nullable
+  DatasetMeta getInstance(DatasetId datasetId, @Nullable Iterable<? extends EntityId> owners,
+                          @Nullable Principal principal, Loader<DatasetMeta> loader) throws DatasetManagementException {
+    if (!enabled) {
+      return loader.load();
+    }
+    InstanceKey key = new InstanceKey(datasetId, owners, principal);
+    DatasetMeta meta = instances.getIfPresent(key);
+    if (meta != null) {
+      reportLookup(true);
+      return meta;
+    }
+    reportLookup(false);
+
+    // Subscribe before loading, so that invalidations published while loading are received
+    startSubscriber();
+    return load(instances, key, loader);
+  }
+
+  /**
+   * Returns the {@link DatasetTypeMeta} of a dataset type, calling the given loader if it is not cached.
+   * Missing types are not cached.
+   */
+  @Nullable
+  DatasetTypeMeta getType(DatasetTypeId typeId, Loader<DatasetTypeMeta> loader) throws DatasetManagementException {
+    if (!enabled) {
+      return loader.load();
+    }
+    DatasetTypeMeta meta = types.getIfPresent(typeId);
+    if (meta != null) {
+      reportLookup(true);
+      return meta;
+    }
+    reportLookup(false);
+    return load(types, typeId, loader);
+  }
+
+  /**
+   * Invalidates all cached entries of the given dataset instance.
+   */
+  void invalidate(DatasetId datasetId) {
+    generation.incrementAndGet();
+    Iterator<InstanceKey> iterator = instances.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().datasetId.equals(datasetId)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Invalidates all cached dataset instances in the given namespace.
+   */
+  void invalidate(NamespaceId namespaceId) {
+    generation.incrementAndGet();
+    Iterator<InstanceKey> iterator = instances.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().datasetId.getParent().equals(namespaceId)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Invalidates all cached dataset types and the instances that refer to them. Used when dataset modules change.
+   */
+  void invalidateTypes(NamespaceId namespaceId) {
+    generation.incrementAndGet();
+    Iterator<DatasetTypeId> iterator = types.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getParent().equals(namespaceId)) {
+        iterator.remove();
+      }
+    }
+    // Instances carry the type meta of their modules
+    invalidate(namespaceId);
+  }
+
+  /**
+   * Loads an entry and caches it, unless it is missing or an invalidation happened while loading, in which case the
+   * loaded entry may be stale. The generation is checked again after caching, as an invalidation may happen between
+   * the check and the put, and invalidations increment the generation before removing entries.
+   */
+  @Nullable
+  private <K, V> V load(Cache<K, V> cache, K key, Loader<V> loader) throws DatasetManagementException {
+    long loadGeneration = generation.get();
+    V value = loader.load();
+    if (value == null || generation.get() != loadGeneration) {
+      return value;
+    }
+    cache.put(key, value);
+    if (generation.get() != loadGeneration) {
+      cache.invalidate(key);
+    }
+    return value;
+  }
+
+  private void reportLookup(boolean hit) {
+    MetricsContext context = metricsContext;
+    if (context != null) {
+      context.increment(hit ? Constants.Metrics.Name.Dataset.META_CACHE_HITS
+                          : Constants.Metrics.Name.Dataset.META_CACHE_MISSES, 1L);
+    }
+  }
+
+  /**
+   * Stops receiving invalidations. Cached entries are still served until they expire.
+   */
+  void close() {
+    subscriberStarted.set(true);
+    Thread thread = subscriberThread;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  private void startSubscriber() {
+    if (messagingService == null || !subscriberStarted.compareAndSet(false, true)) {
+      return;
+    }
+    // The start time is taken before returning to the caller, so that events published while the caller
+    // loads the instance are fetched even if the thread only starts fetching afterwards
+    Thread thread = new Thread(new InvalidationSubscriber(messagingService, invalidationTopic,
+                                                          System.currentTimeMillis()),
+                               "dataset-meta-cache-invalidation");
+    thread.setDaemon(true);
+    subscriberThread = thread;
+    thread.start();
+  }
+
+  /**
+   * Loads an entry that is not in the cache.
+   *
+   * @param <T> type of the entry
+   */
+  interface Loader<T> {
+
+    /**
+     * Returns the entry, or {@code null} if it does not exist.
+     */
+    @Nullable
+    T load() throws DatasetManagementException;
+  }
+
+  /**
+   * Fetches the ids of updated and deleted dataset instances from the messaging system and invalidates them.
+   * If fetching fails, it cannot know which messages were missed, hence it invalidates all cached instances once
+   * it is able to fetch again.
+   */
+  private final class InvalidationSubscriber implements Runnable {
+
+    private final MessagingService messagingService;
+    private final TopicId topicId;
+    private final long startTime;
+
+    InvalidationSubscriber(MessagingService messagingService, TopicId topicId, long startTime) {
+      this.messagingService = messagingService;
+      this.topicId = topicId;
+      this.startTime = startTime;
+    }
+
+    @Override
+    public void run() {
+      byte[] messageId = null;
+      boolean failed = false;
+
+      while (!Thread.currentThread().isInterrupted() && !isStopped(messagingService)) {
+        try {
+          MessageFetcher fetcher = messagingService.prepareFetch(topicId)
+            .setPollTimeout(INVALIDATION_POLL_TIMEOUT_SECS, TimeUnit.SECONDS);
+          if (messageId == null) {
+            fetcher.setStartTime(startTime);
+          } else {
+            fetcher.setStartMessage(messageId, false);
+          }
+          try (CloseableIterator<RawMessage> iterator = fetcher.fetch()) {
+            if (failed) {
+              generation.incrementAndGet();
+              instances.invalidateAll();
+              failed = false;
+            }
+            while (iterator.hasNext()) {
+              RawMessage message = iterator.next();
+              messageId = message.getId();
+              invalidate(message);
+            }
+          }
+        } catch (TopicNotFoundException | IOException | RuntimeException e) {
+          SAMPLING_LOG.warn("Failed to fetch dataset instance invalidations from {}. Retrying in {} seconds.",
+                            topicId, INVALIDATION_RETRY_DELAY_SECS, e);
+          failed = true;
+          try {
+            TimeUnit.SECONDS.sleep(INVALIDATION_RETRY_DELAY_SECS);
+          } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns whether the messaging service has been stopped by its owner, such as at the end of a preview run.
+     */
+    private boolean isStopped(MessagingService messagingService) {
+      if (!(messagingService instanceof Service)) {
+        return false;
+      }
+      Service.State state = ((Service) messagingService).state();
+      return state == Service.State.TERMINATED || state == Service.State.FAILED;
+    }
+
+    private void invalidate(RawMessage message) {
+      String payload = new String(message.getPayload(), StandardCharsets.UTF_8);
+      try {
+        DatasetId datasetId = DatasetId.fromString(payload);
+        LOG.trace("Invalidating cached dataset instance {}", datasetId);
+        DatasetMetaCache.this.invalidate(datasetId);
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Ignoring invalid dataset instance invalidation '{}'", payload, e);
+      }
+    }
+  }
+
+  /**
+   * Key of a cached dataset instance.
+   */
+  private static final class InstanceKey {
+    private final DatasetId datasetId;
+    private final Set<EntityId> owners;
+    private final Principal principal;
+
+    InstanceKey(DatasetId datasetId, @Nullable Iterable<? extends EntityId> owners, @Nullable Principal principal) {
+      this.datasetId = datasetId;
+      this.owners = owners == null ? null : ImmutableSet.<EntityId>copyOf(owners);
+      this.principal = principal;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      InstanceKey that = (InstanceKey) o;
+      return Objects.equals(datasetId, that.datasetId) &&
+        Objects.equals(owners, that.owners) &&
+        Objects.equals(principal, that.principal);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(datasetId, owners, principal);
+    }
+  }
+}
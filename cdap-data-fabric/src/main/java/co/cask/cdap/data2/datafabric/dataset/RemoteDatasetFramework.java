@@ -24,6 +24,7 @@ import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
 import co.cask.cdap.api.dataset.module.DatasetModule;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
@@ -35,6 +36,7 @@ import co.cask.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.module.lib.DatasetModules;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.proto.DatasetMeta;
 import co.cask.cdap.proto.DatasetModuleMeta;
 import co.cask.cdap.proto.DatasetSpecificationSummary;
@@ -46,12 +48,15 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
@@ -61,6 +66,7 @@ import org.apache.twill.internal.ApplicationBundler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -74,20 +80,30 @@ import java.util.jar.JarOutputStream;
 import javax.annotation.Nullable;
 
 /**
- * {@link co.cask.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service
+ * {@link co.cask.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service.
+ * It caches the metadata of dataset instances and types, hence it should be bound as a singleton.
  */
 @SuppressWarnings("unchecked")
-public class RemoteDatasetFramework implements DatasetFramework {
+public class RemoteDatasetFramework implements DatasetFramework, Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(RemoteDatasetFramework.class);
 
   private final CConfiguration cConf;
   private final LoadingCache<NamespaceId, DatasetServiceClient> clientCache;
   private final DatasetDefinitionRegistryFactory registryFactory;
+  private final AuthenticationContext authenticationContext;
+  private final DatasetMetaCache metaCache;
 
   @Inject
-  public RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
+  public RemoteDatasetFramework(CConfiguration cConf, DiscoveryServiceClient discoveryClient,
                                 DatasetDefinitionRegistryFactory registryFactory,
-                                final AuthenticationContext authenticationContext) {
+                                AuthenticationContext authenticationContext) {
+    this(cConf, discoveryClient, registryFactory, authenticationContext, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
+                         DatasetDefinitionRegistryFactory registryFactory,
+                         final AuthenticationContext authenticationContext, Ticker ticker) {
     this.cConf = cConf;
     this.clientCache = CacheBuilder.newBuilder().build(new CacheLoader<NamespaceId, DatasetServiceClient>() {
       @Override
@@ -96,6 +112,37 @@ public class RemoteDatasetFramework implements DatasetFramework {
       }
     });
     this.registryFactory = registryFactory;
+    this.authenticationContext = authenticationContext;
+    this.metaCache = new DatasetMetaCache(cConf, ticker);
+  }
+
+  /**
+   * Sets the {@link MetricsCollectionService} for emitting the hits and misses of the dataset metadata cache.
+   */
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    metaCache.setMetricsContext(metricsCollectionService.getContext(
+      ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NamespaceId.SYSTEM.getNamespace(),
+                      Constants.Metrics.Tag.COMPONENT, Constants.Service.DATASET_MANAGER)));
+  }
+
+  /**
+   * Sets the {@link MessagingService} for receiving invalidations of cached dataset instances
+   * when they are updated or deleted.
+   */
+  @Inject(optional = true)
+  public void setMessagingService(MessagingService messagingService) {
+    metaCache.setInvalidationSource(messagingService,
+                                    NamespaceId.SYSTEM.topic(cConf.get(Constants.Dataset.INSTANCE_EVENT_TOPIC)));
+  }
+
+  /**
+   * Stops receiving invalidations of cached dataset instances. Without it, the invalidations are received
+   * until the {@link MessagingService} is stopped.
+   */
+  @Override
+  public void close() {
+    metaCache.close();
   }
 
   @Override
@@ -107,6 +154,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
         clientCache.getUnchecked(moduleId.getParent())
           .addModule(moduleId.getEntityName(), moduleClass.getName(), deploymentJar);
       } finally {
+        metaCache.invalidateTypes(moduleId.getParent());
         try {
           deploymentJar.delete();
         } catch (IOException e) {
@@ -125,18 +173,30 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Override
   public void addModule(DatasetModuleId moduleId, DatasetModule module,
                         Location jarLocation) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent())
-      .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    try {
+      clientCache.getUnchecked(moduleId.getParent())
+        .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    } finally {
+      metaCache.invalidateTypes(moduleId.getParent());
+    }
   }
 
   @Override
   public void deleteModule(DatasetModuleId moduleId) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    try {
+      clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    } finally {
+      metaCache.invalidateTypes(moduleId.getParent());
+    }
   }
 
   @Override
   public void deleteAllModules(NamespaceId namespaceId) throws DatasetManagementException {
-    clientCache.getUnchecked(namespaceId).deleteModules();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteModules();
+    } finally {
+      metaCache.invalidateTypes(namespaceId);
+    }
   }
 
   @Override
@@ -149,15 +209,23 @@ public class RemoteDatasetFramework implements DatasetFramework {
   public void addInstance(String datasetType, DatasetId datasetInstanceId, DatasetProperties props,
                           @Nullable KerberosPrincipalId ownerPrincipal)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    } finally {
+      metaCache.invalidate(datasetInstanceId);
+    }
   }
 
   @Override
   public void updateInstance(DatasetId datasetInstanceId, DatasetProperties props)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .updateInstance(datasetInstanceId.getEntityName(), props);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .updateInstance(datasetInstanceId.getEntityName(), props);
+    } finally {
+      metaCache.invalidate(datasetInstanceId);
+    }
   }
 
   @Override
@@ -169,15 +237,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Nullable
   @Override
   public DatasetSpecification getDatasetSpec(DatasetId datasetInstanceId) throws DatasetManagementException {
-    DatasetMeta meta = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta meta = getInstance(datasetInstanceId, null);
     return meta == null ? null : meta.getSpec();
   }
 
   @Override
   public boolean hasInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName()) != null;
+    return getInstance(datasetInstanceId, null) != null;
   }
 
   @Override
@@ -187,12 +253,18 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   @Override
   public boolean hasType(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName()) != null;
+    return getTypeInfo(datasetTypeId) != null;
   }
 
   @Override
-  public DatasetTypeMeta getTypeInfo(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+  public DatasetTypeMeta getTypeInfo(final DatasetTypeId datasetTypeId) throws DatasetManagementException {
+    return metaCache.getType(datasetTypeId, new DatasetMetaCache.Loader<DatasetTypeMeta>() {
+      @Nullable
+      @Override
+      public DatasetTypeMeta load() throws DatasetManagementException {
+        return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+      }
+    });
   }
 
   @Override
@@ -202,12 +274,20 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   @Override
   public void deleteInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    } finally {
+      metaCache.invalidate(datasetInstanceId);
+    }
   }
 
   @Override
   public void deleteAllInstances(NamespaceId namespaceId) throws DatasetManagementException, IOException {
-    clientCache.getUnchecked(namespaceId).deleteInstances();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteInstances();
+    } finally {
+      metaCache.invalidate(namespaceId);
+    }
   }
 
   @Override
@@ -222,8 +302,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                              @Nullable ClassLoader parentClassLoader,
                                              DatasetClassLoaderProvider classLoaderProvider)
     throws DatasetManagementException, IOException {
-    DatasetMeta instanceInfo = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta instanceInfo = getInstance(datasetInstanceId, null);
     if (instanceInfo == null) {
       return null;
     }
@@ -249,7 +328,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                           @Nullable Iterable<? extends EntityId> owners, AccessType accessType)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getInstance(id.getEntityName(), owners);
+    DatasetMeta datasetMeta = getInstance(id, owners);
     if (datasetMeta == null) {
       return null;
     }
@@ -263,6 +342,21 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // no-op. The RemoteDatasetFramework doesn't need to do anything. The lineage should be recorded before this point.
   }
 
+  @Nullable
+  private DatasetMeta getInstance(final DatasetId datasetInstanceId,
+                                  @Nullable final Iterable<? extends EntityId> owners)
+    throws DatasetManagementException {
+    DatasetMetaCache.Loader<DatasetMeta> loader = new DatasetMetaCache.Loader<DatasetMeta>() {
+      @Nullable
+      @Override
+      public DatasetMeta load() throws DatasetManagementException {
+        return clientCache.getUnchecked(datasetInstanceId.getParent())
+          .getInstance(datasetInstanceId.getEntityName(), owners);
+      }
+    };
+    return metaCache.getInstance(datasetInstanceId, owners, authenticationContext.getPrincipal(), loader);
+  }
+
   private Location createDeploymentJar(Class<?> clz) throws IOException {
     File tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                             cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
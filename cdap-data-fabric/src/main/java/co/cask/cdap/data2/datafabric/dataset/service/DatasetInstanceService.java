@@ -26,7 +26,11 @@ import co.cask.cdap.common.DatasetTypeNotFoundException;
 import co.cask.cdap.common.HandlerException;
 import co.cask.cdap.common.NamespaceNotFoundException;
 import co.cask.cdap.common.NotFoundException;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
+import co.cask.cdap.common.service.RetryStrategies;
+import co.cask.cdap.common.service.RetryStrategy;
 import co.cask.cdap.data2.audit.AuditPublisher;
 import co.cask.cdap.data2.audit.AuditPublishers;
 import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
@@ -34,6 +38,8 @@ import co.cask.cdap.data2.datafabric.dataset.instance.DatasetInstanceManager;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetAdminOpResponse;
 import co.cask.cdap.data2.datafabric.dataset.service.executor.DatasetOpExecutor;
 import co.cask.cdap.explore.client.ExploreFacade;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.MessagingServices;
 import co.cask.cdap.proto.DatasetInstanceConfiguration;
 import co.cask.cdap.proto.DatasetMeta;
 import co.cask.cdap.proto.DatasetTypeMeta;
@@ -44,6 +50,7 @@ import co.cask.cdap.proto.id.DatasetTypeId;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.impersonation.OwnerAdmin;
@@ -63,6 +70,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -70,6 +78,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -77,6 +86,8 @@ import javax.annotation.Nullable;
  */
 public class DatasetInstanceService {
   private static final Logger LOG = LoggerFactory.getLogger(DatasetInstanceService.class);
+  private static final RetryStrategy INSTANCE_EVENT_RETRY_STRATEGY =
+    RetryStrategies.limit(3, RetryStrategies.fixDelay(100, TimeUnit.MILLISECONDS));
 
   private final DatasetTypeService typeService;
   private final DatasetInstanceManager instanceManager;
@@ -90,6 +101,8 @@ public class DatasetInstanceService {
   private final AuthenticationContext authenticationContext;
 
   private AuditPublisher auditPublisher;
+  private MessagingService messagingService;
+  private TopicId instanceEventTopic;
 
   @VisibleForTesting
   @Inject
@@ -123,6 +136,17 @@ public class DatasetInstanceService {
     this.auditPublisher = auditPublisher;
   }
 
+  /**
+   * Sets the {@link MessagingService} for publishing updates and deletes of dataset instances, which invalidates
+   * the instances cached by dataset framework clients.
+   */
+  @VisibleForTesting
+  @Inject(optional = true)
+  public void setMessagingService(CConfiguration cConf, MessagingService messagingService) {
+    this.messagingService = messagingService;
+    this.instanceEventTopic = NamespaceId.SYSTEM.topic(cConf.get(Constants.Dataset.INSTANCE_EVENT_TOPIC));
+  }
+
   /**
    * Lists all dataset instances in a namespace. If perimeter security and authorization are enabled, only returns the
    * dataset instances that the current user has access to.
@@ -334,6 +358,8 @@ public class DatasetInstanceService {
     instanceManager.add(instance.getParent(), spec);
     metaCache.invalidate(instance);
 
+    publishInstanceEvent(instance);
+
     updateExplore(instance, datasetProperties, existing, spec);
     publishAudit(instance, AuditType.UPDATE);
   }
@@ -479,6 +505,7 @@ public class DatasetInstanceService {
       throw new DatasetNotFoundException(instance);
     }
     metaCache.invalidate(instance);
+    publishInstanceEvent(instance);
 
     DatasetTypeMeta typeMeta = getTypeInfo(instance.getParent(), spec.getType());
     if (typeMeta == null) {
@@ -544,6 +571,21 @@ public class DatasetInstanceService {
     }
   }
 
+  private void publishInstanceEvent(DatasetId datasetInstance) {
+    if (messagingService == null) {
+      return;
+    }
+    try {
+      MessagingServices.publishWithRetry(messagingService, instanceEventTopic, INSTANCE_EVENT_RETRY_STRATEGY,
+                                         datasetInstance.toString().getBytes(StandardCharsets.UTF_8));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      // Clients still see the change once their cached instance expires
+      LOG.warn("Failed to publish the change of dataset instance {} to {}", datasetInstance, instanceEventTopic, e);
+    }
+  }
+
   private void publishAudit(DatasetId datasetInstance, AuditType auditType) {
     // TODO: Add properties to Audit Payload (CDAP-5220)
     AuditPublishers.publishAudit(auditPublisher, datasetInstance, auditType, AuditPayload.EMPTY_PAYLOAD);
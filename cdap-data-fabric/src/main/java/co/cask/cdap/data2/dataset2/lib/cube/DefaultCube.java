@@ -23,6 +23,8 @@ import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
 import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
 import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.Measurement;
 import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
 import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
@@ -33,25 +35,36 @@ import co.cask.cdap.data2.dataset2.lib.timeseries.FactScan;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanner;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
-import com.google.common.collect.HashBasedTable;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.PeekingIterator;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 
 /**
@@ -63,10 +76,18 @@ public class DefaultCube implements Cube, MeteredDataset {
   private static final DimensionValueComparator DIMENSION_VALUE_COMPARATOR = new DimensionValueComparator();
   // hard-limit on max records to scan
   private static final int MAX_RECORDS_TO_SCAN = 100 * 1000;
+  // max number of facts to write to a fact table in one batch during roll up
+  private static final int ROLLUP_BATCH_SIZE = 10 * 1000;
 
   private final Map<Integer, FactTable> resolutionToFactTable;
   private final Map<String, ? extends Aggregation> aggregations;
   private final Map<String, AggregationAlias> aggregationAliasMap;
+  private final int finestResolution;
+  @Nullable
+  private final RollupCheckpoints rollupCheckpoints;
+  @Nullable
+  private final ExecutorService queryExecutor;
+  private final int queryParallelism;
 
   @Nullable
   private MetricsCollector metrics;
@@ -74,12 +95,50 @@ public class DefaultCube implements Cube, MeteredDataset {
   public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
                      Map<String, ? extends Aggregation> aggregations,
                      Map<String, AggregationAlias> aggregationAliasMap) {
+    this(resolutions, factTableSupplier, aggregations, aggregationAliasMap, null);
+  }
+
+  /**
+   * Creates a {@link DefaultCube}. If {@link RollupCheckpoints} is provided, facts are only written to the finest
+   * resolution and to the coarser resolutions that are not rolled up, while the coarser resolutions that are rolled
+   * up are populated by {@link #rollup(int, long, long)}. Facts older than the roll up checkpoint of a resolution are
+   * written to it directly. Queries against the coarser resolutions include the facts of the finest resolution that
+   * are not yet rolled up.
+   */
+  public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+                     Map<String, ? extends Aggregation> aggregations,
+                     Map<String, AggregationAlias> aggregationAliasMap,
+                     @Nullable RollupCheckpoints rollupCheckpoints) {
+    this(resolutions, factTableSupplier, aggregations, aggregationAliasMap, rollupCheckpoints, null, 1);
+  }
+
+  /**
+   * Creates a {@link DefaultCube} that executes queries with the given {@link ExecutorService}. The scan of a query
+   * is split into at most {@code queryParallelism} scans over consecutive time ranges, which are executed
+   * concurrently. This requires the {@link FactTable}s provided by the {@link FactTableSupplier} to be thread safe.
+   *
+   * @param queryExecutor the executor for executing query scans; if {@code null}, queries are executed
+   *                      in the calling thread
+   * @param queryParallelism maximum number of concurrent scans for one query
+   */
+  public DefaultCube(int[] resolutions, FactTableSupplier factTableSupplier,
+                     Map<String, ? extends Aggregation> aggregations,
+                     Map<String, AggregationAlias> aggregationAliasMap,
+                     @Nullable RollupCheckpoints rollupCheckpoints,
+                     @Nullable ExecutorService queryExecutor, int queryParallelism) {
+    Preconditions.checkArgument(queryParallelism > 0, "Query parallelism must be > 0");
     this.aggregations = aggregations;
     this.resolutionToFactTable = Maps.newHashMap();
+    int finest = Integer.MAX_VALUE;
     for (int resolution : resolutions) {
       resolutionToFactTable.put(resolution, factTableSupplier.get(resolution, 3600));
+      finest = Math.min(finest, resolution);
     }
     this.aggregationAliasMap = aggregationAliasMap;
+    this.finestResolution = finest;
+    this.rollupCheckpoints = rollupCheckpoints;
+    this.queryExecutor = queryExecutor;
+    this.queryParallelism = queryParallelism;
   }
 
   @Override
@@ -113,15 +172,158 @@ public class DefaultCube implements Cube, MeteredDataset {
       }
     }
 
-    for (FactTable table : resolutionToFactTable.values()) {
-      table.add(toWrite);
+    int addedCount = 0;
+    for (Map.Entry<Integer, FactTable> entry : resolutionToFactTable.entrySet()) {
+      List<Fact> tableFacts = getFactsToWrite(entry.getKey(), toWrite);
+      if (!tableFacts.isEmpty()) {
+        entry.getValue().add(tableFacts);
+        addedCount += tableFacts.size();
+      }
     }
 
     incrementMetric("cube.cubeFact.add.request.count", 1);
     incrementMetric("cube.cubeFact.added.count", facts.size());
     incrementMetric("cube.tsFact.created.count", toWrite.size());
     incrementMetric("cube.tsFact.created.dimValues.count", dimValuesCount);
-    incrementMetric("cube.tsFact.added.count", toWrite.size() * resolutionToFactTable.size());
+    incrementMetric("cube.tsFact.added.count", addedCount);
+  }
+
+  /**
+   * Returns the facts to write directly to the given resolution. With roll up, a coarser resolution only gets the
+   * facts older than its roll up checkpoint, since the time buckets of those facts are never rolled up again.
+   * The other facts are rolled up from the finer resolutions later.
+   *
+   * The cached checkpoint is used unless a fact is between it and the highest possible checkpoint, in which case
+   * the latest checkpoint is read, since the cached one may be stale. Writing a fact that is not late directly is
+   * harmless, as its time bucket is overwritten by the roll up, but skipping a late fact would lose it.
+   */
+  private List<Fact> getFactsToWrite(int resolution, List<Fact> facts) {
+    if (rollupCheckpoints == null || resolution == finestResolution) {
+      return facts;
+    }
+    long rolledUpTs = rollupCheckpoints.getRolledUpTs(resolution);
+    if (rolledUpTs < 0) {
+      return facts;
+    }
+    long maxRolledUpTs = Math.max(rolledUpTs, rollupCheckpoints.getMaxRolledUpTs());
+    for (Fact fact : facts) {
+      if (fact.getTimestamp() >= rolledUpTs && fact.getTimestamp() < maxRolledUpTs) {
+        rolledUpTs = rollupCheckpoints.getLatestRolledUpTs(resolution);
+        incrementMetric("cube.rollup.checkpoint.read.count", 1);
+        break;
+      }
+    }
+    if (rolledUpTs < 0) {
+      return facts;
+    }
+    List<Fact> result = new ArrayList<>();
+    for (Fact fact : facts) {
+      if (fact.getTimestamp() < rolledUpTs) {
+        result.add(fact);
+      }
+    }
+    incrementMetric("cube.rollup.late.tsFact.added.count", result.size());
+    return result;
+  }
+
+  /**
+   * Rolls up the time buckets of the given resolution in the given range from the next finer resolution. The values
+   * of the time buckets are computed from all facts of the finer resolution in the buckets, with counters being
+   * summed and gauges taking the latest value, and overwrite the existing values. Hence rolling up the same range
+   * again, for example after a failure to save the roll up checkpoint, has no further effect.
+   *
+   * @param resolution the resolution to roll up into; must be a multiple of the next finer resolution
+   * @param startTs start timestamp in seconds, inclusive; must be a multiple of the resolution
+   * @param endTs end timestamp in seconds, exclusive; must be a multiple of the resolution
+   * @return number of facts written to the given resolution
+   */
+  public int rollup(int resolution, long startTs, long endTs) {
+    Preconditions.checkState(rollupCheckpoints != null, "Roll up is not enabled for the cube.");
+    Preconditions.checkArgument(resolutionToFactTable.containsKey(resolution) && resolution != finestResolution,
+                                "Cannot roll up into resolution %s.", resolution);
+    int sourceResolution = getSourceResolution(resolution);
+    Preconditions.checkArgument(resolution % sourceResolution == 0,
+                                "Cannot roll up resolution %s from resolution %s.", resolution, sourceResolution);
+    Preconditions.checkArgument(startTs % resolution == 0 && endTs % resolution == 0,
+                                "Roll up range [%s, %s) is not aligned with resolution %s.",
+                                startTs, endTs, resolution);
+
+    FactTable sourceTable = resolutionToFactTable.get(sourceResolution);
+    FactTable table = resolutionToFactTable.get(resolution);
+    Map<String, MeasureType> measureTypes = new HashMap<>();
+    // Aggregations with the same dimensions are stored in the same rows
+    Set<List<String>> rolledUpDimensions = new HashSet<>();
+    List<Fact> toWrite = Lists.newArrayList();
+    int count = 0;
+
+    for (Aggregation agg : aggregations.values()) {
+      if (!rolledUpDimensions.add(agg.getDimensionNames())) {
+        continue;
+      }
+      List<DimensionValue> dimensionValues = Lists.newArrayList();
+      for (String dimensionName : agg.getDimensionNames()) {
+        // null means "any"
+        dimensionValues.add(new DimensionValue(dimensionName, null));
+      }
+
+      // The rows of a series are spread over the time bases of the range, hence the whole range is aggregated
+      // before any bucket is written
+      // {measure name, dimension values} -> {time -> value}
+      Map<ImmutablePair<String, List<DimensionValue>>, Map<Long, Long>> series = new LinkedHashMap<>();
+      FactScanner scanner = sourceTable.scan(new FactScan(startTs, endTs - 1, ImmutableList.<String>of(),
+                                                          dimensionValues));
+      try {
+        while (scanner.hasNext()) {
+          FactScanResult result = scanner.next();
+          boolean counter = MeasureType.COUNTER == getMeasureType(sourceTable, result.getMeasureName(), measureTypes);
+          Map<Long, Long> timeValues = getSeries(series, result);
+          for (TimeValue timeValue : result) {
+            long ts = timeValue.getTimestamp() / resolution * resolution;
+            Long value = timeValues.get(ts);
+            // scan is in time order, hence gauges take the latest value
+            timeValues.put(ts, counter && value != null ? value + timeValue.getValue() : timeValue.getValue());
+          }
+        }
+      } finally {
+        scanner.close();
+      }
+
+      for (Map.Entry<ImmutablePair<String, List<DimensionValue>>, Map<Long, Long>> entry : series.entrySet()) {
+        String measureName = entry.getKey().getFirst();
+        MeasureType measureType = getMeasureType(sourceTable, measureName, measureTypes);
+        for (Map.Entry<Long, Long> timeValue : entry.getValue().entrySet()) {
+          toWrite.add(new Fact(timeValue.getKey(), entry.getKey().getSecond(),
+                               new Measurement(measureName, measureType, timeValue.getValue())));
+          if (toWrite.size() >= ROLLUP_BATCH_SIZE) {
+            table.put(toWrite);
+            count += toWrite.size();
+            toWrite.clear();
+          }
+        }
+      }
+    }
+
+    if (!toWrite.isEmpty()) {
+      table.put(toWrite);
+      count += toWrite.size();
+    }
+
+    incrementMetric("cube.rollup.request.count", 1);
+    incrementMetric("cube.rollup.tsFact.added.count", count);
+    return count;
+  }
+
+  /**
+   * Returns the next finer resolution than the given one, which is the one it is rolled up from.
+   */
+  private int getSourceResolution(int resolution) {
+    int source = finestResolution;
+    for (int candidate : resolutionToFactTable.keySet()) {
+      if (candidate < resolution && candidate > source) {
+        source = candidate;
+      }
+    }
+    return source;
   }
 
   @Override
@@ -209,11 +411,30 @@ public class DefaultCube implements Cube, MeteredDataset {
 
     // 3) execute scan query
     FactTable table = resolutionToFactTable.get(query.getResolution());
-    FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    Map<Map<String, String>, Map<String, TimeSeriesBuffer>> resultMap;
+    long[] notRolledUpRange = getNotRolledUpRange(query.getResolution(), query.getStartTs(), query.getEndTs());
+    if (notRolledUpRange == null) {
+      resultMap = scan(query, table, scan);
+    } else {
+      // merging with the facts that are not rolled up yet requires all rolled up facts, hence scan sequentially
+      FactScanner scanner = table.scan(scan);
+      try {
+        Iterator<FactScanResult> scanResults =
+          mergeNotRolledUp(query.getResolution(), scanner, new FactScan(notRolledUpRange[0], notRolledUpRange[1],
+                                                                        query.getMeasurements().keySet(),
+                                                                        dimensionValues));
+        resultMap = getTimeSeries(query, scanResults, new AtomicInteger());
+      } finally {
+        scanner.close();
+      }
+    }
 
+    int resultSize = 0;
+    for (Map<String, TimeSeriesBuffer> measures : resultMap.values()) {
+      resultSize += measures.size();
+    }
     incrementMetric("cube.query.request.success.count", 1);
-    incrementMetric("cube.query.result.size", resultMap.size());
+    incrementMetric("cube.query.result.size", resultSize);
 
     Collection<TimeSeries> timeSeries = convertToQueryResult(query, resultMap);
     incrementMetric("cube.query.result.timeseries.count", timeSeries.size());
@@ -225,6 +446,7 @@ public class DefaultCube implements Cube, MeteredDataset {
   public void delete(CubeDeleteQuery query) {
     //this may be very inefficient and its better to use TTL, this is to only support existing old functionality.
     List<DimensionValue> dimensionValues = Lists.newArrayList();
+    long[] notRolledUpRange = getNotRolledUpRange(query.getResolution(), query.getStartTs(), query.getEndTs());
     // find all the aggregations that match the dimensionValues in the query and
     // use the dimension values of the aggregation to delete entries in all the fact-tables.
     for (Aggregation agg : aggregations.values()) {
@@ -236,6 +458,11 @@ public class DefaultCube implements Cube, MeteredDataset {
         FactTable factTable = resolutionToFactTable.get(query.getResolution());
         FactScan scan = new FactScan(query.getStartTs(), query.getEndTs(), query.getMeasureNames(), dimensionValues);
         factTable.delete(scan);
+        if (notRolledUpRange != null) {
+          // otherwise the deleted facts would come back with the next roll up
+          resolutionToFactTable.get(finestResolution).delete(
+            new FactScan(notRolledUpRange[0], notRolledUpRange[1], query.getMeasureNames(), dimensionValues));
+        }
       }
     }
   }
@@ -256,11 +483,16 @@ public class DefaultCube implements Cube, MeteredDataset {
     }
 
     FactTable table = resolutionToFactTable.get(query.getResolution());
+    long[] notRolledUpRange = getNotRolledUpRange(query.getResolution(), query.getStartTs(), query.getEndTs());
 
     for (Aggregation agg : aggregations.values()) {
       if (agg.getDimensionNames().containsAll(slice.keySet())) {
         result.addAll(table.findSingleDimensionValue(agg.getDimensionNames(), slice,
                                                      query.getStartTs(), query.getEndTs()));
+        if (notRolledUpRange != null) {
+          result.addAll(resolutionToFactTable.get(finestResolution).findSingleDimensionValue(
+            agg.getDimensionNames(), slice, notRolledUpRange[0], notRolledUpRange[1]));
+        }
       }
     }
 
@@ -281,10 +513,15 @@ public class DefaultCube implements Cube, MeteredDataset {
     }
 
     FactTable table = resolutionToFactTable.get(query.getResolution());
+    long[] notRolledUpRange = getNotRolledUpRange(query.getResolution(), query.getStartTs(), query.getEndTs());
 
     for (Aggregation agg : aggregations.values()) {
       if (agg.getDimensionNames().containsAll(slice.keySet())) {
         result.addAll(table.findMeasureNames(agg.getDimensionNames(), slice, query.getStartTs(), query.getEndTs()));
+        if (notRolledUpRange != null) {
+          result.addAll(resolutionToFactTable.get(finestResolution).findMeasureNames(
+            agg.getDimensionNames(), slice, notRolledUpRange[0], notRolledUpRange[1]));
+        }
       }
     }
 
@@ -309,6 +546,105 @@ public class DefaultCube implements Cube, MeteredDataset {
     }
   }
 
+  /**
+   * Returns the time range of the facts in the finest resolution that belong to time buckets of the given
+   * resolution within the given time range, but are not yet rolled up into the given resolution.
+   *
+   * @return an array of the start and end timestamps, both inclusive, or {@code null} if there is no such facts
+   */
+  @Nullable
+  private long[] getNotRolledUpRange(int resolution, long startTs, long endTs) {
+    if (rollupCheckpoints == null || resolution == finestResolution
+      || !resolutionToFactTable.containsKey(resolution)) {
+      return null;
+    }
+    // A stale cached checkpoint is lower than the latest one, which only computes more time buckets from the finest
+    // resolution, where all facts are
+    long rolledUpTs = rollupCheckpoints.getRolledUpTs(resolution);
+    if (rolledUpTs < 0) {
+      // all facts are written directly to the resolution
+      return null;
+    }
+    long rangeStartTs = Math.max(rolledUpTs, (startTs + resolution - 1) / resolution * resolution);
+    long rangeEndTs = endTs / resolution * resolution + resolution - 1;
+    return rangeStartTs > rangeEndTs ? null : new long[] { rangeStartTs, rangeEndTs };
+  }
+
+  /**
+   * Merges the scan results of the given resolution with the facts of the finest resolution that are not yet
+   * rolled up. Those facts are put into the time buckets of the given resolution, with counters being summed and
+   * gauges taking the latest value, the same way as {@link #rollup(int, long, long)} does. Values of the given
+   * resolution in the not rolled up range are ignored, since they can only come from a roll up that failed before
+   * saving its checkpoint.
+   */
+  private Iterator<FactScanResult> mergeNotRolledUp(int resolution, Iterator<FactScanResult> rolledUp,
+                                                    FactScan notRolledUpScan) {
+    // {measure name, dimension values} -> {time -> value}
+    Map<ImmutablePair<String, List<DimensionValue>>, Map<Long, Long>> series = new LinkedHashMap<>();
+    while (rolledUp.hasNext()) {
+      FactScanResult result = rolledUp.next();
+      Map<Long, Long> timeValues = getSeries(series, result);
+      for (TimeValue timeValue : result) {
+        if (timeValue.getTimestamp() < notRolledUpScan.getStartTs()) {
+          timeValues.put(timeValue.getTimestamp(), timeValue.getValue());
+        }
+      }
+    }
+
+    FactTable finestTable = resolutionToFactTable.get(finestResolution);
+    Map<String, MeasureType> measureTypes = new HashMap<>();
+    FactScanner scanner = finestTable.scan(notRolledUpScan);
+    try {
+      while (scanner.hasNext()) {
+        FactScanResult result = scanner.next();
+        MeasureType measureType = getMeasureType(finestTable, result.getMeasureName(), measureTypes);
+        Map<Long, Long> timeValues = getSeries(series, result);
+        for (TimeValue timeValue : result) {
+          long ts = timeValue.getTimestamp() / resolution * resolution;
+          Long value = timeValues.get(ts);
+          if (value != null && MeasureType.COUNTER == measureType) {
+            timeValues.put(ts, value + timeValue.getValue());
+          } else {
+            timeValues.put(ts, timeValue.getValue());
+          }
+        }
+      }
+    } finally {
+      scanner.close();
+    }
+
+    List<FactScanResult> results = Lists.newArrayListWithCapacity(series.size());
+    for (Map.Entry<ImmutablePair<String, List<DimensionValue>>, Map<Long, Long>> entry : series.entrySet()) {
+      List<TimeValue> timeValues = Lists.newArrayListWithCapacity(entry.getValue().size());
+      for (Map.Entry<Long, Long> timeValue : entry.getValue().entrySet()) {
+        timeValues.add(new TimeValue(timeValue.getKey(), timeValue.getValue()));
+      }
+      results.add(new FactScanResult(entry.getKey().getFirst(), entry.getKey().getSecond(), timeValues));
+    }
+    return results.iterator();
+  }
+
+  private Map<Long, Long> getSeries(Map<ImmutablePair<String, List<DimensionValue>>, Map<Long, Long>> series,
+                                    FactScanResult result) {
+    ImmutablePair<String, List<DimensionValue>> key = new ImmutablePair<>(result.getMeasureName(),
+                                                                          result.getDimensionValues());
+    Map<Long, Long> timeValues = series.get(key);
+    if (timeValues == null) {
+      timeValues = new TreeMap<>();
+      series.put(key, timeValues);
+    }
+    return timeValues;
+  }
+
+  private MeasureType getMeasureType(FactTable table, String measureName, Map<String, MeasureType> measureTypes) {
+    MeasureType measureType = measureTypes.get(measureName);
+    if (measureType == null) {
+      measureType = table.getMeasureType(measureName);
+      measureTypes.put(measureName, measureType);
+    }
+    return measureType;
+  }
+
   @Nullable
   private ImmutablePair<String, Aggregation> findAggregation(CubeQuery query) {
     ImmutablePair<String, Aggregation> currentBest = null;
@@ -329,14 +665,100 @@ public class DefaultCube implements Cube, MeteredDataset {
     return currentBest;
   }
 
-  private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
-    // {dimension values, measure} -> {time -> value}s
-    Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+  /**
+   * Executes the given scan, split into scans over consecutive time ranges that are executed concurrently
+   * if this cube has a query executor.
+   */
+  private Map<Map<String, String>, Map<String, TimeSeriesBuffer>> scan(final CubeQuery query, final FactTable table,
+                                                                      FactScan scan) {
+    final AtomicInteger scannedRecords = new AtomicInteger();
+    List<FactScan> splits = queryExecutor == null
+      ? Collections.singletonList(scan) : table.splitScan(scan, queryParallelism);
+    if (splits.size() == 1) {
+      return scan(query, table, splits.get(0), scannedRecords);
+    }
+
+    incrementMetric("cube.query.split.count", splits.size());
+    List<Future<Map<Map<String, String>, Map<String, TimeSeriesBuffer>>>> futures = new ArrayList<>(splits.size());
+    for (final FactScan split : splits) {
+      futures.add(queryExecutor.submit(new Callable<Map<Map<String, String>, Map<String, TimeSeriesBuffer>>>() {
+        @Override
+        public Map<Map<String, String>, Map<String, TimeSeriesBuffer>> call() throws Exception {
+          return scan(query, table, split, scannedRecords);
+        }
+      }));
+    }
+
+    // Merge the results in the order of the splits, so that values are appended in time order
+    Map<Map<String, String>, Map<String, TimeSeriesBuffer>> result = null;
+    try {
+      for (Future<Map<Map<String, String>, Map<String, TimeSeriesBuffer>>> future : futures) {
+        Map<Map<String, String>, Map<String, TimeSeriesBuffer>> splitResult = future.get();
+        if (result == null) {
+          result = splitResult;
+        } else {
+          merge(result, splitResult);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return result;
+  }
+
+  private Map<Map<String, String>, Map<String, TimeSeriesBuffer>> scan(CubeQuery query, FactTable table,
+                                                                      FactScan scan, AtomicInteger scannedRecords) {
+    FactScanner scanner = table.scan(scan);
+    try {
+      return getTimeSeries(query, scanner, scannedRecords);
+    } finally {
+      scanner.close();
+    }
+  }
+
+  private void merge(Map<Map<String, String>, Map<String, TimeSeriesBuffer>> result,
+                     Map<Map<String, String>, Map<String, TimeSeriesBuffer>> other) {
+    for (Map.Entry<Map<String, String>, Map<String, TimeSeriesBuffer>> row : other.entrySet()) {
+      Map<String, TimeSeriesBuffer> measures = result.get(row.getKey());
+      if (measures == null) {
+        result.put(row.getKey(), row.getValue());
+        continue;
+      }
+      for (Map.Entry<String, TimeSeriesBuffer> measure : row.getValue().entrySet()) {
+        TimeSeriesBuffer buffer = measures.get(measure.getKey());
+        if (buffer == null) {
+          measures.put(measure.getKey(), measure.getValue());
+        } else {
+          buffer.addAll(measure.getValue());
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects the scan results into {dimension values -> {measure -> time values}}. Values of the same timestamp
+   * are combined with the aggregation function of the measure when converting to query result.
+   *
+   * @param scannedRecords number of records scanned for the query so far, shared by all scans of the query
+   */
+  private Map<Map<String, String>, Map<String, TimeSeriesBuffer>> getTimeSeries(CubeQuery query,
+                                                                                Iterator<FactScanResult> scanner,
+                                                                                AtomicInteger scannedRecords) {
+    // {dimension values} -> {measure -> time values}
+    Map<Map<String, String>, Map<String, TimeSeriesBuffer>> result = new HashMap<>();
 
     int count = 0;
-    while (scanner.hasNext()) {
+    int skipped = 0;
+    while (scanner.hasNext() && scannedRecords.incrementAndGet() <= MAX_RECORDS_TO_SCAN) {
       FactScanResult next = scanner.next();
-      incrementMetric("cube.query.scan.records.count", 1);
+      count++;
 
       boolean skip = false;
       // using tree map, as we are using it as a key for a map
@@ -362,60 +784,49 @@ public class DefaultCube implements Cube, MeteredDataset {
       }
 
       if (skip) {
-        incrementMetric("cube.query.scan.skipped.count", 1);
+        skipped++;
         continue;
       }
 
-      for (TimeValue timeValue : next) {
-        Map<Long, Long> timeValues = result.get(seriesDimensions, next.getMeasureName());
-        if (timeValues == null) {
-          result.put(seriesDimensions, next.getMeasureName(), Maps.<Long, Long>newHashMap());
-        }
-
-        AggregationFunction function = query.getMeasurements().get(next.getMeasureName());
-        if (AggregationFunction.SUM == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value == null ? 0 : value;
-          value += timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MAX == function) {
-          Long value = result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value > timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.MIN == function) {
-          Long value =  result.get(seriesDimensions, next.getMeasureName()).get(timeValue.getTimestamp());
-          value = value != null && value < timeValue.getValue() ? value : timeValue.getValue();
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
-        } else if (AggregationFunction.LATEST == function) {
-          result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
-        } else {
-          // should never happen: developer error
-          throw new RuntimeException("Unknown MeasureType: " + function);
-        }
+      Map<String, TimeSeriesBuffer> measures = result.get(seriesDimensions);
+      if (measures == null) {
+        measures = new HashMap<>();
+        result.put(seriesDimensions, measures);
       }
-      if (++count >= MAX_RECORDS_TO_SCAN) {
-        break;
+      TimeSeriesBuffer timeValues = measures.get(next.getMeasureName());
+      if (timeValues == null) {
+        timeValues = new TimeSeriesBuffer();
+        measures.put(next.getMeasureName(), timeValues);
+      }
+      for (TimeValue timeValue : next) {
+        timeValues.add(timeValue.getTimestamp(), timeValue.getValue());
       }
     }
+
+    incrementMetric("cube.query.scan.records.count", count);
+    if (skipped > 0) {
+      incrementMetric("cube.query.scan.skipped.count", skipped);
+    }
     return result;
   }
 
   private Collection<TimeSeries> convertToQueryResult(CubeQuery query,
-                                                      Table<Map<String, String>, String,
-                                                        Map<Long, Long>> resultTable) {
+                                                      Map<Map<String, String>,
+                                                        Map<String, TimeSeriesBuffer>> resultMap) {
 
     List<TimeSeries> result = Lists.newArrayList();
     // iterating each groupValue dimensions
-    for (Map.Entry<Map<String, String>, Map<String, Map<Long, Long>>> row : resultTable.rowMap().entrySet()) {
+    for (Map.Entry<Map<String, String>, Map<String, TimeSeriesBuffer>> row : resultMap.entrySet()) {
       // iterating each measure
-      for (Map.Entry<String, Map<Long, Long>> measureEntry : row.getValue().entrySet()) {
+      for (Map.Entry<String, TimeSeriesBuffer> measureEntry : row.getValue().entrySet()) {
         // generating time series for a grouping and a measure
         int count = 0;
-        List<TimeValue> timeValues = Lists.newArrayList();
-        for (Map.Entry<Long, Long> timeValue : measureEntry.getValue().entrySet()) {
-          timeValues.add(new TimeValue(timeValue.getKey(), timeValue.getValue()));
+        AggregationFunction function = query.getMeasurements().get(measureEntry.getKey());
+        if (function == null) {
+          // should never happen: developer error
+          throw new RuntimeException("No AggregationFunction for measure: " + measureEntry.getKey());
         }
-        Collections.sort(timeValues);
+        List<TimeValue> timeValues = measureEntry.getValue().toTimeValues(function);
         PeekingIterator<TimeValue> timeValueItor = Iterators.peekingIterator(
           new TimeSeriesInterpolator(timeValues, query.getInterpolator(), query.getResolution()).iterator());
         List<TimeValue> resultTimeValues = Lists.newArrayList();
@@ -93,6 +93,14 @@ class MetricsTableOnTable implements MetricsTable {
     }
   }
 
+  @Override
+  public void putAndIncrement(SortedMap<byte[], ? extends SortedMap<byte[], Long>> puts,
+                              NavigableMap<byte[], NavigableMap<byte[], Long>> increments) {
+    // Writes are buffered by the transactional table until commit, hence there is no need to combine them here
+    put(puts);
+    increment(increments);
+  }
+
   @Override
   public long incrementAndGet(byte[] row, byte[] column, long delta) {
     return table.incrementAndGet(row, column, delta);
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+/**
+ * Provides the progress of rolling up facts of the finest resolution into the coarser resolutions
+ * of a {@link DefaultCube}.
+ */
+public interface RollupCheckpoints {
+
+  /**
+   * Returns the timestamp in seconds before which all facts of the finest resolution have been rolled up into
+   * the given resolution, or a negative value if the given resolution is not rolled up, in which case facts are
+   * written to it directly. The timestamp is a multiple of the resolution. The returned value may be cached, hence
+   * it can be lower than the latest checkpoint, but it is never higher.
+   */
+  long getRolledUpTs(int resolution);
+
+  /**
+   * Returns the latest checkpoint of the given resolution, the same way as {@link #getRolledUpTs(int)} but without
+   * using a cached value.
+   */
+  long getLatestRolledUpTs(int resolution);
+
+  /**
+   * Returns the timestamp in seconds that the checkpoints of the resolutions cannot exceed at the current time,
+   * unless they are already higher, such as right after the roll up of a resolution started. Facts at or after it
+   * are not late, hence the latest checkpoints don't need to be read to write them.
+   */
+  long getMaxRolledUpTs();
+}
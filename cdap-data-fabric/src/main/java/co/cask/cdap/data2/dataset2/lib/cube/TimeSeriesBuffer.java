@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Buffer of time values of a time series, stored in primitive arrays to avoid boxing and per value map entries
+ * when collecting query results. Values are appended in scan order, and the values of the same timestamp are
+ * only combined when the buffer is converted to a list of {@link TimeValue}.
+ *
+ * This class is not thread safe.
+ */
+final class TimeSeriesBuffer {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long[] timestamps = new long[INITIAL_CAPACITY];
+  private long[] values = new long[INITIAL_CAPACITY];
+  private int size;
+  private boolean sorted = true;
+
+  /**
+   * Appends a value to this buffer.
+   */
+  void add(long timestamp, long value) {
+    if (size == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+    if (size > 0 && timestamps[size - 1] > timestamp) {
+      sorted = false;
+    }
+    timestamps[size] = timestamp;
+    values[size] = value;
+    size++;
+  }
+
+  /**
+   * Appends all values of the given buffer to this buffer. For values of the same timestamp, values from the
+   * given buffer are considered to be added after the values in this buffer.
+   */
+  void addAll(TimeSeriesBuffer other) {
+    for (int i = 0; i < other.size; i++) {
+      add(other.timestamps[i], other.values[i]);
+    }
+  }
+
+  /**
+   * Returns the time values in this buffer sorted by timestamp, with values of the same timestamp combined by the
+   * given function. For {@link AggregationFunction#LATEST}, the value added last wins.
+   */
+  List<TimeValue> toTimeValues(AggregationFunction function) {
+    if (!sorted) {
+      sort();
+    }
+    List<TimeValue> result = new ArrayList<>(size);
+    int i = 0;
+    while (i < size) {
+      long timestamp = timestamps[i];
+      long value = values[i++];
+      while (i < size && timestamps[i] == timestamp) {
+        value = combine(function, value, values[i++]);
+      }
+      result.add(new TimeValue(timestamp, value));
+    }
+    return result;
+  }
+
+  private long combine(AggregationFunction function, long value, long newValue) {
+    switch (function) {
+      case SUM:
+        return value + newValue;
+      case MAX:
+        return Math.max(value, newValue);
+      case MIN:
+        return Math.min(value, newValue);
+      case LATEST:
+        return newValue;
+      default:
+        // should never happen: developer error
+        throw new RuntimeException("Unknown AggregationFunction: " + function);
+    }
+  }
+
+  /**
+   * Sorts the values by timestamp with a stable merge sort, so that the insertion order of values of the same
+   * timestamp is preserved.
+   */
+  private void sort() {
+    long[] tmpTimestamps = new long[size];
+    long[] tmpValues = new long[size];
+    for (int width = 1; width < size; width *= 2) {
+      for (int start = 0; start < size; start += 2 * width) {
+        int mid = Math.min(start + width, size);
+        int end = Math.min(start + 2 * width, size);
+        int left = start;
+        int right = mid;
+        for (int k = start; k < end; k++) {
+          if (left < mid && (right >= end || timestamps[left] <= timestamps[right])) {
+            tmpTimestamps[k] = timestamps[left];
+            tmpValues[k] = values[left++];
+          } else {
+            tmpTimestamps[k] = timestamps[right];
+            tmpValues[k] = values[right++];
+          }
+        }
+      }
+      long[] swap = timestamps;
+      timestamps = tmpTimestamps;
+      tmpTimestamps = swap;
+      swap = values;
+      values = tmpValues;
+      tmpValues = swap;
+    }
+    sorted = true;
+  }
+}
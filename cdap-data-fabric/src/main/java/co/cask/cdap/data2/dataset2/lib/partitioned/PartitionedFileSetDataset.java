@@ -48,12 +48,15 @@ import co.cask.cdap.api.dataset.lib.Partitioning.FieldType;
 import co.cask.cdap.api.dataset.lib.partitioned.PartitionKeyCodec;
 import co.cask.cdap.api.dataset.table.Put;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data.RuntimeProgramContext;
 import co.cask.cdap.data.RuntimeProgramContextAware;
 import co.cask.cdap.data2.dataset2.lib.file.FileSetDataset;
+import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.explore.client.ExploreFacade;
 import co.cask.cdap.proto.id.DatasetId;
 import com.google.common.annotations.VisibleForTesting;
@@ -74,8 +77,10 @@ import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -644,7 +649,10 @@ public class PartitionedFileSetDataset extends AbstractDataset
   private void getPartitions(@Nullable PartitionFilter filter, PartitionConsumer consumer, boolean decodeMetadata,
                              @Nullable byte[] startKey, @Nullable byte[] endKey, long limit) {
     long count = 0L;
-    try (Scanner scanner = partitionsTable.scan(startKey, endKey)) {
+    // conditions that are not covered by the start and stop key are pushed down to the table where possible,
+    // but the filter still needs to be applied here, because the fuzzy row filter can only narrow the scan
+    FuzzyRowFilter fuzzyRowFilter = generateFuzzyRowFilter(filter, partitioning);
+    try (Scanner scanner = partitionsTable.scan(new Scan(startKey, endKey, fuzzyRowFilter))) {
       while (count < limit) {
         Row row = scanner.next();
         if (row == null) {
@@ -1169,6 +1177,69 @@ public class PartitionedFileSetDataset extends AbstractDataset
     return stopKey;
   }
 
+  /**
+   * Generates a {@link FuzzyRowFilter} for the single-value conditions of a partition filter that cannot be
+   * expressed by the start and stop key of the scan, because they follow a field that has a range condition or no
+   * condition at all. For example, with partitioning (year, month, day, hour), a filter for hour 3 of any day
+   * can then skip all rows of other hours on the server side.
+   *
+   * The fuzzy row filter requires a fixed position for every byte that it matches, hence only the fields that follow
+   * int and long fields or string fields with a single-value condition can be included.
+   *
+   * @return the {@link FuzzyRowFilter}, or null if it would not narrow the scan beyond the start and stop key
+   */
+  @VisibleForTesting
+  @Nullable
+  static FuzzyRowFilter generateFuzzyRowFilter(@Nullable PartitionFilter filter, Partitioning partitioning) {
+    if (null == filter) {
+      return null;
+    }
+    ByteArrayOutputStream fuzzyKey = new ByteArrayOutputStream();
+    ByteArrayOutputStream fuzzyMask = new ByteArrayOutputStream();
+    int fixedLength = 0; // length of the fuzzy key up to the last fixed value
+    boolean prefixOnly = true; // whether all conditions so far are covered by the start and stop key
+    boolean narrowsScan = false;
+    for (Map.Entry<String, FieldType> entry : partitioning.getFields().entrySet()) {
+      if (fuzzyKey.size() > 0) {
+        // the \0 between each of the fields is fixed
+        fuzzyKey.write(0);
+        fuzzyMask.write(0);
+      }
+      FieldType fieldType = entry.getValue();
+      PartitionFilter.Condition<? extends Comparable> condition = filter.getCondition(entry.getKey());
+      if (condition != null && condition.isSingleValue()) {
+        Comparable value = condition.getValue();
+        try {
+          fieldType.validate(value);
+        } catch (IllegalArgumentException e) {
+          // leave it to the filter to deal with incompatible values
+          return null;
+        }
+        byte[] bytes = FieldTypes.toBytes(value, fieldType);
+        fuzzyKey.write(bytes, 0, bytes.length);
+        fuzzyMask.write(new byte[bytes.length], 0, bytes.length);
+        fixedLength = fuzzyKey.size();
+        narrowsScan = narrowsScan || !prefixOnly;
+        continue;
+      }
+      prefixOnly = false;
+      if (FieldType.STRING == fieldType) {
+        break; // the length of this field is not known, hence the positions of the following fields are unknown
+      }
+      int size = FieldType.INT == fieldType ? Bytes.SIZEOF_INT : Bytes.SIZEOF_LONG;
+      byte[] anyValue = new byte[size];
+      Arrays.fill(anyValue, (byte) 1);
+      fuzzyKey.write(new byte[size], 0, size);
+      fuzzyMask.write(anyValue, 0, size);
+    }
+    if (!narrowsScan) {
+      return null;
+    }
+    return new FuzzyRowFilter(Collections.singletonList(
+      ImmutablePair.of(Arrays.copyOf(fuzzyKey.toByteArray(), fixedLength),
+                       Arrays.copyOf(fuzzyMask.toByteArray(), fixedLength))));
+  }
+
   @VisibleForTesting
   static PartitionKey parseRowKey(byte[] rowKey, Partitioning partitioning) {
     PartitionKey.Builder builder = PartitionKey.builder();
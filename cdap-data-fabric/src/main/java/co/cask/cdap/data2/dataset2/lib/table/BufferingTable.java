@@ -84,8 +84,17 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   private static final Logger LOG = LoggerFactory.getLogger(BufferingTable.class);
 
+  /**
+   * Property for enabling negative lookups, which let point reads of keys that are not in the in-memory buffer or
+   * are known to be absent from the persisted store skip the lookups. It has no effect on tables without transaction.
+   */
+  public static final String PROPERTY_NEGATIVE_LOOKUPS = "dataset.table.negative.lookups.enabled";
+
   protected static final byte[] DELETE_MARKER = new byte[0];
 
+  // Buffered value for deleted columns. It is immutable, hence shared by all deletes to avoid allocation.
+  private static final PutValue DELETE_VALUE = new PutValue(null);
+
   // name of the table
   private final String name;
   // conflict detection level
@@ -102,6 +111,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // Keeps track of what was persisted so far
   private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
 
+  // Tracks absent keys for skipping lookups. It is null if negative lookups are disabled.
+  private final NegativeLookups negativeLookups;
+
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
 
@@ -151,6 +163,10 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
     this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    // Absent keys can only be remembered if reads are from the same transaction snapshot
+    boolean negativeLookupsEnabled = "true".equalsIgnoreCase(properties.get(PROPERTY_NEGATIVE_LOOKUPS))
+      && !"true".equalsIgnoreCase(properties.get(Constants.Dataset.TABLE_TX_DISABLED));
+    this.negativeLookups = negativeLookupsEnabled ? new NegativeLookups() : null;
   }
 
   /**
@@ -274,6 +290,10 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // starting with fresh buffer when tx starts
     buff.clear();
     toUndo = null;
+    if (negativeLookups != null) {
+      negativeLookups.bufferCleared();
+      negativeLookups.persistedChanged();
+    }
     this.tx = tx;
   }
 
@@ -346,6 +366,10 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       // NOTE: we want to init map here so that if no changes are made we re-use same instance of the map in next tx
       // NOTE: we could cache two maps and swap them to avoid creation of map instances, but code would be ugly
       buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+      if (negativeLookups != null) {
+        negativeLookups.bufferCleared();
+        negativeLookups.persistedChanged();
+      }
       // TODO: tracking of persisted items can be optimized by returning a pair {succeededOrNot, persisted} which
       //       tells if persisting succeeded and what was persisted (i.e. what we will have to undo in case of rollback)
       persist(toUndo);
@@ -357,6 +381,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   public void postTxCommit() {
     // don't need buffer anymore: tx has been committed
     buff.clear();
+    if (negativeLookups != null) {
+      negativeLookups.bufferCleared();
+    }
     toUndo = null;
     tx = null;
   }
@@ -364,6 +391,10 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public boolean rollbackTx() throws Exception {
     buff.clear();
+    if (negativeLookups != null) {
+      negativeLookups.bufferCleared();
+      negativeLookups.persistedChanged();
+    }
     if (toUndo != null) {
       undo(toUndo);
       toUndo = null;
@@ -415,7 +446,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     ensureTransactionIsStarted();
     reportRead(1);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
     // NOTE: since we cannot tell the exact column set, we always have to go to persisted store.
     //       potential improvement: do not fetch columns available in in-mem buffer (we know them at this point)
@@ -467,7 +498,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         rowColumns.putAll(persistedRow);
 
         byte[] row = get.getRow();
-        NavigableMap<byte[], Update> buffCols = buff.get(row);
+        NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
         // merge what was in the buffer and what was persisted
         if (buffCols != null) {
@@ -476,7 +507,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
           mergeToPersisted(rowColumns, buffCols, columns);
         }
 
-        result.add(new Result(row, unwrapDeletes(rowColumns)));
+        result.add(new Result(row, removeDeletes(rowColumns)));
       }
       return result;
     } catch (Exception e) {
@@ -512,11 +543,14 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       if (values[i] != null && values[i].length == 0) {
         warnAboutEmptyValue(columns[i]);
       }
-      colVals.put(copy(columns[i]), new PutValue(copy(values[i])));
+      colVals.put(copy(columns[i]), values[i] == null ? DELETE_VALUE : new PutValue(copy(values[i])));
     }
     if (newRow) {
       // NOTE: we copy passed row's byte arrays to protect buffer against possible changes of this array on client
       buff.put(copy(row), colVals);
+      if (negativeLookups != null) {
+        negativeLookups.rowBuffered(row, buff);
+      }
     }
   }
 
@@ -624,6 +658,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       if (colVals == null) {
         colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
         buff.put(row, colVals);
+        if (negativeLookups != null) {
+          negativeLookups.rowBuffered(row, buff);
+        }
       }
       for (int i = 0; i < columns.length; i++) {
         colVals.put(columns[i], Updates.mergeUpdates(colVals.get(columns[i]), new IncrementValue(amounts[i])));
@@ -746,13 +783,13 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
-    boolean rowDeleted = buffCols == null && buff.containsKey(row);
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
+    boolean rowDeleted = buffCols == null && mightBeBuffered(row) && buff.containsKey(row);
     if (rowDeleted) {
       return Collections.emptyMap();
     }
 
-    Map<byte[], byte[]> persisted = getPersisted(row, null);
+    Map<byte[], byte[]> persisted = getPersistedColumns(row, null);
 
 
     result.putAll(persisted);
@@ -761,31 +798,26 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       mergeToPersisted(result, buffCols, null);
     }
 
-    return unwrapDeletes(result);
+    return removeDeletes(result);
   }
 
   private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = getBuffered(row);
 
     // if nothing locally, return all from server
     if (buffCols == null) {
-      return getPersisted(row, columns);
+      return getPersistedColumns(row, columns);
     }
 
     // otherwise try to fetch data from in-memory buffer. If not all present - fetch leftover from persisted
     List<byte[]> colsToFetchFromPersisted = Lists.newArrayList();
     // try to fetch from local buffer first and then from server if it is not in buffer
     for (byte[] column : columns) {
-      if (!buffCols.containsKey(column)) {
-        colsToFetchFromPersisted.add(column);
-        continue;
-      }
-
       Update val = buffCols.get(column);
       // buffered increments will need to the applied on top of the persisted values
-      if (val instanceof IncrementValue) {
+      if (val == null ? !buffCols.containsKey(column) : val instanceof IncrementValue) {
         colsToFetchFromPersisted.add(column);
       }
     }
@@ -793,7 +825,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // fetching from server those that were not found in in-mem buffer
     if (colsToFetchFromPersisted.size() > 0) {
       Map<byte[], byte[]> persistedCols =
-        getPersisted(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
+        getPersistedColumns(row, colsToFetchFromPersisted.toArray(new byte[colsToFetchFromPersisted.size()][]));
       if (persistedCols != null) {
         result.putAll(persistedCols);
       }
@@ -802,7 +834,65 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // overlay buffered values on persisted, applying increments where necessary
     mergeToPersisted(result, buffCols, columns);
 
-    return unwrapDeletes(result);
+    return removeDeletes(result);
+  }
+
+  /**
+   * Returns {@code false} if the given row is definitely not in the in-memory buffer.
+   */
+  private boolean mightBeBuffered(byte[] row) {
+    return negativeLookups == null || negativeLookups.mightBeBuffered(row);
+  }
+
+  /**
+   * Returns the buffered columns of the given row, or {@code null} if the row is not in the in-memory buffer.
+   */
+  @Nullable
+  private NavigableMap<byte[], Update> getBuffered(byte[] row) {
+    if (!mightBeBuffered(row)) {
+      reportNegativeLookup(Constants.Metrics.Name.Dataset.BUFFER_FILTER_SKIPS);
+      return null;
+    }
+    return buff.get(row);
+  }
+
+  /**
+   * Reads columns of a row from the persisted store, skipping the read if all columns are known to be absent.
+   *
+   * @param columns the columns to read, or {@code null} to read all columns
+   */
+  private Map<byte[], byte[]> getPersistedColumns(byte[] row, @Nullable byte[][] columns) throws Exception {
+    if (negativeLookups == null) {
+      return getPersisted(row, columns);
+    }
+
+    byte[][] toFetch = columns;
+    if (columns == null) {
+      if (negativeLookups.isAbsent(row)) {
+        reportNegativeLookup(Constants.Metrics.Name.Dataset.ABSENT_CACHE_HITS);
+        return EMPTY_ROW_MAP;
+      }
+    } else {
+      List<byte[]> unknownColumns = new ArrayList<>(columns.length);
+      for (byte[] column : columns) {
+        if (!negativeLookups.isAbsent(row, column)) {
+          unknownColumns.add(column);
+        }
+      }
+      if (unknownColumns.isEmpty()) {
+        reportNegativeLookup(Constants.Metrics.Name.Dataset.ABSENT_CACHE_HITS);
+        return EMPTY_ROW_MAP;
+      }
+      if (unknownColumns.size() < columns.length) {
+        toFetch = unknownColumns.toArray(new byte[unknownColumns.size()][]);
+      }
+    }
+
+    Map<byte[], byte[]> result = getPersisted(row, toFetch);
+    if (result != null) {
+      negativeLookups.persistedRead(row, toFetch, result);
+    }
+    return result;
   }
 
   /**
@@ -812,40 +902,58 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
    * @param buffered The buffered values to overlay on the persisted map.
    */
   private static void mergeToPersisted(Map<byte[], byte[]> persisted, Map<byte[], Update> buffered, byte[][] columns) {
-    List<byte[]> columnKeys;
     if (columns != null) {
-      columnKeys = Arrays.asList(columns);
-    } else {
-      // NOTE: we want to copy key's byte array because it may be leaked to table's client and we don't want client
-      //       to affect the buffer by changing it in place
-      columnKeys = Lists.newArrayListWithExpectedSize(buffered.size());
-      for (byte[] key : buffered.keySet()) {
-        columnKeys.add(copy(key));
+      for (byte[] column : columns) {
+        Update val = buffered.get(column);
+        if (val != null || buffered.containsKey(column)) {
+          mergeToPersisted(persisted, column, val);
+        }
       }
+      return;
     }
-    // overlay buffered values on persisted, applying increments where necessary
-    for (byte[] key : columnKeys) {
-      Update val = buffered.get(key);
-      if (val == null) {
-        if (buffered.containsKey(key)) {
-          persisted.remove(key);
-        }
-      } else if (val instanceof IncrementValue) {
-        long persistedValue = 0L;
-        byte[] persistedBytes = persisted.get(key);
-        if (persistedBytes != null) {
-          persistedValue = Bytes.toLong(persistedBytes);
-        }
-        long newValue = persistedValue + ((IncrementValue) val).getValue();
-        persisted.put(key, Bytes.toBytes(newValue));
-      } else if (val instanceof PutValue) {
-        // overwrite the current
-        // NOTE: we want to copy value's byte array because it may be leaked to table's client and we don't want client
-        // to affect the buffer by changing it in place
-        persisted.put(key, copy(((PutValue) val).getValue()));
+    // Walks the buffered entries directly so that each buffered column is only looked up once.
+    // NOTE: we want to copy key's byte array because it may be leaked to table's client and we don't want client
+    //       to affect the buffer by changing it in place
+    for (Map.Entry<byte[], Update> entry : buffered.entrySet()) {
+      mergeToPersisted(persisted, copy(entry.getKey()), entry.getValue());
+    }
+  }
+
+  /**
+   * Applies a single buffered update on top of the map of persisted values.
+   */
+  private static void mergeToPersisted(Map<byte[], byte[]> persisted, byte[] key, @Nullable Update val) {
+    if (val == null) {
+      persisted.remove(key);
+    } else if (val instanceof IncrementValue) {
+      long persistedValue = 0L;
+      byte[] persistedBytes = persisted.get(key);
+      if (persistedBytes != null) {
+        persistedValue = Bytes.toLong(persistedBytes);
+      }
+      long newValue = persistedValue + ((IncrementValue) val).getValue();
+      persisted.put(key, Bytes.toBytes(newValue));
+    } else if (val instanceof PutValue) {
+      // overwrite the current
+      // NOTE: we want to copy value's byte array because it may be leaked to table's client and we don't want client
+      // to affect the buffer by changing it in place
+      persisted.put(key, copy(((PutValue) val).getValue()));
+    }
+    // unknown type?!
+  }
+
+  /**
+   * Removes deleted columns from the given map in place. Unlike {@link #unwrapDeletes(NavigableMap)}, the map is
+   * not copied, hence it should only be used on maps created by this class.
+   */
+  private static NavigableMap<byte[], byte[]> removeDeletes(NavigableMap<byte[], byte[]> rowMap) {
+    Iterator<byte[]> iterator = rowMap.values().iterator();
+    while (iterator.hasNext()) {
+      if (unwrapDeleteIfNeeded(iterator.next()) == null) {
+        iterator.remove();
       }
-      // unknown type?!
     }
+    return rowMap;
   }
 
   // utilities useful for underlying implementations
@@ -929,6 +1037,12 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
+  private void reportNegativeLookup(String metricName) {
+    if (metricsCollector != null) {
+      metricsCollector.increment(metricName, 1);
+    }
+  }
+
   private void reportRead(int numOps) {
     if (metricsCollector != null) {
       // todo: report amount of data being read
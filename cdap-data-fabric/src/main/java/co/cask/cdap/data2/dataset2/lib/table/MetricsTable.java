@@ -69,6 +69,17 @@ public interface MetricsTable extends Dataset {
    */
   void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates);
 
+  /**
+   * Writes multiple rows of values and increments multiple rows in a single batch, which allows the
+   * implementation to minimize the number of calls to the underlying storage. Puts are applied before
+   * increments, hence an increment on a column that is also being put is added to the new value.
+   *
+   * @param puts rows with columns to write
+   * @param increments rows with columns to increment
+   */
+  void putAndIncrement(SortedMap<byte[], ? extends SortedMap<byte[], Long>> puts,
+                       NavigableMap<byte[], NavigableMap<byte[], Long>> increments);
+
   /**
    * Increment a single column of a row and return the new value.
    * @return the new value after the increment.
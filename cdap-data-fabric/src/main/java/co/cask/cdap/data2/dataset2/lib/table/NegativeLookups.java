@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+
+/**
+ * Tracks information for answering point reads of absent keys in {@link BufferingTable} without doing lookups.
+ * It maintains:
+ *
+ * <ul>
+ *   <li>A bloom filter of the rows in the in-memory buffer, so that reads of rows that were never written in the
+ *   transaction can skip the buffer lookup.</li>
+ *   <li>The rows and columns that are known to be absent from the persisted store. Since a transaction always reads
+ *   from the same snapshot, a key that is absent stays absent until the transaction persists its changes.</li>
+ * </ul>
+ *
+ * This class is not thread safe, same as {@link BufferingTable}.
+ */
+final class NegativeLookups {
+
+  private static final int INITIAL_FILTER_CAPACITY = 1024;
+  private static final double FILTER_FALSE_POSITIVE_RATE = 0.01d;
+  // Maximum number of rows to remember as absent, to bound the memory used by a transaction
+  private static final int MAX_ABSENT_ROWS = 10000;
+  // Marker for a row that is known to be absent entirely
+  private static final Set<byte[]> ABSENT_ROW = Collections.emptySet();
+
+  private final NavigableMap<byte[], Set<byte[]>> absentKeys = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+  private BloomFilter<byte[]> bufferFilter;
+  private int bufferFilterCapacity;
+  private int bufferedRows;
+
+  /**
+   * Returns {@code false} if the given row is definitely not in the in-memory buffer.
+   */
+  boolean mightBeBuffered(byte[] row) {
+    return bufferFilter != null && bufferFilter.mightContain(row);
+  }
+
+  /**
+   * Records that a new row is added to the in-memory buffer.
+   *
+   * @param row the row added
+   * @param buffer the in-memory buffer after the row is added, used for growing the bloom filter
+   */
+  void rowBuffered(byte[] row, NavigableMap<byte[], ?> buffer) {
+    bufferedRows++;
+    if (bufferFilter == null || bufferedRows > bufferFilterCapacity) {
+      // Rebuild the filter with larger capacity to keep the false positive rate low
+      bufferFilterCapacity = Math.max(INITIAL_FILTER_CAPACITY, bufferedRows * 4);
+      bufferFilter = BloomFilter.create(Funnels.byteArrayFunnel(), bufferFilterCapacity, FILTER_FALSE_POSITIVE_RATE);
+      for (byte[] key : buffer.keySet()) {
+        bufferFilter.put(key);
+      }
+    } else {
+      bufferFilter.put(row);
+    }
+  }
+
+  /**
+   * Clears the bloom filter when the in-memory buffer is emptied.
+   */
+  void bufferCleared() {
+    bufferFilter = null;
+    bufferedRows = 0;
+  }
+
+  /**
+   * Forgets all absent keys. It must be called whenever the persisted store of the table is changed
+   * by the transaction, or when a new transaction starts.
+   */
+  void persistedChanged() {
+    absentKeys.clear();
+  }
+
+  /**
+   * Returns {@code true} if the given column of a row is known to be absent from the persisted store.
+   */
+  boolean isAbsent(byte[] row, byte[] column) {
+    Set<byte[]> columns = absentKeys.get(row);
+    return columns != null && (columns == ABSENT_ROW || columns.contains(column));
+  }
+
+  /**
+   * Returns {@code true} if the given row is known to have no column in the persisted store.
+   */
+  boolean isAbsent(byte[] row) {
+    return absentKeys.get(row) == ABSENT_ROW;
+  }
+
+  /**
+   * Records the result of reading columns of a row from the persisted store.
+   *
+   * @param row the row being read
+   * @param columns the columns requested, or {@code null} if all columns were requested
+   * @param result the columns returned from the persisted store
+   */
+  void persistedRead(byte[] row, @Nullable byte[][] columns, Map<byte[], byte[]> result) {
+    if (columns == null) {
+      if (result.isEmpty() && hasCapacity(row)) {
+        absentKeys.put(Arrays.copyOf(row, row.length), ABSENT_ROW);
+      }
+      return;
+    }
+
+    Set<byte[]> absentColumns = absentKeys.get(row);
+    if (absentColumns == ABSENT_ROW) {
+      return;
+    }
+    for (byte[] column : columns) {
+      if (result.containsKey(column)) {
+        continue;
+      }
+      if (absentColumns == null) {
+        if (!hasCapacity(row)) {
+          return;
+        }
+        absentColumns = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+        absentKeys.put(Arrays.copyOf(row, row.length), absentColumns);
+      }
+      absentColumns.add(Arrays.copyOf(column, column.length));
+    }
+  }
+
+  private boolean hasCapacity(byte[] row) {
+    return absentKeys.size() < MAX_ABSENT_ROWS || absentKeys.containsKey(row);
+  }
+}
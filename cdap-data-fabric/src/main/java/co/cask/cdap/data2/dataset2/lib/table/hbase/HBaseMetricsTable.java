@@ -31,7 +31,9 @@ import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
 import co.cask.cdap.data2.util.hbase.PutBuilder;
 import co.cask.cdap.data2.util.hbase.ScanBuilder;
 import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.base.Predicates;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
@@ -200,6 +202,50 @@ public class HBaseMetricsTable implements MetricsTable {
     }
   }
 
+  @Override
+  public void putAndIncrement(SortedMap<byte[], ? extends SortedMap<byte[], Long>> puts,
+                              NavigableMap<byte[], NavigableMap<byte[], Long>> increments) {
+    // Puts and increments (which are delta writes) are sent together in a single batch
+    List<Put> mutations = Lists.newArrayListWithCapacity(puts.size() + increments.size());
+    for (Map.Entry<byte[], ? extends SortedMap<byte[], Long>> row : puts.entrySet()) {
+      NavigableMap<byte[], Long> rowIncrements = increments.get(row.getKey());
+      PutBuilder put = tableUtil.buildPut(row.getKey());
+      for (Map.Entry<byte[], Long> column : row.getValue().entrySet()) {
+        // An increment on a column being put is added to the put value, since the order between
+        // a put and a delta write on the same cell in the same batch is not defined
+        Long delta = rowIncrements == null ? null : rowIncrements.get(column.getKey());
+        long value = delta == null ? column.getValue() : column.getValue() + delta;
+        put.add(columnFamily, column.getKey(), Bytes.toBytes(value));
+      }
+      mutations.add(put.build());
+    }
+    for (Map.Entry<byte[], NavigableMap<byte[], Long>> row : increments.entrySet()) {
+      SortedMap<byte[], Long> rowPuts = puts.get(row.getKey());
+      Map<byte[], Long> rowIncrements = row.getValue();
+      if (rowPuts != null) {
+        rowIncrements = Maps.filterKeys(rowIncrements, Predicates.not(Predicates.in(rowPuts.keySet())));
+      }
+      if (!rowIncrements.isEmpty()) {
+        mutations.add(getIncrementalPut(row.getKey(), rowIncrements));
+      }
+    }
+    if (mutations.isEmpty()) {
+      return;
+    }
+
+    try {
+      hTable.put(mutations);
+      hTable.flushCommits();
+    } catch (IOException e) {
+      // figure out whether this is an illegal increment
+      // currently there is not other way to extract that from the HBase exception than string match
+      if (e.getMessage() != null && e.getMessage().contains("isn't 64 bits wide")) {
+        throw new NumberFormatException("Attempted to increment a value that is not convertible to long.");
+      }
+      throw new DataSetException("PutAndIncrement failed on table " + tableId, e);
+    }
+  }
+
   @Override
   public long incrementAndGet(byte[] row, byte[] column, long delta) {
     Increment increment = new Increment(row);
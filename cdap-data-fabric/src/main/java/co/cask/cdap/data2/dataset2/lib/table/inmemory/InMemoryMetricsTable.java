@@ -102,6 +102,13 @@ public class InMemoryMetricsTable implements MetricsTable {
     }
   }
 
+  @Override
+  public void putAndIncrement(SortedMap<byte[], ? extends SortedMap<byte[], Long>> puts,
+                              NavigableMap<byte[], NavigableMap<byte[], Long>> increments) {
+    put(puts);
+    increment(increments);
+  }
+
   @Override
   public long incrementAndGet(byte[] row, byte[] column, long delta) {
     return InMemoryTableService.increment(tableName, row, ImmutableMap.of(column, delta)).get(column);
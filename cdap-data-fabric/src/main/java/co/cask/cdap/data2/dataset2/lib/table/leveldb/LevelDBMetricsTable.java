@@ -97,7 +97,7 @@ public class LevelDBMetricsTable implements MetricsTable {
   }
 
   @Override
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) {
     try {
       return core.swap(row, column, oldValue, newValue);
     } catch (IOException e) {
@@ -123,6 +123,16 @@ public class LevelDBMetricsTable implements MetricsTable {
     }
   }
 
+  @Override
+  public void putAndIncrement(SortedMap<byte[], ? extends SortedMap<byte[], Long>> puts,
+                              NavigableMap<byte[], NavigableMap<byte[], Long>> increments) {
+    try {
+      core.putAndIncrement(Maps.transformValues(puts, TRANSFORM_MAP_LONG_TO_BYTE_ARRAY), increments);
+    } catch (IOException e) {
+      throw new DataSetException("PutAndIncrement failed on table " + tableName, e);
+    }
+  }
+
   @Override
   public long incrementAndGet(byte[] row, byte[] column, long delta) {
     try {
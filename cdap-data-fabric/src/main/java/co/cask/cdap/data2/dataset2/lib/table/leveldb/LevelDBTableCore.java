@@ -27,6 +27,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
 import org.apache.tephra.Transaction;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
@@ -36,12 +37,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 
 /**
@@ -77,10 +81,13 @@ public class LevelDBTableCore {
 
   private final String tableName;
   private final LevelDBTableService service;
+  // Row locks for read-modify-write operations, shared with other instances of the same table
+  private final Striped<Lock> rowLocks;
 
   public LevelDBTableCore(String tableName, LevelDBTableService service) throws IOException {
     this.tableName = tableName;
     this.service = service;
+    this.rowLocks = service.getRowLocks(tableName);
   }
 
   private DB getDB() throws IOException {
@@ -92,48 +99,148 @@ public class LevelDBTableCore {
   }
 
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
-    byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
-    // verify
-    if (oldValue == null && existing != null) {
-      return false;
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+    Lock lock = getRowLock(row);
+    lock.lock();
+    try {
+      byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
+      // verify
+      if (oldValue == null && existing != null) {
+        return false;
+      }
+      if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
+        return false;
+      }
+      // write
+      if (newValue == null) {
+        // to-do
+        deleteColumn(row, column);
+      } else {
+        persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)),
+                System.currentTimeMillis());
+      }
+      return true;
+    } finally {
+      lock.unlock();
     }
-    if (oldValue != null && (existing == null || !Bytes.equals(oldValue, existing))) {
-      return false;
+  }
+
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
+    Lock lock = getRowLock(row);
+    lock.lock();
+    try {
+      Map<byte[], Long> result = getResultMap(row, increments);
+      Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], Long> entry : result.entrySet()) {
+        replacing.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
+      }
+      persist(ImmutableMap.of(row, replacing), System.currentTimeMillis());
+      return result;
+    } finally {
+      lock.unlock();
     }
-    // write
-    if (newValue == null) {
-      // to-do
-      deleteColumn(row, column);
-    } else {
-      persist(Collections.singletonMap(row, Collections.singletonMap(column, newValue)), System.currentTimeMillis());
+  }
+
+
+  public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
+    Iterable<Lock> locks = lockRows(updates.keySet());
+    try {
+      Map<byte[], Map<byte[], byte[]>> resultMap = Maps.newHashMap();
+      for (NavigableMap.Entry<byte[], NavigableMap<byte[], Long>> row : updates.entrySet()) {
+        NavigableMap<byte[], Long> increments = row.getValue();
+        Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        Map<byte[], Long> result = getResultMap(row.getKey(), increments);
+        for (Map.Entry<byte[], Long> entry : result.entrySet()) {
+          replacing.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
+        }
+        resultMap.put(row.getKey(), replacing);
+      }
+      // All rows are written in a single write batch
+      persist(resultMap, System.currentTimeMillis());
+    } finally {
+      unlockRows(locks);
     }
-    return true;
   }
 
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
-    Map<byte[], Long> result = getResultMap(row, increments);
-    Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    for (Map.Entry<byte[], Long> entry : result.entrySet()) {
-      replacing.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
+  /**
+   * Writes the given puts and increments in a single write batch. Puts are applied before increments.
+   */
+  public void putAndIncrement(Map<byte[], ? extends Map<byte[], byte[]>> puts,
+                              NavigableMap<byte[], NavigableMap<byte[], Long>> increments) throws IOException {
+    List<byte[]> rows = new ArrayList<>(puts.keySet());
+    rows.addAll(increments.keySet());
+    Iterable<Lock> locks = lockRows(rows);
+    try {
+      doPutAndIncrement(puts, increments);
+    } finally {
+      unlockRows(locks);
     }
-    persist(ImmutableMap.of(row, replacing), System.currentTimeMillis());
-    return result;
   }
 
+  private void doPutAndIncrement(Map<byte[], ? extends Map<byte[], byte[]>> puts,
+                                 NavigableMap<byte[], NavigableMap<byte[], Long>> increments) throws IOException {
+    Map<byte[], Map<byte[], byte[]>> changes = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], ? extends Map<byte[], byte[]>> row : puts.entrySet()) {
+      Map<byte[], byte[]> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      columns.putAll(row.getValue());
+      changes.put(row.getKey(), columns);
+    }
 
-  public synchronized void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
-    Map<byte[], Map<byte[], byte[]>> resultMap = Maps.newHashMap();
-    for (NavigableMap.Entry<byte[], NavigableMap<byte[], Long>> row : updates.entrySet()) {
-      NavigableMap<byte[], Long> increments = row.getValue();
-      Map<byte[], byte[]> replacing = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      Map<byte[], Long> result = getResultMap(row.getKey(), increments);
-      for (Map.Entry<byte[], Long> entry : result.entrySet()) {
-        replacing.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
+    for (Map.Entry<byte[], NavigableMap<byte[], Long>> row : increments.entrySet()) {
+      Map<byte[], byte[]> columns = changes.get(row.getKey());
+      if (columns == null) {
+        columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        changes.put(row.getKey(), columns);
       }
-      resultMap.put(row.getKey(), replacing);
+
+      // Only read the existing values for columns that are not being put in the same batch
+      Map<byte[], Long> toRead = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], Long> increment : row.getValue().entrySet()) {
+        byte[] putValue = columns.get(increment.getKey());
+        if (putValue == null) {
+          toRead.put(increment.getKey(), increment.getValue());
+        } else {
+          columns.put(increment.getKey(), Bytes.toBytes(Bytes.toLong(putValue) + increment.getValue()));
+        }
+      }
+      if (!toRead.isEmpty()) {
+        for (Map.Entry<byte[], Long> entry : getResultMap(row.getKey(), toRead).entrySet()) {
+          columns.put(entry.getKey(), Bytes.toBytes(entry.getValue()));
+        }
+      }
+    }
+
+    if (!changes.isEmpty()) {
+      persist(changes, System.currentTimeMillis());
+    }
+  }
+
+  private Lock getRowLock(byte[] row) {
+    return rowLocks.get(Bytes.hashCode(row));
+  }
+
+  /**
+   * Acquires the locks of the given rows. Locks are always acquired in the same order,
+   * so that concurrent multi-row operations cannot deadlock.
+   *
+   * @return the locks acquired, which must be released with {@link #unlockRows(Iterable)}
+   */
+  private Iterable<Lock> lockRows(Collection<byte[]> rows) {
+    List<Integer> keys = new ArrayList<>(rows.size());
+    for (byte[] row : rows) {
+      keys.add(Bytes.hashCode(row));
+    }
+    Iterable<Lock> locks = rowLocks.bulkGet(keys);
+    for (Lock lock : locks) {
+      lock.lock();
+    }
+    return locks;
+  }
+
+  private void unlockRows(Iterable<Lock> locks) {
+    for (Lock lock : locks) {
+      lock.unlock();
     }
-    persist(resultMap, System.currentTimeMillis());
   }
 
   private Map<byte[], Long> getResultMap(byte[] row, Map<byte[], Long> increments) throws IOException {
@@ -101,6 +101,23 @@ public final class EntityTable implements Closeable {
     return entityCache.getUnchecked(new EntityName(type, name)) % maxId;
   }
 
+  /**
+   * Returns whether an unique id has been assigned to the given name. Unlike {@link #getId(String, String)},
+   * this method never generates a new id.
+   */
+  public boolean hasId(String type, String name) {
+    EntityName entityName = new EntityName(type, name);
+    if (entityCache.getIfPresent(entityName) != null) {
+      return true;
+    }
+    byte[] result = table.get(Bytes.toBytes(type + '.' + name), ID);
+    if (result == null) {
+      return false;
+    }
+    entityCache.put(entityName, Bytes.toLong(result));
+    return true;
+  }
+
   /**
    * Returns the entity name for the given id and type.
    * @param id The id to lookup
@@ -66,6 +66,17 @@ public class FactCodec {
     return createRowKey(dimensionValues, measureName, ts, false, false);
   }
 
+  /**
+   * Replaces the measure name of a row key created by {@link #createRowKey(List, String, long)} in place.
+   * It allows reusing the same row key buffer for multiple measurements of the same fact
+   * without encoding the dimension values again.
+   * @param rowKey row key to update
+   * @param measureName the new measure name
+   */
+  public void updateMeasureName(byte[] rowKey, String measureName) {
+    writeEncoded(TYPE_MEASURE_NAME, measureName, rowKey, rowKey.length - entityTable.getIdSize());
+  }
+
   /**
    * Builds start row key for scan operation.
    * @param dimensionValues dimension values
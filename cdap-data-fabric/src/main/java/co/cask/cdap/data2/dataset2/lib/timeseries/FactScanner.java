@@ -126,7 +126,8 @@ public final class FactScanner implements Iterator<FactScanResult> {
           }
 
           if (timeValues.isEmpty() && exhausted) {
-            break;
+            // Rows of other dimension values or measures may still have data in the time range
+            continue;
           }
 
           // todo: can return empty list, if all data is < startTs or > endTs
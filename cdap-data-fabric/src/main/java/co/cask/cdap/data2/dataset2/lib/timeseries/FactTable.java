@@ -25,7 +25,6 @@ import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -60,21 +59,8 @@ public final class FactTable implements Closeable {
   // hard limits on some ops to stay on safe side
   private static final int MAX_RECORDS_TO_SCAN_DURING_SEARCH = 10 * 1000 * 1000;
   private static final int MAX_SCANS_DURING_SEARCH = 10 * 1000;
-
-  private static final Function<byte[], Long> BYTES_TO_LONG = new Function<byte[], Long>() {
-    @Override
-    public Long apply(byte[] input) {
-      return Bytes.toLong(input);
-    }
-  };
-
-  private static final Function<NavigableMap<byte[], byte[]>, NavigableMap<byte[], Long>>
-    TRANSFORM_MAP_BYTE_ARRAY_TO_LONG = new Function<NavigableMap<byte[], byte[]>, NavigableMap<byte[], Long>>() {
-    @Override
-    public NavigableMap<byte[], Long> apply(NavigableMap<byte[], byte[]> input) {
-      return Maps.transformValues(input, BYTES_TO_LONG);
-    }
-  };
+  // entity type used to keep track of the names of measures that are gauges
+  private static final String GAUGE_MEASURE_TYPE = "gaugeMeasureName";
 
   private final MetricsTable timeSeriesTable;
   private final EntityTable entityTable;
@@ -120,36 +106,71 @@ public final class FactTable implements Closeable {
 
   public void add(List<Fact> facts) {
     // Simply collecting all rows/cols/values that need to be put to the underlying table.
-    NavigableMap<byte[], NavigableMap<byte[], byte[]>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-    NavigableMap<byte[], NavigableMap<byte[], byte[]>> incrementsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], NavigableMap<byte[], Long>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     for (Fact fact : facts) {
+      byte[] column = codec.createColumn(fact.getTimestamp());
+      // Row keys of the same fact only differ by the measure name, hence the row key buffer is reused for
+      // all measurements and only gets copied when a new row is added to the table.
+      byte[] rowKey = null;
       for (Measurement measurement : fact.getMeasurements()) {
-        byte[] rowKey = codec.createRowKey(fact.getDimensionValues(), measurement.getName(), fact.getTimestamp());
-        byte[] column = codec.createColumn(fact.getTimestamp());
+        if (rowKey == null) {
+          rowKey = codec.createRowKey(fact.getDimensionValues(), measurement.getName(), fact.getTimestamp());
+        } else {
+          codec.updateMeasureName(rowKey, measurement.getName());
+        }
 
         if (MeasureType.COUNTER == measurement.getType()) {
           inc(incrementsTable, rowKey, column, measurement.getValue());
         } else {
-          set(gaugesTable, rowKey, column, Bytes.toBytes(measurement.getValue()));
+          // The entity table caches the mapping, hence only the first write of a gauge goes to the table
+          entityTable.getId(GAUGE_MEASURE_TYPE, measurement.getName());
+          getRowMap(gaugesTable, rowKey).put(column, measurement.getValue());
         }
       }
     }
 
-    NavigableMap<byte[], NavigableMap<byte[], Long>> convertedIncrementsTable =
-      Maps.transformValues(incrementsTable, TRANSFORM_MAP_BYTE_ARRAY_TO_LONG);
+    timeSeriesTable.putAndIncrement(gaugesTable, incrementsTable);
+    if (metrics != null) {
+      metrics.increment(putCountMetric, gaugesTable.size());
+      metrics.increment(incrementCountMetric, incrementsTable.size());
+    }
+  }
 
-    NavigableMap<byte[], NavigableMap<byte[], Long>> convertedGaugesTable =
-      Maps.transformValues(gaugesTable, TRANSFORM_MAP_BYTE_ARRAY_TO_LONG);
+  /**
+   * Writes the given facts, overwriting the existing values. Unlike {@link #add(List)}, counters are not added to
+   * the existing values, hence writing the same facts again has no further effect.
+   */
+  public void put(List<Fact> facts) {
+    NavigableMap<byte[], NavigableMap<byte[], Long>> putsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (Fact fact : facts) {
+      byte[] column = codec.createColumn(fact.getTimestamp());
+      byte[] rowKey = null;
+      for (Measurement measurement : fact.getMeasurements()) {
+        if (rowKey == null) {
+          rowKey = codec.createRowKey(fact.getDimensionValues(), measurement.getName(), fact.getTimestamp());
+        } else {
+          codec.updateMeasureName(rowKey, measurement.getName());
+        }
+        getRowMap(putsTable, rowKey).put(column, measurement.getValue());
+      }
+    }
 
-    // todo: replace with single call, to be able to optimize rpcs in underlying table
-    timeSeriesTable.put(convertedGaugesTable);
-    timeSeriesTable.increment(convertedIncrementsTable);
+    timeSeriesTable.put(putsTable);
     if (metrics != null) {
-      metrics.increment(putCountMetric, convertedGaugesTable.size());
-      metrics.increment(incrementCountMetric, convertedIncrementsTable.size());
+      metrics.increment(putCountMetric, putsTable.size());
     }
   }
 
+  /**
+   * Returns the {@link MeasureType} of the given measure. Since the type is not stored with the values, a measure
+   * is considered to be a {@link MeasureType#GAUGE} if it ever has been written as a gauge to any {@link FactTable}
+   * sharing the same {@link EntityTable}, otherwise it is a {@link MeasureType#COUNTER}.
+   */
+  public MeasureType getMeasureType(String measureName) {
+    return entityTable.hasId(GAUGE_MEASURE_TYPE, measureName) ? MeasureType.GAUGE : MeasureType.COUNTER;
+  }
+
   private class MeasureNameComparator implements Comparator<String> {
     private final Map<String, Long> measureNameToEntityIdMap;
 
@@ -167,6 +188,38 @@ public final class FactTable implements Closeable {
     return new FactScanner(getScanner(scan), codec, scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames());
   }
 
+  /**
+   * Splits the given scan into at most the given number of scans over consecutive time ranges. Since the time base
+   * follows the aggregation group in the row key, each of the returned scans covers a separate row key range of the
+   * table, hence they can be executed concurrently without reading the same row twice.
+   *
+   * @param scan the scan to split
+   * @param maxSplits maximum number of scans to return
+   * @return list of scans ordered by time
+   */
+  public List<FactScan> splitScan(FactScan scan, int maxSplits) {
+    // Time ranges can only be split at time base boundaries if those are aligned with the resolution
+    if (maxSplits <= 1 || rollTime % resolution != 0 || scan.getStartTs() > scan.getEndTs()) {
+      return Collections.singletonList(scan);
+    }
+    long startTimeBase = scan.getStartTs() / resolution * resolution / rollTime * rollTime;
+    long endTimeBase = scan.getEndTs() / resolution * resolution / rollTime * rollTime;
+    long timeBases = (endTimeBase - startTimeBase) / rollTime + 1;
+    if (timeBases <= 1) {
+      return Collections.singletonList(scan);
+    }
+
+    int splits = (int) Math.min(timeBases, maxSplits);
+    List<FactScan> result = new ArrayList<>(splits);
+    long splitStartTs = scan.getStartTs();
+    for (int i = 1; i <= splits; i++) {
+      long splitEndTs = i == splits ? scan.getEndTs() : startTimeBase + timeBases * i / splits * rollTime - 1;
+      result.add(new FactScan(splitStartTs, splitEndTs, scan.getMeasureNames(), scan.getDimensionValues()));
+      splitStartTs = splitEndTs + 1;
+    }
+    return result;
+  }
+
   private List<String> getSortedMeasures(Collection<String> measures) {
     Map<String, Long> measureToEntityMap = new HashMap<>();
     List<String> measureNames = new ArrayList<>();
@@ -448,43 +501,25 @@ public final class FactTable implements Closeable {
     return new FuzzyRowFilter(ImmutableList.of(new ImmutablePair<>(startRow, fuzzyRowMask)));
   }
 
-  // todo: shouldn't we aggregate "before" writing to FactTable? We could do it really efficient outside
-  //       also: the underlying datasets will do aggregation in memory anyways
-  private static void inc(NavigableMap<byte[], NavigableMap<byte[], byte[]>> incrementsTable,
-                   byte[] rowKey, byte[] column, long value) {
-    byte[] oldValue = get(incrementsTable, rowKey, column);
-    long newValue = value;
-    if (oldValue != null) {
-      if (Bytes.SIZEOF_LONG == oldValue.length) {
-        newValue = Bytes.toLong(oldValue) + value;
-      } else if (Bytes.SIZEOF_INT == oldValue.length) {
-        // In 2.4 and older versions we stored it as int
-        newValue = Bytes.toInt(oldValue) + value;
-      } else {
-        // should NEVER happen, unless the table is screwed up manually
-        throw new IllegalStateException(
-          String.format("Could not parse measure @row %s @column %s value %s as int or long",
-                        Bytes.toStringBinary(rowKey), Bytes.toStringBinary(column), Bytes.toStringBinary(oldValue)));
-      }
-
-    }
-    set(incrementsTable, rowKey, column, Bytes.toBytes(newValue));
-  }
-
-  private static byte[] get(NavigableMap<byte[], NavigableMap<byte[], byte[]>> table, byte[] row, byte[] column) {
-    NavigableMap<byte[], byte[]> rowMap = table.get(row);
-    return rowMap == null ? null : rowMap.get(column);
+  private static void inc(NavigableMap<byte[], NavigableMap<byte[], Long>> incrementsTable,
+                          byte[] rowKey, byte[] column, long value) {
+    NavigableMap<byte[], Long> rowMap = getRowMap(incrementsTable, rowKey);
+    Long oldValue = rowMap.get(column);
+    rowMap.put(column, oldValue == null ? value : oldValue + value);
   }
 
-  private static void set(NavigableMap<byte[], NavigableMap<byte[], byte[]>> table,
-                          byte[] row, byte[] column, byte[] value) {
-    NavigableMap<byte[], byte[]> rowMap = table.get(row);
+  /**
+   * Returns the columns map of the given row, creating it if it doesn't exist. Since the row key buffer
+   * can be reused by the caller, a copy of the row key is added to the table.
+   */
+  private static NavigableMap<byte[], Long> getRowMap(NavigableMap<byte[], NavigableMap<byte[], Long>> table,
+                                                      byte[] row) {
+    NavigableMap<byte[], Long> rowMap = table.get(row);
     if (rowMap == null) {
       rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-      table.put(row, rowMap);
+      table.put(Arrays.copyOf(row, row.length), rowMap);
     }
-
-    rowMap.put(column, value);
+    return rowMap;
   }
 
   private String toPrettyLog(byte[] key) {
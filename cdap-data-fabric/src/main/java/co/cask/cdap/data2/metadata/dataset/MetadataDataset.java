@@ -567,21 +567,48 @@ public class MetadataDataset extends AbstractDataset {
     return searchByDefaultIndex(namespaceId, searchQuery, types, showHidden, entityScope);
   }
 
+  /**
+   * Scores entities that match the specified search query in the specified namespace and {@link NamespaceId#SYSTEM}
+   * using the default index. The score of an entity is the number of index entries of the entity that match any of
+   * the search terms, which is the weight used for {@link SortInfo#DEFAULT} sorting.
+   *
+   * Unlike {@link #search(String, String, Set, SortInfo, int, int, int, String, boolean, Set)}, only the index
+   * entries are scanned. Metadata values of the matching entities are not read.
+   *
+   * @param namespaceId the namespace to search in
+   * @param searchQuery the search query, which could be of two forms: [key]:[value] or just [value] and can have '*'
+   *                    at the end for a prefix search
+   * @param types the {@link EntityTypeSimpleName} to restrict the search to, if empty all types are searched
+   * @param showHidden boolean which specifies whether to include hidden entities (entity whose name start with "_")
+   *                    or not.
+   * @param entityScope a set which specifies which scope of entities to include.
+   * @return a {@link Map} from each matching {@link NamespacedEntityId} to its score
+   */
+  public Map<NamespacedEntityId, Integer> scoreByDefaultIndex(String namespaceId, String searchQuery,
+                                                              Set<EntityTypeSimpleName> types, boolean showHidden,
+                                                              Set<EntityScope> entityScope) {
+    Map<NamespacedEntityId, Integer> scores = new HashMap<>();
+    for (String searchTerm : getSearchTerms(namespaceId, searchQuery, entityScope)) {
+      try (Scanner scanner = scanDefaultIndex(searchTerm)) {
+        Row next;
+        while ((next = scanner.next()) != null) {
+          NamespacedEntityId targetId = getTargetId(next, DEFAULT_INDEX_COLUMN, types, showHidden);
+          if (targetId != null) {
+            Integer score = scores.get(targetId);
+            scores.put(targetId, score == null ? 1 : score + 1);
+          }
+        }
+      }
+    }
+    return scores;
+  }
+
   private SearchResults searchByDefaultIndex(String namespaceId, String searchQuery,
                                              Set<EntityTypeSimpleName> types, boolean showHidden,
                                              Set<EntityScope> entityScope) {
     List<MetadataEntry> results = new LinkedList<>();
     for (String searchTerm : getSearchTerms(namespaceId, searchQuery, entityScope)) {
-      Scanner scanner;
-      if (searchTerm.endsWith("*")) {
-        // if prefixed search get start and stop key
-        byte[] startKey = Bytes.toBytes(searchTerm.substring(0, searchTerm.lastIndexOf("*")));
-        byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
-        scanner = indexedTable.scanByIndex(Bytes.toBytes(DEFAULT_INDEX_COLUMN), startKey, stopKey);
-      } else {
-        byte[] value = Bytes.toBytes(searchTerm);
-        scanner = indexedTable.readByIndex(Bytes.toBytes(DEFAULT_INDEX_COLUMN), value);
-      }
+      Scanner scanner = scanDefaultIndex(searchTerm);
       try {
         Row next;
         while ((next = scanner.next()) != null) {
@@ -599,6 +626,19 @@ public class MetadataDataset extends AbstractDataset {
     return new SearchResults(results, Collections.<String>emptyList());
   }
 
+  /**
+   * Returns a {@link Scanner} over the default index entries that match the given namespaced search term.
+   */
+  private Scanner scanDefaultIndex(String searchTerm) {
+    if (searchTerm.endsWith("*")) {
+      // if prefixed search get start and stop key
+      byte[] startKey = Bytes.toBytes(searchTerm.substring(0, searchTerm.lastIndexOf("*")));
+      byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
+      return indexedTable.scanByIndex(Bytes.toBytes(DEFAULT_INDEX_COLUMN), startKey, stopKey);
+    }
+    return indexedTable.readByIndex(Bytes.toBytes(DEFAULT_INDEX_COLUMN), Bytes.toBytes(searchTerm));
+  }
+
   private SearchResults searchByCustomIndex(String namespaceId, Set<EntityTypeSimpleName> types,
                                             SortInfo sortInfo, int offset, int limit, int numCursors,
                                             @Nullable String cursor, boolean showHidden,
@@ -647,9 +687,24 @@ public class MetadataDataset extends AbstractDataset {
   // so return an Optional
   private Optional<MetadataEntry> parseRow(Row rowToProcess, String indexColumn,
                                            Set<EntityTypeSimpleName> entityFilter, boolean showHidden) {
+    NamespacedEntityId targetId = getTargetId(rowToProcess, indexColumn, entityFilter, showHidden);
+    if (targetId == null) {
+      return Optional.absent();
+    }
+    byte[] rowKey = rowToProcess.getRow();
+    String key = MdsKey.getMetadataKey(MdsKey.getTargetType(rowKey), rowKey);
+    MetadataEntry entry = getMetadata(targetId, key);
+    return Optional.fromNullable(entry);
+  }
+
+  // returns the target entity of the index row or null if there is no index in the row,
+  // or if the target entity doesn't pass the type and hidden filters
+  @Nullable
+  private NamespacedEntityId getTargetId(Row rowToProcess, String indexColumn,
+                                         Set<EntityTypeSimpleName> entityFilter, boolean showHidden) {
     String rowValue = rowToProcess.getString(indexColumn);
     if (rowValue == null) {
-      return Optional.absent();
+      return null;
     }
 
     final byte[] rowKey = rowToProcess.getRow();
@@ -658,18 +713,16 @@ public class MetadataDataset extends AbstractDataset {
     // Filter on target type if not set to include all types
     boolean includeAllTypes = entityFilter.isEmpty() || entityFilter.contains(EntityTypeSimpleName.ALL);
     if (!includeAllTypes && !entityFilter.contains(EntityTypeSimpleName.valueOfSerializedForm(targetType))) {
-      return Optional.absent();
+      return null;
     }
 
     NamespacedEntityId targetId = MdsKey.getNamespacedIdFromKey(targetType, rowKey);
     // if the entity starts with _ then skip it unless the caller choose to showHidden.
     // This is done to hide entities from Tracker. See: CDAP-7910
     if (!showHidden && targetId.getEntityName().startsWith("_")) {
-      return Optional.absent();
+      return null;
     }
-    String key = MdsKey.getMetadataKey(targetType, rowKey);
-    MetadataEntry entry = getMetadata(targetId, key);
-    return Optional.fromNullable(entry);
+    return targetId;
   }
 
   /**
@@ -22,13 +22,11 @@ import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.StreamId;
 import co.cask.cdap.proto.metadata.lineage.CollapseType;
 import com.google.common.base.Preconditions;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
 import org.apache.twill.api.RunId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
@@ -52,28 +50,26 @@ public final class LineageCollapser {
    */
   public static Set<CollapsedRelation> collapseRelations(Iterable<Relation> relations,
                                                          Set<CollapseType> collapseTypes) {
-    Set<CollapsedRelation> collapsedRelations = new HashSet<>();
-
-    Multimap<CollapseKey, Relation> multimap = HashMultimap.create();
+    // Fold every relation into its collapsed entry as it is read, instead of grouping all the relations first,
+    // so that only the collapsed state is held in memory.
+    Map<CollapseKey, CollapsedEntry> collapsed = new HashMap<>();
     for (Relation relation : relations) {
-      multimap.put(getCollapseKey(relation, collapseTypes), relation);
+      CollapseKey key = getCollapseKey(relation, collapseTypes);
+      CollapsedEntry entry = collapsed.get(key);
+      if (entry == null) {
+        entry = new CollapsedEntry();
+        collapsed.put(key, entry);
+      }
+      entry.add(relation);
     }
-    LOG.trace("Collapsed relations: {}", multimap.asMap());
+    LOG.trace("Collapsed relations: {}", collapsed);
 
-    for (Map.Entry<CollapseKey, Collection<Relation>> collapsedEntry : multimap.asMap().entrySet()) {
+    Set<CollapsedRelation> collapsedRelations = new HashSet<>();
+    for (Map.Entry<CollapseKey, CollapsedEntry> collapsedEntry : collapsed.entrySet()) {
       NamespacedEntityId data = collapsedEntry.getKey().data;
       ProgramId program = collapsedEntry.getKey().program;
-
-      Set<AccessType> accessTypes = new HashSet<>();
-      Set<RunId> runs = new HashSet<>();
-      Set<NamespacedEntityId> components = new HashSet<>();
-
-      for (Relation relation : collapsedEntry.getValue()) {
-        accessTypes.add(relation.getAccess());
-        runs.add(relation.getRun());
-        components.addAll(relation.getComponents());
-      }
-      collapsedRelations.add(toCollapsedRelation(data, program, accessTypes, runs, components));
+      CollapsedEntry entry = collapsedEntry.getValue();
+      collapsedRelations.add(toCollapsedRelation(data, program, entry.accessTypes, entry.runs, entry.components));
     }
     return collapsedRelations;
   }
@@ -121,6 +117,30 @@ public final class LineageCollapser {
     }
   }
 
+  /**
+   * Accumulates the access types, runs and components of the relations collapsed into the same key.
+   */
+  private static final class CollapsedEntry {
+    private final Set<AccessType> accessTypes = new HashSet<>();
+    private final Set<RunId> runs = new HashSet<>();
+    private final Set<NamespacedEntityId> components = new HashSet<>();
+
+    void add(Relation relation) {
+      accessTypes.add(relation.getAccess());
+      runs.add(relation.getRun());
+      components.addAll(relation.getComponents());
+    }
+
+    @Override
+    public String toString() {
+      return "CollapsedEntry{" +
+        "accessTypes=" + accessTypes +
+        ", runs=" + runs +
+        ", components=" + components +
+        '}';
+    }
+  }
+
   private static CollapsedRelation toCollapsedRelation(NamespacedEntityId data, ProgramId program,
                                                        Set<AccessType> accesses, Set<RunId> runs,
                                                        Set<NamespacedEntityId> components) {
@@ -68,6 +68,19 @@ public class LineageDataset extends AbstractDataset {
   // -------------------------------------------------------------------------------
   // | p | <id.run>     | <inverted-start-time> | s | <id.stream>  | <access-type> |
   // -------------------------------------------------------------------------------
+  //
+  // Hourly buckets of accesses, keyed by the start time of the runs rounded down to the bucket:
+  // ----------------------------------------------------------------------------------
+  // | b | d | <id.dataset> | <inverted-bucket-time> | p | <id.program>               |
+  // ----------------------------------------------------------------------------------
+  // | b | s | <id.stream>  | <inverted-bucket-time> | p | <id.program>               |
+  // ----------------------------------------------------------------------------------
+  // | b | p | <id.program> | <inverted-bucket-time> | d | <id.dataset> (or s | <id.stream>) |
+  // ----------------------------------------------------------------------------------
+  //
+  // Each bucket row has one column per <id.run> | <access-type> | <component>, so that all the accesses
+  // between a program and a dataset/stream in a bucket are read with a single row. Since the dataset
+  // has no conflict detection, adding a column to a bucket row is a blind write.
 
   private static final Logger LOG = LoggerFactory.getLogger(LineageDataset.class);
   // Column used to store access time
@@ -78,12 +91,29 @@ public class LineageDataset extends AbstractDataset {
   private static final char FLOWLET_MARKER = 'f';
   private static final char STREAM_MARKER = 's';
   private static final char NONE_MARKER = '0';
+  private static final char BUCKET_MARKER = 'b';
+
+  private static final long BUCKET_SIZE_MILLIS = TimeUnit.HOURS.toMillis(1);
 
-  private Table accessRegistryTable;
+  private final Table accessRegistryTable;
+  private final long bucketIndexStartMillis;
 
   public LineageDataset(String instanceName, Table accessRegistryTable) {
+    this(instanceName, accessRegistryTable, Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a {@link LineageDataset}.
+   *
+   * @param instanceName name of the dataset instance
+   * @param accessRegistryTable table to store the accesses in
+   * @param bucketIndexStartMillis start time of the earliest run for which all accesses are recorded in
+   *                               the bucket rows. Runs that started earlier are always read from the access rows.
+   */
+  public LineageDataset(String instanceName, Table accessRegistryTable, long bucketIndexStartMillis) {
     super(instanceName, accessRegistryTable);
     this.accessRegistryTable = accessRegistryTable;
+    this.bucketIndexStartMillis = bucketIndexStartMillis;
   }
 
   /**
@@ -115,6 +145,12 @@ public class LineageDataset extends AbstractDataset {
                             ACCESS_TIME_COLS_BYTE, Bytes.toBytes(accessTimeMillis));
     accessRegistryTable.put(getProgramKey(run, datasetInstance, accessType, component),
                             ACCESS_TIME_COLS_BYTE, Bytes.toBytes(accessTimeMillis));
+
+    byte[] bucketColumn = getBucketColumn(run, accessType, component);
+    accessRegistryTable.put(getBucketKey(getDatasetPrefix(datasetInstance), run, getProgramPrefix(run.getParent())),
+                            bucketColumn, Bytes.toBytes(accessTimeMillis));
+    accessRegistryTable.put(getBucketKey(getProgramPrefix(run.getParent()), run, getDatasetPrefix(datasetInstance)),
+                            bucketColumn, Bytes.toBytes(accessTimeMillis));
   }
 
   /**
@@ -147,6 +183,12 @@ public class LineageDataset extends AbstractDataset {
                             ACCESS_TIME_COLS_BYTE, Bytes.toBytes(accessTimeMillis));
     accessRegistryTable.put(getProgramKey(run, stream, accessType, component),
                             ACCESS_TIME_COLS_BYTE, Bytes.toBytes(accessTimeMillis));
+
+    byte[] bucketColumn = getBucketColumn(run, accessType, component);
+    accessRegistryTable.put(getBucketKey(getStreamPrefix(stream), run, getProgramPrefix(run.getParent())),
+                            bucketColumn, Bytes.toBytes(accessTimeMillis));
+    accessRegistryTable.put(getBucketKey(getProgramPrefix(run.getParent()), run, getStreamPrefix(stream)),
+                            bucketColumn, Bytes.toBytes(accessTimeMillis));
   }
 
   /**
@@ -182,9 +224,7 @@ public class LineageDataset extends AbstractDataset {
    */
   public Set<Relation> getRelations(DatasetId datasetInstance, long start, long end,
                                     Predicate<Relation> filter) {
-    return scanRelations(getDatasetScanStartKey(datasetInstance, end),
-                         getDatasetScanEndKey(datasetInstance, start),
-                         filter);
+    return getRelations(getDatasetPrefix(datasetInstance), start, end, filter);
   }
 
   /**
@@ -197,9 +237,7 @@ public class LineageDataset extends AbstractDataset {
    * @return program-dataset access information
    */
   public Set<Relation> getRelations(StreamId stream, long start, long end, Predicate<Relation> filter) {
-    return scanRelations(getStreamScanStartKey(stream, end),
-                         getStreamScanEndKey(stream, start),
-                         filter);
+    return getRelations(getStreamPrefix(stream), start, end, filter);
   }
 
   /**
@@ -212,9 +250,7 @@ public class LineageDataset extends AbstractDataset {
    * @return program-dataset access information
    */
   public Set<Relation> getRelations(ProgramId program, long start, long end, Predicate<Relation> filter) {
-    return scanRelations(getProgramScanStartKey(program, end),
-                         getProgramScanEndKey(program, start),
-                         filter);
+    return getRelations(getProgramPrefix(program), start, end, filter);
   }
 
   /**
@@ -239,8 +275,41 @@ public class LineageDataset extends AbstractDataset {
     return recordBuilder.build();
   }
 
-  private Set<Relation> scanRelations(byte[] startKey, byte[] endKey, Predicate<Relation> filter) {
+  /**
+   * Fetches the relations of the entity with the given key prefix for runs started in the time range
+   * {@code [start, end + 1]}. Buckets that lie completely within the range are read from the bucket rows,
+   * only the edges of the range and the runs started before the bucket index are read from the access rows.
+   */
+  private Set<Relation> getRelations(MDSKey prefix, long start, long end, Predicate<Relation> filter) {
+    // time is inverted, hence the scans go from the latest to the earliest time.
+    // The end time is treated as inclusive, and one more millisecond is included to keep the range
+    // consistent with what the access row scans always returned.
+    long latest = end + 1;
+    long firstBucket = roundUpToBucket(Math.max(start, bucketIndexStartMillis));
+    long bucketsEnd = roundDownToBucket(latest + 1);
+
     ImmutableSet.Builder<Relation> relationsBuilder = ImmutableSet.builder();
+    if (firstBucket >= bucketsEnd) {
+      scanRelations(prefix, start, latest, filter, relationsBuilder);
+      return relationsBuilder.build();
+    }
+
+    scanRelations(prefix, bucketsEnd, latest, filter, relationsBuilder);
+    scanBucketRelations(prefix, firstBucket, bucketsEnd - 1, filter, relationsBuilder);
+    scanRelations(prefix, start, firstBucket - 1, filter, relationsBuilder);
+    return relationsBuilder.build();
+  }
+
+  /**
+   * Scans the access rows of runs started in the time range {@code [earliest, latest]}.
+   */
+  private void scanRelations(MDSKey prefix, long earliest, long latest, Predicate<Relation> filter,
+                             ImmutableSet.Builder<Relation> relationsBuilder) {
+    if (earliest > latest) {
+      return;
+    }
+    byte[] startKey = getScanKey(prefix, latest);
+    byte[] endKey = getScanKey(prefix, earliest - 1);
     try (Scanner scanner = accessRegistryTable.scan(startKey, endKey)) {
       Row row;
       while ((row = scanner.next()) != null) {
@@ -253,7 +322,29 @@ public class LineageDataset extends AbstractDataset {
         }
       }
     }
-    return relationsBuilder.build();
+  }
+
+  /**
+   * Scans the bucket rows of the buckets starting in the time range {@code [earliest, latest]}.
+   */
+  private void scanBucketRelations(MDSKey prefix, long earliest, long latest, Predicate<Relation> filter,
+                                   ImmutableSet.Builder<Relation> relationsBuilder) {
+    MDSKey bucketPrefix = new MDSKey.Builder().add(BUCKET_MARKER).append(prefix).build();
+    byte[] startKey = getScanKey(bucketPrefix, latest);
+    byte[] endKey = getScanKey(bucketPrefix, earliest - 1);
+    try (Scanner scanner = accessRegistryTable.scan(startKey, endKey)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        if (LOG.isTraceEnabled()) {
+          LOG.trace("Got bucket row key = {}", Bytes.toString(row.getRow()));
+        }
+        for (Relation relation : toBucketRelations(row)) {
+          if (filter.apply(relation)) {
+            relationsBuilder.add(relation);
+          }
+        }
+      }
+    }
   }
 
   private byte[] getDatasetKey(DatasetId datasetInstance, ProgramRunId run,
@@ -340,67 +431,57 @@ public class LineageDataset extends AbstractDataset {
     }
   }
 
-  private byte[] getDatasetScanKey(DatasetId datasetInstance, long time) {
-    long invertedStartTime = invertTime(time);
-    MDSKey.Builder builder = new MDSKey.Builder();
-    addDataset(builder, datasetInstance);
-    builder.add(invertedStartTime);
-
-    return builder.build().getKey();
-  }
-
-  private byte[] getDatasetScanStartKey(DatasetId datasetInstance, long end) {
-    // time is inverted, hence we need to have end time in start key.
-    // Since end time is exclusive, add 1 to make it inclusive.
-    return getDatasetScanKey(datasetInstance, end + 1);
+  private byte[] getScanKey(MDSKey prefix, long time) {
+    return new MDSKey.Builder(prefix).add(invertTime(time)).build().getKey();
   }
 
-  private byte[] getDatasetScanEndKey(DatasetId datasetInstance, long start) {
-    // time is inverted, hence we need to have start time in end key.
-    // Since start time is inclusive, subtract 1 to make it exclusive.
-    return getDatasetScanKey(datasetInstance, start - 1);
+  private byte[] getBucketKey(MDSKey prefix, ProgramRunId run, MDSKey otherPrefix) {
+    long bucketTime = roundDownToBucket(RunIds.getTime(RunIds.fromString(run.getEntityName()), TimeUnit.MILLISECONDS));
+    return new MDSKey.Builder()
+      .add(BUCKET_MARKER)
+      .append(prefix)
+      .add(invertTime(bucketTime))
+      .append(otherPrefix)
+      .build().getKey();
   }
 
-  private byte[] getStreamScanKey(StreamId stream, long time) {
-    long invertedStartTime = invertTime(time);
+  private byte[] getBucketColumn(ProgramRunId run, AccessType accessType, @Nullable NamespacedEntityId component) {
     MDSKey.Builder builder = new MDSKey.Builder();
-    addStream(builder, stream);
-    builder.add(invertedStartTime);
-
+    builder.add(run.getEntityName());
+    builder.add(accessType.getType());
+    addComponent(builder, component);
     return builder.build().getKey();
   }
 
-  private byte[] getStreamScanStartKey(StreamId stream, long end) {
-    // time is inverted, hence we need to have end time in start key.
-    // Since end time is exclusive, add 1 to make it inclusive.
-    return getStreamScanKey(stream, end + 1);
+  private MDSKey getDatasetPrefix(DatasetId datasetInstance) {
+    MDSKey.Builder builder = new MDSKey.Builder();
+    addDataset(builder, datasetInstance);
+    return builder.build();
   }
 
-  private byte[] getStreamScanEndKey(StreamId stream, long start) {
-    // time is inverted, hence we need to have start time in end key.
-    // Since start time is inclusive, subtract 1 to make it exclusive.
-    return getStreamScanKey(stream, start - 1);
+  private MDSKey getStreamPrefix(StreamId stream) {
+    MDSKey.Builder builder = new MDSKey.Builder();
+    addStream(builder, stream);
+    return builder.build();
   }
 
-  private byte[] getProgramScanKey(ProgramId program, long time) {
-    long invertedStartTime = invertTime(time);
+  private MDSKey getProgramPrefix(ProgramId program) {
     MDSKey.Builder builder = new MDSKey.Builder();
     addProgram(builder, program);
-    builder.add(invertedStartTime);
-
-    return builder.build().getKey();
+    return builder.build();
   }
 
-  private byte[] getProgramScanStartKey(ProgramId program, long end) {
-    // time is inverted, hence we need to have end time in start key.
-    // Since end time is exclusive, add 1 to make it inclusive.
-    return getProgramScanKey(program, end + 1);
+  private static long roundDownToBucket(long time) {
+    return time - ((time % BUCKET_SIZE_MILLIS) + BUCKET_SIZE_MILLIS) % BUCKET_SIZE_MILLIS;
   }
 
-  private byte[] getProgramScanEndKey(ProgramId program, long start) {
-    // time is inverted, hence we need to have start time in end key.
-    // Since start time is inclusive, subtract 1 to make it exclusive.
-    return getProgramScanKey(program, start - 1);
+  private static long roundUpToBucket(long time) {
+    long bucketTime = roundDownToBucket(time);
+    if (bucketTime == time) {
+      return time;
+    }
+    // Guard against overflow, e.g. when there is no bucket index
+    return bucketTime > Long.MAX_VALUE - BUCKET_SIZE_MILLIS ? Long.MAX_VALUE : bucketTime + BUCKET_SIZE_MILLIS;
   }
 
   private byte[] getRunScanStartKey(ProgramRunId run) {
@@ -502,33 +583,51 @@ public class LineageDataset extends AbstractDataset {
     AccessType accessType = AccessType.fromType((char) splitter.getInt());
     LOG.trace("Got access type {}", accessType);
 
-    DatasetId datasetInstance = (DatasetId) rowInfo.get(DATASET_MARKER);
-    LOG.trace("Got datasetInstance {}", datasetInstance);
-    StreamId stream = (StreamId) rowInfo.get(STREAM_MARKER);
-    LOG.trace("Got stream {}", stream);
-
     ProgramId program = (ProgramId) rowInfo.get(PROGRAM_MARKER);
     LOG.trace("Got program {}", program);
     NamespacedEntityId component = toComponent(splitter, program);
     LOG.trace("Got component {}", component);
 
-    if (stream == null) {
-      return new Relation(datasetInstance,
-                          program,
-                          accessType,
-                          runId,
-                          component == null ?
-                            ImmutableSet.<NamespacedEntityId>of() :
-                            ImmutableSet.of((NamespacedEntityId) component));
+    NamespacedEntityId data = rowInfo.containsKey(STREAM_MARKER) ?
+      (NamespacedEntityId) rowInfo.get(STREAM_MARKER) : (NamespacedEntityId) rowInfo.get(DATASET_MARKER);
+    LOG.trace("Got data {}", data);
+    return createRelation(data, program, accessType, runId, component);
+  }
+
+  private List<Relation> toBucketRelations(Row row) {
+    MDSKey.Splitter splitter = new MDSKey(row.getRow()).split();
+    splitter.skipInt(); // bucket marker
+
+    char marker = (char) splitter.getInt();
+    NamespacedEntityId id1 = toEntityId(splitter, marker);
+    splitter.skipLong(); // inverted bucket time - not required for relation
+    marker = (char) splitter.getInt();
+    NamespacedEntityId id2 = toEntityId(splitter, marker);
+
+    ProgramId program = (ProgramId) (id1 instanceof ProgramId ? id1 : id2);
+    NamespacedEntityId data = id1 instanceof ProgramId ? id2 : id1;
+
+    ImmutableList.Builder<Relation> relations = ImmutableList.builder();
+    for (byte[] column : row.getColumns().keySet()) {
+      MDSKey.Splitter columnSplitter = new MDSKey(column).split();
+      RunId runId = RunIds.fromString(columnSplitter.getString());
+      AccessType accessType = AccessType.fromType((char) columnSplitter.getInt());
+      NamespacedEntityId component = toComponent(columnSplitter, program);
+      relations.add(createRelation(data, program, accessType, runId, component));
     }
+    return relations.build();
+  }
 
-    return new Relation(stream,
-                        program,
-                        accessType,
-                        runId,
-                        component == null ?
-                          ImmutableSet.<NamespacedEntityId>of() :
-                          ImmutableSet.of((NamespacedEntityId) component));
+  private Relation createRelation(NamespacedEntityId data, ProgramId program, AccessType accessType, RunId runId,
+                                  @Nullable NamespacedEntityId component) {
+    Set<NamespacedEntityId> components = component == null ?
+      ImmutableSet.<NamespacedEntityId>of() :
+      ImmutableSet.of(component);
+
+    if (data instanceof StreamId) {
+      return new Relation((StreamId) data, program, accessType, runId, components);
+    }
+    return new Relation((DatasetId) data, program, accessType, runId, components);
   }
 
   private static final class RowKey {
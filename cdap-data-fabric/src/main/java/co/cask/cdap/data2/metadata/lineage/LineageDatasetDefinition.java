@@ -29,6 +29,7 @@ import co.cask.cdap.api.dataset.table.TableProperties;
 
 import java.io.IOException;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * {@link co.cask.cdap.api.dataset.DatasetDefinition} for {@link LineageDataset}.
@@ -37,20 +38,27 @@ public class LineageDatasetDefinition extends CompositeDatasetDefinition<Lineage
 
   public static final String ACCESS_REGISTRY_TABLE = "access_registry";
 
+  /**
+   * Property holding the time from which on all accesses are also recorded in the hourly bucket rows.
+   * It is set when the dataset instance is created or upgraded, and is preserved on later reconfigurations.
+   */
+  public static final String BUCKET_INDEX_START_MILLIS = "lineage.bucket.index.start.millis";
+
   public LineageDatasetDefinition(String name, DatasetDefinition<Table, ? extends DatasetAdmin> tableDefinition) {
     super(name, ACCESS_REGISTRY_TABLE, tableDefinition);
   }
 
   @Override
   public DatasetSpecification configure(String instanceName, DatasetProperties properties) {
-    return super.configure(instanceName, noConflictDetection(properties));
+    return super.configure(instanceName, withBucketIndexStart(noConflictDetection(properties), null));
   }
 
   @Override
   public DatasetSpecification reconfigure(String instanceName,
                                           DatasetProperties newProperties,
                                           DatasetSpecification currentSpec) throws IncompatibleUpdateException {
-    return super.reconfigure(instanceName, noConflictDetection(newProperties), currentSpec);
+    return super.reconfigure(instanceName, withBucketIndexStart(noConflictDetection(newProperties), currentSpec),
+                             currentSpec);
   }
 
   private DatasetProperties noConflictDetection(DatasetProperties properties) {
@@ -62,10 +70,29 @@ public class LineageDatasetDefinition extends CompositeDatasetDefinition<Lineage
       .build();
   }
 
+  private DatasetProperties withBucketIndexStart(DatasetProperties properties,
+                                                 @Nullable DatasetSpecification currentSpec) {
+    if (properties.getProperties().containsKey(BUCKET_INDEX_START_MILLIS)) {
+      return properties;
+    }
+    // Instances created before the bucket index existed only have bucket rows for runs started after the upgrade
+    String indexStart = currentSpec == null ? null : currentSpec.getProperty(BUCKET_INDEX_START_MILLIS);
+    if (indexStart == null) {
+      indexStart = Long.toString(System.currentTimeMillis());
+    }
+    return DatasetProperties.builder()
+      .addAll(properties.getProperties())
+      .add(BUCKET_INDEX_START_MILLIS, indexStart)
+      .build();
+  }
+
   @Override
   public LineageDataset getDataset(DatasetContext datasetContext, DatasetSpecification spec,
                                    Map<String, String> arguments, ClassLoader classLoader) throws IOException {
     Table table = getDataset(datasetContext, ACCESS_REGISTRY_TABLE, spec, arguments, classLoader);
-    return new LineageDataset(spec.getName(), table);
+    String indexStart = spec.getProperty(BUCKET_INDEX_START_MILLIS);
+    // Without the property, the instance was never upgraded and the bucket rows are not complete
+    return new LineageDataset(spec.getName(), table,
+                              indexStart == null ? Long.MAX_VALUE : Long.parseLong(indexStart));
   }
 }
@@ -39,12 +39,14 @@ import co.cask.cdap.proto.EntityScope;
 import co.cask.cdap.proto.audit.AuditType;
 import co.cask.cdap.proto.element.EntityTypeSimpleName;
 import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
 import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -67,8 +69,10 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 
 /**
  * Implementation of {@link MetadataStore} used in distributed mode.
@@ -86,12 +90,15 @@ public class DefaultMetadataStore implements MetadataStore {
   private static final String NEEDS_UPGRADE_TAG = "cdap.metadatadataset.needs_upgrade";
   private static final String VERSION_TAG_PREFIX = "cdap.version:";
 
-  private static final Comparator<Map.Entry<NamespacedEntityId, Integer>> SEARCH_RESULT_DESC_SCORE_COMPARATOR =
-    new Comparator<Map.Entry<NamespacedEntityId, Integer>>() {
+  // Orders weighted search results by descending score, with ties broken by the entity id so that the order
+  // is stable across requests, which is required for cursors
+  private static final Comparator<ScoredEntity> SEARCH_RESULT_DESC_SCORE_COMPARATOR =
+    new Comparator<ScoredEntity>() {
       @Override
-      public int compare(Map.Entry<NamespacedEntityId, Integer> o1, Map.Entry<NamespacedEntityId, Integer> o2) {
-        // sort in descending order
-        return o2.getValue() - o1.getValue();
+      public int compare(ScoredEntity o1, ScoredEntity o2) {
+        // sort in descending order of score
+        int cmp = Integer.compare(o2.score, o1.score);
+        return cmp != 0 ? cmp : o1.id.compareTo(o2.id);
       }
     };
 
@@ -416,6 +423,11 @@ public class DefaultMetadataStore implements MetadataStore {
       throw new IllegalArgumentException("limit must not be negative");
     }
 
+    if (SortInfo.SortOrder.WEIGHTED == sortInfo.getSortOrder()) {
+      return searchByWeight(scopes, namespaceId, searchQuery, types, sortInfo, offset, limit, numCursors, cursor,
+                            showHidden, entityScope);
+    }
+
     List<MetadataEntry> results = new LinkedList<>();
     List<String> cursors = new LinkedList<>();
     for (MetadataScope scope : scopes) {
@@ -426,14 +438,15 @@ public class DefaultMetadataStore implements MetadataStore {
       cursors.addAll(searchResults.getCursors());
     }
 
-    // sort if required
-    Set<NamespacedEntityId> sortedEntities = getSortedEntities(results, sortInfo);
+    // the backing storage is expected to return results in the expected order
+    Set<NamespacedEntityId> sortedEntities = new LinkedHashSet<>(results.size());
+    for (MetadataEntry metadataEntry : results) {
+      sortedEntities.add(metadataEntry.getTargetId());
+    }
     int total = sortedEntities.size();
 
-    // pagination is not performed at the dataset level, because:
-    // 1. scoring is needed for DEFAULT sort info. So perform it here for now.
-    // 2. Even when using custom sorting, we need to remove elements from the beginning to the offset and the cursors
-    //    at the end
+    // pagination is not performed at the dataset level, because even when using custom sorting,
+    // we need to remove elements from the beginning to the offset and the cursors at the end
     // TODO: Figure out how all of this can be done server (HBase) side
     int startIndex = Math.min(offset, sortedEntities.size());
     int endIndex = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit); // Account for overflow
@@ -472,33 +485,99 @@ public class DefaultMetadataStore implements MetadataStore {
       }, scope);
   }
 
-  private Set<NamespacedEntityId> getSortedEntities(List<MetadataEntry> results, SortInfo sortInfo) {
-    // if sort order is not weighted, return entities in the order received.
-    // in this case, the backing storage is expected to return results in the expected order.
-    if (SortInfo.SortOrder.WEIGHTED != sortInfo.getSortOrder()) {
-      Set<NamespacedEntityId> entities = new LinkedHashSet<>(results.size());
-      for (MetadataEntry metadataEntry : results) {
-        entities.add(metadataEntry.getTargetId());
+  /**
+   * Searches with the {@link SortInfo.SortOrder#WEIGHTED} sort order. Entities are scored using the default index
+   * only, and only the top {@code offset + (numCursors + 1) * limit} entities are kept while ranking, so that
+   * metadata is fetched just for the page being returned. Results are ordered by descending score, with ties
+   * ordered by entity id. Each cursor is of the form {@code <score>:<entity id>} and points at the first entity of
+   * a subsequent page.
+   */
+  private MetadataSearchResponse searchByWeight(Set<MetadataScope> scopes, final String namespaceId,
+                                                final String searchQuery, final Set<EntityTypeSimpleName> types,
+                                                SortInfo sortInfo, int offset, int limit, int numCursors,
+                                                @Nullable String cursor, final boolean showHidden,
+                                                final Set<EntityScope> entityScope) throws BadRequestException {
+    ScoredEntity start = Strings.isNullOrEmpty(cursor) ? null : parseCursor(cursor);
+
+    // Score results across all scopes
+    Map<NamespacedEntityId, Integer> scores = new HashMap<>();
+    for (MetadataScope scope : scopes) {
+      Map<NamespacedEntityId, Integer> scopeScores =
+        execute(new TransactionExecutor.Function<MetadataDataset, Map<NamespacedEntityId, Integer>>() {
+          @Override
+          public Map<NamespacedEntityId, Integer> apply(MetadataDataset input) throws Exception {
+            return input.scoreByDefaultIndex(namespaceId, searchQuery, types, showHidden, entityScope);
+          }
+        }, scope);
+      for (Map.Entry<NamespacedEntityId, Integer> entry : scopeScores.entrySet()) {
+        Integer score = scores.get(entry.getKey());
+        scores.put(entry.getKey(), score == null ? entry.getValue() : score + entry.getValue());
       }
-      return entities;
     }
-    // if sort order is weighted, score results by weight, and return in descending order of weights
-    // Score results
-    final Map<NamespacedEntityId, Integer> weightedResults = new HashMap<>();
-    for (MetadataEntry metadataEntry : results) {
-      Integer score = weightedResults.get(metadataEntry.getTargetId());
-      score = (score == null) ? 0 : score;
-      weightedResults.put(metadataEntry.getTargetId(), score + 1);
+    int total = scores.size();
+
+    // Keep the top fetchSize results in a min-heap ordered by the search result order
+    int fetchSize = (int) Math.min(Integer.MAX_VALUE, offset + (numCursors + 1) * (long) limit);
+    PriorityQueue<ScoredEntity> topResults =
+      new PriorityQueue<>(Math.max(1, Math.min(fetchSize, total)),
+                          Collections.reverseOrder(SEARCH_RESULT_DESC_SCORE_COMPARATOR));
+    for (Map.Entry<NamespacedEntityId, Integer> entry : scores.entrySet()) {
+      ScoredEntity scoredEntity = new ScoredEntity(entry.getKey(), entry.getValue());
+      // skip the results before the cursor
+      if (start != null && SEARCH_RESULT_DESC_SCORE_COMPARATOR.compare(scoredEntity, start) < 0) {
+        continue;
+      }
+      if (topResults.size() < fetchSize) {
+        topResults.add(scoredEntity);
+      } else if (fetchSize > 0 && SEARCH_RESULT_DESC_SCORE_COMPARATOR.compare(scoredEntity, topResults.peek()) < 0) {
+        topResults.poll();
+        topResults.add(scoredEntity);
+      }
+    }
+    List<ScoredEntity> sortedResults = new ArrayList<>(topResults);
+    Collections.sort(sortedResults, SEARCH_RESULT_DESC_SCORE_COMPARATOR);
+
+    int startIndex = Math.min(offset, sortedResults.size());
+    int endIndex = (int) Math.min(sortedResults.size(), (long) offset + limit); // Account for overflow
+    Set<NamespacedEntityId> page = new LinkedHashSet<>(endIndex - startIndex);
+    for (ScoredEntity scoredEntity : sortedResults.subList(startIndex, endIndex)) {
+      page.add(scoredEntity.entityId);
     }
 
-    // Sort the results by score
-    List<Map.Entry<NamespacedEntityId, Integer>> resultList = new ArrayList<>(weightedResults.entrySet());
-    Collections.sort(resultList, SEARCH_RESULT_DESC_SCORE_COMPARATOR);
-    Set<NamespacedEntityId> result = new LinkedHashSet<>(resultList.size());
-    for (Map.Entry<NamespacedEntityId, Integer> entry : resultList) {
-      result.add(entry.getKey());
+    // Each cursor points at the first result of the pages after the current one
+    List<String> cursors = new ArrayList<>(numCursors);
+    for (long i = (long) offset + limit; limit > 0 && i < sortedResults.size() && cursors.size() < numCursors;
+         i += limit) {
+      ScoredEntity scoredEntity = sortedResults.get((int) i);
+      cursors.add(scoredEntity.score + ":" + scoredEntity.id);
+    }
+
+    // Fetch metadata for entities in the result page
+    // Note: since the fetch is happening in a different transaction, the metadata for entities may have been
+    // removed. It is okay not to have metadata for some results in case this happens.
+    Map<NamespacedEntityId, Metadata> systemMetadata = fetchMetadata(page, MetadataScope.SYSTEM);
+    Map<NamespacedEntityId, Metadata> userMetadata = fetchMetadata(page, MetadataScope.USER);
+
+    return new MetadataSearchResponse(
+      sortInfo.getSortBy() + " " + sortInfo.getSortOrder(), offset, limit, numCursors, total,
+      addMetadataToEntities(page, systemMetadata, userMetadata), cursors, showHidden,
+      entityScope);
+  }
+
+  private ScoredEntity parseCursor(String cursor) throws BadRequestException {
+    int idx = cursor.indexOf(':');
+    if (idx <= 0) {
+      throw new BadRequestException(String.format("Invalid cursor '%s' for weighted search.", cursor));
+    }
+    try {
+      EntityId entityId = EntityId.fromString(cursor.substring(idx + 1));
+      if (!(entityId instanceof NamespacedEntityId)) {
+        throw new BadRequestException(String.format("Invalid cursor '%s' for weighted search.", cursor));
+      }
+      return new ScoredEntity((NamespacedEntityId) entityId, Integer.parseInt(cursor.substring(0, idx)));
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(String.format("Invalid cursor '%s' for weighted search.", cursor), e);
     }
-    return result;
   }
 
   private Map<NamespacedEntityId, Metadata> fetchMetadata(final Set<NamespacedEntityId> namespacedEntityIds,
@@ -742,4 +821,19 @@ public class DefaultMetadataStore implements MetadataStore {
   private String getTagWithVersion(String version) {
     return new String (VERSION_TAG_PREFIX + version);
   }
+
+  /**
+   * An entity with its search score.
+   */
+  private static final class ScoredEntity {
+    private final NamespacedEntityId entityId;
+    private final String id;
+    private final int score;
+
+    ScoredEntity(NamespacedEntityId entityId, int score) {
+      this.entityId = entityId;
+      this.id = entityId.toString();
+      this.score = score;
+    }
+  }
 }
@@ -98,13 +98,16 @@ public abstract class AbstractStreamFileConsumerFactory implements StreamConsume
     // TODO: Support dynamic writer instances discovery
     // Current assume it won't change and is based on cConf
     int instances = cConf.getInt(Constants.Stream.CONTAINER_INSTANCES);
+    int writerPartitions = cConf.getInt(Constants.Stream.WRITER_PARTITIONS);
     String filePrefix = cConf.get(Constants.Stream.FILE_PREFIX);
     for (int i = 0; i < instances; i++) {
-      // The actual file prefix is formed by file prefix in cConf + writer instance id
-      String streamFilePrefix = filePrefix + '.' + i;
-      Location eventLocation = StreamUtils.createStreamLocation(partitionLocation, streamFilePrefix,
-                                                                0, StreamFileType.EVENT);
-      fileOffsets.add(new StreamFileOffset(eventLocation, 0, generation));
+      // The actual file prefix is formed by file prefix in cConf + writer instance id + writer partition
+      for (int partition = 0; partition < writerPartitions; partition++) {
+        String streamFilePrefix = StreamUtils.getWriterPartitionFilePrefix(filePrefix + '.' + i, partition);
+        Location eventLocation = StreamUtils.createStreamLocation(partitionLocation, streamFilePrefix,
+                                                                  0, StreamFileType.EVENT);
+        fileOffsets.add(new StreamFileOffset(eventLocation, 0, generation));
+      }
     }
   }
 
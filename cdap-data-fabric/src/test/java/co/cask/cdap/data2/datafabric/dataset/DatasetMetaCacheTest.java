@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.proto.DatasetMeta;
+import co.cask.cdap.proto.DatasetModuleMeta;
+import co.cask.cdap.proto.DatasetTypeMeta;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.base.Ticker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link DatasetMetaCache}.
+ */
+public class DatasetMetaCacheTest {
+
+  private static final DatasetId DATASET_ID = NamespaceId.DEFAULT.dataset("ds");
+
+  @Test
+  public void testInvalidateWhileLoading() throws DatasetManagementException {
+    final DatasetMetaCache cache = new DatasetMetaCache(CConfiguration.create(), Ticker.systemTicker());
+    final AtomicInteger loads = new AtomicInteger();
+    DatasetMetaCache.Loader<DatasetMeta> loader = new DatasetMetaCache.Loader<DatasetMeta>() {
+      @Override
+      public DatasetMeta load() {
+        loads.incrementAndGet();
+        return createMeta();
+      }
+    };
+
+    // An update is processed after the loader fetched the old meta, hence the loaded meta must not be cached
+    DatasetMetaCache.Loader<DatasetMeta> invalidatedLoader = new DatasetMetaCache.Loader<DatasetMeta>() {
+      @Override
+      public DatasetMeta load() {
+        loads.incrementAndGet();
+        DatasetMeta meta = createMeta();
+        cache.invalidate(DATASET_ID);
+        return meta;
+      }
+    };
+    Assert.assertNotNull(cache.getInstance(DATASET_ID, null, null, invalidatedLoader));
+    Assert.assertEquals(1, loads.get());
+    Assert.assertNotNull(cache.getInstance(DATASET_ID, null, null, loader));
+    Assert.assertEquals(2, loads.get());
+
+    // Without a concurrent invalidation the loaded meta is cached
+    Assert.assertNotNull(cache.getInstance(DATASET_ID, null, null, loader));
+    Assert.assertEquals(2, loads.get());
+
+    // Invalidating the namespace while loading has the same effect
+    cache.invalidate(DATASET_ID);
+    Assert.assertNotNull(cache.getInstance(DATASET_ID, null, null, new DatasetMetaCache.Loader<DatasetMeta>() {
+      @Override
+      public DatasetMeta load() {
+        loads.incrementAndGet();
+        DatasetMeta meta = createMeta();
+        cache.invalidateTypes(NamespaceId.DEFAULT);
+        return meta;
+      }
+    }));
+    Assert.assertEquals(3, loads.get());
+    Assert.assertNotNull(cache.getInstance(DATASET_ID, null, null, loader));
+    Assert.assertEquals(4, loads.get());
+  }
+
+  private DatasetMeta createMeta() {
+    DatasetSpecification spec = DatasetSpecification.builder(DATASET_ID.getEntityName(), "type").build();
+    return new DatasetMeta(spec, new DatasetTypeMeta("type", Collections.<DatasetModuleMeta>emptyList()), null);
+  }
+}
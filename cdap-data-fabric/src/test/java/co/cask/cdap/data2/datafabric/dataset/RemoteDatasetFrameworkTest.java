@@ -17,6 +17,9 @@
 package co.cask.cdap.data2.datafabric.dataset;
 
 import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.lib.FileSet;
+import co.cask.cdap.api.dataset.lib.FileSetProperties;
 import co.cask.cdap.api.dataset.module.DatasetDefinitionRegistry;
 import co.cask.cdap.api.dataset.module.DatasetModule;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
@@ -27,6 +30,7 @@ import co.cask.cdap.common.discovery.RandomEndpointStrategy;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
+import co.cask.cdap.common.utils.Tasks;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiatorFactory;
 import co.cask.cdap.data.runtime.DynamicTransactionExecutorFactory;
 import co.cask.cdap.data2.datafabric.dataset.instance.DatasetInstanceManager;
@@ -47,6 +51,7 @@ import co.cask.cdap.data2.dataset2.DefaultDatasetDefinitionRegistry;
 import co.cask.cdap.data2.dataset2.InMemoryDatasetFramework;
 import co.cask.cdap.data2.dataset2.SimpleKVTable;
 import co.cask.cdap.data2.dataset2.SingleTypeModule;
+import co.cask.cdap.data2.dataset2.lib.file.FileSetModule;
 import co.cask.cdap.data2.dataset2.lib.table.CoreDatasetsModule;
 import co.cask.cdap.data2.dataset2.module.lib.inmemory.InMemoryTableModule;
 import co.cask.cdap.data2.metadata.store.NoOpMetadataStore;
@@ -56,7 +61,11 @@ import co.cask.cdap.data2.transaction.TransactionExecutorFactory;
 import co.cask.cdap.data2.transaction.TransactionSystemClientService;
 import co.cask.cdap.explore.client.DiscoveryExploreClient;
 import co.cask.cdap.explore.client.ExploreFacade;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.guice.MessagingServerRuntimeModule;
 import co.cask.cdap.proto.NamespaceMeta;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.DatasetModuleId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -68,9 +77,11 @@ import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
 import co.cask.http.HttpHandler;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.Service;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -90,7 +101,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.HashSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Tests for {@link RemoteDatasetFramework}
@@ -100,6 +113,9 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
   private DatasetOpExecutorService opExecutorService;
   private DatasetService service;
   private RemoteDatasetFramework framework;
+  private DiscoveryServiceClient discoveryServiceClient;
+  private AuthenticationContext authenticationContext;
+  private MessagingService messagingService;
 
   @Before
   public void before() throws Exception {
@@ -120,6 +136,7 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
       new AuthorizationEnforcementModule().getInMemoryModules(),
       new AuthenticationContextModules().getMasterModule(),
       new TransactionInMemoryModule(),
+      new MessagingServerRuntimeModule().getInMemoryModules(),
       new AbstractModule() {
         @Override
         protected void configure() {
@@ -140,9 +157,13 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     TransactionSystemClientService txSystemClientService = new DelegatingTransactionSystemClientService(txSystemClient);
 
     DiscoveryService discoveryService = injector.getInstance(DiscoveryService.class);
-    DiscoveryServiceClient discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
+    discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
     MetricsCollectionService metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
-    AuthenticationContext authenticationContext = injector.getInstance(AuthenticationContext.class);
+    authenticationContext = injector.getInstance(AuthenticationContext.class);
+    messagingService = injector.getInstance(MessagingService.class);
+    if (messagingService instanceof Service) {
+      ((Service) messagingService).startAndWait();
+    }
 
     framework = new RemoteDatasetFramework(cConf, discoveryServiceClient, registryFactory, authenticationContext);
     SystemDatasetInstantiatorFactory datasetInstantiatorFactory =
@@ -185,6 +206,7 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
       typeService, instanceManager, opExecutor, exploreFacade, namespaceQueryAdmin, ownerAdmin, authorizationEnforcer,
       privilegesManager, authenticationContext);
     instanceService.setAuditPublisher(inMemoryAuditPublisher);
+    instanceService.setMessagingService(cConf, messagingService);
 
     service = new DatasetService(cConf, discoveryService, discoveryServiceClient, metricsCollectionService,
                                  new InMemoryDatasetOpExecutor(framework), new HashSet<DatasetMetricsReporter>(),
@@ -229,6 +251,119 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     }
   }
 
+  @Test
+  public void testMetaCacheStaleReadBound() throws Exception {
+    final AtomicLong nanos = new AtomicLong();
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return nanos.get();
+      }
+    };
+    // Another client that caches the instance metadata. Without a messaging service it is not notified
+    // about changes made by other clients, hence the staleness is bound by the cache TTL.
+    RemoteDatasetFramework cachingFramework = new RemoteDatasetFramework(cConf, discoveryServiceClient,
+                                                                         registryFactory, authenticationContext,
+                                                                         ticker);
+    long ttlNanos = TimeUnit.SECONDS.toNanos(cConf.getLong(Constants.Dataset.CLIENT_META_CACHE_TTL_SECS));
+
+    DatasetModuleId fileModule = NAMESPACE_ID.datasetModule("file");
+    DatasetId fileSet = NAMESPACE_ID.dataset("cachedFileSet");
+    framework.addModule(fileModule, new FileSetModule());
+    String basePath1 = TMP_FOLDER.newFolder().getPath();
+    String basePath2 = TMP_FOLDER.newFolder().getPath();
+    String basePath3 = TMP_FOLDER.newFolder().getPath();
+    framework.addInstance(FileSet.class.getName(), fileSet,
+                          FileSetProperties.builder().setBasePath(basePath1).setDataExternal(true).build());
+    try {
+      Assert.assertEquals(basePath1, getBasePath(cachingFramework, fileSet));
+
+      // Updated through another client, the cached spec is served until it expires
+      framework.updateInstance(fileSet,
+                               FileSetProperties.builder().setBasePath(basePath2).setDataExternal(true).build());
+      Assert.assertEquals(basePath2, getBasePath(framework, fileSet));
+      nanos.addAndGet(ttlNanos - 1);
+      Assert.assertEquals(basePath1, getBasePath(cachingFramework, fileSet));
+      nanos.addAndGet(1);
+      Assert.assertEquals(basePath2, getBasePath(cachingFramework, fileSet));
+
+      // Updated through the caching client, the change is seen immediately
+      cachingFramework.updateInstance(fileSet,
+                                      FileSetProperties.builder().setBasePath(basePath3).setDataExternal(true).build());
+      Assert.assertEquals(basePath3, getBasePath(cachingFramework, fileSet));
+
+      // Deleted through another client, the instance is gone once the cached spec expires
+      framework.deleteInstance(fileSet);
+      Assert.assertTrue(cachingFramework.hasInstance(fileSet));
+      nanos.addAndGet(ttlNanos);
+      Assert.assertFalse(cachingFramework.hasInstance(fileSet));
+    } finally {
+      if (framework.hasInstance(fileSet)) {
+        framework.deleteInstance(fileSet);
+      }
+      framework.deleteModule(fileModule);
+    }
+  }
+
+  @Test
+  public void testMetaCacheInvalidation() throws Exception {
+    // The ticker never advances, hence cached entries only change through the invalidations
+    // published by the dataset service
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return 0L;
+      }
+    };
+    final RemoteDatasetFramework cachingFramework = new RemoteDatasetFramework(cConf, discoveryServiceClient,
+                                                                               registryFactory, authenticationContext,
+                                                                               ticker);
+    cachingFramework.setMessagingService(messagingService);
+
+    DatasetModuleId fileModule = NAMESPACE_ID.datasetModule("file");
+    final DatasetId fileSet = NAMESPACE_ID.dataset("invalidatedFileSet");
+    framework.addModule(fileModule, new FileSetModule());
+    String basePath1 = TMP_FOLDER.newFolder().getPath();
+    String basePath2 = TMP_FOLDER.newFolder().getPath();
+    framework.addInstance(FileSet.class.getName(), fileSet,
+                          FileSetProperties.builder().setBasePath(basePath1).setDataExternal(true).build());
+    try {
+      Assert.assertEquals(basePath1, getBasePath(cachingFramework, fileSet));
+
+      // Updated through another client, the cached spec is invalidated without waiting for the TTL
+      framework.updateInstance(fileSet,
+                               FileSetProperties.builder().setBasePath(basePath2).setDataExternal(true).build());
+      Tasks.waitFor(basePath2, new Callable<String>() {
+        @Override
+        public String call() throws Exception {
+          return getBasePath(cachingFramework, fileSet);
+        }
+      }, 10, TimeUnit.SECONDS);
+
+      // Deleted through another client, the instance is gone without waiting for the TTL
+      framework.deleteInstance(fileSet);
+      Tasks.waitFor(false, new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+          return cachingFramework.hasInstance(fileSet);
+        }
+      }, 10, TimeUnit.SECONDS);
+    } finally {
+      cachingFramework.close();
+      if (framework.hasInstance(fileSet)) {
+        framework.deleteInstance(fileSet);
+      }
+      framework.deleteModule(fileModule);
+    }
+  }
+
+  private String getBasePath(DatasetFramework datasetFramework,
+                             DatasetId datasetId) throws DatasetManagementException {
+    DatasetSpecification spec = datasetFramework.getDatasetSpec(datasetId);
+    Assert.assertNotNull(spec);
+    return FileSetProperties.getBasePath(spec.getProperties());
+  }
+
   private void createNamespace (NamespaceId namespaceId) throws Exception {
     // since the namespace admin here is an in memory one we need to create the location explicitly
     namespacedLocationFactory.get(namespaceId).mkdirs();
@@ -249,6 +384,9 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     deleteNamespace(NAMESPACE_ID);
     deleteNamespace(NamespaceId.SYSTEM);
     Futures.getUnchecked(Services.chainStop(service, opExecutorService, txManager));
+    if (messagingService instanceof Service) {
+      ((Service) messagingService).stopAndWait();
+    }
   }
 
   @Override
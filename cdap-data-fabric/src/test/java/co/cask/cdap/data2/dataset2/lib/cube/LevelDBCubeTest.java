@@ -0,0 +1,237 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.guice.ConfigModule;
+import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
+import co.cask.cdap.common.guice.NonCustomLocationUnitTestModule;
+import co.cask.cdap.data.runtime.DataFabricLevelDBModule;
+import co.cask.cdap.data.runtime.DataSetsModules;
+import co.cask.cdap.data.runtime.SystemDatasetRuntimeModule;
+import co.cask.cdap.data.runtime.TransactionMetricsModule;
+import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
+import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactScan;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.security.auth.context.AuthenticationContextModules;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
+import co.cask.cdap.security.authorization.AuthorizationTestModule;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link DefaultCube} backed by LevelDB tables, with queries executed by concurrent scans.
+ */
+public class LevelDBCubeTest extends AbstractCubeTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LevelDBCubeTest.class);
+  private static final int QUERY_PARALLELISM = 4;
+
+  @ClassRule
+  public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static DatasetFramework dsFramework;
+  private static ExecutorService queryExecutor;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    CConfiguration conf = CConfiguration.create();
+    conf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    Injector injector = Guice.createInjector(
+      new ConfigModule(conf),
+      new NonCustomLocationUnitTestModule().getModule(),
+      new AuthorizationTestModule(),
+      new AuthorizationEnforcementModule().getInMemoryModules(),
+      new AuthenticationContextModules().getMasterModule(),
+      new DiscoveryRuntimeModule().getStandaloneModules(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new DataSetsModules().getInMemoryModules(),
+      new DataFabricLevelDBModule(),
+      new TransactionMetricsModule());
+
+    dsFramework = injector.getInstance(DatasetFramework.class);
+    queryExecutor = Executors.newFixedThreadPool(QUERY_PARALLELISM);
+  }
+
+  @AfterClass
+  public static void finish() {
+    queryExecutor.shutdownNow();
+  }
+
+  @Override
+  protected Cube getCube(String name, int[] resolutions, Map<String, ? extends Aggregation> aggregations) {
+    return new DefaultCube(resolutions, createFactTableSupplier(name), aggregations,
+                           ImmutableMap.<String, AggregationAlias>of(), null, queryExecutor, QUERY_PARALLELISM);
+  }
+
+  @Test
+  public void testSplitScan() throws Exception {
+    FactTable table = createFactTableSupplier("splitScan").get(60, 3600);
+
+    // Scan within one time base is not split
+    FactScan scan = new FactScan(100, 3000, ImmutableList.<DimensionValue>of());
+    Assert.assertEquals(1, table.splitScan(scan, QUERY_PARALLELISM).size());
+
+    // Splits are aligned with the time bases and cover the whole time range
+    scan = new FactScan(100, 3600 * 10 + 100, ImmutableList.<DimensionValue>of());
+    List<FactScan> splits = table.splitScan(scan, QUERY_PARALLELISM);
+    Assert.assertEquals(QUERY_PARALLELISM, splits.size());
+    long startTs = scan.getStartTs();
+    for (FactScan split : splits) {
+      Assert.assertEquals(startTs, split.getStartTs());
+      Assert.assertTrue(split.getEndTs() >= split.getStartTs());
+      if (split.getEndTs() != scan.getEndTs()) {
+        Assert.assertEquals(0, (split.getEndTs() + 1) % 3600);
+      }
+      startTs = split.getEndTs() + 1;
+    }
+    Assert.assertEquals(scan.getEndTs() + 1, startTs);
+  }
+
+  /**
+   * Compares the results and the time of queries executed with a single scan and with concurrent scans over
+   * data that spans many rows of time.
+   */
+  @Test
+  public void testParallelQuery() throws Exception {
+    String name = "parallelQuery";
+    Map<String, Aggregation> aggregations = ImmutableMap.<String, Aggregation>of(
+      "agg", new DefaultAggregation(ImmutableList.of("dim1", "dim2")));
+    int[] resolutions = new int[] {1};
+    Cube parallelCube = new DefaultCube(resolutions, createFactTableSupplier(name), aggregations,
+                                        ImmutableMap.<String, AggregationAlias>of(), null,
+                                        queryExecutor, QUERY_PARALLELISM);
+    Cube sequentialCube = new DefaultCube(resolutions, createFactTableSupplier(name), aggregations,
+                                          ImmutableMap.<String, AggregationAlias>of());
+
+    // 24 hours of data, one row of time per hour
+    long endTs = TimeUnit.HOURS.toSeconds(24);
+    List<CubeFact> facts = new ArrayList<>();
+    for (long ts = 0; ts < endTs; ts += 10) {
+      for (int dim = 0; dim < 4; dim++) {
+        facts.add(new CubeFact(ts)
+                    .addDimensionValues(ImmutableMap.of("dim1", "d" + dim, "dim2", "d" + (ts % 3)))
+                    .addMeasurement("count", MeasureType.COUNTER, 1L)
+                    .addMeasurement("gauge", MeasureType.GAUGE, ts + dim));
+      }
+      if (facts.size() >= 1000) {
+        parallelCube.add(facts);
+        facts.clear();
+      }
+    }
+    parallelCube.add(facts);
+
+    List<CubeQuery> queries = ImmutableList.of(
+      createQuery("count", AggregationFunction.SUM, 0, endTs, ImmutableMap.<String, String>of(),
+                  ImmutableList.of("dim1")),
+      createQuery("gauge", AggregationFunction.LATEST, 0, endTs, ImmutableMap.<String, String>of(),
+                  ImmutableList.of("dim2")),
+      createQuery("gauge", AggregationFunction.MAX, 5000, endTs - 5000, ImmutableMap.of("dim1", "d1"),
+                  ImmutableList.<String>of()),
+      createQuery("count", AggregationFunction.SUM, 5000, 6000, ImmutableMap.of("dim2", "d2"),
+                  ImmutableList.<String>of()));
+
+    for (CubeQuery query : queries) {
+      Collection<TimeSeries> expected = sequentialCube.query(query);
+      Collection<TimeSeries> actual = parallelCube.query(query);
+      Assert.assertFalse(expected.isEmpty());
+      Assert.assertEquals(Sets.newHashSet(expected), Sets.newHashSet(actual));
+    }
+
+    // Not a real benchmark, but gives an idea of the gain
+    int iterations = 10;
+    for (Cube cube : ImmutableList.of(sequentialCube, parallelCube)) {
+      long startTime = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        for (CubeQuery query : queries) {
+          cube.query(query);
+        }
+      }
+      long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+      LOG.info("{} queries executed in {} ms with {}", iterations * queries.size(), elapsed,
+               cube == parallelCube ? QUERY_PARALLELISM + " concurrent scans" : "single scan");
+    }
+  }
+
+  private CubeQuery createQuery(String measureName, AggregationFunction function, long startTs, long endTs,
+                                Map<String, String> dimValues, List<String> groupByDims) {
+    return CubeQuery.builder()
+      .select()
+        .measurement(measureName, function)
+      .from(null).resolution(1, TimeUnit.SECONDS)
+      .where()
+        .dimensions(dimValues)
+        .timeRange(startTs, endTs)
+      .groupBy()
+        .dimensions(groupByDims)
+      .limit(Integer.MAX_VALUE)
+      .build();
+  }
+
+  private FactTableSupplier createFactTableSupplier(final String name) {
+    return new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        return new FactTable(getTable("DataTable-" + name + "-" + resolution),
+                             new EntityTable(getTable("EntityTable-" + name)), resolution, rollTime);
+      }
+    };
+  }
+
+  private MetricsTable getTable(String name) {
+    try {
+      return DatasetsUtil.getOrCreateDataset(dsFramework, NamespaceId.SYSTEM.dataset(name),
+                                             MetricsTable.class.getName(), DatasetProperties.EMPTY, null);
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
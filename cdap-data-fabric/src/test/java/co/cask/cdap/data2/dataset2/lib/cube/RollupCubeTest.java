@@ -0,0 +1,248 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link DefaultCube} with roll up enabled. The tests inherited from {@link AbstractCubeTest} never
+ * roll up, hence queries against coarser resolutions are answered from the finest resolution only.
+ */
+public class RollupCubeTest extends AbstractCubeTest {
+
+  private final Map<Integer, Long> checkpoints = new ConcurrentHashMap<>();
+  // Checkpoints returned as cached if they differ from the latest ones
+  private final Map<Integer, Long> cachedCheckpoints = new ConcurrentHashMap<>();
+  private final AtomicLong maxRolledUpTs = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicInteger latestReads = new AtomicInteger();
+
+  @Override
+  protected Cube getCube(final String name, int[] resolutions, Map<String, ? extends Aggregation> aggregations) {
+    FactTableSupplier supplier = new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        String entityTableName = "RollupEntityTable-" + name;
+        InMemoryTableService.create(entityTableName);
+        String dataTableName = "RollupDataTable-" + name + "-" + resolution;
+        InMemoryTableService.create(dataTableName);
+        return new FactTable(new InMemoryMetricsTable(dataTableName),
+                             new EntityTable(new InMemoryMetricsTable(entityTableName)),
+                             resolution, rollTime);
+      }
+    };
+
+    return new DefaultCube(resolutions, supplier, aggregations, ImmutableMap.<String, AggregationAlias>of(),
+                           new RollupCheckpoints() {
+                             @Override
+                             public long getRolledUpTs(int resolution) {
+                               Long ts = cachedCheckpoints.get(resolution);
+                               return ts == null ? getCheckpoint(resolution) : ts;
+                             }
+
+                             @Override
+                             public long getLatestRolledUpTs(int resolution) {
+                               latestReads.incrementAndGet();
+                               return getCheckpoint(resolution);
+                             }
+
+                             @Override
+                             public long getMaxRolledUpTs() {
+                               return maxRolledUpTs.get();
+                             }
+                           });
+  }
+
+  @Test
+  public void testRollup() throws Exception {
+    int res1 = 1;
+    int res100 = 100;
+    DefaultCube cube = createRollupCube("myRollupCube", res1, res100);
+    writeFacts(cube);
+
+    // Nothing rolled up yet, the coarser resolution is computed from the finest one
+    verifyRollupQueries(cube, res100, 0);
+
+    // Roll up the first time bucket, which aggregates the facts of each series in the bucket
+    Assert.assertEquals(7, cube.rollup(res100, 0, 100));
+    checkpoints.put(res100, 100L);
+    verifyRollupQueries(cube, res100, 0);
+
+    Assert.assertEquals(4, cube.rollup(res100, 100, 200));
+    checkpoints.put(res100, 200L);
+    verifyRollupQueries(cube, res100, 0);
+
+    // Only whole time buckets can be rolled up
+    try {
+      cube.rollup(res100, 200, 250);
+      Assert.fail("Expected failure when rolling up a range not aligned with the resolution");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // Cannot roll up into the finest resolution
+    try {
+      cube.rollup(res1, 0, 100);
+      Assert.fail("Expected failure when rolling up into the finest resolution");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLateFact() throws Exception {
+    int res1 = 1;
+    int res100 = 100;
+    DefaultCube cube = createRollupCube("myLateFactCube", res1, res100);
+
+    // Before roll up starts, facts are written to the coarser resolution directly
+    checkpoints.put(res100, -1L);
+    writeFacts(cube);
+    verifyRollupQueries(cube, res100, 0);
+
+    // Start rolling up from a later time bucket, facts before it are still written directly
+    Assert.assertEquals(0, cube.rollup(res100, 300, 300));
+    checkpoints.put(res100, 300L);
+    writeInc(cube, "counter", 99, 10, "1", "1");
+    verifyRollupQueries(cube, res100, 10);
+
+    // Facts arriving after their time bucket has been rolled up are written to the coarser resolution directly
+    DefaultCube rolledUpCube = createRollupCube("myRolledUpLateFactCube", res1, res100);
+    writeFacts(rolledUpCube);
+    Assert.assertEquals(7, rolledUpCube.rollup(res100, 0, 100));
+    checkpoints.put(res100, 100L);
+    writeInc(rolledUpCube, "counter", 99, 10, "1", "1");
+    verifyRollupQueries(rolledUpCube, res100, 10);
+
+    // Rolling up the following time bucket doesn't change the late fact
+    Assert.assertEquals(4, rolledUpCube.rollup(res100, 100, 200));
+    checkpoints.put(res100, 200L);
+    verifyRollupQueries(rolledUpCube, res100, 10);
+  }
+
+  @Test
+  public void testRetriedRollup() throws Exception {
+    int res1 = 1;
+    int res100 = 100;
+    DefaultCube cube = createRollupCube("myRetriedRollupCube", res1, res100);
+    writeFacts(cube);
+
+    Assert.assertEquals(7, cube.rollup(res100, 0, 100));
+    checkpoints.put(res100, 100L);
+
+    // Roll up without saving the checkpoint, as if it failed. The partially rolled up bucket is ignored by queries.
+    Assert.assertEquals(4, cube.rollup(res100, 100, 200));
+    verifyRollupQueries(cube, res100, 0);
+
+    // Retrying the roll up overwrites the time bucket instead of adding to it
+    Assert.assertEquals(4, cube.rollup(res100, 100, 200));
+    checkpoints.put(res100, 200L);
+    verifyRollupQueries(cube, res100, 0);
+
+    // So does rolling up a time bucket again after saving the checkpoint
+    Assert.assertEquals(7, cube.rollup(res100, 0, 100));
+    verifyRollupQueries(cube, res100, 0);
+  }
+
+  @Test
+  public void testStaleCheckpoint() throws Exception {
+    int res1 = 1;
+    int res100 = 100;
+    DefaultCube cube = createRollupCube("myStaleCheckpointCube", res1, res100);
+    writeFacts(cube);
+    Assert.assertEquals(7, cube.rollup(res100, 0, 100));
+    checkpoints.put(res100, 100L);
+    // The cube has not seen the latest checkpoint yet, which cannot be later than 200
+    cachedCheckpoints.put(res100, 0L);
+    maxRolledUpTs.set(200L);
+
+    // Facts after the highest possible checkpoint are not late, hence the latest checkpoint is not read
+    latestReads.set(0);
+    writeInc(cube, "counter", 350, 1, "1", "1");
+    Assert.assertEquals(0, latestReads.get());
+
+    // A fact between the cached and the highest possible checkpoint may be late, hence the latest checkpoint is read
+    writeInc(cube, "counter", 99, 10, "1", "1");
+    Assert.assertEquals(1, latestReads.get());
+    verifyRollupQueries(cube, res100, 10);
+
+    // The late fact was written to the coarser resolution directly
+    cachedCheckpoints.clear();
+    verifyRollupQueries(cube, res100, 10);
+  }
+
+  private long getCheckpoint(int resolution) {
+    Long ts = checkpoints.get(resolution);
+    return ts == null ? 0L : ts;
+  }
+
+  private DefaultCube createRollupCube(String name, int... resolutions) {
+    Aggregation agg1 = new DefaultAggregation(ImmutableList.of("dim1"));
+    Aggregation agg2 = new DefaultAggregation(ImmutableList.of("dim1", "dim2"));
+    return (DefaultCube) getCube(name, resolutions, ImmutableMap.of("agg1", agg1, "agg2", agg2));
+  }
+
+  private void writeFacts(Cube cube) throws Exception {
+    writeInc(cube, "counter",  1,  1,  "1",  "1");
+    writeInc(cube, "counter",  1,  2,  "2",  "1");
+    writeInc(cube, "counter",  50,  3,  "1",  "2");
+    writeInc(cube, "counter",  101,  4,  "1",  "1");
+    writeInc(cube, "counter",  150,  5,  "1",  "1");
+    writeGauge(cube, "gauge", 1, 1, "1", "1");
+    writeGauge(cube, "gauge", 10, 2, "1", "1");
+    writeGauge(cube, "gauge", 101, 3, "1", "1");
+  }
+
+  /**
+   * Verifies queries of the facts written by {@link #writeFacts(Cube)}, plus the given late count of the series
+   * {dim1=1, dim2=1} in the first time bucket.
+   */
+  private void verifyRollupQueries(Cube cube, int resolution, long lateCount) throws Exception {
+    verifyCountQuery(cube, 0, 200, resolution, "counter", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("counter", new HashMap<String, String>(),
+                                                     timeValues(0, 4 + lateCount, 100, 9))));
+
+    verifyCountQuery(cube, 0, 200, resolution, "counter", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.of("dim2"),
+                     ImmutableList.of(new TimeSeries("counter", ImmutableMap.of("dim2", "1"),
+                                                     timeValues(0, 1 + lateCount, 100, 9)),
+                                      new TimeSeries("counter", ImmutableMap.of("dim2", "2"),
+                                                     timeValues(0, 3))));
+
+    verifyCountQuery(cube, 0, 200, resolution, "gauge", AggregationFunction.LATEST,
+                     ImmutableMap.of("dim1", "1", "dim2", "1"), ImmutableList.<String>of(),
+                     ImmutableList.of(new TimeSeries("gauge", new HashMap<String, String>(),
+                                                     timeValues(0, 2, 100, 3))));
+  }
+}
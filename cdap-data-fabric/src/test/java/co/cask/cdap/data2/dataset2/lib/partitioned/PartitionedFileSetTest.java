@@ -32,6 +32,7 @@ import co.cask.cdap.api.dataset.lib.Partitioning;
 import co.cask.cdap.api.dataset.table.TableProperties;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.data2.dataset2.DatasetFrameworkTestUtil;
+import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.test.SlowTests;
 import com.google.common.collect.ImmutableMap;
@@ -180,6 +181,92 @@ public class PartitionedFileSetTest {
     PartitionedFileSetDataset.parseRowKey(rowKey, PARTITIONING_2);
   }
 
+  @Test
+  public void testFuzzyRowFilter() {
+    // no fuzzy filter if all conditions are covered by the start and stop key
+    Assert.assertNull(PartitionedFileSetDataset.generateFuzzyRowFilter(null, PARTITIONING_1));
+    Assert.assertNull(PartitionedFileSetDataset.generateFuzzyRowFilter(
+      PartitionFilter.builder().addValueCondition("s", "x").addValueCondition("i", -1).build(), PARTITIONING_1));
+    Assert.assertNull(PartitionedFileSetDataset.generateFuzzyRowFilter(
+      PartitionFilter.builder().addValueCondition("s", "x").addRangeCondition("i", 1, 5).build(), PARTITIONING_1));
+    // no fuzzy filter if the position of the field in the row key is not known
+    Assert.assertNull(PartitionedFileSetDataset.generateFuzzyRowFilter(
+      PartitionFilter.builder().addValueCondition("i", -1).build(), PARTITIONING_1));
+
+    // the value of i can be anything
+    FuzzyRowFilter fuzzyRowFilter = PartitionedFileSetDataset.generateFuzzyRowFilter(
+      PartitionFilter.builder().addValueCondition("s", "x").addValueCondition("l", 17L).build(), PARTITIONING_1);
+    Assert.assertNotNull(fuzzyRowFilter);
+    Assert.assertEquals(FuzzyRowFilter.ReturnCode.INCLUDE, fuzzyRowFilter.filterRow(
+      PartitionedFileSetDataset.generateRowKey(PARTITION_KEY, PARTITIONING_1)));
+    Assert.assertEquals(FuzzyRowFilter.ReturnCode.INCLUDE, fuzzyRowFilter.filterRow(
+      PartitionedFileSetDataset.generateRowKey(
+        PartitionKey.builder().addStringField("s", "x").addIntField("i", 42).addLongField("l", 17L).build(),
+        PARTITIONING_1)));
+    Assert.assertNotEquals(FuzzyRowFilter.ReturnCode.INCLUDE, fuzzyRowFilter.filterRow(
+      PartitionedFileSetDataset.generateRowKey(
+        PartitionKey.builder().addStringField("s", "x").addIntField("i", 42).addLongField("l", 18L).build(),
+        PARTITIONING_1)));
+    Assert.assertNotEquals(FuzzyRowFilter.ReturnCode.INCLUDE, fuzzyRowFilter.filterRow(
+      PartitionedFileSetDataset.generateRowKey(
+        PartitionKey.builder().addStringField("s", "y").addIntField("i", 42).addLongField("l", 17L).build(),
+        PARTITIONING_1)));
+  }
+
+  @Test
+  public void testGetPartitionsWithNonLeadingFilter() throws Exception {
+    final PartitionedFileSet dataset = dsFrameworkUtil.getInstance(pfsInstance);
+    final Set<PartitionKey> expectedKeys = new HashSet<>();
+    final Set<PartitionKey> expectedRangeKeys = new HashSet<>();
+
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (String s : new String[] { "a", "b" }) {
+          for (int i = 0; i < 10; i++) {
+            for (long l = 0; l < 5; l++) {
+              PartitionKey key = PartitionKey.builder()
+                .addStringField("s", s).addIntField("i", i).addLongField("l", l).build();
+              dataset.getPartitionOutput(key).addPartition();
+              if ("b".equals(s) && l == 3L) {
+                expectedKeys.add(key);
+                if (i >= 2 && i < 5) {
+                  expectedRangeKeys.add(key);
+                }
+              }
+            }
+          }
+        }
+      }
+    });
+
+    dsFrameworkUtil.newTransactionExecutor((TransactionAware) dataset).execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        PartitionFilter filter = PartitionFilter.builder()
+          .addValueCondition("s", "b")
+          .addValueCondition("l", 3L)
+          .build();
+        Set<PartitionKey> keys = new HashSet<>();
+        for (PartitionDetail partitionDetail : dataset.getPartitions(filter)) {
+          keys.add(partitionDetail.getPartitionKey());
+        }
+        Assert.assertEquals(expectedKeys, keys);
+
+        filter = PartitionFilter.builder()
+          .addValueCondition("s", "b")
+          .addRangeCondition("i", 2, 5)
+          .addValueCondition("l", 3L)
+          .build();
+        keys.clear();
+        for (PartitionDetail partitionDetail : dataset.getPartitions(filter)) {
+          keys.add(partitionDetail.getPartitionKey());
+        }
+        Assert.assertEquals(expectedRangeKeys, keys);
+      }
+    });
+  }
+
   @Test
   public void testMetadataForNonexistentPartition() throws Exception {
     PartitionedFileSet pfs = dsFrameworkUtil.getInstance(pfsInstance);
@@ -19,12 +19,15 @@ package co.cask.cdap.data2.dataset2.lib.table;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.api.dataset.table.TableProperties;
+import co.cask.cdap.api.metrics.MetricsCollector;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.dataset2.TableAssert;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -502,6 +505,155 @@ public abstract class BufferingTableTest<T extends BufferingTable> extends Table
     }
   }
 
+  @Test
+  public void testBufferedDeletesAndLookups() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try {
+      BufferingTable table = getTable(CONTEXT1, MY_TABLE);
+      Transaction tx1 = txClient.startShort();
+      table.startTx(tx1);
+      table.put(R1, a(C1, C2, C3, C4), lb(1, 2, 3, 4));
+      Assert.assertTrue(txClient.canCommit(tx1, table.getTxChanges()));
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(txClient.commit(tx1));
+      table.postTxCommit();
+
+      Transaction tx2 = txClient.startShort();
+      table.startTx(tx2);
+      // buffer looks like the following, with c4 only persisted
+      //          c1       c2       c3      c4    c5
+      // r1       delete   delete   +10     -     5
+      table.delete(R1, C1);
+      table.put(R1, a(C2, C5), new byte[][] {null, L5});
+      table.increment(R1, C3, 10L);
+      byte[] incremented = Bytes.toBytes(13L);
+
+      // the whole row merges the buffer on top of the persisted values
+      TableAssert.assertRow(a(C3, incremented, C4, L4, C5, L5), table.get(R1));
+      // columns are looked up in the buffer first, and in the persisted table if not buffered or incremented
+      TableAssert.assertRow(a(C3, incremented, C4, L4, C5, L5), table.get(R1, a(C1, C2, C3, C4, C5)));
+      TableAssert.assertRow(a(C4, L4), table.get(R1, a(C1, C4)));
+      TableAssert.assertRow(a(), table.get(R1, a(C1, C2)));
+      Assert.assertNull(table.get(R1, C1));
+      Assert.assertArrayEquals(L4, table.get(R1, C4));
+
+      List<Row> rows = table.get(Lists.newArrayList(new Get(R1), new Get(R1, C1, C2), new Get(R1, C2, C4)));
+      Assert.assertEquals(3, rows.size());
+      TableAssert.assertRow(rows.get(0), R1, a(C3, C4, C5), a(incremented, L4, L5));
+      Assert.assertTrue(rows.get(1).isEmpty());
+      TableAssert.assertRow(rows.get(2), R1, a(C4), a(L4));
+
+      // changing the returned maps does not affect the buffer
+      table.get(R1).getColumns().clear();
+      rows.get(0).getColumns().clear();
+      TableAssert.assertRow(a(C3, incremented, C4, L4, C5, L5), table.get(R1));
+
+      // writing a deleted column again does not affect the other deleted columns
+      table.put(R1, C1, L1);
+      TableAssert.assertRow(a(C1, L1, C3, incremented, C4, L4, C5, L5), table.get(R1));
+      TableAssert.assertRow(a(C1, L1), table.get(R1, a(C1, C2)));
+      table.delete(R1, C5);
+      TableAssert.assertRow(a(C1, L1, C3, incremented, C4, L4), table.get(R1));
+
+      Assert.assertTrue(txClient.canCommit(tx2, table.getTxChanges()));
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(txClient.commit(tx2));
+      table.postTxCommit();
+
+      // the buffered deletes are persisted
+      Transaction tx3 = txClient.startShort();
+      table.startTx(tx3);
+      TableAssert.assertRow(a(C1, L1, C3, incremented, C4, L4), table.get(R1));
+      TableAssert.assertRow(a(C4, L4), table.get(R1, a(C2, C4, C5)));
+    } finally {
+      admin.drop();
+    }
+  }
+
+  @Test
+  public void testNegativeLookups() throws Exception {
+    DatasetProperties props = TableProperties.builder()
+      .setConflictDetection(ConflictDetection.ROW)
+      .add(BufferingTable.PROPERTY_NEGATIVE_LOOKUPS, "true")
+      .build();
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE, props);
+    admin.create();
+    try {
+      BufferingTable table = getTable(CONTEXT1, MY_TABLE, props);
+      final Map<String, Long> metrics = Maps.newHashMap();
+      table.setMetricsCollector(new MetricsCollector() {
+        @Override
+        public void increment(String metricName, long value) {
+          Long current = metrics.get(metricName);
+          metrics.put(metricName, current == null ? value : current + value);
+        }
+
+        @Override
+        public void gauge(String metricName, long value) {
+          metrics.put(metricName, value);
+        }
+      });
+
+      Transaction tx1 = txClient.startShort();
+      table.startTx(tx1);
+      table.put(R1, a(C1, C2), lb(1, 2));
+      Assert.assertTrue(txClient.canCommit(tx1, table.getTxChanges()));
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(txClient.commit(tx1));
+      table.postTxCommit();
+
+      Transaction tx2 = txClient.startShort();
+      table.startTx(tx2);
+      // r2 and r1:c3 are absent, reading them again should not go to the persisted store
+      Assert.assertTrue(table.get(R2).isEmpty());
+      Assert.assertTrue(table.get(R2).isEmpty());
+      Assert.assertNull(table.get(R1, C3));
+      Assert.assertNull(table.get(R1, C3));
+      TableAssert.assertRow(table.get(R1, a(C1, C3)), R1, a(C1), lb(1));
+      Assert.assertTrue(metrics.get(Constants.Metrics.Name.Dataset.ABSENT_CACHE_HITS) >= 2);
+      Assert.assertTrue(metrics.get(Constants.Metrics.Name.Dataset.BUFFER_FILTER_SKIPS) > 0);
+
+      // writes in the same transaction must be visible even if the keys were known to be absent
+      table.put(R2, C1, L1);
+      table.increment(R1, C3, 3L);
+      TableAssert.assertRow(table.get(R2), R2, a(C1), lb(1));
+      TableAssert.assertRow(table.get(R1), R1, a(C1, C2, C3), lb(1, 2, 3));
+      table.delete(R1, C1);
+      TableAssert.assertRow(table.get(R1, a(C1, C2, C3)), R1, a(C2, C3), lb(2, 3));
+
+      // rollback and make sure the absent keys are still absent
+      Assert.assertTrue(table.rollbackTx());
+      txClient.abort(tx2);
+
+      Transaction tx3 = txClient.startShort();
+      table.startTx(tx3);
+      Assert.assertTrue(table.get(R2).isEmpty());
+      Assert.assertNull(table.get(R1, C3));
+      TableAssert.assertRow(table.get(R1), R1, a(C1, C2), lb(1, 2));
+
+      // write the absent keys and commit
+      table.put(R2, C1, L1);
+      table.put(R1, C3, L1);
+      Assert.assertTrue(txClient.canCommit(tx3, table.getTxChanges()));
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(txClient.commit(tx3));
+      table.postTxCommit();
+
+      // a new transaction must see the committed values
+      Transaction tx4 = txClient.startShort();
+      table.startTx(tx4);
+      TableAssert.assertRow(table.get(R2), R2, a(C1), lb(1));
+      Assert.assertArrayEquals(L1, table.get(R1, C3));
+      Assert.assertTrue(txClient.canCommit(tx4, table.getTxChanges()));
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(txClient.commit(tx4));
+      table.postTxCommit();
+    } finally {
+      admin.drop();
+    }
+  }
+
   private void verify123(BufferingTable table) throws Exception {
     byte[] row = new byte[] {1};
     byte[] col = new byte[] {2};
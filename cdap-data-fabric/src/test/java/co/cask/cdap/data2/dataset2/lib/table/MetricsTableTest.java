@@ -23,6 +23,7 @@ import co.cask.cdap.common.utils.ImmutablePair;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.junit.Assert;
 import org.junit.Test;
@@ -188,6 +189,47 @@ public abstract class MetricsTableTest {
     Assert.assertEquals(9 * rounds, table.incrementAndGet(A, Z, 0L));
   }
 
+  @Test
+  public void testConcurrentMultiRowIncrement() throws Exception {
+    final int rounds = 500;
+    // Each thread uses its own table instance and increments the same rows in a single call
+    NavigableMap<byte[], NavigableMap<byte[], Long>> updates = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    updates.put(P, incrementOf(X, 1L));
+    updates.put(Q, incrementOf(X, 2L));
+    updates.put(R, incrementOf(Y, 3L));
+
+    List<Thread> threads = Lists.newArrayList();
+    List<MetricsTable> tables = Lists.newArrayList();
+    for (int i = 0; i < 4; i++) {
+      final MetricsTable table = getTable("testConcurrentMultiRowIncrement");
+      final NavigableMap<byte[], NavigableMap<byte[], Long>> threadUpdates =
+        (i % 2 == 0) ? updates : updates.descendingMap();
+      tables.add(table);
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < rounds; j++) {
+            table.increment(threadUpdates);
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    MetricsTable table = tables.get(0);
+    Assert.assertEquals(4L * rounds, Bytes.toLong(table.get(P, X)));
+    Assert.assertEquals(8L * rounds, Bytes.toLong(table.get(Q, X)));
+    Assert.assertEquals(12L * rounds, Bytes.toLong(table.get(R, Y)));
+    for (MetricsTable t : tables) {
+      t.close();
+    }
+  }
+
   class SwapThread extends Thread {
     private final MetricsTable table;
     private final byte[] row;
@@ -261,6 +303,37 @@ public abstract class MetricsTableTest {
     Assert.assertEquals(1021, countRange(table, null, null));
   }
 
+  @Test
+  public void testPutAndIncrement() throws Exception {
+    MetricsTable table = getTable("testPutAndIncrement");
+    table.increment(A, ImmutableMap.of(P, 5L));
+
+    NavigableMap<byte[], SortedMap<byte[], Long>> puts = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    puts.put(A, mapOf(Q, 10L, R, 20L));
+    puts.put(B, mapOf(P, 30L));
+    NavigableMap<byte[], NavigableMap<byte[], Long>> increments = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    // increment on existing value
+    increments.put(A, new TreeMap<byte[], Long>(Bytes.BYTES_COMPARATOR));
+    increments.get(A).put(P, 2L);
+    // increment on a column being put in the same batch
+    increments.get(A).put(R, 3L);
+    // increment on a row that has no put
+    increments.put(C, new TreeMap<byte[], Long>(Bytes.BYTES_COMPARATOR));
+    increments.get(C).put(P, 4L);
+
+    table.putAndIncrement(puts, increments);
+    Assert.assertEquals(7L, Bytes.toLong(table.get(A, P)));
+    Assert.assertEquals(10L, Bytes.toLong(table.get(A, Q)));
+    Assert.assertEquals(23L, Bytes.toLong(table.get(A, R)));
+    Assert.assertEquals(30L, Bytes.toLong(table.get(B, P)));
+    Assert.assertEquals(4L, Bytes.toLong(table.get(C, P)));
+
+    // empty puts and increments should be no-op
+    table.putAndIncrement(new TreeMap<byte[], SortedMap<byte[], Long>>(Bytes.BYTES_COMPARATOR),
+                          new TreeMap<byte[], NavigableMap<byte[], Long>>(Bytes.BYTES_COMPARATOR));
+    Assert.assertEquals(3, countRange(table, null, null));
+  }
+
   @Test
   public void testDeleteIncrements() throws Exception {
     // note: this is pretty important test case for tables with counters, e.g. metrics
@@ -322,6 +395,12 @@ public abstract class MetricsTableTest {
     Assert.assertEquals(9, count);
   }
 
+  private NavigableMap<byte[], Long> incrementOf(byte[] column, long value) {
+    NavigableMap<byte[], Long> increment = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    increment.put(column, value);
+    return increment;
+  }
+
   private <T> SortedMap<byte[], T> mapOf(byte[] key, T value) {
     SortedMap<byte[], T> map = new TreeMap<>(Bytes.BYTES_COMPARATOR);
     map.put(key, value);
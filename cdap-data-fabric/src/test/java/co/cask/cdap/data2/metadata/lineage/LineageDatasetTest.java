@@ -27,6 +27,7 @@ import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
+import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -37,7 +38,10 @@ import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests storage and retrieval of Dataset accesses by Programs in {@link LineageDataset}.
@@ -188,10 +192,87 @@ public class LineageDatasetTest {
     });
   }
 
+  @Test
+  public void testBucketedRelations() throws Exception {
+    // Buckets are used for all runs in the indexed dataset. The other dataset is indexed from now on,
+    // hence it reads all the runs below from the access rows.
+    DatasetProperties indexedProperties = DatasetProperties.builder()
+      .add(LineageDatasetDefinition.BUCKET_INDEX_START_MILLIS, 0L)
+      .build();
+    final LineageDataset indexedDataset = getLineageDataset("testBucketedRelationsIndexed", indexedProperties);
+    final LineageDataset rawDataset = getLineageDataset("testBucketedRelationsRaw", DatasetProperties.EMPTY);
+    TransactionExecutor txnl = dsFrameworkUtil.newInMemoryTransactionExecutor((TransactionAware) indexedDataset,
+                                                                              (TransactionAware) rawDataset);
+
+    final long hour = TimeUnit.HOURS.toMillis(1);
+    final DatasetId datasetInstance = NamespaceId.DEFAULT.dataset("dataset1");
+    final StreamId stream = NamespaceId.DEFAULT.stream("stream1");
+    final ProgramId program1 = NamespaceId.DEFAULT.app("app1").flow("flow1");
+    final FlowletId flowlet1 = program1.flowlet("flowlet1");
+    final ProgramId program2 = NamespaceId.DEFAULT.app("app2").worker("worker2");
+
+    final List<ProgramRunId> runs = new ArrayList<>();
+    for (long startTime : new long[] { 0, hour - 1, hour, 2 * hour + 5, 5 * hour, 5 * hour + 1, 7 * hour - 1 }) {
+      runs.add((startTime % 2 == 0 ? program1 : program2).run(RunIds.generate(startTime).getId()));
+    }
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        for (LineageDataset lineageDataset : ImmutableList.of(indexedDataset, rawDataset)) {
+          for (ProgramRunId run : runs) {
+            lineageDataset.addAccess(run, datasetInstance, AccessType.READ, 1L,
+                                     run.getParent().equals(program1) ? flowlet1 : null);
+            lineageDataset.addAccess(run, datasetInstance, AccessType.WRITE, 2L);
+            lineageDataset.addAccess(run, stream, AccessType.READ, 3L);
+          }
+        }
+      }
+    });
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        long[] times = { 0, 1, hour - 2, hour - 1, hour, 2 * hour, 2 * hour + 5, 5 * hour, 6 * hour, 7 * hour - 2,
+          7 * hour - 1, 7 * hour, 10 * hour };
+        for (long start : times) {
+          for (long end : times) {
+            if (start > end) {
+              continue;
+            }
+            Predicate<Relation> all = Predicates.alwaysTrue();
+            Assert.assertEquals(rawDataset.getRelations(datasetInstance, start, end, all),
+                                indexedDataset.getRelations(datasetInstance, start, end, all));
+            Assert.assertEquals(rawDataset.getRelations(stream, start, end, all),
+                                indexedDataset.getRelations(stream, start, end, all));
+            for (ProgramId program : ImmutableList.of(program1, program2)) {
+              Assert.assertEquals(rawDataset.getRelations(program, start, end, all),
+                                  indexedDataset.getRelations(program, start, end, all));
+            }
+          }
+        }
+
+        // All accesses of all runs, including the flowlet components, are returned over the whole range
+        Set<Relation> relations = indexedDataset.getRelations(datasetInstance, 0, 10 * hour,
+                                                              Predicates.<Relation>alwaysTrue());
+        Assert.assertEquals(2 * runs.size(), relations.size());
+        Assert.assertTrue(relations.contains(
+          new Relation(datasetInstance, program1, AccessType.READ, RunIds.fromString(runs.get(0).getRun()),
+                       ImmutableSet.of(flowlet1))));
+        Assert.assertTrue(relations.contains(
+          new Relation(datasetInstance, program2, AccessType.WRITE, RunIds.fromString(runs.get(1).getRun()))));
+      }
+    });
+  }
+
   private static LineageDataset getLineageDataset(String instanceId) throws Exception {
+    return getLineageDataset(instanceId, DatasetProperties.EMPTY);
+  }
+
+  private static LineageDataset getLineageDataset(String instanceId, DatasetProperties properties) throws Exception {
     DatasetId id = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset(instanceId);
     return DatasetsUtil.getOrCreateDataset(dsFrameworkUtil.getFramework(), id,
-                                           LineageDataset.class.getName(), DatasetProperties.EMPTY, null);
+                                           LineageDataset.class.getName(), properties, null);
   }
 
   @SafeVarargs
@@ -411,6 +411,75 @@ public class MetadataStoreTest {
     );
   }
 
+  @Test
+  public void testSearchCursors() throws BadRequestException {
+    NamespaceId ns = new NamespaceId("cursors");
+    ProgramId flow = ns.app("app").flow("flow");
+    DatasetId dataset1 = ns.dataset("dataset1");
+    DatasetId dataset2 = ns.dataset("dataset2");
+    DatasetId dataset3 = ns.dataset("dataset3");
+
+    store.addTags(MetadataScope.USER, flow, "ctag1", "ctag2");
+    store.addTags(MetadataScope.USER, dataset3, "ctag3");
+    store.addTags(MetadataScope.USER, dataset1, "ctag4");
+    store.addTags(MetadataScope.USER, dataset2, "ctag5");
+
+    MetadataSearchResultRecord flowSearchResult = new MetadataSearchResultRecord(flow);
+    MetadataSearchResultRecord dataset1SearchResult = new MetadataSearchResultRecord(dataset1);
+    MetadataSearchResultRecord dataset2SearchResult = new MetadataSearchResultRecord(dataset2);
+    MetadataSearchResultRecord dataset3SearchResult = new MetadataSearchResultRecord(dataset3);
+
+    // relevance order for searchQuery "ctag*" is flow, followed by the datasets with equal weights,
+    // which are ordered by their entity ids
+    MetadataSearchResponse response = search(ns.getNamespace(), "ctag*", 0, 1, 2);
+    Assert.assertEquals(4, response.getTotal());
+    Assert.assertEquals(
+      ImmutableList.of(flowSearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+    List<String> cursors = response.getCursors();
+    Assert.assertEquals(2, cursors.size());
+
+    // searching from the first cursor should start at dataset1
+    response = search(ns.getNamespace(), "ctag*", 0, 2, 1, cursors.get(0));
+    Assert.assertEquals(4, response.getTotal());
+    Assert.assertEquals(
+      ImmutableList.of(dataset1SearchResult, dataset2SearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+    Assert.assertEquals(1, response.getCursors().size());
+
+    // searching from the second cursor should start at dataset2
+    response = search(ns.getNamespace(), "ctag*", 0, 1, 1, cursors.get(1));
+    Assert.assertEquals(
+      ImmutableList.of(dataset2SearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+
+    // the cursor of the last page should start at dataset3
+    response = search(ns.getNamespace(), "ctag*", 0, 1, 0, response.getCursors().get(0));
+    Assert.assertEquals(
+      ImmutableList.of(dataset3SearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+    Assert.assertTrue(response.getCursors().isEmpty());
+
+    // offset is applied starting at the cursor
+    response = search(ns.getNamespace(), "ctag*", 1, 2, 0, cursors.get(0));
+    Assert.assertEquals(
+      ImmutableList.of(dataset2SearchResult, dataset3SearchResult),
+      ImmutableList.copyOf(stripMetadata(response.getResults()))
+    );
+
+    // invalid cursor
+    try {
+      search(ns.getNamespace(), "ctag*", 0, 1, 0, "cursor");
+      Assert.fail("Expected BadRequestException for an invalid cursor");
+    } catch (BadRequestException e) {
+      // expected
+    }
+  }
+
   @AfterClass
   public static void teardown() {
     txManager.stopAndWait();
@@ -425,6 +494,13 @@ public class MetadataStoreTest {
     return search(ns, searchQuery, offset, limit, numCursors, false);
   }
 
+  private MetadataSearchResponse search(String ns, String searchQuery, int offset, int limit, int numCursors,
+                                        String cursor) throws BadRequestException {
+    return store.search(
+      ns, searchQuery, EnumSet.allOf(EntityTypeSimpleName.class),
+      SortInfo.DEFAULT, offset, limit, numCursors, cursor, false, EnumSet.allOf(EntityScope.class));
+  }
+
   private MetadataSearchResponse search(String ns, String searchQuery,
                                         int offset, int limit, int numCursors, boolean showHidden)
     throws BadRequestException {
@@ -17,10 +17,15 @@
 package co.cask.cdap.format;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
 import co.cask.cdap.api.data.schema.Schema;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
@@ -55,4 +60,64 @@ public class StructuredRecordBuilderTest {
 
     Assert.assertEquals(expected, actual);
   }
+
+  @Test
+  public void testFieldAccess() {
+    Schema schema = Schema.recordOf("x1",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)));
+    Assert.assertEquals(0, schema.getFieldIndex("id"));
+    Assert.assertEquals(2, schema.getFieldIndex("score"));
+    Assert.assertEquals(-1, schema.getFieldIndex("unknown"));
+    Assert.assertEquals(-1, Schema.of(Schema.Type.STRING).getFieldIndex("id"));
+
+    StructuredRecord record = StructuredRecord.builder(schema)
+      .set("score", 1.5d)
+      .set("id", 10L)
+      .build();
+
+    Assert.assertEquals(10L, (long) record.get("id"));
+    Assert.assertNull(record.get("name"));
+    Assert.assertEquals(1.5d, record.<Double>get("score"), 0.0d);
+    Assert.assertNull(record.get("unknown"));
+    Assert.assertEquals(10L, (long) record.get(0));
+    Assert.assertEquals(1.5d, record.<Double>get(2), 0.0d);
+
+    // Missing non-nullable field
+    try {
+      StructuredRecord.builder(schema).set("id", 10L).build();
+      Assert.fail("Expected failure when a non-nullable field is not set");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+
+    // Unknown field
+    try {
+      StructuredRecord.builder(schema).set("unknown", 10L);
+      Assert.fail("Expected failure when setting a field that is not in the schema");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testJavaSerialization() throws Exception {
+    Schema schema = Schema.recordOf("x1",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    StructuredRecord record = StructuredRecord.builder(schema).set("id", 10L).set("name", "cdap").build();
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(record);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      StructuredRecord copy = (StructuredRecord) ois.readObject();
+      Assert.assertEquals(record, copy);
+      Assert.assertEquals(record.hashCode(), copy.hashCode());
+      Assert.assertEquals("cdap", copy.get("name"));
+      Assert.assertEquals(1, copy.getSchema().getFieldIndex("name"));
+    }
+  }
 }
@@ -95,10 +95,13 @@ public class NettyRouter extends AbstractIdleService {
   private final boolean sslEnabled;
   private final SSLHandlerFactory sslHandlerFactory;
   private final int connectionTimeout;
+  private final int outboundPoolMaxIdle;
+  private final long outboundPoolIdleTimeout;
 
   private Timer timer;
   private ServerBootstrap serverBootstrap;
   private ClientBootstrap clientBootstrap;
+  private OutboundConnectionPool connectionPool;
   private DiscoveryServiceClient discoveryServiceClient;
 
   @Inject
@@ -144,6 +147,8 @@ public class NettyRouter extends AbstractIdleService {
     }
     this.connectionTimeout = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
     LOG.info("Using connection timeout: {}", connectionTimeout);
+    this.outboundPoolMaxIdle = cConf.getInt(Constants.Router.OUTBOUND_POOL_MAX_IDLE_CONNECTIONS);
+    this.outboundPoolIdleTimeout = cConf.getLong(Constants.Router.OUTBOUND_POOL_IDLE_TIMEOUT_SECS);
     LOG.info("Service to Port Mapping - {}", this.serviceToPortMap);
   }
 
@@ -175,6 +180,9 @@ public class NettyRouter extends AbstractIdleService {
         LOG.warn("Timeout when closing all channels.");
       }
     } finally {
+      LOG.info("Outbound connection pool hits: {}, misses: {}, average connect time: {} ms",
+               connectionPool.getHits(), connectionPool.getMisses(), connectionPool.getAverageConnectMillis());
+      connectionPool.close();
       serverBootstrap.shutdown();
       clientBootstrap.shutdown();
       clientBootstrap.releaseExternalResources();
@@ -241,7 +249,7 @@ public class NettyRouter extends AbstractIdleService {
           }
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
           pipeline.addLast("http-request-handler",
-                           new HttpRequestHandler(clientBootstrap, serviceLookup, ImmutableList.<ProxyRule>of()));
+                           new HttpRequestHandler(connectionPool, serviceLookup, ImmutableList.<ProxyRule>of()));
           return pipeline;
         }
       }
@@ -298,6 +306,7 @@ public class NettyRouter extends AbstractIdleService {
                                                                               timer);
     clientBootstrap.setPipelineFactory(pipelineFactory);
     clientBootstrap.setOption("bufferFactory", new DirectChannelBufferFactory());
+    connectionPool = new OutboundConnectionPool(clientBootstrap, outboundPoolMaxIdle, outboundPoolIdleTimeout);
   }
 
   private boolean isSSLEnabled() {
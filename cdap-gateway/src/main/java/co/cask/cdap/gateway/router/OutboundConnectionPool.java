@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.gateway.router;
+
+import co.cask.cdap.gateway.router.handlers.WrappedDiscoverable;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.Channels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A pool of outbound connections to discoverable endpoints, shared by all inbound connections of the router.
+ *
+ * An outbound connection is leased to a single inbound connection at a time. When the inbound connection is closed,
+ * the outbound connection is returned to the pool if the last exchange on it completed and allows keep-alive,
+ * so that the next inbound connection to the same endpoint doesn't need to open a new TCP connection.
+ * Idle connections are kept per endpoint, up to a maximum count, and are discarded after being idle for longer than
+ * the maximum idle time.
+ */
+@ThreadSafe
+public final class OutboundConnectionPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OutboundConnectionPool.class);
+
+  private final ClientBootstrap clientBootstrap;
+  private final int maxIdlePerEndpoint;
+  private final long maxIdleMillis;
+  private final ConcurrentMap<WrappedDiscoverable, BlockingDeque<IdleConnection>> idleConnections;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong connects = new AtomicLong();
+  private final AtomicLong connectNanos = new AtomicLong();
+
+  /**
+   * Creates a new pool.
+   *
+   * @param clientBootstrap the {@link ClientBootstrap} for opening new outbound connections
+   * @param maxIdlePerEndpoint maximum number of idle connections to keep for each endpoint; if it is not positive,
+   *                           connections are never pooled
+   * @param maxIdleSecs maximum number of seconds that a connection can stay idle in the pool
+   */
+  public OutboundConnectionPool(ClientBootstrap clientBootstrap, int maxIdlePerEndpoint, long maxIdleSecs) {
+    this.clientBootstrap = clientBootstrap;
+    this.maxIdlePerEndpoint = maxIdlePerEndpoint;
+    this.maxIdleMillis = TimeUnit.SECONDS.toMillis(maxIdleSecs);
+    this.idleConnections = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Acquires a connection to the given endpoint. An idle connection from the pool is returned if available,
+   * otherwise a new connection will be opened.
+   *
+   * @param discoverable the endpoint to connect to
+   * @return a {@link ChannelFuture} that completes when the connection is established
+   */
+  public ChannelFuture acquire(final WrappedDiscoverable discoverable) {
+    BlockingDeque<IdleConnection> connections = idleConnections.get(discoverable);
+    if (connections != null) {
+      long now = System.currentTimeMillis();
+      // Use the most recently released one first, which is the least likely to be closed by the endpoint
+      IdleConnection connection = connections.pollLast();
+      while (connection != null) {
+        if (connection.isUsable(now)) {
+          hits.incrementAndGet();
+          return Channels.succeededFuture(connection.getChannel());
+        }
+        connection.getChannel().close();
+        connection = connections.pollLast();
+      }
+    }
+
+    misses.incrementAndGet();
+    final long startTime = System.nanoTime();
+    ChannelFuture future = clientBootstrap.connect(discoverable.getSocketAddress());
+    future.addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        if (future.isSuccess()) {
+          connects.incrementAndGet();
+          connectNanos.addAndGet(System.nanoTime() - startTime);
+        }
+      }
+    });
+
+    // Remove the connection from the pool when it is closed by the endpoint or by idle timeout
+    final Channel channel = future.getChannel();
+    channel.getCloseFuture().addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        removeIdle(discoverable, channel);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Releases a connection previously acquired through the {@link #acquire(WrappedDiscoverable)} method.
+   * The caller should only release a connection that has no exchange in progress and allows keep-alive.
+   * The connection is closed if it cannot be pooled.
+   *
+   * @param discoverable the endpoint that the connection is connected to
+   * @param channel the connection to release
+   */
+  public void release(WrappedDiscoverable discoverable, Channel channel) {
+    if (maxIdlePerEndpoint <= 0 || !channel.isConnected()) {
+      channel.close();
+      return;
+    }
+
+    BlockingDeque<IdleConnection> connections = idleConnections.get(discoverable);
+    if (connections == null) {
+      BlockingDeque<IdleConnection> newConnections = new LinkedBlockingDeque<>(maxIdlePerEndpoint);
+      connections = idleConnections.putIfAbsent(discoverable, newConnections);
+      if (connections == null) {
+        connections = newConnections;
+      }
+    }
+
+    // Evicts expired connections from the head, which has the least recently released ones
+    long now = System.currentTimeMillis();
+    IdleConnection head = connections.peekFirst();
+    while (head != null && !head.isUsable(now)) {
+      if (connections.remove(head)) {
+        head.getChannel().close();
+      }
+      head = connections.peekFirst();
+    }
+
+    if (!connections.offerLast(new IdleConnection(channel, now))) {
+      LOG.trace("Maximum number of idle connections reached for {}. Closing connection {}.",
+                discoverable.getSocketAddress(), channel);
+      channel.close();
+    }
+  }
+
+  /**
+   * Closes all idle connections in the pool.
+   */
+  public void close() {
+    for (BlockingDeque<IdleConnection> connections : idleConnections.values()) {
+      IdleConnection connection = connections.pollFirst();
+      while (connection != null) {
+        connection.getChannel().close();
+        connection = connections.pollFirst();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of times an idle connection was reused by the {@link #acquire(WrappedDiscoverable)} method.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of times a new connection was opened by the {@link #acquire(WrappedDiscoverable)} method.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the average time in milliseconds for establishing a new connection.
+   */
+  public double getAverageConnectMillis() {
+    long count = connects.get();
+    return count == 0 ? 0d : (double) connectNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  private void removeIdle(WrappedDiscoverable discoverable, Channel channel) {
+    BlockingDeque<IdleConnection> connections = idleConnections.get(discoverable);
+    if (connections == null) {
+      return;
+    }
+    Iterator<IdleConnection> iterator = connections.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getChannel() == channel) {
+        iterator.remove();
+        return;
+      }
+    }
+  }
+
+  /**
+   * A connection in the pool together with the time it was released.
+   */
+  private final class IdleConnection {
+    private final Channel channel;
+    private final long releaseTime;
+
+    private IdleConnection(Channel channel, long releaseTime) {
+      this.channel = channel;
+      this.releaseTime = releaseTime;
+    }
+
+    Channel getChannel() {
+      return channel;
+    }
+
+    boolean isUsable(long now) {
+      return channel.isConnected() && now - releaseTime <= maxIdleMillis;
+    }
+  }
+}
@@ -19,13 +19,12 @@ package co.cask.cdap.gateway.router.handlers;
 import co.cask.cdap.common.HandlerException;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.EndpointStrategy;
+import co.cask.cdap.gateway.router.OutboundConnectionPool;
 import co.cask.cdap.gateway.router.ProxyRule;
 import co.cask.cdap.gateway.router.RouterServiceLookup;
 import co.cask.cdap.security.tools.PermissiveTrustManagerFactory;
 import com.google.common.collect.Queues;
-import com.google.common.io.Closeables;
 import org.apache.twill.discovery.Discoverable;
-import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
@@ -46,8 +45,6 @@ import org.jboss.netty.handler.ssl.SslHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.Closeable;
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
@@ -69,9 +66,9 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestHandler.class);
 
-  private final ClientBootstrap clientBootstrap;
+  private final OutboundConnectionPool connectionPool;
   private final RouterServiceLookup serviceLookup;
-  // Data structure is used to clean up the channel futures on connection close.
+  // Data structure is used to release the outbound connections on connection close.
   private final Map<WrappedDiscoverable, MessageSender> discoveryLookup;
   private final List<ProxyRule> proxyRules;
 
@@ -79,10 +76,10 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
   private MessageSender chunkSender;
   private volatile boolean channelClosed;
 
-  public HttpRequestHandler(ClientBootstrap clientBootstrap,
+  public HttpRequestHandler(OutboundConnectionPool connectionPool,
                             RouterServiceLookup serviceLookup,
                             List<ProxyRule> proxyRules) {
-    this.clientBootstrap = clientBootstrap;
+    this.connectionPool = connectionPool;
     this.serviceLookup = serviceLookup;
     this.discoveryLookup = new HashMap<>();
     this.proxyRules = proxyRules;
@@ -116,16 +113,20 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
       WrappedDiscoverable discoverable = getDiscoverable(request,
                                                          (InetSocketAddress) inboundChannel.getLocalAddress());
 
-      // If no event sender, make new connection, otherwise reuse existing one.
+      // If no event sender, acquire a connection from the pool, otherwise reuse existing one.
       MessageSender sender =  discoveryLookup.get(discoverable);
       if (sender == null || !sender.isConnected()) {
-        InetSocketAddress address = discoverable.getSocketAddress();
-
-        ChannelFuture future = clientBootstrap.connect(address);
-        final Channel outboundChannel = future.getChannel();
+        ChannelFuture future = connectionPool.acquire(discoverable);
+        Channel outboundChannel = future.getChannel();
         outboundChannel.getPipeline().addAfter("request-encoder",
                                                "outbound-handler", new OutboundHandler(inboundChannel));
-        if (Arrays.equals(Constants.Security.SSL_URI_SCHEME.getBytes(), discoverable.getPayload())) {
+        if (future.isSuccess()) {
+          // A pooled connection may have been set as non-readable by the inbound channel it was leased to
+          outboundChannel.setReadable(true);
+        }
+        // A pooled connection already has the ssl handler
+        if (Arrays.equals(Constants.Security.SSL_URI_SCHEME.getBytes(), discoverable.getPayload())
+          && outboundChannel.getPipeline().get("ssl") == null) {
           SSLContext clientContext;
           try {
             clientContext = SSLContext.getInstance("TLS");
@@ -143,23 +144,9 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
         sender = new MessageSender(inboundChannel, future);
         discoveryLookup.put(discoverable, sender);
 
-        // Remember the in-flight outbound channel
+        // Remember the in-flight outbound channel.
+        // The OutboundHandler closes the inbound channel if the outbound channel is closed while in-flight.
         inboundChannel.setAttachment(outboundChannel);
-        outboundChannel.getCloseFuture().addListener(new ChannelFutureListener() {
-          @Override
-          public void operationComplete(ChannelFuture future) throws Exception {
-            inboundChannel.getPipeline().execute(new Runnable() {
-              @Override
-              public void run() {
-                // When the outbound channel closed,
-                // close the inbound channel as well if it carries the in-flight request
-                if (outboundChannel.equals(inboundChannel.getAttachment())) {
-                  closeOnFlush(inboundChannel);
-                }
-              }
-            });
-          }
-        });
       } else {
         Channel outboundChannel = (Channel) inboundChannel.getAttachment();
         if (outboundChannel != null) {
@@ -251,10 +238,10 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   @Override
   public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
-    // Close all event sender
+    // Release all event sender connections to the pool
     LOG.trace("Channel closed {}", ctx.getChannel());
-    for (Closeable c : discoveryLookup.values()) {
-      Closeables.closeQuietly(c);
+    for (Map.Entry<WrappedDiscoverable, MessageSender> entry : discoveryLookup.entrySet()) {
+      entry.getValue().release(connectionPool, entry.getKey());
     }
     channelClosed = true;
     super.channelClosed(ctx, e);
@@ -296,7 +283,7 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
    * in {@link co.cask.cdap.data.stream.service.ConcurrentStreamWriter} to do the write through the
    * channel callback.
    */
-  private static final class MessageSender implements Closeable {
+  private static final class MessageSender {
     private final Channel inBoundChannel;
     private final ChannelFuture channelFuture;
     private final Queue<OutboundMessage> messages;
@@ -363,9 +350,22 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
       }
     }
 
-    @Override
-    public void close() throws IOException {
-      closeOnFlush(channelFuture.getChannel());
+    /**
+     * Releases the outbound connection to the given pool if the connection can be reused by
+     * another inbound channel. Otherwise the connection will be closed.
+     */
+    private void release(OutboundConnectionPool connectionPool, WrappedDiscoverable discoverable) {
+      Channel channel = channelFuture.getChannel();
+      IdleEventProcessor idleEventProcessor = channel.getPipeline().get(IdleEventProcessor.class);
+      if (!channelFuture.isSuccess() || !channel.isConnected() || !messages.isEmpty()
+        || idleEventProcessor == null || !idleEventProcessor.isReusable()) {
+        closeOnFlush(channel);
+        return;
+      }
+      if (channel.getPipeline().get("outbound-handler") != null) {
+        channel.getPipeline().remove("outbound-handler");
+      }
+      connectionPool.release(discoverable, channel);
     }
   }
 
@@ -69,6 +69,21 @@ public class OutboundHandler extends SimpleChannelUpstreamHandler {
     });
   }
 
+  @Override
+  public void channelClosed(ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+    inboundChannel.getPipeline().execute(new Runnable() {
+      @Override
+      public void run() {
+        // When the outbound channel closed,
+        // close the inbound channel as well if it carries the in-flight request
+        if (e.getChannel().equals(inboundChannel.getAttachment())) {
+          HttpRequestHandler.closeOnFlush(inboundChannel);
+        }
+      }
+    });
+    super.channelClosed(ctx, e);
+  }
+
   @Override
   public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
     Throwable cause = e.getCause();
@@ -20,6 +20,7 @@ import com.google.common.base.Objects;
 import org.apache.twill.discovery.Discoverable;
 
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 
 /**
  * Wrapped discoverable is used to be used in other containers e.g., HashMap. Since the DiscoverableWrapper
@@ -49,7 +50,7 @@ public class WrappedDiscoverable {
     return Objects.hashCode(discoverable.getName(),
                             discoverable.getSocketAddress().getHostName(),
                             discoverable.getSocketAddress().getPort(),
-                            discoverable.getPayload());
+                            Arrays.hashCode(discoverable.getPayload()));
   }
 
   @Override
@@ -64,6 +65,6 @@ public class WrappedDiscoverable {
     return Objects.equal(discoverable.getName(), that.getName()) &&
            Objects.equal(discoverable.getSocketAddress().getHostName(), that.getSocketAddress().getHostName()) &&
            Objects.equal(discoverable.getSocketAddress().getPort(), that.getSocketAddress().getPort()) &&
-           Objects.equal(discoverable.getPayload(), that.getPayload());
+           Arrays.equals(discoverable.getPayload(), that.getPayload());
   }
 }
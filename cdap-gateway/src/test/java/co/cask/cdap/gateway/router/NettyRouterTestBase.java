@@ -343,6 +343,29 @@ public abstract class NettyRouterTestBase {
     Assert.assertEquals(1, defaultServer1.getNumConnectionsClosed() + defaultServer2.getNumConnectionsClosed());
   }
 
+  @Test(timeout = 10000)
+  public void testConnectionPool() throws Exception {
+    defaultServer2.cancelRegistration();
+
+    URI uri = new URI(resolveURI(Constants.Router.GATEWAY_DISCOVERY_NAME, "/v2/ping"));
+    // Make requests on different client connections; the router should reuse the connection to the server
+    for (int i = 0; i < 5; i++) {
+      Socket socket = getSocketFactory().createSocket(uri.getHost(), uri.getPort());
+      try {
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        Assert.assertEquals("HTTP/1.1 200 OK\r", makeRequest(uri, out, socket.getInputStream()));
+      } finally {
+        socket.close();
+      }
+      // The server connection is returned to the pool asynchronously after the client connection is closed
+      TimeUnit.MILLISECONDS.sleep(200);
+    }
+
+    Assert.assertEquals(5, defaultServer1.getNumRequests());
+    Assert.assertEquals(1, defaultServer1.getNumConnectionsOpened());
+    Assert.assertEquals(0, defaultServer1.getNumConnectionsClosed());
+  }
+
   private String makeRequest(URI uri, PrintWriter out, InputStream inputStream) throws IOException {
 
     //Send request
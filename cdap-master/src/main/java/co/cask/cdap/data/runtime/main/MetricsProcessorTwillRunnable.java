@@ -44,6 +44,7 @@ import co.cask.cdap.metrics.process.MetricsMessageCallbackFactory;
 import co.cask.cdap.metrics.process.MetricsProcessorStatusService;
 import co.cask.cdap.metrics.runtime.KafkaMetricsProcessorRuntimeService;
 import co.cask.cdap.metrics.runtime.MessagingMetricsProcessorRuntimeService;
+import co.cask.cdap.metrics.runtime.MetricsRollupRuntimeService;
 import co.cask.cdap.metrics.store.DefaultMetricDatasetFactory;
 import co.cask.cdap.metrics.store.MetricDatasetFactory;
 import co.cask.cdap.proto.id.NamespaceId;
@@ -105,6 +106,9 @@ public final class MetricsProcessorTwillRunnable extends AbstractMasterTwillRunn
     services.add(injector.getInstance(KafkaMetricsProcessorRuntimeService.class));
     services.add(injector.getInstance(MessagingMetricsProcessorRuntimeService.class));
     services.add(injector.getInstance(MetricsProcessorStatusService.class));
+    if (getCConfiguration().getBoolean(Constants.Metrics.ROLLUP_ENABLED, false)) {
+      services.add(injector.getInstance(MetricsRollupRuntimeService.class));
+    }
   }
 
   @VisibleForTesting
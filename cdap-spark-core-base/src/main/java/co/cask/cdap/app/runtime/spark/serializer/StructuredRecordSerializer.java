@@ -18,8 +18,7 @@ package co.cask.cdap.app.runtime.spark.serializer;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
-import co.cask.cdap.format.io.StructuredRecordDatumReader;
-import co.cask.cdap.format.io.StructuredRecordDatumWriter;
+import co.cask.cdap.internal.io.ASMStructuredRecordCodecFactory;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Serializer;
@@ -29,12 +28,12 @@ import com.esotericsoftware.kryo.io.Output;
 import java.io.IOException;
 
 /**
- * A Kryo {@link Serializer} for {@link StructuredRecord}.
+ * A Kryo {@link Serializer} for {@link StructuredRecord}. Records are encoded and decoded with the
+ * datum writer and reader generated for the record schema by the {@link ASMStructuredRecordCodecFactory}.
  */
 public class StructuredRecordSerializer extends Serializer<StructuredRecord> {
 
-  private static final StructuredRecordDatumWriter DATUM_WRITER = new StructuredRecordDatumWriter();
-  private static final StructuredRecordDatumReader DATUM_READER = new StructuredRecordDatumReader();
+  private static final ASMStructuredRecordCodecFactory CODEC_FACTORY = new ASMStructuredRecordCodecFactory();
 
   @Override
   public void write(Kryo kryo, Output output, StructuredRecord record) {
@@ -42,7 +41,7 @@ public class StructuredRecordSerializer extends Serializer<StructuredRecord> {
     kryo.writeObject(output, record.getSchema());
     // Then write out the data
     try {
-      DATUM_WRITER.encode(record, new KryoEncoder(output));
+      CODEC_FACTORY.getWriter(record.getSchema()).encode(record, new KryoEncoder(output));
     } catch (IOException e) {
       throw new KryoException("Failed to encode StructuredRecord " + record.getSchema().getRecordName(), e);
     }
@@ -53,7 +52,7 @@ public class StructuredRecordSerializer extends Serializer<StructuredRecord> {
     // Read the schema
     Schema schema = kryo.readObject(input, Schema.class);
     try {
-      return DATUM_READER.read(new KryoDecoder(input), schema);
+      return CODEC_FACTORY.getReader(schema).read(new KryoDecoder(input), schema);
     } catch (IOException e) {
       throw new KryoException("Failed to decode StructuredRecord " + schema.getRecordName(), e);
     }
@@ -24,6 +24,7 @@ import co.cask.cdap.proto.id.TopicId;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -95,6 +96,18 @@ public interface MessagingService {
    */
   MessageFetcher prepareFetch(TopicId topicId) throws TopicNotFoundException, IOException;
 
+  /**
+   * Prepares to fetch messages from multiple topics in one call.
+   *
+   * @param topicIds the topics to fetch message from
+   * @return a {@link MultiTopicMessageFetcher} for setting up parameters for fetching messages from the
+   *         messaging system
+   * @throws TopicNotFoundException if any of the topics doesn't exist
+   * @throws IOException if failed to fetch messages
+   * @throws ServiceUnavailableException if the messaging service is not available
+   */
+  MultiTopicMessageFetcher prepareFetch(Set<TopicId> topicIds) throws TopicNotFoundException, IOException;
+
   /**
    * Publishes a list of messages to the messaging system.
    *
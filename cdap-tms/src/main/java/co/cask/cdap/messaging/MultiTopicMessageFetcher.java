@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging;
+
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.messaging.TopicNotFoundException;
+import co.cask.cdap.messaging.data.TopicRawMessage;
+import co.cask.cdap.proto.id.TopicId;
+import org.apache.tephra.Transaction;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A builder to setup parameters for fetching messages from multiple topics of the messaging system in one call.
+ * Each topic has its own starting point, which by default is the earliest message available in the topic.
+ * Sub-class needs to override the {@link #fetch()} method to return a {@link CloseableIterator}
+ * for fetching messages. Each message returned is tagged with the topic it belongs to.
+ */
+public abstract class MultiTopicMessageFetcher {
+
+  private final Map<TopicId, StartPosition> startPositions;
+  private Transaction transaction;
+  private long pollTimeoutMillis;
+
+  // by default there is virtually no limit
+  private int limit = Integer.MAX_VALUE;
+
+  protected MultiTopicMessageFetcher(Set<TopicId> topicIds) {
+    if (topicIds.isEmpty()) {
+      throw new IllegalArgumentException("At least one topic must be provided for fetching messages");
+    }
+    Map<TopicId, StartPosition> positions = new LinkedHashMap<>();
+    for (TopicId topicId : topicIds) {
+      positions.put(topicId, new StartPosition());
+    }
+    this.startPositions = Collections.unmodifiableMap(positions);
+  }
+
+  /**
+   * Setup the message fetching starting point of the given topic based on the given message id. Calling this method
+   * will clear the start time of the topic set by the {@link #setStartTime(TopicId, long)} method.
+   *
+   * @param topicId the topic to set the starting point for
+   * @param startOffset the message id to start fetching from.
+   * @param inclusive if {@code true}, it will include the message identified by the given message id as the
+   *                  first message (if still available in the system); otherwise it won't be included.
+   * @return this instance
+   */
+  public MultiTopicMessageFetcher setStartMessage(TopicId topicId, byte[] startOffset, boolean inclusive) {
+    StartPosition position = getStartPosition(topicId);
+    position.startOffset = startOffset;
+    position.includeStart = inclusive;
+    position.startTime = null;
+    return this;
+  }
+
+  /**
+   * Setup the message fetching start time (publish time) of the given topic. Calling this method will clear the
+   * start offset of the topic set by the {@link #setStartMessage(TopicId, byte[], boolean)} method.
+   *
+   * @param topicId the topic to set the starting point for
+   * @param startTime timestamp in milliseconds
+   * @return this instance
+   */
+  public MultiTopicMessageFetcher setStartTime(TopicId topicId, long startTime) {
+    if (startTime < 0) {
+      throw new IllegalArgumentException("Invalid message fetching start time. Start time must be >= 0");
+    }
+    StartPosition position = getStartPosition(topicId);
+    position.startTime = startTime;
+    position.startOffset = null;
+    return this;
+  }
+
+  /**
+   * Sets the transaction to use for fetching. It is for transactional consumption.
+   *
+   * @param transaction the transaction to use for reading messages
+   * @return this instance
+   */
+  public MultiTopicMessageFetcher setTransaction(Transaction transaction) {
+    this.transaction = transaction;
+    return this;
+  }
+
+  /**
+   * Sets the maximum limit on number of messages to be fetched from each topic.
+   * By default, this is set to {@code Integer.MAX_VALUE}.
+   *
+   * @param limit maximum number of messages to be fetched per topic
+   * @return this instance
+   */
+  public MultiTopicMessageFetcher setLimit(int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Invalid message fetching limit. Limit must be > 0");
+    }
+    this.limit = limit;
+    return this;
+  }
+
+  /**
+   * Sets the maximum time to wait for new messages if there is no message available from any of the topics
+   * when {@link #fetch()} is called. By default, this is set to {@code 0}, meaning {@link #fetch()} returns
+   * immediately.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the {@link TimeUnit} of the timeout
+   * @return this instance
+   */
+  public MultiTopicMessageFetcher setPollTimeout(long timeout, TimeUnit unit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("Invalid poll timeout. Timeout must be >= 0");
+    }
+    this.pollTimeoutMillis = unit.toMillis(timeout);
+    return this;
+  }
+
+  /**
+   * Returns the topics to fetch from, in the order as provided when this fetcher was created.
+   */
+  protected Set<TopicId> getTopics() {
+    return startPositions.keySet();
+  }
+
+  @Nullable
+  protected byte[] getStartOffset(TopicId topicId) {
+    return getStartPosition(topicId).startOffset;
+  }
+
+  protected boolean isIncludeStart(TopicId topicId) {
+    return getStartPosition(topicId).includeStart;
+  }
+
+  @Nullable
+  protected Long getStartTime(TopicId topicId) {
+    return getStartPosition(topicId).startTime;
+  }
+
+  @Nullable
+  protected Transaction getTransaction() {
+    return transaction;
+  }
+
+  protected int getLimit() {
+    return limit;
+  }
+
+  protected long getPollTimeoutMillis() {
+    return pollTimeoutMillis;
+  }
+
+  /**
+   * Returns a {@link CloseableIterator} that iterates over messages fetched from all the topics.
+   * Messages of the same topic are returned in the order they were published.
+   *
+   * @throws TopicNotFoundException if any of the topics does not exist
+   * @throws IOException if it fails to create the iterator
+   */
+  public abstract CloseableIterator<TopicRawMessage> fetch() throws TopicNotFoundException, IOException;
+
+  private StartPosition getStartPosition(TopicId topicId) {
+    StartPosition position = startPositions.get(topicId);
+    if (position == null) {
+      throw new IllegalArgumentException("Topic " + topicId + " is not one of the topics to fetch from");
+    }
+    return position;
+  }
+
+  /**
+   * The fetching starting point of a topic.
+   */
+  private static final class StartPosition {
+    private byte[] startOffset;
+    private boolean includeStart = true;
+    private Long startTime;
+  }
+}
@@ -23,6 +23,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 
+import java.nio.ByteBuffer;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -61,6 +62,11 @@ import javax.annotation.Nullable;
  *     it if needed. This essentially is to amortize the cost of the blocking weight reduction operations among all
  *     fetchers (which typically has multiple of them), without blocking the single publish as much as possible.
  *
+ * Optionally, the bulk content of entries can be stored off-heap by providing an {@link OffHeapCodec} and an
+ * {@link OffHeapArena}. Entries are ordered and maintained on-heap without the off-heap content, which is
+ * attached back to the entry when it is returned by {@link #scan(Object, boolean, int, MessageFilter)}.
+ * This keeps large caches from growing the heap. If the arena runs out of memory, entries will be kept on-heap.
+ *
  * @param <T> type of entry stored in the cache
  */
 public class MessageCache<T> {
@@ -72,6 +78,11 @@ public class MessageCache<T> {
   private static final String METRICS_ADD_REDUCE_WEIGHT = "cache.add.reduce.weight";
   private static final String METRICS_SCAN_REQUESTS = "cache.scan.requests";
   private static final String METRICS_SCAN_REDUCE_WEIGHT = "cache.scan.reduce.weight";
+  private static final String METRICS_SCAN_HIT = "cache.scan.hit";
+  private static final String METRICS_SCAN_MISS = "cache.scan.miss";
+  private static final String METRICS_OFFHEAP_ALLOCATED = "cache.offheap.allocated.bytes";
+  private static final String METRICS_OFFHEAP_USED = "cache.offheap.used.bytes";
+  private static final String METRICS_OFFHEAP_ALLOCATION_FAILURES = "cache.offheap.allocation.failures";
 
   private final NavigableSet<CacheEntry<T>> cache;
   private final Comparator<T> comparator;
@@ -82,6 +93,8 @@ public class MessageCache<T> {
   private final AtomicBoolean adding;
   private final Weigher<T> weigher;
   private final ReadWriteLock cacheLock;
+  private final OffHeapCodec<T> offHeapCodec;
+  private final OffHeapArena offHeapArena;
 
   /**
    * Creates a new instance of the cache.
@@ -92,6 +105,25 @@ public class MessageCache<T> {
    * @param metricsContext a {@link MetricsContext} for emitting metrics about this cache.
    */
   public MessageCache(Comparator<T> comparator, Weigher<T> weigher, Limits limits, MetricsContext metricsContext) {
+    this(comparator, weigher, limits, metricsContext, null, null);
+  }
+
+  /**
+   * Creates a new instance of the cache that stores the bulk content of entries off-heap.
+   *
+   * @param comparator a {@link Comparator} for ordering cache entries
+   * @param weigher a {@link Weigher} for computing the weight of each cache entry
+   * @param limits the limits for maintaining cache weight; see class description for more detail
+   * @param metricsContext a {@link MetricsContext} for emitting metrics about this cache.
+   * @param offHeapCodec an {@link OffHeapCodec} for moving entry content to and from off-heap memory;
+   *                     {@code null} to keep all entries on-heap
+   * @param offHeapArena the {@link OffHeapArena} for allocating off-heap memory; must be provided if and only if
+   *                     the offHeapCodec is provided
+   */
+  public MessageCache(Comparator<T> comparator, Weigher<T> weigher, Limits limits, MetricsContext metricsContext,
+                      @Nullable OffHeapCodec<T> offHeapCodec, @Nullable OffHeapArena offHeapArena) {
+    Preconditions.checkArgument((offHeapCodec == null) == (offHeapArena == null),
+                                "The off-heap codec and arena must be both provided or both absent");
     this.cache = new ConcurrentSkipListSet<>(new CacheEntryComparator<>(comparator));
     this.comparator = comparator;
     this.limits = new AtomicReference<>(limits);
@@ -101,6 +133,8 @@ public class MessageCache<T> {
     this.adding = new AtomicBoolean();
     this.weigher = weigher;
     this.cacheLock = new ReentrantReadWriteLock();
+    this.offHeapCodec = offHeapCodec;
+    this.offHeapArena = offHeapArena;
   }
 
   /**
@@ -133,14 +167,17 @@ public class MessageCache<T> {
       int entriesAdded = 0;
       while (entries.hasNext()) {
         T entry = entries.next();
-        CacheEntry<T> cacheEntry = new CacheEntry<>(entry, weigher.weight(entry));
-        newWeight = currentWeight.addAndGet(cacheEntry.getWeight());
+        int weight = weigher.weight(entry);
+        newWeight = currentWeight.addAndGet(weight);
         if (newWeight > limits.get().getHardLimit()) {
           reduceWeight();
           metricsContext.increment(METRICS_ADD_REDUCE_WEIGHT, 1L);
           newWeight = currentWeight.get();
         }
 
+        // Create the cache entry after weight reduction so that off-heap memory is freed up for the new entry
+        CacheEntry<T> cacheEntry = createCacheEntry(entry, weight);
+
         // Make sure new entries are also in increasing order.
         // For the first entry from the provided iterator, it must be larger than everything in the cache, hence
         // the ceiling call must be returning null.
@@ -151,6 +188,7 @@ public class MessageCache<T> {
           // Clear the cache to reset state. This is just for precaution, as this shouldn't happen,
           // unless there is bug in the TMS system (from the caller side).
           currentWeight.addAndGet(-1 * cacheEntry.getWeight());
+          releaseOffHeap(cacheEntry);
           clear();
           throw new IllegalArgumentException("Cache entry must be in strictly increasing order. " +
                                                "Entry " + entry + " is smaller than or equal to " +
@@ -168,6 +206,10 @@ public class MessageCache<T> {
       metricsContext.increment(METRICS_ADD_REQUESTS, 1L);
       metricsContext.increment(METRICS_ENTRIES_ADDED, entriesAdded);
       metricsContext.gauge(METRICS_WEIGHT, newWeight);
+      if (offHeapArena != null) {
+        metricsContext.gauge(METRICS_OFFHEAP_ALLOCATED, offHeapArena.getAllocatedBytes());
+        metricsContext.gauge(METRICS_OFFHEAP_USED, offHeapArena.getUsedBytes());
+      }
 
       if (newWeight > limits.get().getHardLimit()) {
         reduceWeight();
@@ -198,14 +240,17 @@ public class MessageCache<T> {
     T firstInCache;
     try {
       firstInCache = cache.isEmpty() ? null : cache.first().getEntry();
-      for (CacheEntry<T> cacheEntry : cache.tailSet(new CacheEntry<>(startEntry, 0), includeStart)) {
+      for (CacheEntry<T> cacheEntry : cache.tailSet(new CacheEntry<T>(startEntry, 0, null), includeStart)) {
         if (entries.size() >= limit) {
           break;
         }
 
-        MessageFilter.Result result = filter.apply(cacheEntry.getEntry());
+        // Attach the off-heap content while holding the read lock, since the off-heap memory can be released
+        // once the entry is removed from the cache.
+        T entry = readEntry(cacheEntry);
+        MessageFilter.Result result = filter.apply(entry);
         if (result == MessageFilter.Result.ACCEPT) {
-          entries.add(cacheEntry.getEntry());
+          entries.add(entry);
         } else if (result == MessageFilter.Result.HOLD) {
           // Hold means not to scan more, so just break
           break;
@@ -216,6 +261,9 @@ public class MessageCache<T> {
     }
 
     metricsContext.increment(METRICS_SCAN_REQUESTS, 1L);
+    // It is a hit if the cache contains the start entry, meaning no need to go to the backing storage
+    boolean hit = firstInCache != null && comparator.compare(firstInCache, startEntry) <= 0;
+    metricsContext.increment(hit ? METRICS_SCAN_HIT : METRICS_SCAN_MISS, 1L);
 
     return new AbstractScanner<T>(entries.iterator(), firstInCache) {
       @Override
@@ -239,13 +287,13 @@ public class MessageCache<T> {
    * @param updater a {@link EntryUpdater} to update the content of a entry
    */
   public void updateEntries(T startEntry, T endEntry, EntryUpdater<T> updater) {
-    CacheEntry<T> startCacheEntry = new CacheEntry<>(startEntry, 0);
+    CacheEntry<T> startCacheEntry = new CacheEntry<>(startEntry, 0, null);
 
     cacheLock.writeLock().lock();
     try {
       CacheEntry<T> lower = cache.lower(startCacheEntry);
       Iterator<CacheEntry<T>> iterator = cache.subSet(startCacheEntry, true,
-                                                      new CacheEntry<>(endEntry, 0), true).iterator();
+                                                      new CacheEntry<T>(endEntry, 0, null), true).iterator();
       CacheEntry<T> cacheEntry = iterator.hasNext() ? iterator.next() : null;
       while (cacheEntry != null) {
         CacheEntry<T> nextCacheEntry = iterator.hasNext() ? iterator.next() : null;
@@ -333,6 +381,7 @@ public class MessageCache<T> {
           break;
         }
         iterator.remove();
+        releaseOffHeap(cacheEntry);
         entriesRemoved++;
         newWeight = currentWeight.addAndGet(-1 * cacheEntry.getWeight());
       }
@@ -342,6 +391,42 @@ public class MessageCache<T> {
     metricsContext.increment(METRICS_ENTRIES_REMOVED, entriesRemoved);
   }
 
+  /**
+   * Creates a {@link CacheEntry} for the given entry. If off-heap storage is enabled, the content of the
+   * entry will be moved to off-heap memory if possible.
+   */
+  private CacheEntry<T> createCacheEntry(T entry, int weight) {
+    if (offHeapCodec != null) {
+      int size = offHeapCodec.getOffHeapSize(entry);
+      if (size > 0) {
+        OffHeapArena.Block block = offHeapArena.allocate(size);
+        if (block != null) {
+          return new CacheEntry<>(offHeapCodec.writeOffHeap(entry, block.getBuffer()), weight, block);
+        }
+        metricsContext.increment(METRICS_OFFHEAP_ALLOCATION_FAILURES, 1L);
+      }
+    }
+    return new CacheEntry<>(entry, weight, null);
+  }
+
+  /**
+   * Returns the entry represented by the given {@link CacheEntry} with the off-heap content attached.
+   */
+  private T readEntry(CacheEntry<T> cacheEntry) {
+    OffHeapArena.Block block = cacheEntry.getOffHeapBlock();
+    return block == null ? cacheEntry.getEntry() : offHeapCodec.readOffHeap(cacheEntry.getEntry(), block.getBuffer());
+  }
+
+  /**
+   * Releases the off-heap memory used by the given {@link CacheEntry}.
+   */
+  private void releaseOffHeap(CacheEntry<T> cacheEntry) {
+    OffHeapArena.Block block = cacheEntry.getOffHeapBlock();
+    if (block != null) {
+      offHeapArena.release(block);
+    }
+  }
+
   /**
    * Carries the limits for the {@link MessageCache}.
    */
@@ -383,6 +468,39 @@ public class MessageCache<T> {
     int weight(T entry);
   }
 
+  /**
+   * This interface is for moving the bulk content of a cache entry to and from off-heap memory.
+   * The entry returned by {@link #writeOffHeap(Object, ByteBuffer)} is kept on-heap by the cache and must be
+   * usable with the {@link Comparator} and {@link EntryUpdater} of the cache.
+   *
+   * @param <T> type of the entry
+   */
+  public interface OffHeapCodec<T> {
+
+    /**
+     * Returns the number of bytes to be stored off-heap for the given entry, or {@code 0} to keep the entry on-heap.
+     */
+    int getOffHeapSize(T entry);
+
+    /**
+     * Writes the off-heap content of the given entry to the given buffer.
+     *
+     * @param entry the entry to write
+     * @param buffer the off-heap buffer with remaining size equals to {@link #getOffHeapSize(Object)}
+     * @return an entry without the off-heap content to be kept on-heap
+     */
+    T writeOffHeap(T entry, ByteBuffer buffer);
+
+    /**
+     * Creates an entry with the off-heap content attached.
+     *
+     * @param entry the entry returned by the {@link #writeOffHeap(Object, ByteBuffer)} method
+     * @param buffer the off-heap buffer containing the content written by the {@link #writeOffHeap(Object, ByteBuffer)}
+     * @return a complete entry
+     */
+    T readOffHeap(T entry, ByteBuffer buffer);
+  }
+
   /**
    * This interface is for accessing cached entries.
    *
@@ -468,10 +586,12 @@ public class MessageCache<T> {
   private static class CacheEntry<T> {
     private final T entry;
     private final int weight;
+    private final OffHeapArena.Block offHeapBlock;
 
-    private CacheEntry(T entry, int weight) {
+    private CacheEntry(T entry, int weight, @Nullable OffHeapArena.Block offHeapBlock) {
       this.entry = entry;
       this.weight = weight;
+      this.offHeapBlock = offHeapBlock;
     }
 
     T getEntry() {
@@ -482,6 +602,11 @@ public class MessageCache<T> {
       return weight;
     }
 
+    @Nullable
+    OffHeapArena.Block getOffHeapBlock() {
+      return offHeapBlock;
+    }
+
     @Override
     public String toString() {
       return "CacheEntry{" +
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.cache;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An arena that allocates memory blocks from off-heap {@link ByteBuffer} slabs. It is designed for the
+ * {@link MessageCache}, in which entries are added in order and mostly removed from the oldest:
+ *
+ * - Blocks are allocated sequentially from the current slab. When the current slab doesn't have enough room,
+ *   a new slab is used.
+ * - A slab is recycled when all blocks allocated from it are released and it is not the current slab.
+ *   Recycled slabs are reused for future allocations, hence the off-heap memory is allocated at most once
+ *   up to the maximum number of slabs.
+ */
+@ThreadSafe
+public final class OffHeapArena {
+
+  private final int slabSize;
+  private final int maxSlabs;
+  private final Deque<Slab> freeSlabs;
+  private int slabCount;
+  private Slab currentSlab;
+  private long usedBytes;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param slabSize size in bytes of each slab
+   * @param maxSlabs maximum number of slabs that can be allocated
+   */
+  public OffHeapArena(int slabSize, int maxSlabs) {
+    Preconditions.checkArgument(slabSize > 0, "Slab size must be > 0");
+    Preconditions.checkArgument(maxSlabs > 0, "Maximum number of slabs must be > 0");
+    this.slabSize = slabSize;
+    this.maxSlabs = maxSlabs;
+    this.freeSlabs = new ArrayDeque<>();
+  }
+
+  /**
+   * Allocates a block of the given size.
+   *
+   * @param size number of bytes to allocate
+   * @return a {@link Block} or {@code null} if the size is larger than the slab size or if all slabs are in use
+   */
+  @Nullable
+  public synchronized Block allocate(int size) {
+    if (size > slabSize) {
+      return null;
+    }
+    if (currentSlab == null || slabSize - currentSlab.position < size) {
+      Slab slab = nextSlab();
+      if (slab == null) {
+        return null;
+      }
+      Slab oldSlab = currentSlab;
+      currentSlab = slab;
+      if (oldSlab != null && oldSlab.liveBlocks == 0) {
+        recycle(oldSlab);
+      }
+    }
+
+    Block block = new Block(currentSlab, currentSlab.position, size);
+    currentSlab.position += size;
+    currentSlab.liveBlocks++;
+    usedBytes += size;
+    return block;
+  }
+
+  /**
+   * Releases the given block. The content of the block shouldn't be accessed after this call.
+   */
+  public synchronized void release(Block block) {
+    Slab slab = block.slab;
+    slab.liveBlocks--;
+    usedBytes -= block.length;
+    if (slab.liveBlocks == 0 && slab != currentSlab) {
+      recycle(slab);
+    }
+  }
+
+  /**
+   * Returns the number of off-heap bytes allocated for slabs.
+   */
+  public synchronized long getAllocatedBytes() {
+    return (long) slabCount * slabSize;
+  }
+
+  /**
+   * Returns the number of bytes used by blocks that are not yet released.
+   */
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  @Nullable
+  private Slab nextSlab() {
+    Slab slab = freeSlabs.poll();
+    if (slab != null) {
+      return slab;
+    }
+    if (slabCount >= maxSlabs) {
+      return null;
+    }
+    slabCount++;
+    return new Slab(ByteBuffer.allocateDirect(slabSize));
+  }
+
+  private void recycle(Slab slab) {
+    slab.position = 0;
+    freeSlabs.push(slab);
+  }
+
+  /**
+   * A memory block allocated from the {@link OffHeapArena}.
+   */
+  public static final class Block {
+    private final Slab slab;
+    private final int offset;
+    private final int length;
+
+    private Block(Slab slab, int offset, int length) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * Returns a new {@link ByteBuffer} for accessing the content of this block. The returned buffer has
+     * position at {@code 0} and limit equals to the block size.
+     */
+    public ByteBuffer getBuffer() {
+      ByteBuffer buffer = slab.buffer.duplicate();
+      buffer.limit(offset + length).position(offset);
+      return buffer.slice();
+    }
+
+    /**
+     * Returns the size of this block in bytes.
+     */
+    public int getLength() {
+      return length;
+    }
+  }
+
+  /**
+   * A slab of off-heap memory.
+   */
+  private static final class Slab {
+    private final ByteBuffer buffer;
+    private int position;
+    private int liveBlocks;
+
+    private Slab(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+}
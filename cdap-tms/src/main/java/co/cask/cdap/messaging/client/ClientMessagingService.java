@@ -27,11 +27,13 @@ import co.cask.cdap.common.http.DefaultHttpRequestConfig;
 import co.cask.cdap.common.internal.remote.RemoteClient;
 import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.MultiTopicMessageFetcher;
 import co.cask.cdap.messaging.RollbackDetail;
 import co.cask.cdap.messaging.Schemas;
 import co.cask.cdap.messaging.StoreRequest;
 import co.cask.cdap.messaging.TopicMetadata;
 import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.messaging.data.TopicRawMessage;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
 import co.cask.common.http.HttpMethod;
@@ -74,6 +76,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -97,7 +100,7 @@ public final class ClientMessagingService implements MessagingService {
   @Inject
   public ClientMessagingService(final DiscoveryServiceClient discoveryServiceClient) {
     this.remoteClient = new RemoteClient(discoveryServiceClient, Constants.Service.MESSAGING_SERVICE,
-                                         HTTP_REQUEST_CONFIG, "/v1/namespaces/");
+                                         HTTP_REQUEST_CONFIG, "/v1/");
   }
 
   @Override
@@ -157,7 +160,8 @@ public final class ClientMessagingService implements MessagingService {
 
   @Override
   public List<TopicId> listTopics(NamespaceId namespaceId) throws IOException {
-    HttpRequest request = remoteClient.requestBuilder(HttpMethod.GET, namespaceId.getNamespace() + "/topics").build();
+    HttpRequest request = remoteClient.requestBuilder(HttpMethod.GET,
+                                                      "namespaces/" + namespaceId.getNamespace() + "/topics").build();
     HttpResponse response = remoteClient.execute(request);
 
     handleError(response, "Failed to list topics in namespace " + namespaceId);
@@ -175,6 +179,11 @@ public final class ClientMessagingService implements MessagingService {
     return new ClientMessageFetcher(topicId);
   }
 
+  @Override
+  public MultiTopicMessageFetcher prepareFetch(Set<TopicId> topicIds) throws TopicNotFoundException, IOException {
+    return new ClientMultiTopicMessageFetcher(topicIds);
+  }
+
   @Nullable
   @Override
   public RollbackDetail publish(StoreRequest request) throws TopicNotFoundException, IOException {
@@ -260,7 +269,7 @@ public final class ClientMessagingService implements MessagingService {
    * Creates the URL path for making HTTP requests for the given topic.
    */
   private String createTopicPath(TopicId topicId) {
-    return topicId.getNamespace() + "/topics/" + topicId.getTopic();
+    return "namespaces/" + topicId.getNamespace() + "/topics/" + topicId.getTopic();
   }
 
   /**
@@ -337,6 +346,57 @@ public final class ClientMessagingService implements MessagingService {
     return os.toByteBuffer();
   }
 
+  /**
+   * Opens a {@link HttpURLConnection} to the given path and sends the given poll request.
+   * The cask common http library doesn't support read streaming, and we don't want to buffer all messages
+   * in memory, hence we use the HttpURLConnection directly instead.
+   */
+  private HttpURLConnection openPollConnection(String path, long pollTimeoutMillis,
+                                               Schema requestSchema, GenericRecord record) throws IOException {
+    // For long polling, the server may hold the response up to the poll timeout before sending anything back
+    int readTimeout = HTTP_REQUEST_CONFIG.getReadTimeout();
+    if (pollTimeoutMillis > 0) {
+      path += "?timeout=" + pollTimeoutMillis;
+      // A zero read timeout means infinite, hence no need to adjust
+      if (readTimeout > 0) {
+        readTimeout = (int) Math.min(Integer.MAX_VALUE, readTimeout + pollTimeoutMillis);
+      }
+    }
+    URL url = remoteClient.resolve(path);
+    HttpURLConnection urlConn = (HttpURLConnection)  url.openConnection();
+    urlConn.setConnectTimeout(HTTP_REQUEST_CONFIG.getConnectTimeout());
+    urlConn.setReadTimeout(readTimeout);
+    urlConn.setRequestMethod("POST");
+    urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
+    urlConn.setDoInput(true);
+    urlConn.setDoOutput(true);
+
+    // Send the request
+    Encoder encoder = EncoderFactory.get().directBinaryEncoder(urlConn.getOutputStream(), null);
+    DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(requestSchema);
+    datumWriter.write(record, encoder);
+    return urlConn;
+  }
+
+  /**
+   * Creates a {@link Supplier} for reading the response body of a failed request from the given connection.
+   */
+  private Supplier<String> createErrorBodySupplier(final HttpURLConnection urlConn) {
+    return new Supplier<String>() {
+      @Override
+      public String get() {
+        // If there is any error, read the response body from the error stream
+        InputStream errorStream = urlConn.getErrorStream();
+        try {
+          return errorStream == null ? "" : new String(ByteStreams.toByteArray(errorStream),
+                                                       StandardCharsets.UTF_8);
+        } catch (IOException e) {
+          return "";
+        }
+      }
+    };
+  }
+
   /**
    * Verifies the content-type in the header matches with the required type.
    */
@@ -366,15 +426,9 @@ public final class ClientMessagingService implements MessagingService {
   private final class ClientMessageFetcher extends MessageFetcher {
 
     private final TopicId topicId;
-    private final DatumReader<GenericRecord> messageReader;
-    private GenericRecord messageRecord;
 
     private ClientMessageFetcher(TopicId topicId) {
       this.topicId = topicId;
-
-      // These are for reading individual message (response is an array of messages)
-      this.messageRecord = new GenericData.Record(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
-      this.messageReader = new GenericDatumReader<>(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
     }
 
     @Override
@@ -394,83 +448,156 @@ public final class ClientMessagingService implements MessagingService {
         record.put("transaction", ByteBuffer.wrap(TRANSACTION_CODEC.encode(getTransaction())));
       }
 
-      // The cask common http library doesn't support read streaming, and we don't want to buffer all messages
-      // in memory, hence we use the HttpURLConnection directly instead.
-      URL url = remoteClient.resolve(createTopicPath(topicId) + "/poll");
-      final HttpURLConnection urlConn = (HttpURLConnection)  url.openConnection();
-      urlConn.setConnectTimeout(HTTP_REQUEST_CONFIG.getConnectTimeout());
-      urlConn.setReadTimeout(HTTP_REQUEST_CONFIG.getReadTimeout());
-      urlConn.setRequestMethod("POST");
-      urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
-      urlConn.setDoInput(true);
-      urlConn.setDoOutput(true);
-
-      // Send the request
-      Encoder encoder = EncoderFactory.get().directBinaryEncoder(urlConn.getOutputStream(), null);
-      DatumWriter<GenericRecord> datumWriter = new GenericDatumWriter<>(Schemas.V1.ConsumeRequest.SCHEMA);
-      datumWriter.write(record, encoder);
-
+      HttpURLConnection urlConn = openPollConnection(createTopicPath(topicId) + "/poll", getPollTimeoutMillis(),
+                                                     Schemas.V1.ConsumeRequest.SCHEMA, record);
       int responseCode = urlConn.getResponseCode();
       if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
         throw new TopicNotFoundException(topicId.getNamespace(), topicId.getTopic());
       }
 
-      handleError(responseCode, new Supplier<String>() {
+      handleError(responseCode, createErrorBodySupplier(urlConn), "Failed to update topic " + topicId);
+      verifyContentType(urlConn.getHeaderFields(), "avro/binary");
+
+      return new MessagesIterator<RawMessage>(urlConn, Schemas.V1.ConsumeResponse.SCHEMA.getElementType()) {
         @Override
-        public String get() {
-          // If there is any error, read the response body from the error stream
-          InputStream errorStream = urlConn.getErrorStream();
-          try {
-            return errorStream == null ? "" : new String(ByteStreams.toByteArray(errorStream),
-                                                         StandardCharsets.UTF_8);
-          } catch (IOException e) {
-            return "";
-          }
+        protected RawMessage decodeMessage(GenericRecord messageRecord) {
+          return new RawMessage(Bytes.toBytes((ByteBuffer) messageRecord.get("id")),
+                                Bytes.toBytes((ByteBuffer) messageRecord.get("payload")));
         }
-      }, "Failed to update topic " + topicId);
-      verifyContentType(urlConn.getHeaderFields(), "avro/binary");
+      };
+    }
+  }
 
-      // Decode the avro array manually instead of using DatumReader in order to support streaming decode.
-      final Decoder decoder = DecoderFactory.get().binaryDecoder(urlConn.getInputStream(), null);
-      final long initialItemCount = decoder.readArrayStart();
-      return new AbstractCloseableIterator<RawMessage>() {
+  /**
+   * Client side implementation of {@link MultiTopicMessageFetcher}. It fetches messages from all topics with
+   * a single call and streams messages from the server with chunk encoding.
+   */
+  private final class ClientMultiTopicMessageFetcher extends MultiTopicMessageFetcher {
 
-        private long itemCount = initialItemCount;
+    private ClientMultiTopicMessageFetcher(Set<TopicId> topicIds) {
+      super(topicIds);
+    }
 
-        @Override
-        protected RawMessage computeNext() {
-          if (initialItemCount == 0) {
-            return endOfData();
-          }
+    @Override
+    public CloseableIterator<TopicRawMessage> fetch() throws IOException, TopicNotFoundException {
+      Schema schema = Schemas.V1.MultiConsumeRequest.SCHEMA;
+      Schema topicSchema = schema.getField("topics").schema().getElementType();
+
+      // Topics in the response are identified by the index in the request
+      final List<TopicId> topicIds = new ArrayList<>(getTopics());
+      List<GenericRecord> topicRecords = new ArrayList<>(topicIds.size());
+      for (TopicId topicId : topicIds) {
+        GenericRecord topicRecord = new GenericData.Record(topicSchema);
+        topicRecord.put("namespace", topicId.getNamespace());
+        topicRecord.put("topic", topicId.getTopic());
+        if (getStartOffset(topicId) != null) {
+          topicRecord.put("startFrom", ByteBuffer.wrap(getStartOffset(topicId)));
+        }
+        if (getStartTime(topicId) != null) {
+          topicRecord.put("startFrom", getStartTime(topicId));
+        }
+        topicRecord.put("inclusive", isIncludeStart(topicId));
+        topicRecords.add(topicRecord);
+      }
 
-          try {
-            if (itemCount == 0) {
-              itemCount = decoder.arrayNext();
-              if (itemCount == 0) {
-                // The zero item count signals the end of the array
-                return endOfData();
-              }
-            }
-
-            itemCount--;
-
-            // Use DatumReader to decode individual message
-            // This provides greater flexibility on schema evolution.
-            // The response will likely always be an array, but the element schema can evolve.
-            messageRecord = messageReader.read(messageRecord, decoder);
-
-            return new RawMessage(Bytes.toBytes((ByteBuffer) messageRecord.get("id")),
-                                  Bytes.toBytes((ByteBuffer) messageRecord.get("payload")));
-          } catch (IOException e) {
-            throw Throwables.propagate(e);
+      GenericRecord record = new GenericData.Record(schema);
+      record.put("topics", topicRecords);
+      record.put("limit", getLimit());
+      if (getTransaction() != null) {
+        record.put("transaction", ByteBuffer.wrap(TRANSACTION_CODEC.encode(getTransaction())));
+      }
+
+      HttpURLConnection urlConn = openPollConnection("poll", getPollTimeoutMillis(), schema, record);
+      int responseCode = urlConn.getResponseCode();
+      Supplier<String> errorBodySupplier = createErrorBodySupplier(urlConn);
+      if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+        // Find out which topic is missing from the error message
+        String errorBody = errorBodySupplier.get();
+        for (TopicId topicId : topicIds) {
+          TopicNotFoundException notFound = new TopicNotFoundException(topicId.getNamespace(), topicId.getTopic());
+          if (errorBody.contains(notFound.getMessage())) {
+            throw notFound;
           }
         }
+        throw new IOException("Failed to fetch messages from topics " + topicIds + ". Reason: " + errorBody);
+      }
+
+      handleError(responseCode, errorBodySupplier, "Failed to fetch messages from topics " + topicIds);
+      verifyContentType(urlConn.getHeaderFields(), "avro/binary");
 
+      return new MessagesIterator<TopicRawMessage>(urlConn,
+                                                   Schemas.V1.MultiConsumeResponse.SCHEMA.getElementType()) {
         @Override
-        public void close() {
-          urlConn.disconnect();
+        protected TopicRawMessage decodeMessage(GenericRecord messageRecord) {
+          return new TopicRawMessage(topicIds.get((Integer) messageRecord.get("topicIndex")),
+                                     Bytes.toBytes((ByteBuffer) messageRecord.get("id")),
+                                     Bytes.toBytes((ByteBuffer) messageRecord.get("payload")));
         }
       };
     }
   }
+
+  /**
+   * A {@link CloseableIterator} that decodes messages from the response of a poll request.
+   * It decodes the avro array manually instead of using DatumReader in order to support streaming decode.
+   *
+   * @param <T> type of message returned by this iterator
+   */
+  private abstract static class MessagesIterator<T> extends AbstractCloseableIterator<T> {
+
+    private final HttpURLConnection urlConn;
+    private final Decoder decoder;
+    private final DatumReader<GenericRecord> messageReader;
+    private final long initialItemCount;
+    private GenericRecord messageRecord;
+    private long itemCount;
+
+    MessagesIterator(HttpURLConnection urlConn, Schema messageSchema) throws IOException {
+      this.urlConn = urlConn;
+      this.decoder = DecoderFactory.get().binaryDecoder(urlConn.getInputStream(), null);
+
+      // These are for reading individual message (response is an array of messages)
+      this.messageRecord = new GenericData.Record(messageSchema);
+      this.messageReader = new GenericDatumReader<>(messageSchema);
+      this.initialItemCount = decoder.readArrayStart();
+      this.itemCount = initialItemCount;
+    }
+
+    /**
+     * Creates a message from the decoded record.
+     */
+    protected abstract T decodeMessage(GenericRecord messageRecord);
+
+    @Override
+    protected T computeNext() {
+      if (initialItemCount == 0) {
+        return endOfData();
+      }
+
+      try {
+        if (itemCount == 0) {
+          itemCount = decoder.arrayNext();
+          if (itemCount == 0) {
+            // The zero item count signals the end of the array
+            return endOfData();
+          }
+        }
+
+        itemCount--;
+
+        // Use DatumReader to decode individual message
+        // This provides greater flexibility on schema evolution.
+        // The response will likely always be an array, but the element schema can evolve.
+        messageRecord = messageReader.read(messageRecord, decoder);
+        return decodeMessage(messageRecord);
+      } catch (IOException e) {
+        throw Throwables.propagate(e);
+      }
+    }
+
+    @Override
+    public void close() {
+      urlConn.disconnect();
+    }
+  }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.data;
+
+import co.cask.cdap.proto.id.TopicId;
+
+/**
+ * A {@link RawMessage} that also carries the topic it was fetched from. It is used when fetching from
+ * multiple topics at once.
+ */
+public class TopicRawMessage extends RawMessage {
+  private final TopicId topicId;
+
+  public TopicRawMessage(TopicId topicId, byte[] id, byte[] payload) {
+    super(id, payload);
+    this.topicId = topicId;
+  }
+
+  /**
+   * Returns the topic that this message belongs to.
+   */
+  public TopicId getTopicId() {
+    return topicId;
+  }
+}
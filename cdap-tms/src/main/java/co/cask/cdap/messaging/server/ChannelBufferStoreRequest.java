@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.server;
+
+import co.cask.cdap.common.BadRequestException;
+import co.cask.cdap.messaging.Schemas;
+import co.cask.cdap.messaging.StoreRequest;
+import co.cask.cdap.proto.id.TopicId;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link StoreRequest} that decodes payloads directly from a {@link ChannelBuffer} containing
+ * an avro binary encoded {@link Schemas.V1.PublishRequest#SCHEMA} record.
+ *
+ * Payloads are decoded lazily while the request is being iterated, with each payload copied exactly once from
+ * the {@link ChannelBuffer} to the {@code byte[]} returned by {@link #next()}. The layout of the request is
+ * validated when this class is constructed, so that a malformed request is rejected before it reaches
+ * the storage writer.
+ */
+final class ChannelBufferStoreRequest extends StoreRequest {
+
+  private final ChannelBuffer buffer;
+  private long blockRemaining;
+  private boolean endOfArray;
+
+  /**
+   * Creates an instance by decoding the given buffer. The reader index of the given buffer is not modified.
+   *
+   * @param topicId the topic to publish to
+   * @param content buffer containing the avro binary encoded publish request
+   * @throws BadRequestException if the buffer content is not a valid publish request
+   */
+  static ChannelBufferStoreRequest decode(TopicId topicId, ChannelBuffer content) throws BadRequestException {
+    ChannelBuffer buffer = content.duplicate();
+    try {
+      // The transactionWritePointer field is an union of [long, null]
+      boolean transactional;
+      long transactionWritePointer = -1L;
+      int unionIndex = readInt(buffer);
+      switch (unionIndex) {
+        case 0:
+          transactional = true;
+          transactionWritePointer = readLong(buffer);
+          break;
+        case 1:
+          transactional = false;
+          break;
+        default:
+          throw new BadRequestException("Invalid union index " + unionIndex + " for transactionWritePointer");
+      }
+
+      // Validates the messages array without decoding the payloads
+      validateMessages(buffer.duplicate());
+      return new ChannelBufferStoreRequest(topicId, transactional, transactionWritePointer, buffer);
+    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new BadRequestException("Malformed publish request for topic " + topicId, e);
+    }
+  }
+
+  private ChannelBufferStoreRequest(TopicId topicId, boolean transactional,
+                                    long transactionWritePointer, ChannelBuffer buffer) {
+    super(topicId, transactional, transactionWritePointer);
+    this.buffer = buffer;
+  }
+
+  @Nullable
+  @Override
+  protected byte[] doComputeNext() {
+    while (blockRemaining == 0) {
+      if (endOfArray) {
+        return null;
+      }
+      blockRemaining = readBlockCount(buffer);
+      endOfArray = blockRemaining == 0;
+    }
+
+    blockRemaining--;
+    byte[] payload = new byte[readInt(buffer)];
+    buffer.readBytes(payload);
+    return payload;
+  }
+
+  /**
+   * Walks through the messages array to make sure it is complete.
+   */
+  private static void validateMessages(ChannelBuffer buffer) throws BadRequestException {
+    long count = readBlockCount(buffer);
+    while (count != 0) {
+      for (long i = 0; i < count; i++) {
+        int length = readInt(buffer);
+        if (length < 0 || length > buffer.readableBytes()) {
+          throw new BadRequestException("Invalid message length " + length + " in publish request");
+        }
+        buffer.skipBytes(length);
+      }
+      count = readBlockCount(buffer);
+    }
+  }
+
+  /**
+   * Reads the number of items in an avro array block.
+   */
+  private static long readBlockCount(ChannelBuffer buffer) {
+    long count = readLong(buffer);
+    if (count < 0) {
+      // A negative count is followed by the block size in bytes, which is not needed.
+      readLong(buffer);
+      count = -count;
+    }
+    return count;
+  }
+
+  /**
+   * Reads an avro zig-zag encoded int.
+   */
+  private static int readInt(ChannelBuffer buffer) {
+    long value = readLong(buffer);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid int value " + value);
+    }
+    return (int) value;
+  }
+
+  /**
+   * Reads an avro zig-zag encoded long.
+   */
+  private static long readLong(ChannelBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (shift >= 64) {
+        throw new IllegalArgumentException("Invalid long encoding");
+      }
+      b = buffer.readByte();
+      value |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
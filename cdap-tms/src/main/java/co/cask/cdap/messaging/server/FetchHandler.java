@@ -20,20 +20,26 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.api.messaging.TopicNotFoundException;
 import co.cask.cdap.common.BadRequestException;
+import co.cask.cdap.common.HttpExceptionHandler;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.MultiTopicMessageFetcher;
 import co.cask.cdap.messaging.Schemas;
 import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.messaging.data.TopicRawMessage;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.BodyProducer;
+import co.cask.http.ExceptionHandler;
+import co.cask.http.HandlerContext;
 import co.cask.http.HttpResponder;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.inject.Inject;
+import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
@@ -45,6 +51,7 @@ import org.apache.avro.io.DecoderFactory;
 import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.tephra.TransactionCodec;
+import org.apache.twill.common.Threads;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferInputStream;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
@@ -59,37 +66,164 @@ import java.io.IOException;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 /**
  * A netty http handler for handling message fetching REST API for the messaging system.
+ *
+ * A poll request can carry a {@code timeout} query parameter in milliseconds to perform long polling. If there is
+ * no message available, the response will be withheld until new messages are published to the topic or the timeout
+ * expires. Long polls are served from a dedicated thread pool so that they don't block the http server threads.
+ *
+ * Messages from multiple topics can be fetched in one call through the {@code /v1/poll} endpoint. Each message
+ * in the response carries the index of the topic in the request that it belongs to.
  */
-@Path("/v1/namespaces/{namespace}/topics/{topic}")
+@Path("/v1")
 public final class FetchHandler extends AbstractHttpHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(FetchHandler.class);
   private static final TransactionCodec TRANSACTION_CODEC = new TransactionCodec();
+  private static final ExceptionHandler EXCEPTION_HANDLER = new HttpExceptionHandler();
 
   private final MessagingService messagingService;
-  private int messageChunkSize;
+  private final int messageChunkSize;
+  private final long maxPollTimeoutMillis;
+  private final int longPollThreads;
+  private ExecutorService longPollExecutor;
 
   @Inject
   FetchHandler(CConfiguration cConf, MessagingService messagingService) {
     this.messagingService = messagingService;
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
+    this.maxPollTimeoutMillis = cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_MAX_POLL_TIMEOUT_MS);
+    this.longPollThreads = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_LONG_POLL_THREADS);
+  }
+
+  @Override
+  public void init(HandlerContext context) {
+    super.init(context);
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(longPollThreads, longPollThreads, 60, TimeUnit.SECONDS,
+                                                         new SynchronousQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("messaging-long-poll-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    longPollExecutor = executor;
+  }
+
+  @Override
+  public void destroy(HandlerContext context) {
+    super.destroy(context);
+    longPollExecutor.shutdownNow();
   }
 
   @POST
-  @Path("poll")
+  @Path("namespaces/{namespace}/topics/{topic}/poll")
   public void poll(HttpRequest request, HttpResponder responder,
                    @PathParam("namespace") String namespace,
-                   @PathParam("topic") String topic) throws Exception {
+                   @PathParam("topic") String topic,
+                   @QueryParam("timeout") @DefaultValue("0") long timeoutMillis) throws Exception {
 
     TopicId topicId = new NamespaceId(namespace).topic(topic);
+    GenericRecord fetchRequest = decodeRequest(request, timeoutMillis, Schemas.V1.ConsumeRequest.SCHEMA);
+
+    final MessageFetcher fetcher = createFetcher(fetchRequest, topicId);
+    respond(request, responder, timeoutMillis, new PollTask() {
+      @Override
+      public void setPollTimeout(long timeoutMillis) {
+        fetcher.setPollTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+      }
+
+      @Override
+      public MessagesBodyProducer<?> fetch() throws Exception {
+        return new MessagesBodyProducer<>(fetcher.fetch(), messageChunkSize,
+                                          Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
+      }
+    });
+  }
+
+  @POST
+  @Path("poll")
+  public void multiPoll(HttpRequest request, HttpResponder responder,
+                        @QueryParam("timeout") @DefaultValue("0") long timeoutMillis) throws Exception {
+    GenericRecord fetchRequest = decodeRequest(request, timeoutMillis, Schemas.V1.MultiConsumeRequest.SCHEMA);
+
+    // Topic index in the request is used to tag messages in the response
+    final Map<TopicId, Integer> topicIndices = new LinkedHashMap<>();
+    List<GenericRecord> topicRequests = getTopicRequests(fetchRequest);
+    for (GenericRecord topicRequest : topicRequests) {
+      TopicId topicId = getTopicId(topicRequest);
+      if (topicIndices.put(topicId, topicIndices.size()) != null) {
+        throw new BadRequestException("Topic " + topicId + " appears more than once in the poll request");
+      }
+    }
+    if (topicIndices.isEmpty()) {
+      throw new BadRequestException("At least one topic must be provided in the poll request");
+    }
+
+    final MultiTopicMessageFetcher fetcher = messagingService.prepareFetch(topicIndices.keySet());
+    for (GenericRecord topicRequest : topicRequests) {
+      TopicId topicId = getTopicId(topicRequest);
+      Object startFrom = topicRequest.get("startFrom");
+      if (startFrom instanceof ByteBuffer) {
+        // start message id is specified
+        fetcher.setStartMessage(topicId, Bytes.toBytes((ByteBuffer) startFrom),
+                                (Boolean) topicRequest.get("inclusive"));
+      } else if (startFrom instanceof Long) {
+        // start by timestamp is specified
+        fetcher.setStartTime(topicId, (Long) startFrom);
+      }
+    }
+
+    Integer limit = (Integer) fetchRequest.get("limit");
+    if (limit != null) {
+      fetcher.setLimit(limit);
+    }
+
+    ByteBuffer encodedTx = (ByteBuffer) fetchRequest.get("transaction");
+    if (encodedTx != null) {
+      fetcher.setTransaction(TRANSACTION_CODEC.decode(ByteBuffers.getByteArray(encodedTx)));
+    }
+
+    respond(request, responder, timeoutMillis, new PollTask() {
+      @Override
+      public void setPollTimeout(long timeoutMillis) {
+        fetcher.setPollTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+      }
+
+      @Override
+      public MessagesBodyProducer<?> fetch() throws Exception {
+        return new MessagesBodyProducer<TopicRawMessage>(fetcher.fetch(), messageChunkSize,
+                                                         Schemas.V1.MultiConsumeResponse.SCHEMA.getElementType()) {
+          @Override
+          protected void encodeMessage(GenericRecord messageRecord, TopicRawMessage message) {
+            super.encodeMessage(messageRecord, message);
+            messageRecord.put("topicIndex", topicIndices.get(message.getTopicId()));
+          }
+        };
+      }
+    });
+  }
+
+  /**
+   * Validates and decodes the given poll request with the given schema.
+   */
+  private GenericRecord decodeRequest(HttpRequest request, long timeoutMillis,
+                                      Schema schema) throws BadRequestException, IOException {
+    if (timeoutMillis < 0) {
+      throw new BadRequestException("Poll timeout must be >= 0");
+    }
 
     // Currently only support avro
     if (!"avro/binary".equals(request.getHeader(HttpHeaders.Names.CONTENT_TYPE))) {
@@ -99,24 +233,70 @@ public final class FetchHandler extends AbstractHttpHandler {
     // Decode the poll request
     Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ChannelBufferInputStream(request.getContent()),
                                                                null);
-    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.ConsumeRequest.SCHEMA);
+    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(schema);
+    return datumReader.read(null, decoder);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<GenericRecord> getTopicRequests(GenericRecord fetchRequest) {
+    return (List<GenericRecord>) fetchRequest.get("topics");
+  }
+
+  private TopicId getTopicId(GenericRecord topicRequest) {
+    return new NamespaceId(topicRequest.get("namespace").toString()).topic(topicRequest.get("topic").toString());
+  }
+
+  /**
+   * Sends the messages fetched by the given {@link PollTask} as the response. If the poll timeout is larger than
+   * zero, the fetch is performed asynchronously in the long poll executor.
+   */
+  private void respond(final HttpRequest request, final HttpResponder responder,
+                       long timeoutMillis, final PollTask task) throws Exception {
+    if (timeoutMillis == 0) {
+      sendMessages(responder, task.fetch());
+      return;
+    }
+
+    // Long polling. The fetch will block until there is message available or timeout, hence performs it
+    // asynchronously in the long poll executor.
+    task.setPollTimeout(Math.min(timeoutMillis, maxPollTimeoutMillis));
+    try {
+      longPollExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            sendMessages(responder, task.fetch());
+          } catch (Throwable t) {
+            EXCEPTION_HANDLER.handle(t, request, responder);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // Too many outstanding long polls. Fallback to fetch without waiting.
+      LOG.trace("Long poll rejected for request {}. Fetch without waiting.", request.getUri());
+      task.setPollTimeout(0);
+      sendMessages(responder, task.fetch());
+    }
+  }
 
-    // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder), topicId);
+  /**
+   * Sends the messages provided by the given {@link MessagesBodyProducer} as the response.
+   */
+  private void sendMessages(HttpResponder responder, MessagesBodyProducer<?> bodyProducer) throws Exception {
     try {
-      responder.sendContent(HttpResponseStatus.OK, new MessagesBodyProducer(iterator, messageChunkSize),
+      responder.sendContent(HttpResponseStatus.OK, bodyProducer,
                             ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, "avro/binary"));
     } catch (Throwable t) {
-      iterator.close();
+      bodyProducer.close();
       throw t;
     }
   }
 
   /**
-   * Creates a {@link CloseableIterator} of {@link RawMessage} based on the given fetch request.
+   * Creates a {@link MessageFetcher} based on the given fetch request.
    */
-  private CloseableIterator<RawMessage> fetchMessages(GenericRecord fetchRequest,
-                                                      TopicId topicId) throws IOException, TopicNotFoundException {
+  private MessageFetcher createFetcher(GenericRecord fetchRequest,
+                                       TopicId topicId) throws IOException, TopicNotFoundException {
     MessageFetcher fetcher = messagingService.prepareFetch(topicId);
 
     Object startFrom = fetchRequest.get("startFrom");
@@ -143,7 +323,23 @@ public final class FetchHandler extends AbstractHttpHandler {
       fetcher.setTransaction(TRANSACTION_CODEC.decode(ByteBuffers.getByteArray(encodedTx)));
     }
 
-    return fetcher.fetch();
+    return fetcher;
+  }
+
+  /**
+   * A task for fetching messages, which may be executed asynchronously for long polling.
+   */
+  private interface PollTask {
+
+    /**
+     * Sets the maximum time in milliseconds to wait for new messages.
+     */
+    void setPollTimeout(long timeoutMillis);
+
+    /**
+     * Fetches messages and returns a {@link MessagesBodyProducer} for sending them back.
+     */
+    MessagesBodyProducer<?> fetch() throws Exception;
   }
 
   /**
@@ -151,10 +347,10 @@ public final class FetchHandler extends AbstractHttpHandler {
    * Instead of using GenericDatumWriter, we perform the array encoding manually so that we don't have to buffer
    * all messages in memory before sending out.
    */
-  private static class MessagesBodyProducer extends BodyProducer {
+  private static class MessagesBodyProducer<T extends RawMessage> extends BodyProducer {
 
-    private final CloseableIterator<RawMessage> iterator;
-    private final List<RawMessage> messages;
+    private final CloseableIterator<T> iterator;
+    private final List<T> messages;
     private final int messageChunkSize;
     private final ChannelBuffer chunk;
     private final Encoder encoder;
@@ -163,7 +359,7 @@ public final class FetchHandler extends AbstractHttpHandler {
     private boolean arrayStarted;
     private boolean arrayEnded;
 
-    MessagesBodyProducer(CloseableIterator<RawMessage> iterator, int messageChunkSize) {
+    MessagesBodyProducer(CloseableIterator<T> iterator, int messageChunkSize, Schema messageSchema) {
       this.iterator = iterator;
       this.messages = new ArrayList<>();
       this.messageChunkSize = messageChunkSize;
@@ -171,8 +367,8 @@ public final class FetchHandler extends AbstractHttpHandler {
       this.encoder = EncoderFactory.get().directBinaryEncoder(new ChannelBufferOutputStream(chunk), null);
 
       // These are for writing individual message (response is an array of messages)
-      this.messageRecord = new GenericData.Record(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
-      this.messageWriter = new GenericDatumWriter<GenericRecord>(Schemas.V1.ConsumeResponse.SCHEMA.getElementType()) {
+      this.messageRecord = new GenericData.Record(messageSchema);
+      this.messageWriter = new GenericDatumWriter<GenericRecord>(messageSchema) {
         @Override
         protected void writeBytes(Object datum, Encoder out) throws IOException {
           if (datum instanceof byte[]) {
@@ -202,7 +398,7 @@ public final class FetchHandler extends AbstractHttpHandler {
       int size = 0;
       messages.clear();
       while (iterator.hasNext() && size < messageChunkSize) {
-        RawMessage message = iterator.next();
+        T message = iterator.next();
         messages.add(message);
 
         // Avro encodes bytes as (len + bytes), hence adding 8 to cater for the length of the id and payload
@@ -212,14 +408,13 @@ public final class FetchHandler extends AbstractHttpHandler {
       }
 
       encoder.setItemCount(messages.size());
-      for (RawMessage message : messages) {
+      for (T message : messages) {
         encoder.startItem();
 
         // Write individual message (array element) with DatumWrite.
         // This provides greater flexibility on schema evolution.
         // The response will likely always be an array, but the element schema can evolve.
-        messageRecord.put("id", message.getId());
-        messageRecord.put("payload", message.getPayload());
+        encodeMessage(messageRecord, message);
         messageWriter.write(messageRecord, encoder);
       }
 
@@ -233,12 +428,12 @@ public final class FetchHandler extends AbstractHttpHandler {
 
     @Override
     public void finished() throws Exception {
-      iterator.close();
+      close();
     }
 
     @Override
     public void handleError(@Nullable Throwable cause) {
-      iterator.close();
+      close();
       // Since response header is already sent, there is nothing we can send back to client. Simply log the failure
       if (cause instanceof SocketException) {
         // This can easily caused by client close connection prematurely. Don't want to flood the log.
@@ -247,5 +442,20 @@ public final class FetchHandler extends AbstractHttpHandler {
         LOG.warn("Exception raised when sending messages back to client", cause);
       }
     }
+
+    /**
+     * Sets the fields of the given record based on the given message.
+     */
+    protected void encodeMessage(GenericRecord messageRecord, T message) {
+      messageRecord.put("id", message.getId());
+      messageRecord.put("payload", message.getPayload());
+    }
+
+    /**
+     * Closes the underlying message iterator.
+     */
+    void close() {
+      iterator.close();
+    }
   }
 }
@@ -17,7 +17,6 @@
 package co.cask.cdap.messaging.server;
 
 import co.cask.cdap.common.BadRequestException;
-import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.RollbackDetail;
 import co.cask.cdap.messaging.Schemas;
@@ -47,10 +46,6 @@ import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.util.Iterator;
-import java.util.List;
-import javax.annotation.Nullable;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -135,10 +130,7 @@ public final class StoreHandler extends AbstractHttpHandler {
       throw new BadRequestException("Only avro/binary content type is supported.");
     }
 
-    Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ChannelBufferInputStream(request.getContent()),
-                                                               null);
-    DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.PublishRequest.SCHEMA);
-    return new GenericRecordStoreRequest(topicId, datumReader.read(null, decoder));
+    return ChannelBufferStoreRequest.decode(topicId, request.getContent());
   }
 
   /**
@@ -169,33 +161,6 @@ public final class StoreHandler extends AbstractHttpHandler {
     return buffer;
   }
 
-  /**
-   * A {@link StoreRequest} that gets the request information from {@link GenericRecord}.
-   */
-  private static final class GenericRecordStoreRequest extends StoreRequest {
-
-    private final Iterator<ByteBuffer> payloadIterator;
-
-    @SuppressWarnings("unchecked")
-    GenericRecordStoreRequest(TopicId topicId, GenericRecord genericRecord) {
-      super(topicId, genericRecord.get("transactionWritePointer") != null,
-            genericRecord.get("transactionWritePointer") == null
-              ? -1L
-              : Long.parseLong(genericRecord.get("transactionWritePointer").toString()));
-
-      this.payloadIterator = ((List<ByteBuffer>) genericRecord.get("messages")).iterator();
-    }
-
-    @Nullable
-    @Override
-    protected byte[] doComputeNext() {
-      if (!payloadIterator.hasNext()) {
-        return null;
-      }
-      return ByteBuffers.getByteArray(payloadIterator.next());
-    }
-  }
-
   /**
    * A {@link RollbackDetail} implementation that is backed by a {@link GenericRecord} with the
    * {@link Schemas.V1.PublishResponse#SCHEMA}.
@@ -24,7 +24,6 @@ import co.cask.cdap.messaging.TopicMetadata;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -60,7 +59,7 @@ import javax.annotation.concurrent.ThreadSafe;
  * get written and flushed.
  */
 @ThreadSafe
-final class ConcurrentMessageWriter implements Closeable {
+final class ConcurrentMessageWriter implements MessageWriter {
 
   private final StoreRequestWriter<?> messagesWriter;
   private final MetricsCollector metricsCollector;
@@ -101,7 +100,8 @@ final class ConcurrentMessageWriter implements Closeable {
    * @throws IOException if failed to persist the data
    */
   @Nullable
-  RollbackDetail persist(StoreRequest storeRequest, TopicMetadata metadata) throws IOException {
+  @Override
+  public RollbackDetail persist(StoreRequest storeRequest, TopicMetadata metadata) throws IOException {
     if (closed.get()) {
       throw new IOException("Message writer is already closed");
     }
@@ -228,50 +228,4 @@ final class ConcurrentMessageWriter implements Closeable {
       }
     }
   }
-
-  /**
-   * Straightforward implementation of {@link RollbackDetail}
-   */
-  private static final class SimpleRollbackDetail implements RollbackDetail {
-
-    private final long transactionWritePointer;
-    private final long startTimestamp;
-    private final int startSequenceId;
-    private final long endTimestamp;
-    private final int endSequenceId;
-
-    SimpleRollbackDetail(long transactionWritePointer, long startTimestamp,
-                         int startSequenceId, long endTimestamp, int endSequenceId) {
-      this.transactionWritePointer = transactionWritePointer;
-      this.startTimestamp = startTimestamp;
-      this.startSequenceId = startSequenceId;
-      this.endTimestamp = endTimestamp;
-      this.endSequenceId = endSequenceId;
-    }
-
-    @Override
-    public long getTransactionWritePointer() {
-      return transactionWritePointer;
-    }
-
-    @Override
-    public long getStartTimestamp() {
-      return startTimestamp;
-    }
-
-    @Override
-    public int getStartSequenceId() {
-      return startSequenceId;
-    }
-
-    @Override
-    public long getEndTimestamp() {
-      return endTimestamp;
-    }
-
-    @Override
-    public int getEndSequenceId() {
-      return endSequenceId;
-    }
-  }
 }
@@ -29,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -41,20 +42,58 @@ final class CoreMessageFetcher extends MessageFetcher {
 
   private static final Logger LOG = LoggerFactory.getLogger(CoreMessageFetcher.class);
 
+  // Maximum time to wait for a notification before scanning the table again. This is needed as messages
+  // can be published through a different messaging service instance, which doesn't notify this instance.
+  private static final long MAX_WAIT_MILLIS = 1000L;
+
   private final TopicMetadata topicMetadata;
   private final TableProvider<MessageTable> messageTableProvider;
   private final TableProvider<PayloadTable> payloadTableProvider;
+  private final TopicMessageNotifier notifier;
 
   CoreMessageFetcher(TopicMetadata topicMetadata,
                      TableProvider<MessageTable> messageTableProvider,
-                     TableProvider<PayloadTable> payloadTableProvider) {
+                     TableProvider<PayloadTable> payloadTableProvider,
+                     TopicMessageNotifier notifier) {
     this.topicMetadata = topicMetadata;
     this.messageTableProvider = messageTableProvider;
     this.payloadTableProvider = payloadTableProvider;
+    this.notifier = notifier;
   }
 
   @Override
   public CloseableIterator<RawMessage> fetch() throws IOException {
+    long pollTimeoutMillis = getPollTimeoutMillis();
+    if (pollTimeoutMillis <= 0) {
+      return createIterator();
+    }
+
+    // Long polling. Keeps fetching until there is message available or the poll timeout expired.
+    TopicId topicId = topicMetadata.getTopicId();
+    long deadline = System.currentTimeMillis() + pollTimeoutMillis;
+    while (true) {
+      // Capture the sequence before scanning so that no notification would be missed
+      long sequence = notifier.getSequence(topicId);
+      CloseableIterator<RawMessage> iterator = createIterator();
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0 || iterator.hasNext()) {
+        return iterator;
+      }
+      iterator.close();
+
+      try {
+        notifier.await(topicId, sequence, Math.min(remaining, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for messages from " + topicId);
+      }
+    }
+  }
+
+  /**
+   * Creates a {@link CloseableIterator} for fetching messages based on the fetching parameters.
+   */
+  private CloseableIterator<RawMessage> createIterator() throws IOException {
     MessageTable messageTable = messageTableProvider.get();
     try {
       return new MessageCloseableIterator(messageTable);
@@ -27,6 +27,7 @@ import co.cask.cdap.messaging.MessageFetcher;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.MessagingServiceUtils;
 import co.cask.cdap.messaging.MessagingUtils;
+import co.cask.cdap.messaging.MultiTopicMessageFetcher;
 import co.cask.cdap.messaging.RollbackDetail;
 import co.cask.cdap.messaging.StoreRequest;
 import co.cask.cdap.messaging.TopicMetadata;
@@ -37,6 +38,7 @@ import co.cask.cdap.messaging.store.TableFactory;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
 import com.google.common.cache.CacheBuilder;
@@ -54,6 +56,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -80,11 +83,12 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final CConfiguration cConf;
   private final TableFactory tableFactory;
   private final LoadingCache<TopicId, TopicMetadata> topicCache;
-  private final LoadingCache<TopicId, ConcurrentMessageWriter> messageTableWriterCache;
-  private final LoadingCache<TopicId, ConcurrentMessageWriter> payloadTableWriterCache;
+  private final LoadingCache<TopicId, MessageWriter> messageTableWriterCache;
+  private final LoadingCache<TopicId, MessageWriter> payloadTableWriterCache;
   private final TimeProvider timeProvider;
   private final MetricsCollectionService metricsCollectionService;
   private final long txMaxLifeTimeInMillis;
+  private final TopicMessageNotifier messageNotifier;
 
   @Inject
   CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
@@ -101,6 +105,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     this.messageTableWriterCache = createTableWriterCache(true, cConf);
     this.payloadTableWriterCache = createTableWriterCache(false, cConf);
     this.timeProvider = timeProvider;
+    this.messageNotifier = new TopicMessageNotifier();
 
     // Due to circular dependency in our class hierarchy (which is bad), we cannot use metricsCollectionService
     // to construct metricsContext in here. The circular dependency is
@@ -142,6 +147,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       topicCache.invalidate(topicId);
       messageTableWriterCache.invalidate(topicId);
       payloadTableWriterCache.invalidate(topicId);
+      messageNotifier.remove(topicId);
     }
   }
 
@@ -164,19 +170,22 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   }
 
   @Override
-  public MessageFetcher prepareFetch(final TopicId topicId) throws TopicNotFoundException, IOException {
-    final TopicMetadata metadata = getTopic(topicId);
-    return new CoreMessageFetcher(metadata, new TableProvider<MessageTable>() {
-      @Override
-      public MessageTable get() throws IOException {
-        return createMessageTable(metadata);
-      }
-    }, new TableProvider<PayloadTable>() {
+  public MessageFetcher prepareFetch(TopicId topicId) throws TopicNotFoundException, IOException {
+    return createMessageFetcher(getTopic(topicId));
+  }
+
+  @Override
+  public MultiTopicMessageFetcher prepareFetch(Set<TopicId> topicIds) throws TopicNotFoundException, IOException {
+    List<TopicMetadata> topicMetadatas = new ArrayList<>(topicIds.size());
+    for (TopicId topicId : topicIds) {
+      topicMetadatas.add(getTopic(topicId));
+    }
+    return new CoreMultiTopicMessageFetcher(topicMetadatas, new Function<TopicMetadata, MessageFetcher>() {
       @Override
-      public PayloadTable get() throws IOException {
-        return createPayloadTable(metadata);
+      public MessageFetcher apply(TopicMetadata metadata) {
+        return createMessageFetcher(metadata);
       }
-    });
+    }, messageNotifier);
   }
 
   @Nullable
@@ -187,7 +196,10 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       if (request.isTransactional()) {
         ensureValidTxLifetime(request.getTransactionWritePointer());
       }
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      RollbackDetail rollbackDetail = messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      // Wakes up consumers waiting for new messages in the topic
+      messageNotifier.notifyArrival(request.getTopicId());
+      return rollbackDetail;
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -331,24 +343,28 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   }
 
   /**
-   * Creates a {@link LoadingCache} for {@link ConcurrentMessageWriter}
-   * for writing to {@link MessageTable} or {@link PayloadTable}.
+   * Creates a {@link LoadingCache} for {@link MessageWriter}
+   * for writing to {@link MessageTable} or {@link PayloadTable}. Depending on the configuration, either
+   * a {@link ConcurrentMessageWriter} or a {@link GroupCommitMessageWriter} will be used.
    *
    * @param messageTable {@code true} for building a cache for the {@link MessageTable};
    *                     {@code false} for the {@link PayloadTable}
    * @param cConf the system configuration
    * @return a {@link LoadingCache} for
    */
-  private LoadingCache<TopicId, ConcurrentMessageWriter> createTableWriterCache(final boolean messageTable,
+  private LoadingCache<TopicId, MessageWriter> createTableWriterCache(final boolean messageTable,
                                                                                 final CConfiguration cConf) {
     long expireSecs = cConf.getLong(Constants.MessagingSystem.TABLE_CACHE_EXPIRATION_SECONDS);
+    final boolean groupCommit = cConf.getBoolean(Constants.MessagingSystem.GROUP_COMMIT_ENABLED);
+    final int maxBatchMessages = cConf.getInt(Constants.MessagingSystem.GROUP_COMMIT_MAX_BATCH_MESSAGES);
+    final long maxBatchSize = cConf.getLong(Constants.MessagingSystem.GROUP_COMMIT_MAX_BATCH_SIZE_BYTES);
 
     return CacheBuilder.newBuilder()
       .expireAfterAccess(expireSecs, TimeUnit.SECONDS)
-      .removalListener(new RemovalListener<TopicId, ConcurrentMessageWriter>() {
+      .removalListener(new RemovalListener<TopicId, MessageWriter>() {
         @Override
-        public void onRemoval(RemovalNotification<TopicId, ConcurrentMessageWriter> notification) {
-          ConcurrentMessageWriter writer = notification.getValue();
+        public void onRemoval(RemovalNotification<TopicId, MessageWriter> notification) {
+          MessageWriter writer = notification.getValue();
           if (writer != null) {
             try {
               writer.close();
@@ -358,9 +374,9 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
           }
         }
       })
-      .build(new CacheLoader<TopicId, ConcurrentMessageWriter>() {
+      .build(new CacheLoader<TopicId, MessageWriter>() {
         @Override
-        public ConcurrentMessageWriter load(TopicId topicId) throws Exception {
+        public MessageWriter load(TopicId topicId) throws Exception {
           TopicMetadata metadata = getTopic(topicId);
           StoreRequestWriter<?> messagesWriter = messageTable
             ? new MessageTableStoreRequestWriter(createMessageTable(metadata), timeProvider)
@@ -373,6 +389,11 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
             Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload"
           ));
 
+          if (groupCommit) {
+            String name = String.format("%s.%s-%s", topicId.getNamespace(), topicId.getTopic(),
+                                        messageTable ? "message" : "payload");
+            return new GroupCommitMessageWriter(name, messagesWriter, maxBatchMessages, maxBatchSize, metricsContext);
+          }
           return new ConcurrentMessageWriter(messagesWriter, metricsContext);
         }
       });
@@ -385,6 +406,23 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     return tableFactory.createMetadataTable(cConf.get(Constants.MessagingSystem.METADATA_TABLE_NAME));
   }
 
+  /**
+   * Creates a {@link MessageFetcher} for fetching messages from the given topic.
+   */
+  private MessageFetcher createMessageFetcher(final TopicMetadata metadata) {
+    return new CoreMessageFetcher(metadata, new TableProvider<MessageTable>() {
+      @Override
+      public MessageTable get() throws IOException {
+        return createMessageTable(metadata);
+      }
+    }, new TableProvider<PayloadTable>() {
+      @Override
+      public PayloadTable get() throws IOException {
+        return createPayloadTable(metadata);
+      }
+    }, messageNotifier);
+  }
+
   private MessageTable createMessageTable(@SuppressWarnings("unused") TopicMetadata topicMetadata) throws IOException {
     // Currently we don't support customizable table name yet, hence always get it from cConf.
     // Later on it can be done by topic properties, with impersonation setting as well.
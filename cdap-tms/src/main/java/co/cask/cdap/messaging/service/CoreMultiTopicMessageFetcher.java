@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.service;
+
+import co.cask.cdap.api.dataset.lib.AbstractCloseableIterator;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.messaging.MessageFetcher;
+import co.cask.cdap.messaging.MultiTopicMessageFetcher;
+import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.messaging.data.TopicRawMessage;
+import co.cask.cdap.proto.id.TopicId;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link MultiTopicMessageFetcher} that fetch messages directly
+ * from the message and payload tables.
+ *
+ * Topics are scanned one after the other using {@link CoreMessageFetcher}, hence at most one table scan is
+ * active at any time. The scan of a topic only starts after all messages of the previous topic are consumed.
+ */
+final class CoreMultiTopicMessageFetcher extends MultiTopicMessageFetcher {
+
+  // Maximum time to wait for a notification before scanning the tables again. This is needed as messages
+  // can be published through a different messaging service instance, which doesn't notify this instance.
+  private static final long MAX_WAIT_MILLIS = 1000L;
+
+  private final List<TopicMetadata> topicMetadatas;
+  private final Function<TopicMetadata, MessageFetcher> fetcherFactory;
+  private final TopicMessageNotifier notifier;
+
+  /**
+   * Constructor.
+   *
+   * @param topicMetadatas metadata of the topics to fetch from
+   * @param fetcherFactory a {@link Function} to create {@link MessageFetcher} for fetching from a single topic
+   * @param notifier the {@link TopicMessageNotifier} for waiting for new messages during long polling
+   */
+  CoreMultiTopicMessageFetcher(List<TopicMetadata> topicMetadatas,
+                               Function<TopicMetadata, MessageFetcher> fetcherFactory,
+                               TopicMessageNotifier notifier) {
+    super(getTopicIds(topicMetadatas));
+    this.topicMetadatas = topicMetadatas;
+    this.fetcherFactory = fetcherFactory;
+    this.notifier = notifier;
+  }
+
+  @Override
+  public CloseableIterator<TopicRawMessage> fetch() throws IOException {
+    long pollTimeoutMillis = getPollTimeoutMillis();
+    if (pollTimeoutMillis <= 0) {
+      return new MultiTopicIterator();
+    }
+
+    // Long polling. Keeps fetching until there is message available from any topic or the poll timeout expired.
+    long deadline = System.currentTimeMillis() + pollTimeoutMillis;
+    Map<TopicId, Long> sequences = new HashMap<>();
+    while (true) {
+      // Capture the sequences before scanning so that no notification would be missed
+      for (TopicId topicId : getTopics()) {
+        sequences.put(topicId, notifier.getSequence(topicId));
+      }
+      MultiTopicIterator iterator = new MultiTopicIterator();
+      long remaining = deadline - System.currentTimeMillis();
+      try {
+        if (remaining <= 0 || iterator.hasNext()) {
+          return iterator;
+        }
+      } catch (RuntimeException e) {
+        iterator.close();
+        Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+        throw e;
+      }
+      iterator.close();
+
+      try {
+        notifier.awaitAny(sequences, Math.min(remaining, MAX_WAIT_MILLIS), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for messages from " + getTopics());
+      }
+    }
+  }
+
+  /**
+   * Creates a {@link MessageFetcher} for fetching from the given topic based on the fetching parameters.
+   */
+  private MessageFetcher createFetcher(TopicMetadata metadata) {
+    TopicId topicId = metadata.getTopicId();
+    MessageFetcher fetcher = fetcherFactory.apply(metadata);
+    byte[] startOffset = getStartOffset(topicId);
+    Long startTime = getStartTime(topicId);
+    if (startOffset != null) {
+      fetcher.setStartMessage(startOffset, isIncludeStart(topicId));
+    } else if (startTime != null) {
+      fetcher.setStartTime(startTime);
+    }
+    if (getTransaction() != null) {
+      fetcher.setTransaction(getTransaction());
+    }
+    return fetcher.setLimit(getLimit());
+  }
+
+  private static Set<TopicId> getTopicIds(List<TopicMetadata> topicMetadatas) {
+    Set<TopicId> topicIds = new LinkedHashSet<>();
+    for (TopicMetadata metadata : topicMetadatas) {
+      topicIds.add(metadata.getTopicId());
+    }
+    return topicIds;
+  }
+
+  /**
+   * A {@link CloseableIterator} that concatenates messages fetched from each topic sequentially.
+   */
+  private final class MultiTopicIterator extends AbstractCloseableIterator<TopicRawMessage> {
+
+    private final Iterator<TopicMetadata> topics = topicMetadatas.iterator();
+    private TopicId currentTopic;
+    private CloseableIterator<RawMessage> currentIterator;
+
+    @Override
+    protected TopicRawMessage computeNext() {
+      while (currentIterator == null || !currentIterator.hasNext()) {
+        closeCurrent();
+        if (!topics.hasNext()) {
+          return endOfData();
+        }
+        TopicMetadata metadata = topics.next();
+        currentTopic = metadata.getTopicId();
+        try {
+          currentIterator = createFetcher(metadata).fetch();
+        } catch (Exception e) {
+          throw Throwables.propagate(e);
+        }
+      }
+      RawMessage message = currentIterator.next();
+      return new TopicRawMessage(currentTopic, message.getId(), message.getPayload());
+    }
+
+    @Override
+    public void close() {
+      closeCurrent();
+    }
+
+    private void closeCurrent() {
+      if (currentIterator != null) {
+        currentIterator.close();
+        currentIterator = null;
+      }
+    }
+  }
+}
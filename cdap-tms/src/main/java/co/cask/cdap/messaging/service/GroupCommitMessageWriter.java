@@ -0,0 +1,347 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.service;
+
+import co.cask.cdap.api.metrics.MetricsCollector;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
+import co.cask.cdap.messaging.RollbackDetail;
+import co.cask.cdap.messaging.StoreRequest;
+import co.cask.cdap.messaging.TopicMetadata;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link MessageWriter} that uses a dedicated committer thread to batch writes from concurrent threads.
+ *
+ * Unlike the {@link ConcurrentMessageWriter}, threads calling {@link #persist(StoreRequest, TopicMetadata)}
+ * never perform the write themselves. The algorithm is like this:
+ *
+ * <pre>
+ * 1. A publishing thread constructs a PendingStoreRequest and enqueue it to a BlockingQueue.
+ * 2. The publishing thread parks until the PendingStoreRequest is COMPLETED.
+ * 3. The committer thread blocks on the BlockingQueue until there is at least one PendingStoreRequest.
+ * 4. The committer thread provides an Iterator of PendingStoreRequest to the StoreRequestWriter, which consumes
+ *    from the BlockingQueue until it is empty or the batch limits are reached.
+ * 5. The committer thread sets the state of each PendingStoreRequest that are written to COMPLETED
+ *    (succeed/failure), which wakes up the publishing threads.
+ * </pre>
+ *
+ * The batch limits are only checked between requests, hence a single {@link StoreRequest} is always written
+ * in the same batch.
+ */
+@ThreadSafe
+final class GroupCommitMessageWriter implements MessageWriter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GroupCommitMessageWriter.class);
+  private static final long POLL_TIMEOUT_MILLIS = 100L;
+
+  private final StoreRequestWriter<?> messagesWriter;
+  private final MetricsCollector metricsCollector;
+  private final int maxBatchMessages;
+  private final long maxBatchSize;
+  private final BlockingQueue<PendingStoreRequest> writeQueue;
+  private final AtomicInteger waiters;
+  private final ReadWriteLock closeLock;
+  private final ExecutorService committer;
+  private boolean closed;
+
+  /**
+   * Constructor with a {@link NoopMetricsContext}. This constructor should only be used in unit-testing.
+   */
+  @VisibleForTesting
+  GroupCommitMessageWriter(String name, StoreRequestWriter<?> messagesWriter,
+                           int maxBatchMessages, long maxBatchSize) {
+    this(name, messagesWriter, maxBatchMessages, maxBatchSize, new NoopMetricsContext());
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param name name of this writer, used for naming the committer thread
+   * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}
+   * @param maxBatchMessages maximum number of messages to write in one batch
+   * @param maxBatchSize maximum number of payload bytes to write in one batch
+   * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class
+   */
+  GroupCommitMessageWriter(String name, StoreRequestWriter<?> messagesWriter, int maxBatchMessages,
+                           long maxBatchSize, MetricsCollector metricsCollector) {
+    Preconditions.checkArgument(maxBatchMessages > 0, "Maximum batch messages must be > 0");
+    Preconditions.checkArgument(maxBatchSize > 0, "Maximum batch size must be > 0");
+
+    this.messagesWriter = messagesWriter;
+    this.metricsCollector = metricsCollector;
+    this.maxBatchMessages = maxBatchMessages;
+    this.maxBatchSize = maxBatchSize;
+    this.writeQueue = new LinkedBlockingQueue<>();
+    this.waiters = new AtomicInteger();
+    this.closeLock = new ReentrantReadWriteLock();
+    this.committer = Executors.newSingleThreadExecutor(
+      Threads.createDaemonThreadFactory("message-committer-" + name));
+    this.committer.execute(new Runnable() {
+      @Override
+      public void run() {
+        runCommitter();
+      }
+    });
+  }
+
+  @Nullable
+  @Override
+  public RollbackDetail persist(StoreRequest storeRequest, TopicMetadata metadata) throws IOException {
+    PendingStoreRequest pendingStoreRequest = new PendingStoreRequest(storeRequest, metadata);
+
+    // Holds the read lock while enqueuing so that close() can guarantee no more request is enqueued
+    // after the closed flag is set.
+    closeLock.readLock().lock();
+    try {
+      if (closed) {
+        throw new IOException("Message writer is already closed");
+      }
+      waiters.incrementAndGet();
+      writeQueue.add(pendingStoreRequest);
+    } finally {
+      closeLock.readLock().unlock();
+    }
+
+    metricsCollector.increment("persist.requested", 1L);
+
+    try {
+      pendingStoreRequest.awaitCompletion();
+    } finally {
+      waiters.decrementAndGet();
+    }
+
+    if (pendingStoreRequest.isSuccess()) {
+      metricsCollector.increment("persist.success", 1L);
+      if (!pendingStoreRequest.isTransactional()) {
+        return null;
+      }
+      return new SimpleRollbackDetail(pendingStoreRequest.getTransactionWritePointer(),
+                                      pendingStoreRequest.getStartTimestamp(), pendingStoreRequest.getStartSequenceId(),
+                                      pendingStoreRequest.getEndTimestamp(), pendingStoreRequest.getEndSequenceId());
+    } else {
+      metricsCollector.increment("persist.failure", 1L);
+      Throwables.propagateIfInstanceOf(pendingStoreRequest.getFailureCause(), IOException.class);
+      throw new IOException("Unable to write message to " + storeRequest.getTopicId(),
+                            pendingStoreRequest.getFailureCause());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    closeLock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+
+    // The committer thread will exit after all pending requests are written
+    committer.shutdown();
+    try {
+      while (!committer.awaitTermination(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        LOG.trace("Waiting for message committer to complete");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for pending messages to be written");
+    }
+    messagesWriter.close();
+  }
+
+  /**
+   * Runs the commit loop until the writer is closed and all pending requests are written.
+   */
+  private void runCommitter() {
+    CommitBatch batch = new CommitBatch();
+    boolean interrupted = false;
+
+    while (true) {
+      // A request polled by the previous batch but not consumed by the writer goes first
+      PendingStoreRequest first = batch.takeLeftover();
+      if (first == null) {
+        try {
+          first = writeQueue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+          // The committer must not stop before the writer is closed, otherwise publishers will wait forever.
+          interrupted = true;
+          continue;
+        }
+      }
+
+      if (first == null) {
+        if (isClosed()) {
+          break;
+        }
+        continue;
+      }
+
+      batch.reset(first);
+      long startTime = System.nanoTime();
+      Throwable failure = null;
+      try {
+        messagesWriter.write(batch);
+      } catch (Throwable t) {
+        failure = t;
+      }
+      long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+      metricsCollector.gauge("persist.batch.requests", batch.getRequestCount());
+      metricsCollector.gauge("persist.batch.messages", batch.getMessageCount());
+      metricsCollector.gauge("persist.batch.bytes", batch.getBatchSize());
+      metricsCollector.gauge("persist.commit.latency.ms", latencyMillis);
+      metricsCollector.gauge("persist.waiters", waiters.get());
+
+      batch.completeAll(failure);
+    }
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private boolean isClosed() {
+    closeLock.readLock().lock();
+    try {
+      return closed;
+    } finally {
+      closeLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * A resettable {@link Iterator} to provide a batch of {@link PendingStoreRequest} to {@link StoreRequestWriter}.
+   * It consumes from the write queue until the queue is empty or the batch limits are reached.
+   * This class is only used by the committer thread.
+   */
+  private final class CommitBatch implements Iterator<PendingStoreRequest> {
+
+    private final List<PendingStoreRequest> inflightRequests = new ArrayList<>(100);
+    private PendingStoreRequest nextRequest;
+    private PendingStoreRequest currentRequest;
+    private int messageCount;
+    private long batchSize;
+
+    /**
+     * Resets this batch to start with the given request.
+     */
+    void reset(PendingStoreRequest first) {
+      inflightRequests.clear();
+      nextRequest = first;
+      currentRequest = null;
+      messageCount = 0;
+      batchSize = 0L;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (nextRequest != null) {
+        return true;
+      }
+      // The StoreRequestWriter only asks for the next request after consuming all payloads of the current one
+      accountCurrent();
+      if (messageCount >= maxBatchMessages || batchSize >= maxBatchSize) {
+        return false;
+      }
+      nextRequest = writeQueue.poll();
+      return nextRequest != null;
+    }
+
+    @Override
+    public PendingStoreRequest next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      currentRequest = nextRequest;
+      nextRequest = null;
+      inflightRequests.add(currentRequest);
+      return currentRequest;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    int getRequestCount() {
+      return inflightRequests.size();
+    }
+
+    int getMessageCount() {
+      accountCurrent();
+      return messageCount;
+    }
+
+    long getBatchSize() {
+      accountCurrent();
+      return batchSize;
+    }
+
+    /**
+     * Marks all requests returned through the {@link #next()} method as completed.
+     */
+    void completeAll(@Nullable Throwable failureCause) {
+      for (PendingStoreRequest request : inflightRequests) {
+        request.completed(failureCause);
+      }
+      inflightRequests.clear();
+    }
+
+    /**
+     * Returns the request that was polled from the queue but not returned through the {@link #next()} method,
+     * which can happen if the writer failed. It will be written in the next batch.
+     */
+    @Nullable
+    PendingStoreRequest takeLeftover() {
+      PendingStoreRequest leftover = nextRequest;
+      nextRequest = null;
+      return leftover;
+    }
+
+    private void accountCurrent() {
+      if (currentRequest != null) {
+        messageCount += currentRequest.getPayloadCount();
+        batchSize += currentRequest.getPayloadSize();
+        currentRequest = null;
+      }
+    }
+  }
+}
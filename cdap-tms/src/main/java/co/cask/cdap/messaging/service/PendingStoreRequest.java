@@ -18,7 +18,9 @@ package co.cask.cdap.messaging.service;
 
 import co.cask.cdap.messaging.StoreRequest;
 import co.cask.cdap.messaging.TopicMetadata;
+import com.google.common.util.concurrent.Uninterruptibles;
 
+import java.util.concurrent.CountDownLatch;
 import javax.annotation.Nullable;
 
 /**
@@ -28,19 +30,23 @@ final class PendingStoreRequest extends StoreRequest {
 
   private final StoreRequest originalRequest;
   private final TopicMetadata metadata;
+  private final CountDownLatch completion;
 
-  private boolean completed;
+  private volatile boolean completed;
   private long startTimestamp;
   private long endTimestamp;
   private int startSequenceId;
   private int endSequenceId;
   private Throwable failureCause;
+  private int payloadCount;
+  private long payloadSize;
 
   PendingStoreRequest(StoreRequest originalRequest, TopicMetadata topicMetadata) {
     super(originalRequest.getTopicId(), originalRequest.isTransactional(),
           originalRequest.getTransactionWritePointer());
     this.originalRequest = originalRequest;
     this.metadata = topicMetadata;
+    this.completion = new CountDownLatch(1);
   }
 
   TopicMetadata getTopicMetadata() {
@@ -64,8 +70,30 @@ final class PendingStoreRequest extends StoreRequest {
   }
 
   void completed(@Nullable Throwable failureCause) {
-    completed = true;
     this.failureCause = failureCause;
+    completed = true;
+    completion.countDown();
+  }
+
+  /**
+   * Blocks until {@link #completed(Throwable)} is called.
+   */
+  void awaitCompletion() {
+    Uninterruptibles.awaitUninterruptibly(completion);
+  }
+
+  /**
+   * Returns the number of payloads consumed from this request so far.
+   */
+  int getPayloadCount() {
+    return payloadCount;
+  }
+
+  /**
+   * Returns the total size in bytes of payloads consumed from this request so far.
+   */
+  long getPayloadSize() {
+    return payloadSize;
   }
 
   void setStartTimestamp(long startTimestamp) {
@@ -103,7 +131,13 @@ final class PendingStoreRequest extends StoreRequest {
   @Nullable
   @Override
   protected byte[] doComputeNext() {
-    return originalRequest.hasNext() ? originalRequest.next() : null;
+    if (!originalRequest.hasNext()) {
+      return null;
+    }
+    byte[] payload = originalRequest.next();
+    payloadCount++;
+    payloadSize += payload.length;
+    return payload;
   }
 
   @Override
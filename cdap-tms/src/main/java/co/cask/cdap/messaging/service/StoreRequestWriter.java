@@ -71,6 +71,9 @@ abstract class StoreRequestWriter<T> implements Closeable {
     // Make sure we start with the current timestamp
     updateTimeSequence();
 
+    // Discard any state left by a previous failed write
+    payloadTransformIterator.clear();
+
     // Transform payloads inside each PendingStoreRequest into individual write entry
     doWrite(new AbstractIterator<T>() {
       private PendingStoreRequest currentRequest;
@@ -198,6 +201,15 @@ abstract class StoreRequestWriter<T> implements Closeable {
       throw new UnsupportedOperationException("Delete not supported");
     }
 
+    /**
+     * Resets this iterator to be an empty iterator.
+     */
+    private void clear() {
+      this.storeRequest = null;
+      this.nextEntry = null;
+      this.completed = true;
+    }
+
     private PayloadTransformIterator reset(PendingStoreRequest storeRequest) {
       this.storeRequest = storeRequest;
       this.storeRequest.setStartTimestamp(writeTimestamp);
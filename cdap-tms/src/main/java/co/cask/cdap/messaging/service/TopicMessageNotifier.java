@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.service;
+
+import co.cask.cdap.proto.id.TopicId;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Tracks the arrival of new messages per topic so that message fetching can wait for new messages
+ * instead of polling the message table repeatedly.
+ *
+ * Each topic has a sequence number that gets incremented every time new messages are written to the topic.
+ * A consumer reads the sequence number before fetching and, if the fetch returned nothing, waits for the sequence
+ * number to change.
+ */
+@ThreadSafe
+final class TopicMessageNotifier {
+
+  private final ConcurrentMap<TopicId, Signal> signals = new ConcurrentHashMap<>();
+  // Signal for waking up threads waiting on multiple topics
+  private final Signal anySignal = new Signal();
+
+  /**
+   * Returns the current sequence number for the given topic.
+   */
+  long getSequence(TopicId topicId) {
+    return getSignal(topicId).sequence.get();
+  }
+
+  /**
+   * Notifies that new messages were written to the given topic. All threads waiting in the
+   * {@link #await(TopicId, long, long, TimeUnit)} method for the topic will be woken up.
+   */
+  void notifyArrival(TopicId topicId) {
+    Signal signal = signals.get(topicId);
+    if (signal == null) {
+      // No one ever waited on this topic
+      return;
+    }
+    signal.sequence.incrementAndGet();
+    wakeup(signal);
+    wakeup(anySignal);
+  }
+
+  /**
+   * Waits until the sequence number of the given topic is different than the given one or the timeout expires.
+   *
+   * @param topicId the topic to wait for
+   * @param sequence the sequence number as returned by {@link #getSequence(TopicId)}
+   * @param timeout maximum time to wait
+   * @param unit unit of the timeout
+   * @return {@code true} if new messages were written to the topic; {@code false} if timeout expired
+   * @throws InterruptedException if the current thread is interrupted while waiting
+   */
+  boolean await(TopicId topicId, long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+    Signal signal = getSignal(topicId);
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+    signal.waiters.incrementAndGet();
+    try {
+      synchronized (signal) {
+        while (signal.sequence.get() == sequence) {
+          long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (waitMillis <= 0) {
+            return false;
+          }
+          signal.wait(waitMillis);
+        }
+        return true;
+      }
+    } finally {
+      signal.waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Waits until the sequence number of any of the given topics is different than the one provided
+   * or the timeout expires.
+   *
+   * @param sequences map from topic to the sequence number as returned by {@link #getSequence(TopicId)}
+   * @param timeout maximum time to wait
+   * @param unit unit of the timeout
+   * @return {@code true} if new messages were written to any of the topics; {@code false} if timeout expired
+   * @throws InterruptedException if the current thread is interrupted while waiting
+   */
+  boolean awaitAny(Map<TopicId, Long> sequences, long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+    anySignal.waiters.incrementAndGet();
+    try {
+      synchronized (anySignal) {
+        while (!isChanged(sequences)) {
+          long waitMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (waitMillis <= 0) {
+            return false;
+          }
+          anySignal.wait(waitMillis);
+        }
+        return true;
+      }
+    } finally {
+      anySignal.waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Removes the state of the given topic. Threads waiting on the topic will be woken up.
+   */
+  void remove(TopicId topicId) {
+    notifyArrival(topicId);
+    signals.remove(topicId);
+  }
+
+  private boolean isChanged(Map<TopicId, Long> sequences) {
+    for (Map.Entry<TopicId, Long> entry : sequences.entrySet()) {
+      if (getSequence(entry.getKey()) != entry.getValue()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void wakeup(Signal signal) {
+    if (signal.waiters.get() > 0) {
+      synchronized (signal) {
+        signal.notifyAll();
+      }
+    }
+  }
+
+  private Signal getSignal(TopicId topicId) {
+    Signal signal = signals.get(topicId);
+    if (signal != null) {
+      return signal;
+    }
+    signal = new Signal();
+    Signal existing = signals.putIfAbsent(topicId, signal);
+    return existing == null ? signal : existing;
+  }
+
+  /**
+   * Per topic state for signaling message arrival.
+   */
+  private static final class Signal {
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger waiters = new AtomicInteger();
+  }
+}
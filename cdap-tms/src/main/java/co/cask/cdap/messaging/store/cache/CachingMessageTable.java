@@ -367,6 +367,21 @@ final class CachingMessageTable implements MessageTable {
       this.sequenceId = other.getSequenceId();
     }
 
+    /**
+     * Creates a copy of the given entry with a different payload. The rollback state is copied as well.
+     */
+    CacheMessageTableEntry(CacheMessageTableEntry other, @Nullable byte[] payload) {
+      this.lookupOnly = other.lookupOnly;
+      this.topicId = other.topicId;
+      this.generation = other.generation;
+      this.transactional = other.transactional;
+      this.transactionWritePointer = other.transactionWritePointer;
+      this.payload = payload;
+      this.publishTimestamp = other.publishTimestamp;
+      this.sequenceId = other.sequenceId;
+      this.rollback = other.rollback;
+    }
+
     void rollback() {
       if (isTransactional()) {
         rollback = true;
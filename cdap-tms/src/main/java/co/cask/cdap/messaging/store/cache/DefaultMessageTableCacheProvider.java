@@ -22,6 +22,7 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.messaging.MessagingServiceUtils;
 import co.cask.cdap.messaging.cache.MessageCache;
+import co.cask.cdap.messaging.cache.OffHeapArena;
 import co.cask.cdap.messaging.store.MessageTable;
 import co.cask.cdap.proto.id.TopicId;
 import com.google.common.collect.ImmutableMap;
@@ -59,11 +60,13 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
         if (!initialized) {
           Map<TopicId, MessageCache<MessageTable.Entry>> caches = new HashMap<>();
 
-          long cacheSize = cConf.getInt(Constants.MessagingSystem.CACHE_SIZE_MB) * 1024 * 1024;
+          long cacheSize = cConf.getInt(Constants.MessagingSystem.CACHE_SIZE_MB) * 1024L * 1024L;
           Set<TopicId> systemTopics = MessagingServiceUtils.getSystemTopics(cConf, true);
           if (cacheSize > 0 && !systemTopics.isEmpty()) {
             MessageTableEntryWeigher weigher = new MessageTableEntryWeigher();
             MessageTableEntryComparator comparator = new MessageTableEntryComparator();
+            boolean offHeap = cConf.getBoolean(Constants.MessagingSystem.CACHE_OFFHEAP_ENABLED);
+            MessageTableEntryCodec codec = offHeap ? new MessageTableEntryCodec() : null;
 
             // Just evenly distributed the cache among all system topics.
             // More sophisticated logic can be employed at runtime to monitor the metrics from MessageCache
@@ -75,8 +78,11 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
               // In future, it can be adjusted dynamically based on metrics
               MessageCache.Limits limits = new MessageCache.Limits(hardLimit / 2, hardLimit * 7 / 10, hardLimit);
               for (TopicId topic : systemTopics) {
+                // Each topic has its own arena so that memory freed by one topic doesn't get fragmented by another
+                OffHeapArena arena = offHeap ? createOffHeapArena(cConf, hardLimit) : null;
                 caches.put(topic, new MessageCache<>(comparator, weigher, limits,
-                                                     createMetricsContext(cConf, topic, metricsCollectionService)));
+                                                     createMetricsContext(cConf, topic, metricsCollectionService),
+                                                     codec, arena));
               }
             }
           }
@@ -90,6 +96,16 @@ public class DefaultMessageTableCacheProvider implements MessageTableCacheProvid
     return topicMessageCaches.get(topicId);
   }
 
+  /**
+   * Creates an {@link OffHeapArena} that can hold a cache with the given hard limit.
+   */
+  private OffHeapArena createOffHeapArena(CConfiguration cConf, long hardLimit) {
+    int slabSize = cConf.getInt(Constants.MessagingSystem.CACHE_OFFHEAP_SLAB_SIZE_BYTES);
+    // One extra slab to allow allocation while the oldest slab is still partially in use
+    long maxSlabs = (hardLimit + slabSize - 1) / slabSize + 1;
+    return new OffHeapArena(slabSize, (int) Math.min(Integer.MAX_VALUE, maxSlabs));
+  }
+
   /**
    * Creates a {@link MetricsContext} for {@link MessageCache} to use for the given topic.
    */
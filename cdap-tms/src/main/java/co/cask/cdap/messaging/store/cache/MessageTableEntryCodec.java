@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.messaging.store.cache;
+
+import co.cask.cdap.messaging.cache.MessageCache;
+import co.cask.cdap.messaging.store.MessageTable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link MessageCache.OffHeapCodec} for the {@link MessageTable.Entry} that stores the payload off-heap.
+ * Only {@link CachingMessageTable.CacheMessageTableEntry} with payload is stored off-heap.
+ */
+final class MessageTableEntryCodec implements MessageCache.OffHeapCodec<MessageTable.Entry> {
+
+  @Override
+  public int getOffHeapSize(MessageTable.Entry entry) {
+    if (!(entry instanceof CachingMessageTable.CacheMessageTableEntry)) {
+      return 0;
+    }
+    byte[] payload = entry.getPayload();
+    return payload == null ? 0 : payload.length;
+  }
+
+  @Override
+  public MessageTable.Entry writeOffHeap(MessageTable.Entry entry, ByteBuffer buffer) {
+    buffer.duplicate().put(entry.getPayload());
+    return new CachingMessageTable.CacheMessageTableEntry((CachingMessageTable.CacheMessageTableEntry) entry, null);
+  }
+
+  @Override
+  public MessageTable.Entry readOffHeap(MessageTable.Entry entry, ByteBuffer buffer) {
+    byte[] payload = new byte[buffer.remaining()];
+    buffer.duplicate().get(payload);
+    return new CachingMessageTable.CacheMessageTableEntry((CachingMessageTable.CacheMessageTableEntry) entry, payload);
+  }
+}
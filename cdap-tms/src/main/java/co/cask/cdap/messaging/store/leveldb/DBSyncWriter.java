@@ -0,0 +1,272 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.store.leveldb;
+
+import com.google.common.base.Preconditions;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBException;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Performs writes to a LevelDB {@link DB} with a given {@link SyncPolicy}.
+ *
+ * With the {@link SyncPolicy#GROUP} policy, writes are not synced individually. Instead, a background thread
+ * syncs the LevelDB write ahead log when there are pending writes. Writes that happen while a sync is in progress
+ * are covered by the next sync. Optionally, the sync thread can wait for a period of time after the first pending
+ * write to gather more writes, unless the number of unsynced bytes exceeds a threshold.
+ * The {@link #write(WriteBatch, long)} method only returns after a sync that covers the write was completed,
+ * hence the durability guarantee is the same as the {@link SyncPolicy#SYNC} policy, while the cost of a sync is
+ * shared by all writes that happened in between.
+ */
+@ThreadSafe
+final class DBSyncWriter implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DBSyncWriter.class);
+  private static final WriteOptions SYNC_WRITE_OPTIONS = new WriteOptions().sync(true);
+  private static final WriteOptions ASYNC_WRITE_OPTIONS = new WriteOptions().sync(false);
+
+  // LevelDB doesn't expose a method to sync the log. A synced delete of this key forces the log to be synced,
+  // which covers all writes before it, without leaving any visible entry in the table.
+  private static final byte[] SYNC_MARKER_KEY = new byte[] { 0 };
+
+  /**
+   * Durability policy for writes.
+   */
+  enum SyncPolicy {
+    /**
+     * Each write is synced to disk before it returns.
+     */
+    SYNC,
+
+    /**
+     * Writes are synced to disk in groups. Each write returns after a sync that covers it was completed.
+     */
+    GROUP,
+
+    /**
+     * Writes are never explicitly synced. Recently written data can be lost if the machine crashes.
+     */
+    ASYNC
+  }
+
+  private final DB db;
+  private final SyncPolicy policy;
+  private final long syncIntervalMillis;
+  private final long syncBytes;
+  private final Thread syncThread;
+
+  // All fields below are guarded by this instance
+  private long writeSeq;
+  private long syncedSeq;
+  private long failedSeq;
+  private long lastSyncSeq;
+  private long unsyncedBytes;
+  private IOException syncFailure;
+  private boolean closed;
+
+  /**
+   * Creates an instance with the {@link SyncPolicy#SYNC} policy.
+   */
+  DBSyncWriter(DB db) {
+    this(db, SyncPolicy.SYNC, 0L, 0L, "");
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param db the {@link DB} to write to
+   * @param policy the {@link SyncPolicy} for writes
+   * @param syncIntervalMillis time in milliseconds to gather writes before a sync; {@code 0} to sync as soon as
+   *                           there is pending write. Only used by the {@link SyncPolicy#GROUP}
+   * @param syncBytes number of unsynced bytes that triggers a sync without waiting for the sync interval;
+   *                  only used by the {@link SyncPolicy#GROUP}
+   * @param name name of the table, used for naming the sync thread
+   */
+  DBSyncWriter(DB db, SyncPolicy policy, long syncIntervalMillis, long syncBytes, String name) {
+    this.db = db;
+    this.policy = policy;
+    this.syncIntervalMillis = syncIntervalMillis;
+    this.syncBytes = syncBytes;
+
+    if (policy == SyncPolicy.GROUP) {
+      Preconditions.checkArgument(syncIntervalMillis >= 0, "Group sync interval must be >= 0");
+      Preconditions.checkArgument(syncBytes > 0, "Group sync bytes must be > 0");
+      this.syncThread = new Thread("leveldb-tms-sync-" + name) {
+        @Override
+        public void run() {
+          runSync();
+        }
+      };
+      this.syncThread.setDaemon(true);
+      this.syncThread.start();
+    } else {
+      this.syncThread = null;
+    }
+  }
+
+  /**
+   * Writes the given {@link WriteBatch} to the {@link DB} based on the {@link SyncPolicy}.
+   *
+   * @param writeBatch the batch to write
+   * @param size number of bytes in the batch; it is used for triggering group sync
+   * @throws IOException if failed to write or sync
+   */
+  void write(WriteBatch writeBatch, long size) throws IOException {
+    try {
+      switch (policy) {
+        case SYNC:
+          db.write(writeBatch, SYNC_WRITE_OPTIONS);
+          return;
+        case ASYNC:
+          db.write(writeBatch, ASYNC_WRITE_OPTIONS);
+          return;
+        default:
+          db.write(writeBatch, ASYNC_WRITE_OPTIONS);
+      }
+    } catch (DBException e) {
+      throw new IOException(e);
+    }
+    awaitSync(size);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (syncThread == null) {
+      return;
+    }
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+    }
+    try {
+      // The sync thread performs a final sync before exiting
+      syncThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the LevelDB sync thread to complete");
+    }
+  }
+
+  /**
+   * Waits until a sync that covers a write of the given size is completed.
+   */
+  private synchronized void awaitSync(long size) throws IOException {
+    // The sync thread performs the last sync after the closed flag is set, hence it won't cover writes after that
+    if (closed) {
+      throw new IOException("Sync writer is already closed");
+    }
+    long seq = ++writeSeq;
+    unsyncedBytes += size;
+    if (seq == lastSyncSeq + 1 || unsyncedBytes >= syncBytes) {
+      // Wake up the sync thread for the first pending write or when it should sync without further waiting
+      notifyAll();
+    }
+
+    boolean interrupted = false;
+    try {
+      while (syncedSeq < seq && failedSeq < seq) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          // The write was already performed, hence need to wait for the sync to complete
+          interrupted = true;
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (syncedSeq < seq) {
+      throw new IOException("Failed to sync LevelDB write", syncFailure);
+    }
+  }
+
+  /**
+   * Runs the sync loop until this writer is closed.
+   */
+  private void runSync() {
+    while (true) {
+      long targetSeq;
+      boolean exit;
+      synchronized (this) {
+        try {
+          // Wait for the first pending write
+          while (!closed && writeSeq == lastSyncSeq) {
+            wait();
+          }
+          // Gather more writes until the sync interval passed or there are enough bytes to sync
+          long deadline = System.currentTimeMillis() + syncIntervalMillis;
+          long waitMillis = syncIntervalMillis;
+          while (!closed && unsyncedBytes < syncBytes && waitMillis > 0) {
+            wait(waitMillis);
+            waitMillis = deadline - System.currentTimeMillis();
+          }
+        } catch (InterruptedException e) {
+          // Only stop when closed, otherwise writers will wait forever
+          LOG.trace("Ignoring interrupt on the LevelDB sync thread");
+        }
+        exit = closed;
+        targetSeq = writeSeq;
+        if (targetSeq == lastSyncSeq) {
+          if (exit) {
+            return;
+          }
+          continue;
+        }
+        lastSyncSeq = targetSeq;
+        unsyncedBytes = 0L;
+      }
+
+      // Performs the sync without holding the lock, so that writes can proceed
+      IOException failure = null;
+      try {
+        db.delete(SYNC_MARKER_KEY, SYNC_WRITE_OPTIONS);
+      } catch (DBException e) {
+        LOG.warn("Failed to sync LevelDB", e);
+        failure = new IOException(e);
+      }
+
+      synchronized (this) {
+        if (failure == null) {
+          syncedSeq = targetSeq;
+        } else {
+          failedSeq = targetSeq;
+          syncFailure = failure;
+        }
+        notifyAll();
+      }
+
+      if (exit) {
+        return;
+      }
+    }
+  }
+}
@@ -30,7 +30,6 @@ import com.google.common.base.Preconditions;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.WriteBatch;
-import org.iq80.leveldb.WriteOptions;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -44,7 +43,6 @@ import javax.annotation.Nullable;
  * LevelDB implementation of {@link MessageTable}.
  */
 final class LevelDBMessageTable extends AbstractMessageTable {
-  private static final WriteOptions WRITE_OPTIONS = new WriteOptions().sync(true);
   private static final String PAYLOAD_COL = "p";
   private static final String TX_COL = "t";
 
@@ -65,9 +63,11 @@ final class LevelDBMessageTable extends AbstractMessageTable {
   }
 
   private final DB levelDB;
+  private final DBSyncWriter syncWriter;
 
-  LevelDBMessageTable(DB levelDB) {
+  LevelDBMessageTable(DB levelDB, DBSyncWriter syncWriter) {
     this.levelDB = levelDB;
+    this.syncWriter = syncWriter;
   }
 
   @Override
@@ -103,13 +103,16 @@ final class LevelDBMessageTable extends AbstractMessageTable {
   @Override
   protected void persist(Iterator<RawMessageTableEntry> entries) throws IOException {
     try (WriteBatch writeBatch = levelDB.createWriteBatch()) {
+      long size = 0L;
       while (entries.hasNext()) {
         RawMessageTableEntry entry = entries.next();
         byte[] rowKey = entry.getKey();
+        byte[] value = encodeValue(entry.getTxPtr(), entry.getPayload());
         // LevelDB doesn't make copies, and since we reuse RawMessageTableEntry object, we need to create copies.
-        writeBatch.put(Arrays.copyOf(rowKey, rowKey.length), encodeValue(entry.getTxPtr(), entry.getPayload()));
+        writeBatch.put(Arrays.copyOf(rowKey, rowKey.length), value);
+        size += rowKey.length + value.length;
       }
-      levelDB.write(writeBatch, WRITE_OPTIONS);
+      syncWriter.write(writeBatch, size);
     } catch (DBException ex) {
       throw new IOException(ex);
     }
@@ -127,11 +130,7 @@ final class LevelDBMessageTable extends AbstractMessageTable {
       }
     }
 
-    try {
-      levelDB.write(writeBatch, WRITE_OPTIONS);
-    } catch (DBException ex) {
-      throw new IOException(ex);
-    }
+    syncWriter.write(writeBatch, 0L);
   }
 
   @Override
@@ -176,11 +175,7 @@ final class LevelDBMessageTable extends AbstractMessageTable {
       }
     }
 
-    try {
-      levelDB.write(writeBatch, WRITE_OPTIONS);
-    } catch (DBException ex) {
-      throw new IOException(ex);
-    }
+    syncWriter.write(writeBatch, 0L);
   }
 
   // Encoding:
@@ -29,7 +29,6 @@ import co.cask.cdap.proto.id.TopicId;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.WriteBatch;
-import org.iq80.leveldb.WriteOptions;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -41,11 +40,12 @@ import java.util.concurrent.TimeUnit;
  * LevelDB implementation of {@link PayloadTable}.
  */
 public class LevelDBPayloadTable extends AbstractPayloadTable {
-  private static final WriteOptions WRITE_OPTIONS = new WriteOptions().sync(true);
   private final DB levelDB;
+  private final DBSyncWriter syncWriter;
 
-  public LevelDBPayloadTable(DB levelDB) {
+  LevelDBPayloadTable(DB levelDB, DBSyncWriter syncWriter) {
     this.levelDB = levelDB;
+    this.syncWriter = syncWriter;
   }
 
   @Override
@@ -83,14 +83,16 @@ public class LevelDBPayloadTable extends AbstractPayloadTable {
   @Override
   public void persist(Iterator<RawPayloadTableEntry> entries) throws IOException {
     try (WriteBatch writeBatch = levelDB.createWriteBatch()) {
+      long size = 0L;
       while (entries.hasNext()) {
         RawPayloadTableEntry entry = entries.next();
         byte[] key = entry.getKey();
         byte[] value = entry.getValue();
         // LevelDB doesn't make copies, and since we reuse RawPayloadTableEntry object, we need to create copies.
         writeBatch.put(Arrays.copyOf(key, key.length), Arrays.copyOf(value, value.length));
+        size += key.length + value.length;
       }
-      levelDB.write(writeBatch, WRITE_OPTIONS);
+      syncWriter.write(writeBatch, size);
     } catch (DBException ex) {
       throw new IOException(ex);
     }
@@ -133,11 +135,7 @@ public class LevelDBPayloadTable extends AbstractPayloadTable {
       }
     }
 
-    try {
-      levelDB.write(writeBatch, WRITE_OPTIONS);
-    } catch (DBException ex) {
-      throw new IOException(ex);
-    }
+    syncWriter.write(writeBatch, 0L);
   }
 
   @Override
@@ -28,6 +28,7 @@ import co.cask.cdap.messaging.store.TableFactory;
 import co.cask.cdap.proto.id.NamespaceId;
 import com.google.inject.Inject;
 import org.apache.twill.common.Threads;
+import org.iq80.leveldb.DB;
 import org.iq80.leveldb.Options;
 import org.iq80.leveldb.impl.Iq80DBFactory;
 import org.slf4j.Logger;
@@ -50,6 +51,9 @@ public final class LevelDBTableFactory implements TableFactory {
   private final File baseDir;
   private final Options dbOptions;
   private final ScheduledExecutorService executor;
+  private final DBSyncWriter.SyncPolicy syncPolicy;
+  private final long groupSyncIntervalMillis;
+  private final long groupSyncBytes;
 
   private LevelDBMetadataTable metadataTable;
   private LevelDBMessageTable messageTable;
@@ -63,6 +67,9 @@ public final class LevelDBTableFactory implements TableFactory {
       .cacheSize(cConf.getLong(Constants.CFG_DATA_LEVELDB_CACHESIZE, Constants.DEFAULT_DATA_LEVELDB_CACHESIZE))
       .errorIfExists(false)
       .createIfMissing(true);
+    this.syncPolicy = getSyncPolicy(cConf);
+    this.groupSyncIntervalMillis = cConf.getLong(Constants.MessagingSystem.LOCAL_DATA_GROUP_SYNC_INTERVAL_MS);
+    this.groupSyncBytes = cConf.getLong(Constants.MessagingSystem.LOCAL_DATA_GROUP_SYNC_BYTES);
     this.executor = Executors.newSingleThreadScheduledExecutor(
       Threads.createDaemonThreadFactory("leveldb-tms-data-cleanup"));
     this.executor.scheduleAtFixedRate(new DataCleanup(), 0L,
@@ -89,8 +96,9 @@ public final class LevelDBTableFactory implements TableFactory {
     }
 
     File dbPath = ensureDirExists(new File(baseDir, NamespaceId.SYSTEM.getNamespace() + "." + tableName));
-    messageTable = new LevelDBMessageTable(LEVEL_DB_FACTORY.open(dbPath, dbOptions));
-    LOG.info("Messaging message table created at {}", dbPath);
+    DB db = LEVEL_DB_FACTORY.open(dbPath, dbOptions);
+    messageTable = new LevelDBMessageTable(db, createSyncWriter(db, tableName));
+    LOG.info("Messaging message table created at {} with {} sync policy", dbPath, syncPolicy);
     return messageTable;
   }
 
@@ -101,11 +109,27 @@ public final class LevelDBTableFactory implements TableFactory {
     }
 
     File dbPath = ensureDirExists(new File(baseDir, NamespaceId.SYSTEM.getNamespace() + "." + tableName));
-    payloadTable = new LevelDBPayloadTable(LEVEL_DB_FACTORY.open(dbPath, dbOptions));
-    LOG.info("Messaging payload table created at {}", dbPath);
+    DB db = LEVEL_DB_FACTORY.open(dbPath, dbOptions);
+    payloadTable = new LevelDBPayloadTable(db, createSyncWriter(db, tableName));
+    LOG.info("Messaging payload table created at {} with {} sync policy", dbPath, syncPolicy);
     return payloadTable;
   }
 
+  private DBSyncWriter createSyncWriter(DB db, String tableName) {
+    return new DBSyncWriter(db, syncPolicy, groupSyncIntervalMillis, groupSyncBytes, tableName);
+  }
+
+  private DBSyncWriter.SyncPolicy getSyncPolicy(CConfiguration cConf) {
+    String policy = cConf.get(Constants.MessagingSystem.LOCAL_DATA_SYNC_POLICY);
+    try {
+      return DBSyncWriter.SyncPolicy.valueOf(policy.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid value '" + policy + "' for "
+                                           + Constants.MessagingSystem.LOCAL_DATA_SYNC_POLICY
+                                           + ". Supported values are sync, group and async.", e);
+    }
+  }
+
   private File ensureDirExists(File dir) throws IOException {
     if (!DirUtils.mkdirs(dir)) {
       throw new IOException("Failed to create local directory " + dir + " for the messaging system.");
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.messaging.cache;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.common.utils.Tasks;
@@ -26,6 +27,7 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -236,6 +238,58 @@ public class MessageCacheTest {
     }
   }
 
+  @Test
+  public void testOffHeap() {
+    // Each slab can hold two entries
+    OffHeapArena arena = new OffHeapArena(16, 4);
+    MessageCache<Entry> cache = new MessageCache<>(new EntryComparator(), new UnitWeigher<Entry>(),
+                                                   new MessageCache.Limits(5, 7, 10), NOOP_METRICS,
+                                                   new EntryCodec(), arena);
+    MessageFilter<Entry> filter = MessageFilter.alwaysAccept();
+
+    List<Entry> entries = Lists.newArrayList();
+    for (int i = 1; i <= 6; i++) {
+      entries.add(new Entry(i, "name-00" + i));
+    }
+    cache.addAll(entries.iterator());
+    Assert.assertEquals(6 * 8L, arena.getUsedBytes());
+    Assert.assertEquals(3 * 16L, arena.getAllocatedBytes());
+
+    // Entries should be returned with the off-heap content
+    try (MessageCache.Scanner<Entry> scanner = cache.scan(new Entry(2, null), true, 10, filter)) {
+      Assert.assertEquals(1, scanner.getFirstInCache().getId());
+      List<String> names = Lists.newArrayList();
+      while (scanner.hasNext()) {
+        names.add(scanner.next().getName());
+      }
+      Assert.assertEquals(Arrays.asList("name-002", "name-003", "name-004", "name-005", "name-006"), names);
+    }
+
+    // Only two more entries can be stored off-heap before the arena is full, hence the rest is stored on-heap.
+    // The entry with content larger than the slab size is also stored on-heap.
+    cache.addAll(Arrays.asList(new Entry(7, "name-007"), new Entry(8, "name-008"), new Entry(9, "name-009"),
+                               new Entry(10, "name-0000000000010")).iterator());
+    Assert.assertEquals(8 * 8L, arena.getUsedBytes());
+    Assert.assertEquals(4 * 16L, arena.getAllocatedBytes());
+
+    // Reduce the cache to the min retain by closing a scanner, which releases the off-heap memory
+    // of entries 1 to 5.
+    cache.scan(new Entry(0, null), true, 10, filter).close();
+    Assert.assertEquals(3 * 8L, arena.getUsedBytes());
+    try (MessageCache.Scanner<Entry> scanner = cache.scan(new Entry(0, null), true, 10, filter)) {
+      List<String> names = Lists.newArrayList();
+      while (scanner.hasNext()) {
+        names.add(scanner.next().getName());
+      }
+      Assert.assertEquals(Arrays.asList("name-006", "name-007", "name-008", "name-009", "name-0000000000010"), names);
+    }
+
+    // Released slabs should be reused
+    cache.addAll(Collections.singletonList(new Entry(11, "name-011")).iterator());
+    Assert.assertEquals(4 * 8L, arena.getUsedBytes());
+    Assert.assertEquals(4 * 16L, arena.getAllocatedBytes());
+  }
+
   @Test
   public void testCacheResize() {
     // Test resize the cache
@@ -428,6 +482,28 @@ public class MessageCacheTest {
     }
   }
 
+  /**
+   * A {@link MessageCache.OffHeapCodec} for {@link Entry} that stores the name off-heap.
+   */
+  private static final class EntryCodec implements MessageCache.OffHeapCodec<Entry> {
+
+    @Override
+    public int getOffHeapSize(Entry entry) {
+      return entry.getName() == null ? 0 : Bytes.toBytes(entry.getName()).length;
+    }
+
+    @Override
+    public Entry writeOffHeap(Entry entry, ByteBuffer buffer) {
+      buffer.put(Bytes.toBytes(entry.getName()));
+      return new Entry(entry.getId(), null);
+    }
+
+    @Override
+    public Entry readOffHeap(Entry entry, ByteBuffer buffer) {
+      return new Entry(entry.getId(), Bytes.toString(buffer));
+    }
+  }
+
   /**
    * A {@link Comparator} for {@link Entry} that only compare with the id.
    */
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.server;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.common.BadRequestException;
+import co.cask.cdap.messaging.Schemas;
+import co.cask.cdap.messaging.StoreRequest;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Unit-test for {@link ChannelBufferStoreRequest}.
+ */
+public class ChannelBufferStoreRequestTest {
+
+  private static final TopicId TOPIC_ID = NamespaceId.DEFAULT.topic("test");
+
+  @Test
+  public void testDecode() throws Exception {
+    List<String> payloads = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      payloads.add("Message " + i);
+    }
+
+    // Non-transactional
+    StoreRequest request = ChannelBufferStoreRequest.decode(TOPIC_ID, encode(null, payloads, false));
+    Assert.assertFalse(request.isTransactional());
+    Assert.assertEquals(payloads, toStrings(request));
+
+    // Transactional
+    request = ChannelBufferStoreRequest.decode(TOPIC_ID, encode(1234L, payloads, false));
+    Assert.assertTrue(request.isTransactional());
+    Assert.assertEquals(1234L, request.getTransactionWritePointer());
+    Assert.assertEquals(payloads, toStrings(request));
+
+    // Transactional without payload
+    request = ChannelBufferStoreRequest.decode(TOPIC_ID, encode(5678L, new ArrayList<String>(), false));
+    Assert.assertTrue(request.isTransactional());
+    Assert.assertEquals(5678L, request.getTransactionWritePointer());
+    Assert.assertFalse(request.hasNext());
+  }
+
+  @Test
+  public void testMultipleBlocks() throws Exception {
+    // Use payloads that are large enough for the blocking encoder to generate multiple blocks
+    List<String> payloads = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      payloads.add(i + new String(new char[200]).replace('\0', 'x'));
+    }
+    StoreRequest request = ChannelBufferStoreRequest.decode(TOPIC_ID, encode(null, payloads, true));
+    Assert.assertEquals(payloads, toStrings(request));
+  }
+
+  @Test
+  public void testMalformed() throws Exception {
+    List<String> payloads = new ArrayList<>();
+    payloads.add("Message 1");
+    payloads.add("Message 2");
+
+    ChannelBuffer buffer = encode(null, payloads, false);
+
+    // Truncate the last few bytes
+    try {
+      ChannelBufferStoreRequest.decode(TOPIC_ID, buffer.slice(0, buffer.readableBytes() - 3));
+      Assert.fail("Expected BadRequestException for truncated request");
+    } catch (BadRequestException e) {
+      // Expected
+    }
+
+    // Invalid union index
+    try {
+      ChannelBufferStoreRequest.decode(TOPIC_ID, ChannelBuffers.wrappedBuffer(new byte[] { 4, 0 }));
+      Assert.fail("Expected BadRequestException for invalid union index");
+    } catch (BadRequestException e) {
+      // Expected
+    }
+
+    // The reader index of the original buffer should not be changed
+    Assert.assertEquals(payloads, toStrings(ChannelBufferStoreRequest.decode(TOPIC_ID, buffer)));
+    Assert.assertEquals(payloads, toStrings(ChannelBufferStoreRequest.decode(TOPIC_ID, buffer)));
+  }
+
+  private List<String> toStrings(StoreRequest request) {
+    List<String> result = new ArrayList<>();
+    while (request.hasNext()) {
+      result.add(Bytes.toString(request.next()));
+    }
+    return result;
+  }
+
+  private ChannelBuffer encode(@Nullable Long txWritePointer, List<String> payloads,
+                               boolean blocking) throws IOException {
+    GenericRecord record = new GenericData.Record(Schemas.V1.PublishRequest.SCHEMA);
+    record.put("transactionWritePointer", txWritePointer);
+    List<ByteBuffer> messages = new ArrayList<>();
+    for (String payload : payloads) {
+      messages.add(ByteBuffer.wrap(Bytes.toBytes(payload)));
+    }
+    record.put("messages", messages);
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    Encoder encoder = blocking
+      ? new EncoderFactory().configureBlockSize(1024).blockingBinaryEncoder(os, null)
+      : EncoderFactory.get().directBinaryEncoder(os, null);
+    new GenericDatumWriter<GenericRecord>(Schemas.V1.PublishRequest.SCHEMA).write(record, encoder);
+    encoder.flush();
+    return ChannelBuffers.wrappedBuffer(os.toByteArray());
+  }
+}
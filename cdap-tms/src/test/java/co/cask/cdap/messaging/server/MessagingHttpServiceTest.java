@@ -27,16 +27,21 @@ import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
 import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.MultiTopicMessageFetcher;
 import co.cask.cdap.messaging.RollbackDetail;
 import co.cask.cdap.messaging.TopicMetadata;
 import co.cask.cdap.messaging.client.ClientMessagingService;
 import co.cask.cdap.messaging.client.StoreRequestBuilder;
 import co.cask.cdap.messaging.data.MessageId;
 import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.messaging.data.TopicRawMessage;
 import co.cask.cdap.messaging.guice.MessagingServerRuntimeModule;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.TopicId;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
@@ -54,9 +59,16 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Tests for {@link MessagingHttpService}.
@@ -437,6 +449,138 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testLongPoll() throws Exception {
+    final TopicId topicId = new NamespaceId("ns1").topic("testLongPoll");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Long poll on an empty topic should wait until timeout and return nothing
+    Stopwatch stopwatch = new Stopwatch().start();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+                                                        .setPollTimeout(500, TimeUnit.MILLISECONDS).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(stopwatch.elapsedMillis() >= 500);
+
+    // Publish a message in the background while long polling
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          TimeUnit.MILLISECONDS.sleep(500);
+          client.publish(StoreRequestBuilder.of(topicId).addPayloads("m1").build());
+          return null;
+        }
+      });
+
+      // The long poll should return as soon as the message is published
+      stopwatch.reset().start();
+      List<RawMessage> messages = new ArrayList<>();
+      try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+                                                          .setPollTimeout(20, TimeUnit.SECONDS).fetch()) {
+        Iterators.addAll(messages, iterator);
+      }
+      Assert.assertTrue(stopwatch.elapsedMillis() < TimeUnit.SECONDS.toMillis(20));
+      Assert.assertEquals(1, messages.size());
+      Assert.assertEquals("m1", Bytes.toString(messages.get(0).getPayload()));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testMultiTopicFetch() throws Exception {
+    final TopicId topic1 = new NamespaceId("ns1").topic("testMultiTopicFetch1");
+    final TopicId topic2 = new NamespaceId("ns2").topic("testMultiTopicFetch2");
+    client.createTopic(new TopicMetadata(topic1));
+    client.createTopic(new TopicMetadata(topic2));
+
+    Set<TopicId> topicIds = ImmutableSet.of(topic1, topic2);
+
+    // Fetching from a non-existing topic should fail
+    try {
+      client.prepareFetch(ImmutableSet.of(topic1, new NamespaceId("ns1").topic("nonExisting"))).fetch();
+      Assert.fail("Expected TopicNotFoundException");
+    } catch (TopicNotFoundException e) {
+      // Expected
+    }
+
+    // Publish messages to both topics
+    for (int i = 0; i < 5; i++) {
+      client.publish(StoreRequestBuilder.of(topic1).addPayloads("a" + i).build());
+      client.publish(StoreRequestBuilder.of(topic2).addPayloads("b" + i).build());
+    }
+
+    // Fetch from both topics with limit per topic
+    Map<TopicId, List<RawMessage>> messages = fetchMultiTopics(client.prepareFetch(topicIds).setLimit(3));
+    Assert.assertEquals(Arrays.asList("a0", "a1", "a2"), toPayloads(messages.get(topic1)));
+    Assert.assertEquals(Arrays.asList("b0", "b1", "b2"), toPayloads(messages.get(topic2)));
+
+    // Fetch from where it was left off, with different cursor per topic
+    MultiTopicMessageFetcher fetcher = client.prepareFetch(topicIds)
+      .setStartMessage(topic1, messages.get(topic1).get(2).getId(), false)
+      .setStartMessage(topic2, messages.get(topic2).get(0).getId(), true);
+    messages = fetchMultiTopics(fetcher);
+    Assert.assertEquals(Arrays.asList("a3", "a4"), toPayloads(messages.get(topic1)));
+    Assert.assertEquals(Arrays.asList("b0", "b1", "b2", "b3", "b4"), toPayloads(messages.get(topic2)));
+
+    // Long poll from the end of both topics should wait until a message is published to any of them
+    final Map<TopicId, List<RawMessage>> allMessages = fetchMultiTopics(client.prepareFetch(topicIds));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          TimeUnit.MILLISECONDS.sleep(500);
+          client.publish(StoreRequestBuilder.of(topic2).addPayloads("b5").build());
+          return null;
+        }
+      });
+
+      Stopwatch stopwatch = new Stopwatch().start();
+      fetcher = client.prepareFetch(topicIds).setPollTimeout(20, TimeUnit.SECONDS);
+      for (Map.Entry<TopicId, List<RawMessage>> entry : allMessages.entrySet()) {
+        fetcher.setStartMessage(entry.getKey(), Iterables.getLast(entry.getValue()).getId(), false);
+      }
+      messages = fetchMultiTopics(fetcher);
+      Assert.assertTrue(stopwatch.elapsedMillis() < TimeUnit.SECONDS.toMillis(20));
+      Assert.assertNull(messages.get(topic1));
+      Assert.assertEquals(Collections.singletonList("b5"), toPayloads(messages.get(topic2)));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    client.deleteTopic(topic1);
+    client.deleteTopic(topic2);
+  }
+
+  private Map<TopicId, List<RawMessage>> fetchMultiTopics(MultiTopicMessageFetcher fetcher) throws Exception {
+    Map<TopicId, List<RawMessage>> result = new HashMap<>();
+    try (CloseableIterator<TopicRawMessage> iterator = fetcher.fetch()) {
+      while (iterator.hasNext()) {
+        TopicRawMessage message = iterator.next();
+        List<RawMessage> messages = result.get(message.getTopicId());
+        if (messages == null) {
+          messages = new ArrayList<>();
+          result.put(message.getTopicId(), messages);
+        }
+        messages.add(message);
+      }
+    }
+    return result;
+  }
+
+  private List<String> toPayloads(List<RawMessage> messages) {
+    List<String> payloads = new ArrayList<>();
+    for (RawMessage message : messages) {
+      payloads.add(Bytes.toString(message.getPayload()));
+    }
+    return payloads;
+  }
+
   @Test
   public void testPayloadTable() throws Exception {
     // This test is to verify storing transaction messages to the payload table
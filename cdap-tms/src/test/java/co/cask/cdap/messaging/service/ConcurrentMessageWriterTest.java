@@ -271,9 +271,10 @@ public class ConcurrentMessageWriterTest {
   /**
    * A {@link StoreRequestWriter} that turns all payloads to {@link RawMessage} and stores it in a List.
    */
-  private static final class TestStoreRequestWriter extends StoreRequestWriter<TestEntry> {
+  static final class TestStoreRequestWriter extends StoreRequestWriter<TestEntry> {
 
     private final ListMultimap<TopicId, RawMessage> messages = ArrayListMultimap.create();
+    private final List<Integer> batchSizes = new ArrayList<>();
     private long writeDelayMillis;
 
     TestStoreRequestWriter(TimeProvider timeProvider) {
@@ -297,7 +298,9 @@ public class ConcurrentMessageWriterTest {
 
     @Override
     protected void doWrite(Iterator<TestEntry> entries) throws IOException {
+      int batchSize = 0;
       while (entries.hasNext()) {
+        batchSize++;
         TestEntry entry = entries.next();
         byte[] rawId = new byte[MessageId.RAW_ID_SIZE];
         MessageId.putRawId(entry.getWriteTimestamp(), entry.getSequenceId(), 0L, (short) 0, rawId, 0);
@@ -306,6 +309,8 @@ public class ConcurrentMessageWriterTest {
                      new RawMessage(rawId, payload == null ? null : Arrays.copyOf(payload, payload.length)));
       }
 
+      batchSizes.add(batchSize);
+
       if (writeDelayMillis > 0) {
         Uninterruptibles.sleepUninterruptibly(writeDelayMillis, TimeUnit.MILLISECONDS);
       }
@@ -315,6 +320,13 @@ public class ConcurrentMessageWriterTest {
       return messages;
     }
 
+    /**
+     * Returns the number of entries written by each call to {@link #doWrite(Iterator)}.
+     */
+    List<Integer> getBatchSizes() {
+      return batchSizes;
+    }
+
     @Override
     public void close() throws IOException {
       // No-op
@@ -324,7 +336,7 @@ public class ConcurrentMessageWriterTest {
   /**
    * An entry being by the {@link TestStoreRequestWriter}.
    */
-  private static final class TestEntry {
+  static final class TestEntry {
     private final TopicId topicId;
     private final boolean transactional;
     private final long transactionWritePointer;
@@ -371,7 +383,7 @@ public class ConcurrentMessageWriterTest {
   /**
    * A {@link StoreRequest} that takes a list of Strings as payload.
    */
-  private static final class TestStoreRequest extends StoreRequest {
+  static final class TestStoreRequest extends StoreRequest {
 
     private final Iterator<String> payloads;
 
@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.service;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.common.utils.TimeProvider;
+import co.cask.cdap.messaging.RollbackDetail;
+import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.messaging.data.MessageId;
+import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.messaging.service.ConcurrentMessageWriterTest.TestStoreRequest;
+import co.cask.cdap.messaging.service.ConcurrentMessageWriterTest.TestStoreRequestWriter;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import com.google.common.collect.Iterators;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit-test for {@link GroupCommitMessageWriter}.
+ */
+public class GroupCommitMessageWriterTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GroupCommitMessageWriterTest.class);
+
+  @Test
+  public void testBasic() throws IOException {
+    TopicId topicId = new NamespaceId("ns1").topic("t1");
+    TopicMetadata metadata = new TopicMetadata(topicId, new HashMap<String, String>(), 1);
+
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider());
+    GroupCommitMessageWriter writer = new GroupCommitMessageWriter("test", testWriter, 1000, 1024 * 1024);
+    try {
+      Assert.assertNull(writer.persist(new TestStoreRequest(topicId, Arrays.asList("1", "2", "3")), metadata));
+
+      List<RawMessage> messages = testWriter.getMessages().get(topicId);
+      Assert.assertEquals(3, messages.size());
+
+      List<String> payloads = new ArrayList<>();
+      for (RawMessage message : messages) {
+        Assert.assertEquals(0L, new MessageId(message.getId()).getPublishTimestamp());
+        payloads.add(Bytes.toString(message.getPayload()));
+      }
+      Assert.assertEquals(Arrays.asList("1", "2", "3"), payloads);
+
+      // Transactional write should return the rollback detail
+      RollbackDetail rollbackDetail = writer.persist(
+        new TestStoreRequest(topicId, true, 10L, Arrays.asList("a", "b").iterator()), metadata);
+      Assert.assertNotNull(rollbackDetail);
+      Assert.assertEquals(10L, rollbackDetail.getTransactionWritePointer());
+      Assert.assertEquals(1L, rollbackDetail.getStartTimestamp());
+      Assert.assertEquals(0, rollbackDetail.getStartSequenceId());
+      Assert.assertEquals(1L, rollbackDetail.getEndTimestamp());
+      Assert.assertEquals(1, rollbackDetail.getEndSequenceId());
+    } finally {
+      writer.close();
+    }
+
+    // Persist after close should fail
+    try {
+      writer.persist(new TestStoreRequest(topicId, Arrays.asList("1")), metadata);
+      Assert.fail("Expected IOException when persisting to a closed writer");
+    } catch (IOException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testBatchLimit() throws Exception {
+    int threadCount = 10;
+    final TopicId topicId = NamespaceId.DEFAULT.topic("t");
+    final TopicMetadata metadata = new TopicMetadata(topicId, new HashMap<String, String>(), 1);
+
+    // Have a write delay so that requests get accumulated while the committer is writing
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider(), 50L);
+    // Each request has 10 messages, a batch should contain at most 3 requests
+    final GroupCommitMessageWriter writer = new GroupCommitMessageWriter("test", testWriter, 25, 1024 * 1024);
+
+    final List<String> payloads = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      payloads.add(Integer.toString(i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          barrier.await();
+          for (int i = 0; i < 5; i++) {
+            writer.persist(new TestStoreRequest(topicId, payloads), metadata);
+          }
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(1, TimeUnit.MINUTES);
+    }
+    executor.shutdown();
+    writer.close();
+
+    Assert.assertEquals(threadCount * 5 * payloads.size(), testWriter.getMessages().get(topicId).size());
+
+    // The limit is only checked between requests, hence a batch can have at most 30 messages
+    LOG.info("Batch sizes: {}", testWriter.getBatchSizes());
+    for (int batchSize : testWriter.getBatchSizes()) {
+      Assert.assertTrue(batchSize <= 30);
+    }
+    // There must be some batching happened
+    Assert.assertTrue(testWriter.getBatchSizes().size() < threadCount * 5);
+  }
+
+  @Test
+  public void testWriteFailure() throws Exception {
+    TopicId topicId = NamespaceId.DEFAULT.topic("t");
+    TopicMetadata metadata = new TopicMetadata(topicId, new HashMap<String, String>(), 1);
+
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider());
+    GroupCommitMessageWriter writer = new GroupCommitMessageWriter("test", testWriter, 1000, 1024 * 1024);
+    try {
+      // A non-transactional request without payload is invalid and the writer will fail on it
+      try {
+        writer.persist(new TestStoreRequest(topicId, Iterators.<String>emptyIterator()), metadata);
+        Assert.fail("Expected failure for writing invalid request");
+      } catch (IOException e) {
+        // Expected
+      }
+
+      // The committer should still be working after failure
+      writer.persist(new TestStoreRequest(topicId, Arrays.asList("1", "2")), metadata);
+      Assert.assertEquals(2, testWriter.getMessages().get(topicId).size());
+    } finally {
+      writer.close();
+    }
+  }
+}
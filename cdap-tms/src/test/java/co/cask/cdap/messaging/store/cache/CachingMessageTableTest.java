@@ -24,6 +24,7 @@ import co.cask.cdap.common.utils.TimeProvider;
 import co.cask.cdap.messaging.MessagingUtils;
 import co.cask.cdap.messaging.TopicMetadata;
 import co.cask.cdap.messaging.cache.MessageCache;
+import co.cask.cdap.messaging.cache.OffHeapArena;
 import co.cask.cdap.messaging.data.MessageId;
 import co.cask.cdap.messaging.store.ImmutableMessageTableEntry;
 import co.cask.cdap.messaging.store.MessageTable;
@@ -49,20 +50,34 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class CachingMessageTableTest extends LevelDBMessageTableTest {
 
-  private static MessageTableCacheProvider cacheProvider;
+  static MessageTableCacheProvider cacheProvider;
 
   @BeforeClass
   public static void initCache() {
+    cacheProvider = createCacheProvider(false);
+  }
+
+  /**
+   * Creates a {@link MessageTableCacheProvider} that creates a {@link MessageCache} for each topic.
+   *
+   * @param offHeap {@code true} to store message payloads in off-heap memory
+   */
+  static MessageTableCacheProvider createCacheProvider(final boolean offHeap) {
     final LoadingCache<TopicId, MessageCache<MessageTable.Entry>> caches = CacheBuilder
       .newBuilder().build(new CacheLoader<TopicId, MessageCache<MessageTable.Entry>>() {
         @Override
         public MessageCache<MessageTable.Entry> load(TopicId key) throws Exception {
+          if (!offHeap) {
+            return new MessageCache<>(new MessageTableEntryComparator(), new MessageTableEntryWeigher(),
+                                      new MessageCache.Limits(500, 700, 1000), new NoopMetricsContext());
+          }
           return new MessageCache<>(new MessageTableEntryComparator(), new MessageTableEntryWeigher(),
-                                    new MessageCache.Limits(500, 700, 1000), new NoopMetricsContext());
+                                    new MessageCache.Limits(500, 700, 1000), new NoopMetricsContext(),
+                                    new MessageTableEntryCodec(), new OffHeapArena(256, 8));
         }
       });
 
-    cacheProvider = new MessageTableCacheProvider() {
+    return new MessageTableCacheProvider() {
       @Override
       public MessageCache<MessageTable.Entry> getMessageCache(TopicId topicId) {
         return caches.getUnchecked(topicId);
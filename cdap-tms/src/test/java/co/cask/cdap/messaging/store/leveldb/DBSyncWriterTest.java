@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.messaging.store.leveldb;
+
+import co.cask.cdap.api.common.Bytes;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.impl.Iq80DBFactory;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit-test for {@link DBSyncWriter}.
+ */
+public class DBSyncWriterTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DBSyncWriterTest.class);
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSyncPolicies() throws Exception {
+    // Writes with each policy and log the throughput for comparison
+    for (DBSyncWriter.SyncPolicy policy : DBSyncWriter.SyncPolicy.values()) {
+      try (DB db = Iq80DBFactory.factory.open(TEMP_FOLDER.newFolder(), new Options().createIfMissing(true))) {
+        DBSyncWriter writer = new DBSyncWriter(db, policy, 0L, 64 * 1024L, policy.name());
+        try {
+          long messagesPerSec = writeConcurrently(db, writer, 8, 200);
+          LOG.info("Sync policy {}: {} messages/sec", policy, messagesPerSec);
+        } finally {
+          writer.close();
+        }
+
+        // All writes should be readable
+        for (int i = 0; i < 8; i++) {
+          for (int j = 0; j < 200; j++) {
+            Assert.assertArrayEquals(Bytes.toBytes("value" + j), db.get(Bytes.toBytes("key" + i + "." + j)));
+          }
+        }
+        // The sync marker shouldn't be visible
+        Assert.assertNull(db.get(new byte[] { 0 }));
+      }
+    }
+  }
+
+  @Test
+  public void testGroupSyncByInterval() throws Exception {
+    try (DB db = Iq80DBFactory.factory.open(TEMP_FOLDER.newFolder(), new Options().createIfMissing(true))) {
+      // Use a large sync bytes so that the sync is only triggered by time
+      DBSyncWriter writer = new DBSyncWriter(db, DBSyncWriter.SyncPolicy.GROUP, 200L, Long.MAX_VALUE, "test");
+      try {
+        long startTime = System.nanoTime();
+        write(db, writer, Bytes.toBytes("key"), Bytes.toBytes("value"));
+        // The write should be acknowledged at most after one sync interval
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) < 5000L);
+        Assert.assertArrayEquals(Bytes.toBytes("value"), db.get(Bytes.toBytes("key")));
+      } finally {
+        writer.close();
+      }
+
+      // Write after close should fail
+      try {
+        write(db, writer, Bytes.toBytes("key2"), Bytes.toBytes("value2"));
+        Assert.fail("Expected IOException when writing with a closed writer");
+      } catch (IOException e) {
+        // Expected
+      }
+    }
+  }
+
+  /**
+   * Writes from multiple threads concurrently and returns the number of messages written per second.
+   */
+  private long writeConcurrently(final DB db, final DBSyncWriter writer,
+                                 int threads, final int writesPerThread) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        final int threadId = i;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            barrier.await();
+            for (int j = 0; j < writesPerThread; j++) {
+              write(db, writer, Bytes.toBytes("key" + threadId + "." + j), Bytes.toBytes("value" + j));
+            }
+            return null;
+          }
+        }));
+      }
+
+      barrier.await();
+      long startTime = System.nanoTime();
+      for (Future<?> future : futures) {
+        future.get(1, TimeUnit.MINUTES);
+      }
+      long elapsedNanos = Math.max(1L, System.nanoTime() - startTime);
+      return threads * writesPerThread * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void write(DB db, DBSyncWriter writer, byte[] key, byte[] value) throws IOException {
+    try (WriteBatch writeBatch = db.createWriteBatch()) {
+      writeBatch.put(key, value);
+      writer.write(writeBatch, key.length + value.length);
+    }
+  }
+}
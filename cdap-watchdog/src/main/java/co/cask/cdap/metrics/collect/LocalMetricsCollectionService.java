@@ -19,6 +19,8 @@ import co.cask.cdap.api.metrics.MetricStore;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.metrics.process.MetricsRollupService;
+import co.cask.cdap.metrics.store.DefaultMetricStore;
 import co.cask.cdap.proto.Id;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
@@ -45,6 +47,7 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
   private final CConfiguration cConf;
   private final MetricStore metricStore;
   private ScheduledExecutorService scheduler;
+  private MetricsRollupService rollupService;
 
   @Inject
   public LocalMetricsCollectionService(CConfiguration cConf, MetricStore metricStore) {
@@ -71,10 +74,20 @@ public final class LocalMetricsCollectionService extends AggregatedMetricsCollec
 
     // Try right away if there's anything to cleanup, then we'll schedule to do that periodically
     scheduler.schedule(createCleanupTask(retentionSecs), 1, TimeUnit.SECONDS);
+
+    // Metrics are only written to the finest resolution if roll up is enabled
+    if (cConf.getBoolean(Constants.Metrics.ROLLUP_ENABLED, false) && metricStore instanceof DefaultMetricStore) {
+      rollupService = new MetricsRollupService(cConf, (DefaultMetricStore) metricStore,
+                                               getContext(METRICS_PROCESSOR_CONTEXT));
+      rollupService.startAndWait();
+    }
   }
 
   @Override
   protected void shutDown() throws Exception {
+    if (rollupService != null) {
+      rollupService.stopAndWait();
+    }
     if (scheduler != null) {
       scheduler.shutdownNow();
     }
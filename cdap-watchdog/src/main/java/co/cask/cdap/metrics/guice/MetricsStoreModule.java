@@ -31,7 +31,10 @@ public final class MetricsStoreModule extends PrivateModule {
   @Override
   protected void configure() {
     bind(MetricDatasetFactory.class).to(DefaultMetricDatasetFactory.class).in(Scopes.SINGLETON);
+    bind(DefaultMetricStore.class);
     bind(MetricStore.class).to(DefaultMetricStore.class);
     expose(MetricStore.class);
+    // exposed for rolling up metrics
+    expose(DefaultMetricStore.class);
   }
 }
@@ -96,6 +96,9 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   private final List<ProcessMetricsThread> processMetricsThreads;
   private final String processMetricName;
   private final String delayMetricName;
+  private final String writtenMetricName;
+  private final String combinePercentMetricName;
+  private final MetricValuesCombiner metricValuesCombiner;
 
   private long metricsProcessedCount;
 
@@ -158,6 +161,9 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     this.metricsProcessIntervalMillis = metricsProcessIntervalMillis;
     processMetricName = String.format("metrics.%s.process.count", instanceId);
     delayMetricName = String.format("metrics.%s.process.delay.ms", instanceId);
+    writtenMetricName = String.format("metrics.%s.process.written.count", instanceId);
+    combinePercentMetricName = String.format("metrics.%s.process.combine.percent", instanceId);
+    metricValuesCombiner = new MetricValuesCombiner();
   }
 
   private MetricsConsumerMetaTable getMetaTable() {
@@ -256,7 +262,8 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   }
 
   /**
-   * Persist metrics into metric store
+   * Persist metrics into metric store. Metrics with the same tags, name and timestamp are combined
+   * before writing to reduce the number of writes to the metric store.
    *
    * @param metricValues a non-empty deque of {@link MetricValues}
    */
@@ -264,13 +271,24 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     long now = System.currentTimeMillis();
     long lastMetricTime = metricValues.peekLast().getTimestamp();
     long delay = now - TimeUnit.SECONDS.toMillis(lastMetricTime);
-    metricValues.add(
+
+    // Only one thread can persist metrics at a time, hence it is safe to reuse the combiner
+    metricValuesCombiner.reset();
+    metricValuesCombiner.addAll(metricValues);
+    // Number of metric values written and the number of processed values per hundred written, excluding the metrics
+    // below. It is scaled to a percentage, as the ratio is often between one and two.
+    int writtenCount = metricValuesCombiner.getOutputCount();
+    long combinePercent = metricValuesCombiner.getInputCount() * 100L / Math.max(1, writtenCount);
+    metricValuesCombiner.add(
       new MetricValues(metricsContextMap, TimeUnit.MILLISECONDS.toSeconds(now),
                        ImmutableList.of(
                          new MetricValue(processMetricName, MetricType.COUNTER, metricValues.size()),
-                         new MetricValue(delayMetricName, MetricType.GAUGE, delay))));
-    metricStore.add(metricValues);
-    metricsProcessedCount += metricValues.size();
+                         new MetricValue(delayMetricName, MetricType.GAUGE, delay),
+                         new MetricValue(writtenMetricName, MetricType.COUNTER, writtenCount),
+                         new MetricValue(combinePercentMetricName, MetricType.GAUGE, combinePercent))));
+    metricStore.add(metricValuesCombiner.getCombined());
+    metricValuesCombiner.reset();
+    metricsProcessedCount += metricValues.size() + 1;
     PROGRESS_LOG.debug("{} metrics metrics persisted. Last metric metric's timestamp: {}. " +
                          "Metrics process delay: {}ms", metricsProcessedCount, lastMetricTime, delay);
   }
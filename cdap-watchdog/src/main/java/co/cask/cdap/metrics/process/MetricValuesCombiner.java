@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import com.google.common.base.Objects;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Combines {@link MetricValues} that have the same tags and timestamp before writing to the metric store,
+ * so that each metric is written at most once per context and timestamp. Since {@link MetricValues} timestamps
+ * are in seconds, which is the finest resolution of the metric store, no precision is lost.
+ *
+ * For each metric name, counters are summed and the last gauge wins. A counter that comes after a gauge is
+ * added to the gauge value, which gives the same result as writing them to the metric store one by one.
+ */
+@NotThreadSafe
+final class MetricValuesCombiner {
+
+  private final Map<CombineKey, Map<String, CombinedValue>> combined = new LinkedHashMap<>();
+  private int inputCount;
+  private int outputCount;
+
+  /**
+   * Adds a {@link MetricValues} to be combined.
+   */
+  void add(MetricValues metricValues) {
+    CombineKey key = new CombineKey(metricValues.getTags(), metricValues.getTimestamp());
+    Map<String, CombinedValue> values = combined.get(key);
+    if (values == null) {
+      values = new LinkedHashMap<>();
+      combined.put(key, values);
+    }
+
+    for (MetricValue metricValue : metricValues.getMetrics()) {
+      inputCount++;
+      CombinedValue value = values.get(metricValue.getName());
+      if (value == null) {
+        values.put(metricValue.getName(), new CombinedValue(metricValue.getType(), metricValue.getValue()));
+        outputCount++;
+      } else {
+        value.combine(metricValue.getType(), metricValue.getValue());
+      }
+    }
+  }
+
+  /**
+   * Adds all the given {@link MetricValues} to be combined.
+   */
+  void addAll(Iterable<? extends MetricValues> metricValues) {
+    for (MetricValues values : metricValues) {
+      add(values);
+    }
+  }
+
+  /**
+   * Returns the number of {@link MetricValue} added to this combiner since the last {@link #reset()}.
+   */
+  int getInputCount() {
+    return inputCount;
+  }
+
+  /**
+   * Returns the number of {@link MetricValue} after combining.
+   */
+  int getOutputCount() {
+    return outputCount;
+  }
+
+  /**
+   * Returns the combined {@link MetricValues}, one for each unique tags and timestamp pair,
+   * in the order that they were first added.
+   */
+  Collection<MetricValues> getCombined() {
+    List<MetricValues> result = new ArrayList<>(combined.size());
+    for (Map.Entry<CombineKey, Map<String, CombinedValue>> entry : combined.entrySet()) {
+      List<MetricValue> metrics = new ArrayList<>(entry.getValue().size());
+      for (Map.Entry<String, CombinedValue> valueEntry : entry.getValue().entrySet()) {
+        CombinedValue value = valueEntry.getValue();
+        metrics.add(new MetricValue(valueEntry.getKey(), value.type, value.value));
+      }
+      CombineKey key = entry.getKey();
+      result.add(new MetricValues(key.tags, key.timestamp, metrics));
+    }
+    return result;
+  }
+
+  /**
+   * Clears all states in this combiner.
+   */
+  void reset() {
+    combined.clear();
+    inputCount = 0;
+    outputCount = 0;
+  }
+
+  /**
+   * The key for combining {@link MetricValues}.
+   */
+  private static final class CombineKey {
+    private final Map<String, String> tags;
+    private final long timestamp;
+    private final int hashCode;
+
+    private CombineKey(Map<String, String> tags, long timestamp) {
+      this.tags = tags;
+      this.timestamp = timestamp;
+      this.hashCode = Objects.hashCode(tags, timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      CombineKey other = (CombineKey) o;
+      return timestamp == other.timestamp && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The combined value of a metric.
+   */
+  private static final class CombinedValue {
+    private MetricType type;
+    private long value;
+
+    private CombinedValue(MetricType type, long value) {
+      this.type = type;
+      this.value = value;
+    }
+
+    void combine(MetricType type, long value) {
+      if (type == MetricType.GAUGE) {
+        // Gauge overrides whatever value before it
+        this.type = MetricType.GAUGE;
+        this.value = value;
+      } else {
+        // Counter increments the current value, regardless of whether it is a counter or a gauge
+        this.value += value;
+      }
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.TimeProvider;
+import co.cask.cdap.metrics.store.DefaultMetricStore;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A service that periodically rolls up metrics into the coarser resolutions of the {@link DefaultMetricStore}, one
+ * time bucket at a time, each resolution from the next finer one. A time bucket is only rolled up once it is closed
+ * for longer than the configured delay, so that most late metrics still get included. Metrics that arrive after
+ * their time bucket has been rolled up are written to the resolution directly. The roll up checkpoint of each
+ * resolution is saved after each time bucket in the {@link MetricsConsumerMetaTable}.
+ *
+ * A metric that arrives while its own time bucket is being rolled up can be missing from the coarser resolution,
+ * which the delay makes unlikely.
+ *
+ * Only one instance of this service should be running at any time.
+ */
+public class MetricsRollupService extends AbstractScheduledService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetricsRollupService.class);
+
+  private final DefaultMetricStore metricStore;
+  private final MetricsContext metricsContext;
+  private final TimeProvider timeProvider;
+  private final long intervalSeconds;
+  private final long delaySeconds;
+  private ScheduledExecutorService executor;
+
+  public MetricsRollupService(CConfiguration cConf, DefaultMetricStore metricStore, MetricsContext metricsContext) {
+    this(cConf, metricStore, metricsContext, TimeProvider.SYSTEM_TIME);
+  }
+
+  @VisibleForTesting
+  MetricsRollupService(CConfiguration cConf, DefaultMetricStore metricStore,
+                       MetricsContext metricsContext, TimeProvider timeProvider) {
+    this.metricStore = metricStore;
+    this.metricsContext = metricsContext;
+    this.timeProvider = timeProvider;
+    this.intervalSeconds = cConf.getLong(Constants.Metrics.ROLLUP_INTERVAL_SECONDS);
+    this.delaySeconds = cConf.getLong(Constants.Metrics.ROLLUP_DELAY_SECONDS);
+    Preconditions.checkArgument(intervalSeconds > 0, "Roll up interval must be > 0");
+    Preconditions.checkArgument(delaySeconds >= 0, "Roll up delay must be >= 0");
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    LOG.info("Starting metrics roll up service for resolutions {}", metricStore.getRollupResolutions());
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    LOG.info("Metrics roll up service stopped");
+  }
+
+  @Override
+  protected void runOneIteration() throws Exception {
+    try {
+      rollup();
+    } catch (Exception e) {
+      // Throwing would terminate the service. The time windows will be rolled up in the next run.
+      LOG.warn("Failed to roll up metrics. Will be retried in {} seconds.", intervalSeconds, e);
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(0, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  @Override
+  protected ScheduledExecutorService executor() {
+    executor = Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("metrics-rollup"));
+    return executor;
+  }
+
+  /**
+   * Rolls up all closed time buckets after the checkpoint of each resolution.
+   */
+  @VisibleForTesting
+  void rollup() throws Exception {
+    long now = TimeUnit.MILLISECONDS.toSeconds(timeProvider.currentTimeMillis());
+    // checkpoint of the resolution that the current one is rolled up from, -1 for the finest resolution
+    long sourceRolledUpTs = -1L;
+
+    for (int resolution : metricStore.getRollupResolutions()) {
+      long closedTs = (now - delaySeconds) / resolution * resolution;
+      if (sourceRolledUpTs >= 0) {
+        // Only buckets that are complete in the source resolution can be rolled up
+        closedTs = Math.min(closedTs, sourceRolledUpTs / resolution * resolution);
+      }
+
+      long rolledUpTs = metricStore.getRolledUpTs(resolution);
+      if (rolledUpTs < 0) {
+        // Never rolled up before, hence metrics were written to the resolution directly. Start from the first
+        // bucket that no metric can have been written to yet, while the metrics before are still written directly.
+        rolledUpTs = ((now + delaySeconds) / resolution + 1) * resolution;
+        LOG.info("Starting roll up of metrics resolution {} from {}", resolution, rolledUpTs);
+        metricStore.rollup(resolution, rolledUpTs, rolledUpTs);
+      }
+
+      while (rolledUpTs + resolution <= closedTs && state() != State.STOPPING) {
+        metricStore.rollup(resolution, rolledUpTs, rolledUpTs + resolution);
+        rolledUpTs += resolution;
+      }
+
+      metricsContext.gauge("metrics.rollup." + resolution + ".lag.seconds", Math.max(0L, now - rolledUpTs));
+      sourceRolledUpTs = rolledUpTs;
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.common.Bytes;
+
+/**
+ * A {@link MetricsMetaKey} for the roll up checkpoint of a metrics resolution in {@link MetricsConsumerMetaTable}.
+ */
+public class RollupMetaKey implements MetricsMetaKey {
+  private final byte[] key;
+
+  public RollupMetaKey(int resolution) {
+    this.key = Bytes.toBytes("rollup." + resolution);
+  }
+
+  @Override
+  public byte[] getKey() {
+    return key;
+  }
+}
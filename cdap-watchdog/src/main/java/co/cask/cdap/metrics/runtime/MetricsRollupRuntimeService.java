@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.metrics.runtime;
+
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.resource.ResourceBalancerService;
+import co.cask.cdap.metrics.process.MetricsRollupService;
+import co.cask.cdap.metrics.store.DefaultMetricStore;
+import com.google.common.util.concurrent.Service;
+import com.google.inject.Inject;
+import org.apache.twill.discovery.DiscoveryService;
+import org.apache.twill.discovery.DiscoveryServiceClient;
+import org.apache.twill.zookeeper.ZKClient;
+
+import java.util.Set;
+
+/**
+ * A service that runs the {@link MetricsRollupService} in exactly one of the metrics processor instances,
+ * by balancing a single partition between the instances.
+ */
+public final class MetricsRollupRuntimeService extends ResourceBalancerService {
+
+  private static final String SERVICE_NAME = "metrics.processor.rollup";
+
+  private final CConfiguration cConf;
+  private final DefaultMetricStore metricStore;
+  private final MetricsCollectionService metricsCollectionService;
+
+  @Inject
+  MetricsRollupRuntimeService(CConfiguration cConf,
+                              ZKClient zkClient,
+                              DiscoveryService discoveryService,
+                              DiscoveryServiceClient discoveryServiceClient,
+                              MetricsCollectionService metricsCollectionService,
+                              DefaultMetricStore metricStore) {
+    super(SERVICE_NAME, 1, zkClient, discoveryService, discoveryServiceClient);
+    this.cConf = cConf;
+    this.metricStore = metricStore;
+    this.metricsCollectionService = metricsCollectionService;
+  }
+
+  @Override
+  protected Service createService(Set<Integer> partitions) {
+    MetricsContext metricsContext = metricsCollectionService.getContext(Constants.Metrics.METRICS_PROCESSOR_CONTEXT);
+    metricStore.setMetricsContext(metricsContext);
+    return new MetricsRollupService(cConf, metricStore, metricsContext);
+  }
+}
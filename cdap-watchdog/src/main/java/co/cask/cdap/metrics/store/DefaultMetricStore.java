@@ -16,7 +16,6 @@
 
 package co.cask.cdap.metrics.store;
 
-import co.cask.cdap.api.dataset.lib.cube.Cube;
 import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
@@ -35,28 +34,40 @@ import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.metrics.TagValue;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.dataset2.lib.cube.Aggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.AggregationAlias;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultAggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultCube;
 import co.cask.cdap.data2.dataset2.lib.cube.FactTableSupplier;
+import co.cask.cdap.data2.dataset2.lib.cube.RollupCheckpoints;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import co.cask.cdap.metrics.process.MetricsConsumerMetaTable;
+import co.cask.cdap.metrics.process.RollupMetaKey;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
@@ -84,7 +95,13 @@ public class DefaultMetricStore implements MetricStore {
                                                          Constants.Metrics.Tag.WORKFLOW_RUN_ID)));
 
   private final int resolutions[];
-  private final Supplier<Cube> cube;
+  private final boolean rollupEnabled;
+  private final long rollupDelaySeconds;
+  private final long checkpointRefreshMillis;
+  // Roll up checkpoints last read or saved, so that adding metrics doesn't need to read them every time
+  private final ConcurrentMap<Integer, CachedCheckpoint> checkpoints;
+  private final Supplier<DefaultCube> cube;
+  private final Supplier<MetricsConsumerMetaTable> metaTable;
   private MetricsContext metricsContext;
 
 
@@ -197,14 +214,34 @@ public class DefaultMetricStore implements MetricStore {
   }
 
   @Inject
-  public DefaultMetricStore(final MetricDatasetFactory dsFactory) {
+  public DefaultMetricStore(final MetricDatasetFactory dsFactory, CConfiguration cConf) {
     // 1 sec, 1 min, 1 hour and "all time totals"
-    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION});
+    this(dsFactory, new int[] {1, 60, 3600, TOTALS_RESOLUTION},
+         cConf.getBoolean(Constants.Metrics.ROLLUP_ENABLED, false),
+         cConf.getLong(Constants.Metrics.ROLLUP_DELAY_SECONDS),
+         TimeUnit.SECONDS.toMillis(cConf.getLong(Constants.Metrics.ROLLUP_INTERVAL_SECONDS)),
+         cConf.getInt(Constants.Metrics.QUERY_PARALLELISM, 1));
   }
 
   // NOTE: should never be used apart from data migration during cdap upgrade
   public DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[]) {
+    this(dsFactory, resolutions, false, 0L, 0L, 1);
+  }
+
+  private DefaultMetricStore(final MetricDatasetFactory dsFactory, final int resolutions[], boolean rollupEnabled,
+                             long rollupDelaySeconds, long checkpointRefreshMillis, final int queryParallelism) {
     this.resolutions = resolutions;
+    this.rollupEnabled = rollupEnabled;
+    this.rollupDelaySeconds = rollupDelaySeconds;
+    this.checkpointRefreshMillis = checkpointRefreshMillis;
+    this.checkpoints = new ConcurrentHashMap<>();
+    this.metaTable = Suppliers.memoize(new Supplier<MetricsConsumerMetaTable>() {
+      @Override
+      public MetricsConsumerMetaTable get() {
+        return dsFactory.createConsumerMeta();
+      }
+    });
+    final RollupCheckpoints rollupCheckpoints = rollupEnabled ? createRollupCheckpoints() : null;
     final FactTableSupplier factTableSupplier = new FactTableSupplier() {
       @Override
       public FactTable get(int resolution, int ignoredRollTime) {
@@ -212,10 +249,12 @@ public class DefaultMetricStore implements MetricStore {
         return dsFactory.getOrCreateFactTable(resolution);
       }
     };
-    this.cube = Suppliers.memoize(new Supplier<Cube>() {
+    this.cube = Suppliers.memoize(new Supplier<DefaultCube>() {
       @Override
-      public Cube get() {
-        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS);
+      public DefaultCube get() {
+        DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS,
+                                           rollupCheckpoints, createQueryExecutor(queryParallelism),
+                                           Math.max(1, queryParallelism));
         cube.setMetricsCollector(metricsContext);
         return cube;
       }
@@ -253,6 +292,119 @@ public class DefaultMetricStore implements MetricStore {
     cube.get().add(facts);
   }
 
+  /**
+   * Creates the executor for executing query scans concurrently, or returns {@code null} if queries are executed
+   * with a single scan. Threads are terminated when idle, hence the executor doesn't need to be shutdown.
+   */
+  @Nullable
+  private static ExecutorService createQueryExecutor(int queryParallelism) {
+    if (queryParallelism <= 1) {
+      return null;
+    }
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(queryParallelism, queryParallelism, 60L, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("metrics-query-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * Creates the {@link RollupCheckpoints} of the cube. Checkpoints are cached and read again once they are older than
+   * the roll up interval. The roll up only moves the checkpoints to time buckets closed for longer than the roll up
+   * delay, which bounds the checkpoints that the cube may not have seen yet.
+   */
+  private RollupCheckpoints createRollupCheckpoints() {
+    return new RollupCheckpoints() {
+      @Override
+      public long getRolledUpTs(int resolution) {
+        CachedCheckpoint checkpoint = checkpoints.get(resolution);
+        if (checkpoint != null && System.currentTimeMillis() - checkpoint.readTime < checkpointRefreshMillis) {
+          return checkpoint.rolledUpTs;
+        }
+        return getLatestRolledUpTs(resolution);
+      }
+
+      @Override
+      public long getLatestRolledUpTs(int resolution) {
+        try {
+          long rolledUpTs = DefaultMetricStore.this.getRolledUpTs(resolution);
+          updateCheckpoint(resolution, rolledUpTs);
+          return rolledUpTs;
+        } catch (Exception e) {
+          throw Throwables.propagate(e);
+        }
+      }
+
+      @Override
+      public long getMaxRolledUpTs() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - rollupDelaySeconds;
+      }
+    };
+  }
+
+  /**
+   * Caches the given checkpoint of the given resolution, unless a later one is cached already.
+   */
+  private void updateCheckpoint(int resolution, long rolledUpTs) {
+    CachedCheckpoint checkpoint = new CachedCheckpoint(rolledUpTs, System.currentTimeMillis());
+    while (true) {
+      CachedCheckpoint existing = checkpoints.putIfAbsent(resolution, checkpoint);
+      if (existing == null || existing.rolledUpTs > rolledUpTs
+        || checkpoints.replace(resolution, existing, checkpoint)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the resolutions that are computed by rolling up the next finer resolution in ascending order, or an
+   * empty list if roll up is disabled. Totals are not rolled up since they have no time buckets to roll up, hence
+   * they are always written directly.
+   */
+  public List<Integer> getRollupResolutions() {
+    List<Integer> result = Lists.newArrayList();
+    if (!rollupEnabled) {
+      return result;
+    }
+    int finest = Integer.MAX_VALUE;
+    for (int resolution : resolutions) {
+      finest = Math.min(finest, resolution);
+    }
+    for (int resolution : resolutions) {
+      if (resolution != finest && resolution != TOTALS_RESOLUTION) {
+        result.add(resolution);
+      }
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * Returns the timestamp in seconds before which metrics have been rolled up into the given resolution,
+   * or {@code -1} if roll up of the resolution has not been started yet.
+   */
+  public long getRolledUpTs(int resolution) throws Exception {
+    return metaTable.get().get(new RollupMetaKey(resolution));
+  }
+
+  /**
+   * Rolls up the time buckets of the given resolution in the given range from the next finer resolution and
+   * saves the end of the range as the roll up checkpoint of the resolution. Since the time buckets are recomputed
+   * and overwritten, calling it again with the same range, for example after failing to save the checkpoint,
+   * doesn't change the metrics.
+   *
+   * @param resolution the resolution to roll up into
+   * @param startTs start timestamp in seconds, inclusive; must be a multiple of the resolution
+   * @param endTs end timestamp in seconds, exclusive; must be a multiple of the resolution
+   */
+  public void rollup(int resolution, long startTs, long endTs) throws Exception {
+    if (startTs < endTs) {
+      cube.get().rollup(resolution, startTs, endTs);
+    }
+    metaTable.get().save(Collections.singletonMap(new RollupMetaKey(resolution), endTs));
+    updateCheckpoint(resolution, endTs);
+  }
+
   @Override
   public Collection<MetricTimeSeries> query(MetricDataQuery query) {
     Collection<TimeSeries> cubeResult = cube.get().query(buildCubeQuery(query));
@@ -355,4 +507,17 @@ public class DefaultMetricStore implements MetricStore {
       }
     });
   }
+
+  /**
+   * A roll up checkpoint and the time it was read or saved.
+   */
+  private static final class CachedCheckpoint {
+    private final long rolledUpTs;
+    private final long readTime;
+
+    CachedCheckpoint(long rolledUpTs, long readTime) {
+      this.rolledUpTs = rolledUpTs;
+      this.readTime = readTime;
+    }
+  }
 }
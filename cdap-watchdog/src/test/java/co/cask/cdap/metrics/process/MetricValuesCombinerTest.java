@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit test for {@link MetricValuesCombiner}.
+ */
+public class MetricValuesCombinerTest {
+
+  private static final Map<String, String> CONTEXT1 = ImmutableMap.of("ns", "ns1", "app", "app1");
+  private static final Map<String, String> CONTEXT2 = ImmutableMap.of("ns", "ns1", "app", "app2");
+
+  @Test
+  public void testCombine() {
+    MetricValuesCombiner combiner = new MetricValuesCombiner();
+
+    List<MetricValues> input = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      // Use a different map instance for the same context to make sure tags are compared by value
+      input.add(new MetricValues(new HashMap<>(CONTEXT1), 1000L, ImmutableList.of(
+        new MetricValue("count", MetricType.COUNTER, 1),
+        new MetricValue("gauge", MetricType.GAUGE, i))));
+      input.add(new MetricValues(CONTEXT2, "count", 1000L + i % 2, 2, MetricType.COUNTER));
+    }
+    combiner.addAll(input);
+
+    Assert.assertEquals(300, combiner.getInputCount());
+    Assert.assertEquals(4, combiner.getOutputCount());
+
+    Collection<MetricValues> combined = combiner.getCombined();
+    Assert.assertEquals(3, combined.size());
+    Map<String, Long> result = toMap(combined);
+    Assert.assertEquals(ImmutableMap.of("app1.1000.count", 100L, "app1.1000.gauge", 99L,
+                                        "app2.1000.count", 100L, "app2.1001.count", 100L), result);
+
+    combiner.reset();
+    Assert.assertEquals(0, combiner.getInputCount());
+    Assert.assertEquals(0, combiner.getOutputCount());
+    Assert.assertTrue(combiner.getCombined().isEmpty());
+  }
+
+  @Test
+  public void testMixedTypes() {
+    MetricValuesCombiner combiner = new MetricValuesCombiner();
+
+    // Counter after gauge should be added to the gauge, while gauge after counter overrides the counter
+    combiner.add(new MetricValues(CONTEXT1, "m1", 1000L, 10, MetricType.GAUGE));
+    combiner.add(new MetricValues(CONTEXT1, "m1", 1000L, 5, MetricType.COUNTER));
+    combiner.add(new MetricValues(CONTEXT1, "m2", 1000L, 5, MetricType.COUNTER));
+    combiner.add(new MetricValues(CONTEXT1, "m2", 1000L, 3, MetricType.GAUGE));
+
+    Collection<MetricValues> combined = combiner.getCombined();
+    Assert.assertEquals(1, combined.size());
+    List<MetricValue> metrics = new ArrayList<>(combined.iterator().next().getMetrics());
+    Assert.assertEquals(2, metrics.size());
+    Assert.assertEquals("m1", metrics.get(0).getName());
+    Assert.assertEquals(MetricType.GAUGE, metrics.get(0).getType());
+    Assert.assertEquals(15L, metrics.get(0).getValue());
+    Assert.assertEquals("m2", metrics.get(1).getName());
+    Assert.assertEquals(MetricType.GAUGE, metrics.get(1).getType());
+    Assert.assertEquals(3L, metrics.get(1).getValue());
+  }
+
+  private Map<String, Long> toMap(Collection<MetricValues> metricValues) {
+    Map<String, Long> result = new HashMap<>();
+    for (MetricValues values : metricValues) {
+      for (MetricValue value : values.getMetrics()) {
+        Assert.assertNull(result.put(values.getTags().get("app") + "." + values.getTimestamp() + "."
+                                       + value.getName(), value.getValue()));
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
+import co.cask.cdap.api.metrics.MetricDataQuery;
+import co.cask.cdap.api.metrics.MetricTimeSeries;
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.TimeProvider;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import co.cask.cdap.metrics.store.DefaultMetricStore;
+import co.cask.cdap.metrics.store.MetricDatasetFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unit-test for {@link MetricsRollupService}.
+ */
+public class MetricsRollupServiceTest {
+
+  private static final Map<String, String> TAGS = ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, "ns1");
+
+  @Test
+  public void testRollup() throws Exception {
+    MetricDatasetFactory dsFactory = createDatasetFactory("testRollup");
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(Constants.Metrics.ROLLUP_ENABLED, true);
+    cConf.setLong(Constants.Metrics.ROLLUP_INTERVAL_SECONDS, 60L);
+    cConf.setLong(Constants.Metrics.ROLLUP_DELAY_SECONDS, 10L);
+
+    DefaultMetricStore metricStore = new DefaultMetricStore(dsFactory, cConf);
+    Assert.assertEquals(ImmutableList.of(60, 3600), metricStore.getRollupResolutions());
+
+    final AtomicLong currentTime = new AtomicLong(TimeUnit.SECONDS.toMillis(1000L));
+    MetricsRollupService rollupService = new MetricsRollupService(cConf, metricStore, new NoopMetricsContext(),
+                                                                  new TimeProvider() {
+      @Override
+      public long currentTimeMillis() {
+        return currentTime.get();
+      }
+    });
+
+    // The first roll up starts from the first time bucket after the delay, metrics before are written directly
+    rollupService.rollup();
+    Assert.assertEquals(1020L, metricStore.getRolledUpTs(60));
+    Assert.assertEquals(3600L, metricStore.getRolledUpTs(3600));
+
+    metricStore.add(ImmutableList.of(new MetricValues(TAGS, "counter", 970L, 1L, MetricType.COUNTER),
+                                     new MetricValues(TAGS, "counter", 1010L, 2L, MetricType.COUNTER),
+                                     new MetricValues(TAGS, "counter", 1030L, 4L, MetricType.COUNTER),
+                                     new MetricValues(TAGS, "gauge", 970L, 5L, MetricType.GAUGE),
+                                     new MetricValues(TAGS, "gauge", 1030L, 7L, MetricType.GAUGE)));
+
+    // Metrics that are not rolled up yet are included in queries
+    verifyQueries(metricStore, 0L);
+
+    currentTime.set(TimeUnit.SECONDS.toMillis(1100L));
+    rollupService.rollup();
+    Assert.assertEquals(1080L, metricStore.getRolledUpTs(60));
+    Assert.assertEquals(3600L, metricStore.getRolledUpTs(3600));
+    verifyQueries(metricStore, 0L);
+
+    // A metric arriving after its time bucket has been rolled up is written to the coarser resolution directly
+    metricStore.add(new MetricValues(TAGS, "counter", 1030L, 8L, MetricType.COUNTER));
+    verifyQueries(metricStore, 8L);
+
+    // Rolling up the coarsest resolution only includes time buckets rolled up in the finer resolution
+    metricStore.add(new MetricValues(TAGS, "counter2", 4000L, 16L, MetricType.COUNTER));
+    currentTime.set(TimeUnit.SECONDS.toMillis(7300L));
+    rollupService.rollup();
+    Assert.assertEquals(7260L, metricStore.getRolledUpTs(60));
+    Assert.assertEquals(7200L, metricStore.getRolledUpTs(3600));
+    verifyQuery(metricStore, 3600, 0L, 7199L, "system.counter2", AggregationFunction.SUM,
+                timeValues(3600, 16));
+
+    // Without roll up, only the coarser resolutions are queried, which should have the rolled up metrics
+    DefaultMetricStore noRollupStore = new DefaultMetricStore(dsFactory, CConfiguration.create());
+    verifyQueries(noRollupStore, 8L);
+    verifyQuery(noRollupStore, 3600, 0L, 7199L, "system.counter2", AggregationFunction.SUM,
+                timeValues(3600, 16));
+  }
+
+  /**
+   * Verifies queries of the metrics up to 1199 seconds, plus the given late count at 1030 seconds.
+   */
+  private void verifyQueries(DefaultMetricStore metricStore, long lateCount) {
+    verifyQuery(metricStore, 60, "system.counter", AggregationFunction.SUM, timeValues(960, 3, 1020, 4 + lateCount));
+    verifyQuery(metricStore, 60, "system.gauge", AggregationFunction.LATEST, timeValues(960, 5, 1020, 7));
+    verifyQuery(metricStore, 3600, "system.counter", AggregationFunction.SUM, timeValues(0, 7 + lateCount));
+    verifyQuery(metricStore, DefaultMetricStore.TOTALS_RESOLUTION, "system.counter", AggregationFunction.SUM,
+                timeValues(0, 7 + lateCount));
+    verifyQuery(metricStore, DefaultMetricStore.TOTALS_RESOLUTION, "system.gauge", AggregationFunction.LATEST,
+                timeValues(0, 7));
+  }
+
+  private void verifyQuery(DefaultMetricStore metricStore, int resolution, String metricName,
+                           AggregationFunction function, List<TimeValue> expected) {
+    long endTs = resolution == DefaultMetricStore.TOTALS_RESOLUTION ? 1200L : 1199L;
+    verifyQuery(metricStore, resolution, 0L, endTs, metricName, function, expected);
+  }
+
+  private void verifyQuery(DefaultMetricStore metricStore, int resolution, long startTs, long endTs,
+                           String metricName, AggregationFunction function, List<TimeValue> expected) {
+    Collection<MetricTimeSeries> result = metricStore.query(
+      new MetricDataQuery(startTs, endTs, resolution, Integer.MAX_VALUE, ImmutableMap.of(metricName, function),
+                          TAGS, ImmutableList.<String>of(), null));
+    Assert.assertEquals(1, result.size());
+    Assert.assertEquals(expected, result.iterator().next().getTimeValues());
+  }
+
+  private List<TimeValue> timeValues(long... values) {
+    ImmutableList.Builder<TimeValue> builder = ImmutableList.builder();
+    for (int i = 0; i < values.length; i += 2) {
+      builder.add(new TimeValue(values[i], values[i + 1]));
+    }
+    return builder.build();
+  }
+
+  private MetricDatasetFactory createDatasetFactory(final String name) {
+    final String entityTableName = name + ".entity";
+    final String metaTableName = name + ".meta";
+    InMemoryTableService.create(entityTableName);
+    InMemoryTableService.create(metaTableName);
+
+    return new MetricDatasetFactory() {
+      @Override
+      public FactTable getOrCreateFactTable(int resolution) {
+        String tableName = name + ".ts." + resolution;
+        InMemoryTableService.create(tableName);
+        return new FactTable(new InMemoryMetricsTable(tableName),
+                             new EntityTable(new InMemoryMetricsTable(entityTableName)), resolution, 3600);
+      }
+
+      @Override
+      public MetricsConsumerMetaTable createConsumerMeta() {
+        return new MetricsConsumerMetaTable(new InMemoryMetricsTable(metaTableName));
+      }
+    };
+  }
+}